@@ -0,0 +1,345 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.github.palindromicity.syslog.concurrent.BatchingExecutor;
+import com.github.palindromicity.syslog.dsl.LimitExceededException;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.dsl.SyslogMapBuilder;
+import com.github.palindromicity.syslog.message.MessageExtractor;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * Base {@link SyslogParser} that builds its {@code Map}s from the events of
+ * {@link #parseEvents(String, SyslogEventHandler)}, with the options of the {@link SyslogParserBuilder}.
+ * <p>
+ * Each line is checked against the limits of the {@link LineLimiter}, if there is one, before it is parsed.
+ * </p>
+ */
+abstract class AbstractSyslogParser implements SyslogParser {
+
+  /**
+   * {@link com.github.palindromicity.syslog.KeyProvider} to provide keys for the {@link SyslogMapBuilder}.
+   */
+  protected final KeyProvider keyProvider;
+
+  /**
+   * {@link NilPolicy} for the {@link SyslogMapBuilder}.
+   */
+  protected final NilPolicy nilPolicy;
+  protected final StructuredDataPolicy structuredDataPolicy;
+  protected final EnumSet<AllowableDeviations> deviations;
+
+  /**
+   * {@link BatchingExecutor} for the asynchronous methods.
+   */
+  private final BatchingExecutor batchingExecutor;
+
+  /**
+   * Factory for the {@code Map}s parsed into, or null for the builder's own immutable maps.
+   */
+  private final Supplier<Map<String, Object>> mapFactory;
+
+  /**
+   * Whether the {@code Consumer} variants reuse a single {@code Map}.
+   */
+  private final boolean reuseMaps;
+
+  /**
+   * The {@link MessageExtractor} of fields from the MSG, or null.
+   */
+  private final MessageExtractor messageExtractor;
+
+  /**
+   * The {@link LineLimiter} applied to each line, or null.
+   */
+  private final LineLimiter lineLimiter;
+
+  /**
+   * The {@code Map} reused by each thread calling {@link #parseLine(String, Consumer)}.
+   */
+  private final ThreadLocal<Map<String, Object>> reusedMap = ThreadLocal.withInitial(this::newReusableMap);
+
+  AbstractSyslogParser(KeyProvider keyProvider, NilPolicy nilPolicy, StructuredDataPolicy structuredDataPolicy,
+      EnumSet<AllowableDeviations> deviations, BatchingExecutor batchingExecutor,
+      Supplier<Map<String, Object>> mapFactory, boolean reuseMaps, MessageExtractor messageExtractor,
+      LineLimiter lineLimiter) {
+    Validate.notNull(keyProvider, "keyProvider");
+    Validate.notNull(batchingExecutor, "batchingExecutor");
+    this.keyProvider = keyProvider;
+    this.nilPolicy = nilPolicy == null ? NilPolicy.OMIT : nilPolicy;
+    this.structuredDataPolicy = structuredDataPolicy == null ? StructuredDataPolicy.FLATTEN : structuredDataPolicy;
+    this.deviations = deviations;
+    this.batchingExecutor = batchingExecutor;
+    this.mapFactory = mapFactory;
+    this.reuseMaps = reuseMaps;
+    this.messageExtractor = messageExtractor;
+    this.lineLimiter = lineLimiter;
+  }
+
+  /**
+   * Handler for {@link #validate(String)}, ignoring every value.
+   */
+  private static final SyslogEventHandler VALIDATING_HANDLER = new SyslogEventHandler() {
+  };
+
+  @Override
+  public final void parseLine(String line, SyslogEventHandler handler) {
+    Validate.notBlank(line, "line");
+    Validate.notNull(handler, "handler");
+    final String limited;
+    try {
+      limited = limit(line);
+    } catch (LimitExceededException e) {
+      handler.onError(e);
+      return;
+    }
+    parseEvents(limited, handler);
+  }
+
+  @Override
+  public final void parseLine(byte[] bytes, int offset, int length, SyslogEventHandler handler) {
+    Validate.notNull(bytes, "bytes");
+    Validate.notNull(handler, "handler");
+    if (length < 1) {
+      throw new IllegalArgumentException("length must be greater than 0");
+    }
+    final byte[] limited;
+    try {
+      limited = limit(bytes, offset, length);
+    } catch (LimitExceededException e) {
+      handler.onError(e);
+      return;
+    }
+    if (limited == null) {
+      parseEvents(bytes, offset, length, handler);
+    } else {
+      parseEvents(limited, 0, limited.length, handler);
+    }
+  }
+
+  /**
+   * Parse a line within the limits, passing each part of the message to a {@link SyslogEventHandler}.
+   *
+   * @param line the line of Syslog to parse
+   * @param handler the {@link SyslogEventHandler}
+   */
+  abstract void parseEvents(String line, SyslogEventHandler handler);
+
+  /**
+   * Parse a slice of UTF-8 bytes within the limits, passing each part of the message to a
+   * {@link SyslogEventHandler}.  The default implementation decodes the slice to a {@code String}.
+   *
+   * @param bytes the bytes holding the line of Syslog to parse
+   * @param offset the offset of the line
+   * @param length the length of the line
+   * @param handler the {@link SyslogEventHandler}
+   */
+  void parseEvents(byte[] bytes, int offset, int length, SyslogEventHandler handler) {
+    parseEvents(new String(bytes, offset, length, StandardCharsets.UTF_8), handler);
+  }
+
+  /**
+   * Returns the line within the limits of the {@link LineLimiter}, if there is one.
+   *
+   * @param line the line
+   * @return the line, or the truncated line
+   * @throws LimitExceededException if the line is rejected
+   */
+  final String limit(String line) {
+    return lineLimiter == null ? line : lineLimiter.apply(line);
+  }
+
+  /**
+   * Returns the slice of UTF-8 bytes within the limits of the {@link LineLimiter}, if there is one.
+   *
+   * @param bytes the bytes
+   * @param offset the offset of the line
+   * @param length the length of the line
+   * @return the truncated line, or null if the slice is within the limits
+   * @throws LimitExceededException if the line is rejected
+   */
+  final byte[] limit(byte[] bytes, int offset, int length) {
+    return lineLimiter == null ? null : lineLimiter.apply(bytes, offset, length);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The line is parsed to events that are ignored, so no {@code Map} is built.
+   * </p>
+   */
+  @Override
+  public ValidationStatus validate(String line) {
+    Validate.notNull(line, "line");
+    if (line.trim().isEmpty()) {
+      return ValidationStatus.BLANK;
+    }
+    try {
+      parseLine(line, VALIDATING_HANDLER);
+      return ValidationStatus.VALID;
+    } catch (LimitExceededException e) {
+      return ValidationStatus.LIMIT;
+    } catch (ParseException e) {
+      return ValidationStatus.INVALID;
+    }
+  }
+
+  @Override
+  public Map<String, Object> parseLine(String syslogLine) {
+    return parseInto(syslogLine, mapFactory == null ? null : mapFactory.get());
+  }
+
+  @Override
+  public Map<String, Object> parseLine(byte[] bytes, int offset, int length) {
+    SyslogMapBuilder mapBuilder = newMapBuilder(mapFactory == null ? null : mapFactory.get());
+    parseLine(bytes, offset, length, mapBuilder);
+    return mapBuilder.getMsgMap();
+  }
+
+  private Map<String, Object> parseInto(String syslogLine, Map<String, Object> msgMap) {
+    Validate.notBlank(syslogLine, "syslogLine");
+    SyslogMapBuilder mapBuilder = newMapBuilder(msgMap);
+    parseLine(syslogLine, mapBuilder);
+    return mapBuilder.getMsgMap();
+  }
+
+  private SyslogMapBuilder newMapBuilder(Map<String, Object> msgMap) {
+    return new SyslogMapBuilder(keyProvider, nilPolicy, structuredDataPolicy, msgMap, messageExtractor);
+  }
+
+  private Map<String, Object> newReusableMap() {
+    return mapFactory == null ? new HashMap<>() : mapFactory.get();
+  }
+
+  /**
+   * Returns the function parsing each line for the {@code Consumer} variants of {@code parseLines}.
+   */
+  private Function<String, Map<String, Object>> consumerLineParser() {
+    if (!reuseMaps) {
+      return this::parseLine;
+    }
+    final Map<String, Object> msgMap = newReusableMap();
+    return (line) -> {
+      msgMap.clear();
+      return parseInto(line, msgMap);
+    };
+  }
+
+  @Override
+  public void parseLine(String line, Consumer<Map<String, Object>> consumer) {
+    Validate.notNull(consumer, "consumer");
+    if (reuseMaps) {
+      Map<String, Object> msgMap = reusedMap.get();
+      msgMap.clear();
+      consumer.accept(parseInto(line, msgMap));
+    } else {
+      consumer.accept(parseLine(line));
+    }
+  }
+
+  @Override
+  public List<Map<String, Object>> parseLines(Reader reader) {
+    Validate.notNull(reader, "reader");
+    return new BufferedReader(reader).lines()
+        .map(this::parseLine)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public void parseLines(Reader reader, Consumer<Map<String, Object>> consumer) {
+    Validate.notNull(reader, "reader");
+    Validate.notNull(consumer, "consumer");
+    new BufferedReader(reader).lines()
+        .map(consumerLineParser())
+        .forEach(consumer);
+  }
+
+  @Override
+  public void parseLines(Reader reader, Consumer<Map<String, Object>> messageConsumer,
+      BiConsumer<String,Throwable> errorConsumer) {
+    Validate.notNull(reader, "reader");
+    Validate.notNull(messageConsumer, "messageConsumer");
+    Validate.notNull(errorConsumer, "errorConsumer");
+
+    // lines are handled as they are read, so long lived readers such as network connections are not buffered
+    final Function<String, Map<String, Object>> lineParser = consumerLineParser();
+    new BufferedReader(reader).lines().forEach((line) -> {
+      try {
+        messageConsumer.accept(lineParser.apply(line));
+      } catch (Throwable throwable) {
+        errorConsumer.accept(line, throwable);
+      }
+    });
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Lines are run on the configured {@code Executor}, many lines to a task when lines are submitted faster
+   * than they are parsed.
+   * </p>
+   */
+  @Override
+  public CompletableFuture<Map<String, Object>> parseLineAsync(String line) {
+    return batchingExecutor.submit(() -> parseLine(line));
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The lines are read on the configured {@code Executor}, and then parsed in batches in parallel.
+   * </p>
+   */
+  @Override
+  public CompletableFuture<List<Map<String, Object>>> parseLinesAsync(Reader reader) {
+    Validate.notNull(reader, "reader");
+    final Executor executor = batchingExecutor.getExecutor();
+    final int batchSize = batchingExecutor.getBatchSize();
+    return CompletableFuture.supplyAsync(() -> new BufferedReader(reader).lines().collect(Collectors.toList()),
+        executor).thenCompose((lines) -> {
+          List<CompletableFuture<List<Map<String, Object>>>> batches = new ArrayList<>();
+          for (int start = 0; start < lines.size(); start += batchSize) {
+            final List<String> batch = lines.subList(start, Math.min(lines.size(), start + batchSize));
+            batches.add(CompletableFuture.supplyAsync(() -> batch.stream()
+                .map(this::parseLine)
+                .collect(Collectors.toList()), executor));
+          }
+          return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).thenApply((ignored) -> {
+            List<Map<String, Object>> maps = new ArrayList<>(lines.size());
+            batches.forEach((batch) -> maps.addAll(batch.join()));
+            return maps;
+          });
+        });
+  }
+}
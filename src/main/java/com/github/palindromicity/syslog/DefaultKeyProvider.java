@@ -84,4 +84,9 @@ public class DefaultKeyProvider implements KeyProvider {
   public Pattern getStructuredElementIdParamNamePattern() {
     return STRUCTURED_ELEMENT_ID_PNAME_PATTERN;
   }
+
+  @Override
+  public String getMessageFieldFormat() {
+    return SyslogFieldKeys.MESSAGE_FIELD_FMT.getField();
+  }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.github.palindromicity.syslog.concurrent.BatchingExecutor;
+import com.github.palindromicity.syslog.dsl.LimitExceededException;
+import com.github.palindromicity.syslog.message.MessageExtractor;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@link SyslogParser} for a mix of RFC 5424 and RFC 3164 syslog, choosing the parser for each line from its
+ * first few characters, so no line is parsed twice.
+ * <p>
+ * After the PRI, a month abbreviation followed by a space is RFC 3164, anything else, such as the VERSION digit,
+ * is RFC 5424.
+ * </p>
+ */
+class DetectingSyslogParser extends AbstractSyslogParser {
+
+  private final Rfc5424SyslogParser rfc5424Parser;
+  private final Rfc3164SyslogParser rfc3164Parser;
+
+  DetectingSyslogParser(KeyProvider keyProvider, NilPolicy nilPolicy, StructuredDataPolicy structuredDataPolicy,
+      EnumSet<AllowableDeviations> deviations, BatchingExecutor batchingExecutor,
+      Supplier<Map<String, Object>> mapFactory, boolean reuseMaps, MessageExtractor messageExtractor,
+      LineLimiter lineLimiter) {
+    super(keyProvider, nilPolicy, structuredDataPolicy, deviations, batchingExecutor, mapFactory, reuseMaps,
+        messageExtractor, lineLimiter);
+    // the inner parsers only parse, the lines are limited once here
+    this.rfc5424Parser = new Rfc5424SyslogParser(keyProvider, nilPolicy, structuredDataPolicy, deviations,
+        batchingExecutor);
+    this.rfc3164Parser = new Rfc3164SyslogParser(keyProvider, nilPolicy, deviations, batchingExecutor);
+  }
+
+  @Override
+  void parseEvents(String line, SyslogEventHandler handler) {
+    if (isRfc3164(line)) {
+      rfc3164Parser.parseEvents(line, handler);
+    } else {
+      rfc5424Parser.parseEvents(line, handler);
+    }
+  }
+
+  @Override
+  void parseEvents(byte[] bytes, int offset, int length, SyslogEventHandler handler) {
+    if (isRfc3164(bytes, offset, length)) {
+      rfc3164Parser.parseEvents(bytes, offset, length, handler);
+    } else {
+      rfc5424Parser.parseEvents(bytes, offset, length, handler);
+    }
+  }
+
+  @Override
+  public ValidationStatus validate(String line) {
+    Validate.notNull(line, "line");
+    if (line.trim().isEmpty()) {
+      return ValidationStatus.BLANK;
+    }
+    final String limited;
+    try {
+      limited = limit(line);
+    } catch (LimitExceededException e) {
+      return ValidationStatus.LIMIT;
+    }
+    return isRfc3164(limited) ? rfc3164Parser.validate(limited) : rfc5424Parser.validate(limited);
+  }
+
+  @Override
+  public ValidationStatus validate(byte[] bytes, int offset, int length) {
+    Validate.notNull(bytes, "bytes");
+    final byte[] limited;
+    try {
+      limited = limit(bytes, offset, length);
+    } catch (LimitExceededException e) {
+      return ValidationStatus.LIMIT;
+    }
+    if (limited != null) {
+      return isRfc3164(limited, 0, limited.length) ? rfc3164Parser.validate(limited, 0, limited.length)
+          : rfc5424Parser.validate(limited, 0, limited.length);
+    }
+    return isRfc3164(bytes, offset, length) ? rfc3164Parser.validate(bytes, offset, length)
+        : rfc5424Parser.validate(bytes, offset, length);
+  }
+
+  /**
+   * Returns true if the line looks like RFC 3164.
+   *
+   * @param line the line
+   * @return true if the line is RFC 3164
+   */
+  static boolean isRfc3164(CharSequence line) {
+    final int length = line.length();
+    final int start = afterPriority(line, length);
+    return start >= 0 && start + 3 < length && line.charAt(start + 3) == ' '
+        && Rfc3164SyslogParser.isMonth(line.charAt(start), line.charAt(start + 1), line.charAt(start + 2));
+  }
+
+  /**
+   * Returns true if the slice looks like RFC 3164.
+   *
+   * @param bytes the bytes
+   * @param offset the offset of the line
+   * @param length the length of the line
+   * @return true if the line is RFC 3164
+   */
+  static boolean isRfc3164(byte[] bytes, int offset, int length) {
+    final int end = offset + length;
+    int start = offset;
+    if (length > 0 && bytes[offset] == '<') {
+      start++;
+      while (start < end && start - offset <= 4 && bytes[start] >= '0' && bytes[start] <= '9') {
+        start++;
+      }
+      if (start >= end || bytes[start] != '>') {
+        return false;
+      }
+      start++;
+    }
+    return start + 3 < end && bytes[start + 3] == ' '
+        && Rfc3164SyslogParser.isMonth(bytes[start], bytes[start + 1], bytes[start + 2]);
+  }
+
+  /**
+   * Returns the index after the PRI, 0 if there is none, or -1 if it is not terminated.
+   */
+  private static int afterPriority(CharSequence line, int length) {
+    if (length == 0 || line.charAt(0) != '<') {
+      return 0;
+    }
+    int index = 1;
+    while (index < length && index <= 4 && line.charAt(index) >= '0' && line.charAt(index) <= '9') {
+      index++;
+    }
+    return index < length && line.charAt(index) == '>' ? index + 1 : -1;
+  }
+}
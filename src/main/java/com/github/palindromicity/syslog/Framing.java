@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+/**
+ * How Syslog messages are delimited in a stream
+ * @see <a href="https://tools.ietf.org/html/rfc6587#section-3.4">RFC 6587 Section 3.4</a>.
+ */
+public enum Framing {
+  /**
+   * Each message is written as it is, with nothing to delimit it.
+   */
+  NONE,
+  /**
+   * Each message is preceded by its length in octets and a space.
+   */
+  OCTET_COUNTING,
+  /**
+   * Each message is followed by a line feed.
+   */
+  NON_TRANSPARENT
+}
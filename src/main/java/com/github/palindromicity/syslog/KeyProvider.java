@@ -130,4 +130,21 @@ public interface KeyProvider {
    * @return {@code Pattern}
    */
   Pattern getStructuredElementIdParamNamePattern();
+
+  /**
+   * Provides a {@code String.format} {@code String} for producing the key names of the fields extracted from the MSG
+   * by a {@link com.github.palindromicity.syslog.message.MessageExtractor}.
+   *
+   * The format {@code String} supports one parameter {@code %s} that will be passed the field name.
+   * The default is the MSG key name followed by {@code .%s}.
+   * For example:
+   * <pre>
+   *   {@code syslog.message.%s}
+   * </pre>
+   *
+   * @return MSG field format String
+   */
+  default String getMessageFieldFormat() {
+    return getMessage() + ".%s";
+  }
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+/**
+ * {@code LimitAction} is what is done with a line exceeding a {@link SyslogLimit}.
+ */
+public enum LimitAction {
+  /**
+   * The line is parsed without what exceeds the limit: the end of the line or MSG, or the extra STRUCTURED-DATA
+   * elements or params.
+   */
+  TRUNCATE,
+  /**
+   * The line fails to parse with a {@link com.github.palindromicity.syslog.dsl.LimitExceededException}.
+   */
+  REJECT
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code LimitMetrics} counts the lines exceeding each {@link SyslogLimit}, and the lines from each sender, by
+ * HOSTNAME, exceeding any limit.  A line is counted once for each limit it exceeds.
+ * <p>
+ * Up to {@link #MAX_SENDERS} senders are counted, later senders are only counted in the totals.  A
+ * {@code LimitMetrics} may be shared between parsers, and is thread safe.
+ * </p>
+ */
+public class LimitMetrics {
+
+  /**
+   * The maximum number of senders counted.
+   */
+  public static final int MAX_SENDERS = 1024;
+
+  private static final SyslogLimit[] LIMITS = SyslogLimit.values();
+
+  private final LongAdder[] counts = new LongAdder[LIMITS.length];
+  private final Map<String, LongAdder> senderCounts = new ConcurrentHashMap<>();
+
+  /**
+   * Create a new {@code LimitMetrics}.
+   */
+  public LimitMetrics() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Counts a line exceeding a limit.
+   *
+   * @param limit the {@link SyslogLimit}
+   * @param sender the HOSTNAME of the line, or null if it is not known
+   */
+  void record(SyslogLimit limit, String sender) {
+    counts[limit.ordinal()].increment();
+    if (sender == null) {
+      return;
+    }
+    LongAdder senderCount = senderCounts.get(sender);
+    if (senderCount == null && senderCounts.size() < MAX_SENDERS) {
+      senderCount = senderCounts.computeIfAbsent(sender, (ignored) -> new LongAdder());
+    }
+    if (senderCount != null) {
+      senderCount.increment();
+    }
+  }
+
+  /**
+   * Returns the number of lines that exceeded a limit.
+   *
+   * @param limit the {@link SyslogLimit}
+   * @return the number of lines
+   */
+  public long getCount(SyslogLimit limit) {
+    return counts[limit.ordinal()].sum();
+  }
+
+  /**
+   * Returns the number of lines that exceeded each limit.
+   *
+   * @return {@code Map} of {@link SyslogLimit} to number of lines
+   */
+  public Map<SyslogLimit, Long> getCounts() {
+    Map<SyslogLimit, Long> snapshot = new EnumMap<>(SyslogLimit.class);
+    for (SyslogLimit limit : LIMITS) {
+      snapshot.put(limit, getCount(limit));
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns the number of times each sender's lines exceeded a limit, most first.
+   *
+   * @return {@code Map} of HOSTNAME to count
+   */
+  public Map<String, Long> getSenderCounts() {
+    Map<String, Long> snapshot = new LinkedHashMap<>();
+    senderCounts.entrySet().stream()
+        .map((entry) -> new java.util.AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().sum()))
+        .sorted((first, second) -> Long.compare(second.getValue(), first.getValue()))
+        .forEachOrdered((entry) -> snapshot.put(entry.getKey(), entry.getValue()));
+    return snapshot;
+  }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.github.palindromicity.syslog.dsl.LimitExceededException;
+import com.github.palindromicity.syslog.util.ByteScanner;
+
+/**
+ * {@code LineLimiter} enforces the {@link SyslogLimit}s of a parser on each line, before it is lexed.
+ * <p>
+ * The line is scanned once, without building any values: the header is skipped token by token, and the
+ * STRUCTURED-DATA elements and params are counted up to the start of the MSG.  Lengths are counted in characters of a
+ * {@code String} line and octets of a byte line, whose delimiters are found a {@code long} at a time by the
+ * {@link ByteScanner}.  RFC 3164 lines, which have no STRUCTURED-DATA, only have their length limited.
+ * <p>
+ * A line cut to the line length within its STRUCTURED-DATA is cut back to the end of its last whole SD-ELEMENT,
+ * without the MSG, and a line cut within its header or its first SD-ELEMENT is rejected whatever the action, as
+ * neither could be parsed.  A line the scan cannot follow is left for the parser to report.
+ * </p>
+ */
+class LineLimiter {
+
+  private final int maxLineLength;
+  private final int maxStructuredDataElements;
+  private final int maxStructuredDataParams;
+  private final int maxMessageLength;
+  private final LimitAction action;
+  private final LimitMetrics metrics;
+
+  /**
+   * Create a new {@code LineLimiter}.  A limit of 0 is no limit.
+   *
+   * @param maxLineLength the maximum length of a line
+   * @param maxStructuredDataElements the maximum number of STRUCTURED-DATA elements
+   * @param maxStructuredDataParams the maximum number of params of each STRUCTURED-DATA element
+   * @param maxMessageLength the maximum length of the MSG
+   * @param action the {@link LimitAction}
+   * @param metrics the {@link LimitMetrics}, or null
+   */
+  LineLimiter(int maxLineLength, int maxStructuredDataElements, int maxStructuredDataParams, int maxMessageLength,
+      LimitAction action, LimitMetrics metrics) {
+    this.maxLineLength = maxLineLength;
+    this.maxStructuredDataElements = maxStructuredDataElements;
+    this.maxStructuredDataParams = maxStructuredDataParams;
+    this.maxMessageLength = maxMessageLength;
+    this.action = action == null ? LimitAction.TRUNCATE : action;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Returns the line within the limits.
+   *
+   * @param line the line
+   * @return the line, or the truncated line
+   * @throws LimitExceededException if the line exceeds a limit and the action is {@link LimitAction#REJECT}
+   */
+  String apply(String line) {
+    final Scan scan = scan(line);
+    if (scan == null) {
+      return line;
+    }
+    StringBuilder builder = new StringBuilder(scan.length());
+    for (int i = 0; i < scan.ranges.length; i += 2) {
+      builder.append(line, scan.ranges[i], scan.ranges[i + 1]);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Returns the slice of UTF-8 bytes within the limits.
+   *
+   * @param bytes the bytes
+   * @param offset the offset of the line
+   * @param length the length of the line
+   * @return the truncated line, or null if the slice is within the limits
+   * @throws LimitExceededException if the line exceeds a limit and the action is {@link LimitAction#REJECT}
+   */
+  byte[] apply(byte[] bytes, int offset, int length) {
+    final Scan scan = scan(new ByteSlice(bytes, offset, length));
+    if (scan == null) {
+      return null;
+    }
+    byte[] limited = new byte[scan.length()];
+    int position = 0;
+    for (int i = 0; i < scan.ranges.length; i += 2) {
+      System.arraycopy(bytes, offset + scan.ranges[i], limited, position, scan.ranges[i + 1] - scan.ranges[i]);
+      position += scan.ranges[i + 1] - scan.ranges[i];
+    }
+    return limited;
+  }
+
+  /**
+   * Returns the ranges of the line to keep, or null if the whole line is kept.
+   */
+  private Scan scan(CharSequence line) {
+    final Scan scan = new Scan(line);
+    final boolean tooLong = maxLineLength > 0 && line.length() > maxLineLength;
+    if (tooLong) {
+      scan.end = cut(line, maxLineLength);
+      scan.cut = true;
+    }
+    // the header is skipped first, so the limits exceeded are recorded against the HOSTNAME
+    final boolean rfc5424 = !DetectingSyslogParser.isRfc3164(line);
+    final boolean header = rfc5424 && scan.skipHeader();
+    if (tooLong) {
+      scan.exceeded(SyslogLimit.LINE_LENGTH);
+      if (rfc5424 && !header) {
+        scan.reject(SyslogLimit.LINE_LENGTH);
+      }
+    }
+    if (header && (tooLong || maxStructuredDataElements > 0 || maxStructuredDataParams > 0
+        || maxMessageLength > 0)) {
+      scan.scanStructuredData();
+    }
+    scan.finish();
+    return scan.ranges == null ? null : scan;
+  }
+
+  /**
+   * Returns the index to cut the line at to keep at most length, without splitting a character.
+   */
+  private static int cut(CharSequence line, int length) {
+    int index = length;
+    if (line instanceof ByteSlice) {
+      // back up over UTF-8 continuation bytes
+      while (index > 0 && (line.charAt(index) & 0xC0) == 0x80) {
+        index--;
+      }
+    } else if (Character.isLowSurrogate(line.charAt(index)) && Character.isHighSurrogate(line.charAt(index - 1))) {
+      index--;
+    }
+    return index;
+  }
+
+  /**
+   * The state of the scan of a line.
+   */
+  private final class Scan {
+
+    private final CharSequence line;
+    private int end;
+    private boolean cut;
+    private int position;
+    private String sender;
+    private boolean[] exceeded;
+    private int[] ranges;
+    private int[] removals = new int[0];
+
+    Scan(CharSequence line) {
+      this.line = line;
+      this.end = line.length();
+    }
+
+    int length() {
+      int length = 0;
+      for (int i = 0; i < ranges.length; i += 2) {
+        length += ranges[i + 1] - ranges[i];
+      }
+      return length;
+    }
+
+    /**
+     * Skips the header, and returns false if the line ends within it.
+     */
+    boolean skipHeader() {
+      if (position < end && line.charAt(position) == '<') {
+        while (position < end && line.charAt(position) != '>') {
+          position++;
+        }
+        position++;
+      }
+      // the VERSION, then TIMESTAMP, HOSTNAME, APP-NAME, PROCID and MSGID
+      int versionEnd = position;
+      while (versionEnd < end && versionEnd - position < 3 && Character.isDigit(line.charAt(versionEnd))) {
+        versionEnd++;
+      }
+      // a VERSION missing after the PRI, as the deviations allow, leaves its SP
+      if ((versionEnd > position || position > 0) && versionEnd < end && line.charAt(versionEnd) == ' ') {
+        position = versionEnd + 1;
+      }
+      for (int token = 0; token < 5; token++) {
+        final int start = position;
+        position = find(position, ' ', ' ');
+        if (position >= end) {
+          return false;
+        }
+        if (token == 1 && !(position - start == 1 && line.charAt(start) == '-')) {
+          sender = line.subSequence(start, position).toString();
+        }
+        position++;
+      }
+      return true;
+    }
+
+    void scanStructuredData() {
+      if (position < end && line.charAt(position) == '-') {
+        position++;
+      } else {
+        final int structuredDataStart = position;
+        int elements = 0;
+        while (position < end && line.charAt(position) == '[') {
+          final int elementStart = position;
+          final boolean excess = maxStructuredDataElements > 0 && elements++ >= maxStructuredDataElements;
+          if (!skipElement(!excess)) {
+            if (cut && position >= end - 1) {
+              // cut within the element, so the line ends after the last whole one
+              if (elementStart == structuredDataStart) {
+                reject(SyslogLimit.LINE_LENGTH);
+              }
+              end = elementStart;
+            }
+            return;
+          }
+          if (excess) {
+            exceeded(SyslogLimit.STRUCTURED_DATA_ELEMENTS);
+            remove(elementStart, position);
+          }
+        }
+      }
+      if (maxMessageLength > 0 && position < end && line.charAt(position) == ' ') {
+        final int messageStart = position + 1;
+        if (end - messageStart > maxMessageLength) {
+          exceeded(SyslogLimit.MESSAGE_LENGTH);
+          end = messageStart + cut(line.subSequence(messageStart, end), maxMessageLength);
+        }
+      }
+    }
+
+    /**
+     * Skips an SD-ELEMENT, removing the params over the limit if it is kept, and returns false if it is malformed.
+     */
+    private boolean skipElement(boolean kept) {
+      position = find(position + 1, ' ', ']');
+      int params = 0;
+      int excessStart = -1;
+      while (position < end && line.charAt(position) == ' ') {
+        final int paramStart = position;
+        position = find(position, '=', '=');
+        if (position + 1 >= end || line.charAt(position + 1) != '"') {
+          return false;
+        }
+        position = find(position + 2, '"', '\\');
+        while (position < end && line.charAt(position) == '\\') {
+          position = find(position + 2, '"', '\\');
+        }
+        if (position >= end) {
+          return false;
+        }
+        position++;
+        if (kept && maxStructuredDataParams > 0 && ++params > maxStructuredDataParams && excessStart < 0) {
+          exceeded(SyslogLimit.STRUCTURED_DATA_PARAMS);
+          excessStart = paramStart;
+        }
+      }
+      if (position >= end || line.charAt(position) != ']') {
+        return false;
+      }
+      if (excessStart >= 0) {
+        remove(excessStart, position);
+      }
+      position++;
+      return true;
+    }
+
+    /**
+     * Returns the index of the first of either delimiter from the index, or at least the end.
+     */
+    private int find(int from, char first, char second) {
+      if (line instanceof ByteSlice) {
+        return ((ByteSlice) line).indexOf(from, end, (byte) first, (byte) second);
+      }
+      int index = from;
+      while (index < end && line.charAt(index) != first && line.charAt(index) != second) {
+        index++;
+      }
+      return index;
+    }
+
+    void exceeded(SyslogLimit limit) {
+      if (exceeded == null) {
+        exceeded = new boolean[SyslogLimit.values().length];
+      }
+      if (exceeded[limit.ordinal()]) {
+        return;
+      }
+      exceeded[limit.ordinal()] = true;
+      if (action == LimitAction.REJECT) {
+        record(limit);
+        throw new LimitExceededException(limit, "line exceeds the limit of " + limit);
+      }
+    }
+
+    /**
+     * Rejects the line, whatever the action, as it cannot be cut to the limit.
+     */
+    void reject(SyslogLimit limit) {
+      record(limit);
+      throw new LimitExceededException(limit, "line cannot be truncated to the limit of " + limit);
+    }
+
+    private void remove(int start, int stop) {
+      final int count = removals.length;
+      if (count > 0 && removals[count - 1] == start) {
+        removals[count - 1] = stop;
+        return;
+      }
+      removals = Arrays.copyOf(removals, count + 2);
+      removals[count] = start;
+      removals[count + 1] = stop;
+    }
+
+    /**
+     * Records the limits exceeded, and builds the ranges kept if the line changed.
+     */
+    void finish() {
+      if (exceeded == null) {
+        return;
+      }
+      for (SyslogLimit limit : SyslogLimit.values()) {
+        if (exceeded[limit.ordinal()]) {
+          record(limit);
+        }
+      }
+      ranges = new int[removals.length + 2];
+      int kept = 0;
+      int start = 0;
+      for (int i = 0; i < removals.length && removals[i] < end; i += 2) {
+        ranges[kept++] = start;
+        ranges[kept++] = removals[i];
+        start = removals[i + 1];
+      }
+      ranges[kept++] = start;
+      ranges[kept++] = Math.max(start, end);
+      ranges = Arrays.copyOf(ranges, kept);
+    }
+
+    private void record(SyslogLimit limit) {
+      if (metrics != null) {
+        metrics.record(limit, sender);
+      }
+    }
+  }
+
+  /**
+   * A slice of bytes read as ISO-8859-1 characters, which keeps the ASCII delimiters of the line at their offsets.
+   */
+  private static final class ByteSlice implements CharSequence {
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    ByteSlice(byte[] bytes, int offset, int length) {
+      this.bytes = bytes;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    /**
+     * Returns the index of the first of either value from the index, or the end.
+     */
+    int indexOf(int from, int end, byte first, byte second) {
+      if (from >= end) {
+        return end;
+      }
+      final int index = ByteScanner.indexOfAny(bytes, offset + from, offset + end, first, second);
+      return index < 0 ? end : index - offset;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (bytes[offset + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return new ByteSlice(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+  }
+}
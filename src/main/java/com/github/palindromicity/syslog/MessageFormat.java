@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+/**
+ * {@code MessageFormat} is the format of the fields extracted from the MSG, when extraction is enabled
+ * with {@link SyslogParserBuilder#withMessageFormat(MessageFormat)}.
+ */
+public enum MessageFormat {
+  /**
+   * No fields are extracted.
+   */
+  NONE,
+  /**
+   * {@code key=value} pairs, separated by spaces or commas, with optionally quoted values.
+   */
+  KEY_VALUE,
+  /**
+   * A JSON object, with nested object keys joined by '.'.
+   */
+  JSON,
+  /**
+   * A JSON object if the MSG starts with '{' and is one, otherwise {@code key=value} pairs.
+   */
+  DETECT
+}
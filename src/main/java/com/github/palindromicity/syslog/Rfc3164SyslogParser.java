@@ -0,0 +1,194 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.github.palindromicity.syslog.concurrent.BatchingExecutor;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.message.MessageExtractor;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@link SyslogParser} for RFC 3164 BSD syslog @see <a href="https://tools.ietf.org/html/rfc3164#section-4.1">
+ * Section 4.1</a>, into the same {@code Map} layout as RFC 5424.
+ * <p>
+ * A line is a PRI, a TIMESTAMP of the form {@code Mmm dd hh:mm:ss}, a HOSTNAME and the MSG.  When the MSG starts
+ * with a TAG followed by a ':' or a {@code [pid]}, the TAG is the APP-NAME and the pid the PROCID, otherwise the
+ * whole MSG is the message.  A missing APP-NAME or PROCID is nil.  There is no VERSION, MSGID or structured data.
+ * The PRI may be missing with {@link AllowableDeviations#PRIORITY}.
+ * </p>
+ */
+class Rfc3164SyslogParser extends AbstractSyslogParser {
+
+  private static final String MONTHS = "JanFebMarAprMayJunJulAugSepOctNovDec";
+  private static final int TIMESTAMP_LENGTH = 15;
+  private static final int MAX_PRIORITY = 191;
+
+  Rfc3164SyslogParser(KeyProvider keyProvider, NilPolicy nilPolicy, EnumSet<AllowableDeviations> deviations,
+      BatchingExecutor batchingExecutor) {
+    this(keyProvider, nilPolicy, deviations, batchingExecutor, null, false);
+  }
+
+  Rfc3164SyslogParser(KeyProvider keyProvider, NilPolicy nilPolicy, EnumSet<AllowableDeviations> deviations,
+      BatchingExecutor batchingExecutor, Supplier<Map<String, Object>> mapFactory, boolean reuseMaps) {
+    this(keyProvider, nilPolicy, deviations, batchingExecutor, mapFactory, reuseMaps, null, null);
+  }
+
+  Rfc3164SyslogParser(KeyProvider keyProvider, NilPolicy nilPolicy, EnumSet<AllowableDeviations> deviations,
+      BatchingExecutor batchingExecutor, Supplier<Map<String, Object>> mapFactory, boolean reuseMaps,
+      MessageExtractor messageExtractor, LineLimiter lineLimiter) {
+    super(keyProvider, nilPolicy, null, deviations == null ? EnumSet.of(AllowableDeviations.NONE) : deviations,
+        batchingExecutor, mapFactory, reuseMaps, messageExtractor, lineLimiter);
+  }
+
+  @Override
+  void parseEvents(String line, SyslogEventHandler handler) {
+    try {
+      parse(line, handler);
+    } catch (ParseException e) {
+      handler.onError(e);
+    }
+  }
+
+  private void parse(String line, SyslogEventHandler handler) {
+    handler.onStart();
+    final int length = line.length();
+    int position = 0;
+    if (line.charAt(0) == '<') {
+      int end = line.indexOf('>');
+      if (end < 2 || end > 4) {
+        throw new ParseException("Invalid priority specified " + line.substring(0, Math.min(length, 5)));
+      }
+      int priority = 0;
+      for (int i = 1; i < end; i++) {
+        char ch = line.charAt(i);
+        if (ch < '0' || ch > '9') {
+          throw new ParseException("Invalid priority specified " + line.substring(0, end + 1));
+        }
+        priority = priority * 10 + (ch - '0');
+      }
+      if (priority > MAX_PRIORITY) {
+        throw new ParseException("Invalid priority specified " + priority);
+      }
+      handler.onPriority(priority);
+      position = end + 1;
+    } else if (!deviations.contains(AllowableDeviations.PRIORITY)) {
+      throw new ParseException("Priority missing with strict parsing");
+    }
+
+    if (!isTimestamp(line, position)) {
+      throw new ParseException("Invalid timestamp at " + position);
+    }
+    handler.onTimestamp(line.substring(position, position + TIMESTAMP_LENGTH));
+    position += TIMESTAMP_LENGTH + 1;
+
+    int hostEnd = line.indexOf(' ', position);
+    if (hostEnd < 0) {
+      hostEnd = length;
+    }
+    if (hostEnd <= position) {
+      throw new ParseException("Hostname missing at " + position);
+    }
+    handler.onHostName(line.substring(position, hostEnd));
+    position = Math.min(length, hostEnd + 1);
+
+    int tagEnd = position;
+    while (tagEnd < length && isTagChar(line.charAt(tagEnd))) {
+      tagEnd++;
+    }
+    String appName = null;
+    String procId = null;
+    int messageStart = position;
+    if (tagEnd > position && tagEnd < length) {
+      if (line.charAt(tagEnd) == ':') {
+        appName = line.substring(position, tagEnd);
+        messageStart = tagEnd + 1;
+      } else if (line.charAt(tagEnd) == '[') {
+        int pidEnd = line.indexOf(']', tagEnd + 1);
+        if (pidEnd > tagEnd + 1) {
+          appName = line.substring(position, tagEnd);
+          procId = line.substring(tagEnd + 1, pidEnd);
+          messageStart = pidEnd + 1 < length && line.charAt(pidEnd + 1) == ':' ? pidEnd + 2 : pidEnd + 1;
+        }
+      }
+    }
+    handler.onAppName(appName);
+    handler.onProcId(procId);
+    final String message = line.substring(messageStart).trim();
+    if (!message.isEmpty()) {
+      handler.onMessage(message);
+    }
+    handler.onEnd();
+  }
+
+  /**
+   * Returns true if the chars are a month abbreviation.
+   */
+  static boolean isMonth(int first, int second, int third) {
+    for (int i = 0; i < MONTHS.length(); i += 3) {
+      if (MONTHS.charAt(i) == first && MONTHS.charAt(i + 1) == second && MONTHS.charAt(i + 2) == third) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns true if an {@code Mmm dd hh:mm:ss} TIMESTAMP followed by a space starts at position.
+   */
+  private static boolean isTimestamp(String line, int position) {
+    if (line.length() < position + TIMESTAMP_LENGTH + 1) {
+      return false;
+    }
+    final String format = "Mmm Dd 00:00:00 ";
+    for (int i = 0; i < format.length(); i++) {
+      char ch = line.charAt(position + i);
+      switch (format.charAt(i)) {
+        case 'D':
+          if (ch != ' ' && !isDigit(ch)) {
+            return false;
+          }
+          break;
+        case 'd':
+        case '0':
+          if (!isDigit(ch)) {
+            return false;
+          }
+          break;
+        case 'M':
+        case 'm':
+          break;
+        default:
+          if (ch != format.charAt(i)) {
+            return false;
+          }
+      }
+    }
+    return isMonth(line.charAt(position), line.charAt(position + 1), line.charAt(position + 2));
+  }
+
+  private static boolean isDigit(char ch) {
+    return ch >= '0' && ch <= '9';
+  }
+
+  private static boolean isTagChar(char ch) {
+    return ch > ' ' && ch < 0x7F && ch != '[' && ch != ']' && ch != ':';
+  }
+}
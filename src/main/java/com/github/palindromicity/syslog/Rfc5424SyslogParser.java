@@ -16,48 +16,39 @@
 
 package com.github.palindromicity.syslog;
 
-import java.io.BufferedReader;
-import java.io.Reader;
 import java.util.EnumSet;
-import java.util.List;
 import java.util.Map;
-import java.util.function.BiConsumer;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
+import com.github.palindromicity.syslog.concurrent.BatchingExecutor;
+import com.github.palindromicity.syslog.dsl.CompactCharStreams;
 import com.github.palindromicity.syslog.dsl.DefaultErrorListener;
-import com.github.palindromicity.syslog.dsl.Syslog5424Listener;
+import com.github.palindromicity.syslog.dsl.LimitExceededException;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.dsl.Syslog5424EventListener;
+import com.github.palindromicity.syslog.dsl.Syslog5424ValidationListener;
 import com.github.palindromicity.syslog.dsl.generated.Rfc5424Lexer;
+import com.github.palindromicity.syslog.dsl.generated.Rfc5424Listener;
 import com.github.palindromicity.syslog.dsl.generated.Rfc5424Parser;
+import com.github.palindromicity.syslog.message.MessageExtractor;
 import com.github.palindromicity.syslog.util.Validate;
-import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
 
 /**
  * {@link SyslogParser} for valid RFC 5424 syslog.
  */
-class Rfc5424SyslogParser implements SyslogParser {
-
-  /**
-   * {@link com.github.palindromicity.syslog.KeyProvider} to provide keys for the
-   * {@link Syslog5424Listener}.
-   */
-  private KeyProvider keyProvider;
-
-  /**
-   * {@link NilPolicy} for the {@link Syslog5424Listener}.
-   */
-  private NilPolicy nilPolicy = NilPolicy.OMIT;
-  private StructuredDataPolicy structuredDataPolicy = StructuredDataPolicy.FLATTEN;
-  private EnumSet<AllowableDeviations> deviations;
+class Rfc5424SyslogParser extends AbstractSyslogParser {
 
   /**
    * Create a new {@code Rfc5424SyslogParser}.
    *
    * @param keyProvider {@link com.github.palindromicity.syslog.KeyProvider} to provide keys for the
-   * {@link Syslog5424Listener}.
+   * {@code Map}.
    */
   Rfc5424SyslogParser(KeyProvider keyProvider) {
     this(keyProvider, null, null, EnumSet.of(AllowableDeviations.NONE));
@@ -69,69 +60,133 @@ class Rfc5424SyslogParser implements SyslogParser {
 
   Rfc5424SyslogParser(KeyProvider keyProvider, NilPolicy nilPolicy, StructuredDataPolicy structuredDataPolicy,
       EnumSet<AllowableDeviations> deviations) {
-    Validate.notNull(keyProvider, "keyProvider");
-    this.keyProvider = keyProvider;
-    if (nilPolicy != null) {
-      this.nilPolicy = nilPolicy;
-    }
-    if (structuredDataPolicy != null) {
-      this.structuredDataPolicy = structuredDataPolicy;
-    }
-    this.deviations = deviations;
+    this(keyProvider, nilPolicy, structuredDataPolicy, deviations, new BatchingExecutor());
   }
 
-  @Override
-  public Map<String, Object> parseLine(String syslogLine) {
-    Validate.notBlank(syslogLine, "syslogLine");
-    Rfc5424Lexer lexer = new Rfc5424Lexer(CharStreams.fromString(syslogLine));
-    lexer.removeErrorListeners();
-    lexer.addErrorListener(new DefaultErrorListener());
-    Rfc5424Parser parser = new Rfc5424Parser(new CommonTokenStream(lexer));
-    Syslog5424Listener listener = new Syslog5424Listener(keyProvider, nilPolicy, structuredDataPolicy, deviations);
-    parser.addParseListener(listener);
-    parser.removeErrorListeners();
-    parser.addErrorListener(new DefaultErrorListener());
-    parser.syslog_msg();
-    return listener.getMsgMap();
+  Rfc5424SyslogParser(KeyProvider keyProvider, NilPolicy nilPolicy, StructuredDataPolicy structuredDataPolicy,
+      EnumSet<AllowableDeviations> deviations, BatchingExecutor batchingExecutor) {
+    this(keyProvider, nilPolicy, structuredDataPolicy, deviations, batchingExecutor, null, false);
+  }
+
+  Rfc5424SyslogParser(KeyProvider keyProvider, NilPolicy nilPolicy, StructuredDataPolicy structuredDataPolicy,
+      EnumSet<AllowableDeviations> deviations, BatchingExecutor batchingExecutor,
+      Supplier<Map<String, Object>> mapFactory, boolean reuseMaps) {
+    this(keyProvider, nilPolicy, structuredDataPolicy, deviations, batchingExecutor, mapFactory, reuseMaps, null,
+        null);
+  }
+
+  Rfc5424SyslogParser(KeyProvider keyProvider, NilPolicy nilPolicy, StructuredDataPolicy structuredDataPolicy,
+      EnumSet<AllowableDeviations> deviations, BatchingExecutor batchingExecutor,
+      Supplier<Map<String, Object>> mapFactory, boolean reuseMaps, MessageExtractor messageExtractor,
+      LineLimiter lineLimiter) {
+    super(keyProvider, nilPolicy, structuredDataPolicy, deviations, batchingExecutor, mapFactory, reuseMaps,
+        messageExtractor, lineLimiter);
   }
 
   @Override
-  public void parseLine(String line, Consumer<Map<String, Object>> consumer) {
-    Validate.notNull(consumer, "consumer");
-    consumer.accept(parseLine(line));
+  void parseEvents(String line, SyslogEventHandler handler) {
+    parse(CompactCharStreams.fromString(line), handler);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The bytes are read in place, only the part from the first non ASCII byte is decoded.
+   * </p>
+   */
   @Override
-  public List<Map<String, Object>> parseLines(Reader reader) {
-    Validate.notNull(reader, "reader");
-    return new BufferedReader(reader).lines()
-        .map(this::parseLine)
-        .collect(Collectors.toList());
+  void parseEvents(byte[] bytes, int offset, int length, SyslogEventHandler handler) {
+    parse(CompactCharStreams.fromUtf8(bytes, offset, length), handler);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Only the recognizer is run, no values are read from the line.
+   * </p>
+   */
   @Override
-  public void parseLines(Reader reader, Consumer<Map<String, Object>> consumer) {
-    Validate.notNull(reader, "reader");
-    Validate.notNull(consumer, "consumer");
-    new BufferedReader(reader).lines()
-        .map(this::parseLine)
-        .forEach(consumer);
+  public ValidationStatus validate(String line) {
+    Validate.notNull(line, "line");
+    if (line.trim().isEmpty()) {
+      return ValidationStatus.BLANK;
+    }
+    final String limited;
+    try {
+      limited = limit(line);
+    } catch (LimitExceededException e) {
+      return ValidationStatus.LIMIT;
+    }
+    return validate(CompactCharStreams.fromString(limited));
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Only the recognizer is run, no values are read from the line, and the bytes are read in place.
+   * </p>
+   */
   @Override
-  public void parseLines(Reader reader, Consumer<Map<String, Object>> messageConsumer,
-      BiConsumer<String,Throwable> errorConsumer) {
-    Validate.notNull(reader, "reader");
-    Validate.notNull(reader, "messageConsumer");
-    Validate.notNull(reader, "errorConsumer");
-
-    List<String> lines = new BufferedReader(reader).lines().collect(Collectors.toList());
-    lines.forEach((line) -> {
-      try {
-        messageConsumer.accept(parseLine(line));
-      } catch (Throwable throwable) {
-        errorConsumer.accept(line, throwable);
+  public ValidationStatus validate(byte[] bytes, int offset, int length) {
+    Validate.notNull(bytes, "bytes");
+    int start = offset;
+    while (start < offset + length && (bytes[start] & 0xFF) <= ' ') {
+      start++;
+    }
+    if (start == offset + length) {
+      return ValidationStatus.BLANK;
+    }
+    final byte[] limited;
+    try {
+      limited = limit(bytes, offset, length);
+    } catch (LimitExceededException e) {
+      return ValidationStatus.LIMIT;
+    }
+    return validate(limited == null ? CompactCharStreams.fromUtf8(bytes, offset, length)
+        : CompactCharStreams.fromUtf8(limited, 0, limited.length));
+  }
+
+  private ValidationStatus validate(CharStream charStream) {
+    final Syslog5424ValidationListener listener = new Syslog5424ValidationListener(deviations);
+    final BaseErrorListener errorListener = new BaseErrorListener() {
+      @Override
+      public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine,
+          String msg, RecognitionException recognitionException) {
+        listener.onSyntaxError();
       }
-    });
+    };
+    try {
+      parse(charStream, listener, errorListener);
+    } catch (ParseException e) {
+      // the listener has the part being parsed
+    }
+    return listener.getStatus();
+  }
+
+  private void parse(CharStream charStream, SyslogEventHandler handler) {
+    try {
+      parse(charStream, new Syslog5424EventListener(handler, deviations));
+    } catch (ParseException e) {
+      handler.onError(e);
+    }
+  }
+
+  private void parse(CharStream charStream, Rfc5424Listener listener, ANTLRErrorListener... errorListeners) {
+    Rfc5424Lexer lexer = new Rfc5424Lexer(charStream);
+    lexer.removeErrorListeners();
+    for (ANTLRErrorListener errorListener : errorListeners) {
+      lexer.addErrorListener(errorListener);
+    }
+    lexer.addErrorListener(new DefaultErrorListener());
+    Rfc5424Parser parser = new Rfc5424Parser(new CommonTokenStream(lexer));
+    // the listener works from token offsets as rules exit, so no parse tree is needed
+    parser.setBuildParseTree(false);
+    parser.addParseListener(listener);
+    parser.removeErrorListeners();
+    for (ANTLRErrorListener errorListener : errorListeners) {
+      parser.addErrorListener(errorListener);
+    }
+    parser.addErrorListener(new DefaultErrorListener());
+    parser.syslog_msg();
   }
 }
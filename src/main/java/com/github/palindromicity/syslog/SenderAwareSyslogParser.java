@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.palindromicity.syslog.dsl.LimitExceededException;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code SenderAwareSyslogParser} parses lines from many senders, remembering for each sender the
+ * {@link Strategy} that last parsed its lines, and trying that first.
+ * <p>
+ * A line is parsed with the sender's remembered strategy, or {@link Strategy#RFC_5424} for a new sender, and if
+ * that fails with each other strategy in turn.  Only senders that need a strategy other than strict RFC 5424 are
+ * remembered, up to the maximum number of senders, approximately least recently used first out.  Looking up a sender
+ * takes no lock, and when a new sender exceeds the maximum the least recently used sixteenth are evicted at once.
+ * The limits of the builder are
+ * applied once, before any strategy is tried, and a line rejected by them is not tried with another strategy.  A
+ * {@code SenderAwareSyslogParser} is thread safe.
+ * </p>
+ * <pre>
+ *   SenderAwareSyslogParser parser = new SyslogParserBuilder().buildSenderAware(10_000);
+ *   Map&lt;String, Object&gt; map = parser.parseLine(socket.getInetAddress().getHostAddress(), line);
+ * </pre>
+ */
+public class SenderAwareSyslogParser {
+
+  /**
+   * The ways a line may be parsed, in the order they are tried.
+   */
+  public enum Strategy {
+    /**
+     * RFC 5424, with the configured {@link AllowableDeviations}.
+     */
+    RFC_5424,
+    /**
+     * RFC 5424, allowing the PRIORITY and VERSION to be missing.
+     */
+    RFC_5424_DEVIATIONS,
+    /**
+     * RFC 3164.
+     */
+    RFC_3164
+  }
+
+  private static final Strategy[] STRATEGIES = Strategy.values();
+
+  private final SyslogParser[] parsers;
+  private final Map<String, Sender> senders = new ConcurrentHashMap<>();
+  private final int maxSenders;
+  private final LineLimiter lineLimiter;
+
+  /**
+   * The recency of the senders, advanced each time a sender is remembered.  A sender looked up is stamped with the
+   * current value, so it is more recent than every sender remembered before it.
+   */
+  private final AtomicLong clock = new AtomicLong();
+
+  SenderAwareSyslogParser(SyslogParser rfc5424Parser, SyslogParser deviationsParser, SyslogParser rfc3164Parser,
+      final int maxSenders, LineLimiter lineLimiter) {
+    if (maxSenders < 1) {
+      throw new IllegalArgumentException("maxSenders must be greater than 0");
+    }
+    this.parsers = new SyslogParser[] {rfc5424Parser, deviationsParser, rfc3164Parser};
+    this.maxSenders = maxSenders;
+    this.lineLimiter = lineLimiter;
+  }
+
+  /**
+   * Returns the {@link AllowableDeviations} of the {@link Strategy#RFC_5424_DEVIATIONS} parser.
+   *
+   * @param deviations the configured deviations
+   * @return the deviations with PRIORITY and VERSION
+   */
+  static EnumSet<AllowableDeviations> withMissingHeaders(EnumSet<AllowableDeviations> deviations) {
+    EnumSet<AllowableDeviations> withMissing = deviations == null ? EnumSet.noneOf(AllowableDeviations.class)
+        : EnumSet.copyOf(deviations);
+    withMissing.add(AllowableDeviations.PRIORITY);
+    withMissing.add(AllowableDeviations.VERSION);
+    return withMissing;
+  }
+
+  /**
+   * Parse a line from a sender to a {@code Map}.
+   *
+   * @param sender the key of the sender, such as its address or host name, or null if it is not known
+   * @param line the line of Syslog to parse
+   * @return a {@code Map}
+   * @throws ParseException if no strategy parses the line, the exception of the first strategy tried
+   * @throws LimitExceededException if the line exceeds a limit and is rejected
+   * @throws IllegalArgumentException if line is blank
+   */
+  public Map<String, Object> parseLine(String sender, String line) {
+    Validate.notBlank(line, "line");
+    // a line rejected by the limits is rejected by every strategy, so it is checked once
+    final String limited = lineLimiter == null ? line : lineLimiter.apply(line);
+    final Strategy first = getStrategy(sender);
+    ParseException firstException;
+    try {
+      return parsers[first.ordinal()].parseLine(limited);
+    } catch (ParseException e) {
+      firstException = e;
+    }
+    for (Strategy strategy : STRATEGIES) {
+      if (strategy == first) {
+        continue;
+      }
+      try {
+        Map<String, Object> map = parsers[strategy.ordinal()].parseLine(limited);
+        remember(sender, strategy);
+        return map;
+      } catch (ParseException e) {
+        // try the next strategy
+      }
+    }
+    throw firstException;
+  }
+
+  /**
+   * Returns the {@link Strategy} tried first for a sender.
+   *
+   * @param sender the key of the sender
+   * @return the {@link Strategy}
+   */
+  public Strategy getStrategy(String sender) {
+    if (sender == null) {
+      return Strategy.RFC_5424;
+    }
+    final Sender remembered = senders.get(sender);
+    if (remembered == null) {
+      return Strategy.RFC_5424;
+    }
+    final long now = clock.get();
+    if (remembered.used != now) {
+      remembered.used = now;
+    }
+    return remembered.strategy;
+  }
+
+  /**
+   * Returns the number of senders remembered.
+   *
+   * @return the number of senders
+   */
+  public int getSenderCount() {
+    return senders.size();
+  }
+
+  private void remember(String sender, Strategy strategy) {
+    if (sender == null) {
+      return;
+    }
+    if (strategy == Strategy.RFC_5424) {
+      senders.remove(sender);
+      return;
+    }
+    senders.put(sender, new Sender(strategy, clock.getAndIncrement()));
+    if (senders.size() > maxSenders) {
+      evict();
+    }
+  }
+
+  /**
+   * Evicts the least recently used sixteenth of the senders, so the cost of ordering them is shared by the senders
+   * remembered until the next eviction.
+   */
+  private synchronized void evict() {
+    if (senders.size() <= maxSenders) {
+      return;
+    }
+    // the stamps are copied first, as lookups may restamp senders while they are ordered
+    final List<Map.Entry<String, Sender>> entries = new ArrayList<>(senders.entrySet());
+    final long[] used = new long[entries.size()];
+    for (int i = 0; i < used.length; i++) {
+      used[i] = entries.get(i).getValue().used;
+    }
+    final long[] sorted = used.clone();
+    Arrays.sort(sorted);
+    int count = Math.min(used.length, used.length - maxSenders + maxSenders / 16);
+    final long oldest = sorted[count - 1];
+    for (int i = 0; i < used.length && count > 0; i++) {
+      if (used[i] <= oldest && senders.remove(entries.get(i).getKey(), entries.get(i).getValue())) {
+        count--;
+      }
+    }
+  }
+
+  /**
+   * A remembered sender.
+   */
+  private static final class Sender {
+    private final Strategy strategy;
+    private volatile long used;
+
+    Sender(Strategy strategy, long used) {
+      this.strategy = strategy;
+      this.used = used;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+import com.github.palindromicity.syslog.dsl.ParseException;
+
+/**
+ * {@code SyslogEventHandler} receives the parts of a Syslog message as they are parsed, with no intermediate
+ * {@code Map}.
+ * <p>
+ * Events arrive in message order: {@link #onStart()}, the header parts present in the line, each structured
+ * data element with its params, the MSG if there is one, and {@link #onEnd()}.  A nil ('-') header value is
+ * passed as {@code null}.  If the line fails to parse {@link #onError(ParseException)} is called instead of
+ * {@link #onEnd()}, and the events already received should be discarded.
+ * </p>
+ * <p>
+ * The {@code CharSequence} values are only guaranteed valid for the duration of the call.
+ * All methods do nothing by default, except {@link #onError(ParseException)} which throws.
+ * </p>
+ */
+public interface SyslogEventHandler {
+
+  /**
+   * Called before any other event for a line.
+   */
+  default void onStart() {
+  }
+
+  /**
+   * Called with the PRI value @see <a href="https://tools.ietf.org/html/rfc5424#section-6.2.1">Section 6.2.1</a>.
+   *
+   * @param priority the PRI value, the facility multiplied by 8 plus the severity
+   */
+  default void onPriority(int priority) {
+  }
+
+  /**
+   * Called with the VERSION @see <a href="https://tools.ietf.org/html/rfc5424#section-6.2.2">Section 6.2.2</a>.
+   *
+   * @param version the VERSION
+   */
+  default void onVersion(int version) {
+  }
+
+  /**
+   * Called with the TIMESTAMP @see <a href="https://tools.ietf.org/html/rfc5424#section-6.2.3">Section 6.2.3</a>.
+   *
+   * @param timestamp the TIMESTAMP, or null if nil
+   */
+  default void onTimestamp(CharSequence timestamp) {
+  }
+
+  /**
+   * Called with the HOSTNAME @see <a href="https://tools.ietf.org/html/rfc5424#section-6.2.4">Section 6.2.4</a>.
+   *
+   * @param hostName the HOSTNAME, or null if nil
+   */
+  default void onHostName(CharSequence hostName) {
+  }
+
+  /**
+   * Called with the APP-NAME @see <a href="https://tools.ietf.org/html/rfc5424#section-6.2.5">Section 6.2.5</a>.
+   *
+   * @param appName the APP-NAME, or null if nil
+   */
+  default void onAppName(CharSequence appName) {
+  }
+
+  /**
+   * Called with the PROCID @see <a href="https://tools.ietf.org/html/rfc5424#section-6.2.6">Section 6.2.6</a>.
+   *
+   * @param procId the PROCID, or null if nil
+   */
+  default void onProcId(CharSequence procId) {
+  }
+
+  /**
+   * Called with the MSGID @see <a href="https://tools.ietf.org/html/rfc5424#section-6.2.7">Section 6.2.7</a>.
+   *
+   * @param msgId the MSGID, or null if nil
+   */
+  default void onMsgId(CharSequence msgId) {
+  }
+
+  /**
+   * Called at the start of each STRUCTURED-DATA element
+   * @see <a href="https://tools.ietf.org/html/rfc5424#section-6.3">Section 6.3</a>.
+   *
+   * @param id the SD-ID
+   */
+  default void onSdElementStart(CharSequence id) {
+  }
+
+  /**
+   * Called with each SD-PARAM of the current element.
+   *
+   * @param name the PARAM-NAME
+   * @param value the PARAM-VALUE, as it appears in the line
+   */
+  default void onSdParam(CharSequence name, CharSequence value) {
+  }
+
+  /**
+   * Called at the end of each STRUCTURED-DATA element.
+   */
+  default void onSdElementEnd() {
+  }
+
+  /**
+   * Called with the MSG @see <a href="https://tools.ietf.org/html/rfc5424#section-6.4">Section 6.4</a>, trimmed.
+   *
+   * @param message the MSG
+   */
+  default void onMessage(CharSequence message) {
+  }
+
+  /**
+   * Called after all the events for a line that parsed.
+   */
+  default void onEnd() {
+  }
+
+  /**
+   * Called when the line fails to parse.  The default implementation throws the exception.
+   *
+   * @param exception the {@link ParseException}
+   */
+  default void onError(ParseException exception) {
+    throw exception;
+  }
+}
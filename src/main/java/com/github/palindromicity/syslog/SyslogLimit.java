@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+/**
+ * {@code SyslogLimit} is a limit on the size of a line, set on the {@link SyslogParserBuilder} to bound the cost of
+ * parsing pathological lines.
+ */
+public enum SyslogLimit {
+  /**
+   * The length of the line.
+   */
+  LINE_LENGTH,
+  /**
+   * The number of STRUCTURED-DATA elements.
+   */
+  STRUCTURED_DATA_ELEMENTS,
+  /**
+   * The number of params of a STRUCTURED-DATA element.
+   */
+  STRUCTURED_DATA_PARAMS,
+  /**
+   * The length of the MSG.
+   */
+  MESSAGE_LENGTH
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+/**
+ * Replays a parsed {@code Map} with the keys of the {@link DefaultKeyProvider} as the events of a
+ * {@link SyslogEventHandler}, for {@link SyslogParser#parseLine(String, SyslogEventHandler)}.
+ */
+final class SyslogMapEvents {
+
+  private static final KeyProvider KEYS = new DefaultKeyProvider();
+  private static final String DASH = "-";
+
+  private SyslogMapEvents() {
+  }
+
+  /**
+   * Passes the values of the map to the handler, following {@link SyslogEventHandler#onStart()}, up to
+   * {@link SyslogEventHandler#onEnd()}.  Headers missing from the map are not passed, and nil values are passed as
+   * null.  Params are passed in the order the map iterates them.
+   *
+   * @param map the parsed {@code Map}
+   * @param handler the {@link SyslogEventHandler}
+   */
+  static void replay(Map<String, Object> map, SyslogEventHandler handler) {
+    final String priority = text(map, KEYS.getHeaderPriority());
+    if (priority != null) {
+      handler.onPriority(Integer.parseInt(priority));
+    }
+    final String version = text(map, KEYS.getHeaderVersion());
+    if (version != null) {
+      handler.onVersion(Integer.parseInt(version));
+    }
+    if (map.containsKey(KEYS.getHeaderTimeStamp())) {
+      handler.onTimestamp(text(map, KEYS.getHeaderTimeStamp()));
+    }
+    if (map.containsKey(KEYS.getHeaderHostName())) {
+      handler.onHostName(text(map, KEYS.getHeaderHostName()));
+    }
+    if (map.containsKey(KEYS.getHeaderAppName())) {
+      handler.onAppName(text(map, KEYS.getHeaderAppName()));
+    }
+    if (map.containsKey(KEYS.getHeaderProcessId())) {
+      handler.onProcId(text(map, KEYS.getHeaderProcessId()));
+    }
+    if (map.containsKey(KEYS.getHeaderMessageId())) {
+      handler.onMsgId(text(map, KEYS.getHeaderMessageId()));
+    }
+    final Object structuredData = map.get(KEYS.getStructuredBase());
+    if (structuredData instanceof Map) {
+      for (Map.Entry<?, ?> element : ((Map<?, ?>) structuredData).entrySet()) {
+        handler.onSdElementStart(String.valueOf(element.getKey()));
+        if (element.getValue() instanceof Map) {
+          for (Map.Entry<?, ?> param : ((Map<?, ?>) element.getValue()).entrySet()) {
+            handler.onSdParam(String.valueOf(param.getKey()), String.valueOf(param.getValue()));
+          }
+        }
+        handler.onSdElementEnd();
+      }
+    } else {
+      replayFlattened(map, handler);
+    }
+    final String message = text(map, KEYS.getMessage());
+    if (message != null) {
+      handler.onMessage(message);
+    }
+    handler.onEnd();
+  }
+
+  /**
+   * Passes the flattened params, grouped into one element for each SD-ID in the order the map first has it.
+   */
+  private static void replayFlattened(Map<String, Object> map, SyslogEventHandler handler) {
+    final Map<String, List<String>> elements = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> entry : map.entrySet()) {
+      final Matcher matcher = KEYS.getStructuredElementIdParamNamePattern().matcher(entry.getKey());
+      if (matcher.matches()) {
+        final List<String> params = elements.computeIfAbsent(matcher.group(1), (id) -> new ArrayList<>());
+        params.add(matcher.group(2));
+        params.add(String.valueOf(entry.getValue()));
+      }
+    }
+    for (Map.Entry<String, List<String>> element : elements.entrySet()) {
+      handler.onSdElementStart(element.getKey());
+      final List<String> params = element.getValue();
+      for (int i = 0; i < params.size(); i += 2) {
+        handler.onSdParam(params.get(i), params.get(i + 1));
+      }
+      handler.onSdElementEnd();
+    }
+  }
+
+  private static String text(Map<String, Object> map, String key) {
+    final Object value = map.get(key);
+    return value == null || DASH.equals(value) ? null : value.toString();
+  }
+}
@@ -17,11 +17,16 @@
 package com.github.palindromicity.syslog;
 
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.util.Validate;
+
 /**
  * {@code SyslogParser} defines an interface for classes that parse Syslog into {@code Map}.
  */
@@ -36,6 +41,107 @@ public interface SyslogParser {
    */
   Map<String, Object> parseLine(String line);
 
+  /**
+   * Parse a slice of UTF-8 bytes to a {@code Map}.
+   * <p>
+   * The default implementation decodes the slice to a {@code String}.
+   * </p>
+   *
+   * @param bytes the bytes holding the line of Syslog to parse
+   * @param offset the offset of the line
+   * @param length the length of the line
+   * @return a {@code Map}
+   * @throws com.github.palindromicity.syslog.dsl.ParseException if there is an error parsing
+   * @throws IllegalArgumentException if bytes is null
+   */
+  default Map<String, Object> parseLine(byte[] bytes, int offset, int length) {
+    Validate.notNull(bytes, "bytes");
+    return parseLine(new String(bytes, offset, length, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Parse a {@code String}, passing each part of the message to a {@link SyslogEventHandler} without building
+   * a {@code Map}.  A line that fails to parse is passed to {@link SyslogEventHandler#onError}.
+   * <p>
+   * The default implementation parses the line to a {@code Map} and replays its values, read with the keys of the
+   * {@link DefaultKeyProvider}, as events.
+   * </p>
+   *
+   * @param line the line of Syslog to parse
+   * @param handler the {@link SyslogEventHandler}
+   * @throws IllegalArgumentException if line is blank or handler is null
+   */
+  default void parseLine(String line, SyslogEventHandler handler) {
+    Validate.notBlank(line, "line");
+    Validate.notNull(handler, "handler");
+    final Map<String, Object> map;
+    handler.onStart();
+    try {
+      map = parseLine(line);
+    } catch (ParseException e) {
+      handler.onError(e);
+      return;
+    }
+    SyslogMapEvents.replay(map, handler);
+  }
+
+  /**
+   * Parse a slice of UTF-8 bytes, passing each part of the message to a {@link SyslogEventHandler}.
+   * <p>
+   * The default implementation decodes the slice to a {@code String}.
+   * </p>
+   *
+   * @param bytes the bytes holding the line of Syslog to parse
+   * @param offset the offset of the line
+   * @param length the length of the line
+   * @param handler the {@link SyslogEventHandler}
+   * @throws IllegalArgumentException if bytes or handler are null
+   */
+  default void parseLine(byte[] bytes, int offset, int length, SyslogEventHandler handler) {
+    Validate.notNull(bytes, "bytes");
+    parseLine(new String(bytes, offset, length, StandardCharsets.UTF_8), handler);
+  }
+
+  /**
+   * Checks whether a line parses, without building its values.
+   * <p>
+   * The default implementation parses the line to a {@code Map}, and does not report which part is invalid.
+   * </p>
+   *
+   * @param line the line of Syslog to check
+   * @return the {@link ValidationStatus}
+   * @throws IllegalArgumentException if line is null
+   */
+  default ValidationStatus validate(String line) {
+    Validate.notNull(line, "line");
+    if (line.trim().isEmpty()) {
+      return ValidationStatus.BLANK;
+    }
+    try {
+      parseLine(line);
+      return ValidationStatus.VALID;
+    } catch (ParseException e) {
+      return ValidationStatus.INVALID;
+    }
+  }
+
+  /**
+   * Checks whether a slice of UTF-8 bytes parses, without building its values.
+   * <p>
+   * The default implementation decodes the slice to a {@code String}.
+   * </p>
+   *
+   * @param bytes the bytes holding the line of Syslog to check
+   * @param offset the offset of the line
+   * @param length the length of the line
+   * @return the {@link ValidationStatus}
+   * @throws IllegalArgumentException if bytes is null
+   */
+  default ValidationStatus validate(byte[] bytes, int offset, int length) {
+    Validate.notNull(bytes, "bytes");
+    return validate(new String(bytes, offset, length, StandardCharsets.UTF_8));
+  }
+
   /**
    * Parse a {@code String} to a {@code Map} and provides that {@code Map} to the provided {@code Consumer}.
    *
@@ -78,4 +184,35 @@ public interface SyslogParser {
    */
   void parseLines(Reader reader, Consumer<Map<String, Object>> messageConsumer,
       BiConsumer<String, Throwable> errorConsumer);
+
+  /**
+   * Parse a {@code String} to a {@code Map} asynchronously.
+   * <p>
+   * The default implementation runs each line as a task on the common {@code ForkJoinPool}.
+   * </p>
+   *
+   * @param line the line of Syslog to parse
+   * @return a {@code CompletableFuture} of the {@code Map}, completed exceptionally with a
+   *     {@link com.github.palindromicity.syslog.dsl.ParseException} if there is an error parsing
+   */
+  default CompletableFuture<Map<String, Object>> parseLineAsync(String line) {
+    return CompletableFuture.supplyAsync(() -> parseLine(line));
+  }
+
+  /**
+   * Reads each line from the {@code Reader} and parses it to a {@code List} of {@code Map} asynchronously.
+   * <p>
+   * The default implementation reads and parses all the lines in a single task on the common
+   * {@code ForkJoinPool}.
+   * </p>
+   *
+   * @param reader {@code Reader} used.  It is not closed in this method.
+   * @return a {@code CompletableFuture} of the {@code List} of {@code Map}, in line order, completed exceptionally
+   *     with a {@link com.github.palindromicity.syslog.dsl.ParseException} if there is an error parsing any line
+   * @throws IllegalArgumentException if reader is null
+   */
+  default CompletableFuture<List<Map<String, Object>>> parseLinesAsync(Reader reader) {
+    Validate.notNull(reader, "reader");
+    return CompletableFuture.supplyAsync(() -> parseLines(reader));
+  }
 }
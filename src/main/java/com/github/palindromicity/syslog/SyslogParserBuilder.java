@@ -17,6 +17,20 @@
 package com.github.palindromicity.syslog;
 
 import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.github.palindromicity.syslog.concurrent.BatchingExecutor;
+import com.github.palindromicity.syslog.message.KeywordExtractor;
+import com.github.palindromicity.syslog.message.KeywordMatcher;
+import com.github.palindromicity.syslog.message.MessageExtractor;
+import com.github.palindromicity.syslog.message.MessageFieldExtractor;
+import com.github.palindromicity.syslog.message.MessagePattern;
+import com.github.palindromicity.syslog.message.PatternExtractor;
 
 /**
  * Builder for SyslogParser instances.
@@ -29,6 +43,12 @@ public class SyslogParserBuilder {
    */
   private EnumSet<AllowableDeviations> deviations = EnumSet.of(AllowableDeviations.NONE);
 
+  /**
+   * The {@link SyslogSpecification}.
+   * Defaults to {@link SyslogSpecification#RFC_5424}
+   */
+  private SyslogSpecification specification = SyslogSpecification.RFC_5424;
+
   /**
    * The {@link KeyProvider}.
    * Defaults to {@link DefaultKeyProvider}
@@ -47,6 +67,90 @@ public class SyslogParserBuilder {
    */
   private StructuredDataPolicy structuredDataPolicy = StructuredDataPolicy.FLATTEN;
 
+  /**
+   * The {@code Executor} for asynchronous parsing.
+   * Defaults to {@link ForkJoinPool#commonPool()}
+   */
+  private Executor executor = ForkJoinPool.commonPool();
+
+  /**
+   * The maximum number of lines parsed per asynchronous task.
+   * Defaults to {@link BatchingExecutor#DEFAULT_BATCH_SIZE}
+   */
+  private int asyncBatchSize = BatchingExecutor.DEFAULT_BATCH_SIZE;
+
+  /**
+   * The factory for the {@code Map}s parsed into.
+   * Defaults to null, for compact immutable maps
+   */
+  private Supplier<Map<String, Object>> mapFactory;
+
+  /**
+   * Whether the {@code Consumer} variants reuse a single {@code Map}.
+   * Defaults to false
+   */
+  private boolean reuseMaps;
+
+  /**
+   * Chooses the {@link MessageFormat} of the fields extracted from the MSG by APP-NAME and MSGID.
+   * Defaults to null, for no extraction
+   */
+  private BiFunction<String, String, MessageFormat> messageFormatSelector;
+
+  /**
+   * Chooses the {@link MessagePattern} of the fields extracted from the MSG by APP-NAME.
+   * Defaults to null, for no extraction
+   */
+  private Function<String, MessagePattern> messagePatternSelector;
+
+  /**
+   * The {@link KeywordMatcher} of keywords found in the MSG.
+   * Defaults to null, for no keyword matching
+   */
+  private KeywordMatcher keywordMatcher;
+
+  /**
+   * A {@link MessageExtractor} of fields from the MSG.
+   * Defaults to null
+   */
+  private MessageExtractor messageExtractor;
+
+  /**
+   * The maximum length of a line.
+   * Defaults to 0, for no limit
+   */
+  private int maxLineLength;
+
+  /**
+   * The maximum number of STRUCTURED-DATA elements of a line.
+   * Defaults to 0, for no limit
+   */
+  private int maxStructuredDataElements;
+
+  /**
+   * The maximum number of params of each STRUCTURED-DATA element.
+   * Defaults to 0, for no limit
+   */
+  private int maxStructuredDataParams;
+
+  /**
+   * The maximum length of the MSG.
+   * Defaults to 0, for no limit
+   */
+  private int maxMessageLength;
+
+  /**
+   * The {@link LimitAction} for lines exceeding a limit.
+   * Defaults to {@link LimitAction#TRUNCATE}
+   */
+  private LimitAction limitAction = LimitAction.TRUNCATE;
+
+  /**
+   * The {@link LimitMetrics} counting the lines exceeding a limit.
+   * Defaults to null, for no metrics
+   */
+  private LimitMetrics limitMetrics;
+
   /**
    * Add a {@link AllowableDeviations} to the builder.
    *
@@ -58,6 +162,17 @@ public class SyslogParserBuilder {
     return this;
   }
 
+  /**
+   * Set the {@link SyslogSpecification} to the builder.
+   *
+   * @param specification the {@link SyslogSpecification}
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withSpecification(SyslogSpecification specification) {
+    this.specification = specification;
+    return this;
+  }
+
   /**
    * Add a {@link KeyProvider} to the builder.
    *
@@ -85,13 +200,268 @@ public class SyslogParserBuilder {
     return this;
   }
 
+  /**
+   * Set the {@code Executor} used by the asynchronous parse methods.
+   *
+   * @param executor the {@code Executor}
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withExecutor(Executor executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of lines parsed per asynchronous task.
+   *
+   * @param asyncBatchSize the maximum number of lines per task
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withAsyncBatchSize(int asyncBatchSize) {
+    this.asyncBatchSize = asyncBatchSize;
+    return this;
+  }
+
+  /**
+   * Set the factory for the {@code Map}s lines are parsed into.  The maps it supplies must be empty and
+   * modifiable, and are returned as they are.
+   *
+   * @param mapFactory the {@code Map} factory
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withMapFactory(Supplier<Map<String, Object>> mapFactory) {
+    this.mapFactory = mapFactory;
+    return this;
+  }
+
+  /**
+   * Set whether the {@code parseLine} and {@code parseLines} {@code Consumer} variants pass the same modifiable
+   * {@code Map} for every message, cleared in between.  Consumers must copy what they need before returning.
+   * The map comes from the map factory if set, one per thread for {@code parseLine} and one per call for
+   * {@code parseLines}.
+   *
+   * @param reuseMaps true to reuse maps
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withMapReuse(boolean reuseMaps) {
+    this.reuseMaps = reuseMaps;
+    return this;
+  }
+
+  /**
+   * Set the {@link MessageFormat} of the fields extracted from every MSG.  The fields are added with keys from the
+   * {@link KeyProvider#getMessageFieldFormat()}.
+   *
+   * @param messageFormat the {@link MessageFormat}
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withMessageFormat(MessageFormat messageFormat) {
+    this.messageFormatSelector = messageFormat == null ? null : (appName, msgId) -> messageFormat;
+    return this;
+  }
+
+  /**
+   * Set the function choosing the {@link MessageFormat} of the fields extracted from the MSG, by APP-NAME and
+   * MSGID, either null if nil.  The function is called once for each APP-NAME and MSGID and the result remembered.
+   * The fields are added with keys from the {@link KeyProvider#getMessageFieldFormat()}.
+   *
+   * @param messageFormatSelector the function choosing the {@link MessageFormat}
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withMessageFormat(BiFunction<String, String, MessageFormat> messageFormatSelector) {
+    this.messageFormatSelector = messageFormatSelector;
+    return this;
+  }
+
+  /**
+   * Set the function choosing the {@link MessagePattern} of the fields extracted from the MSG, by APP-NAME, null
+   * if nil.  The function is called once for each APP-NAME and the result remembered, null for no pattern.
+   * The fields are added with keys from the {@link KeyProvider#getMessageFieldFormat()}, after any
+   * {@link MessageFormat} extraction.
+   *
+   * @param messagePatternSelector the function choosing the {@link MessagePattern}
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withMessagePattern(Function<String, MessagePattern> messagePatternSelector) {
+    this.messagePatternSelector = messagePatternSelector;
+    return this;
+  }
+
+  /**
+   * Set the {@link KeywordMatcher} of keywords to find in the MSG.  The ids of the keywords found are added as a
+   * comma separated {@code String}, keyed by {@link KeywordExtractor#DEFAULT_FIELD_NAME} in the
+   * {@link KeyProvider#getMessageFieldFormat()}, after any {@link MessageFormat} and {@link MessagePattern}
+   * extraction.
+   *
+   * @param keywordMatcher the {@link KeywordMatcher}
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withKeywords(KeywordMatcher keywordMatcher) {
+    this.keywordMatcher = keywordMatcher;
+    return this;
+  }
+
+  /**
+   * Set a {@link MessageExtractor} of fields from the MSG, run after any {@link MessageFormat},
+   * {@link MessagePattern} and {@link KeywordMatcher} extraction.
+   *
+   * @param messageExtractor the {@link MessageExtractor}
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withMessageExtractor(MessageExtractor messageExtractor) {
+    this.messageExtractor = messageExtractor;
+    return this;
+  }
+
+  /**
+   * Set the maximum length of a line, in characters of a {@code String} or octets of UTF-8 bytes.  Longer lines are
+   * truncated or rejected, by the {@link LimitAction}, before they are parsed.
+   *
+   * @param maxLineLength the maximum length, or 0 for no limit
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withMaxLineLength(int maxLineLength) {
+    this.maxLineLength = maxLineLength;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of STRUCTURED-DATA elements of a line.  The elements after the maximum are removed, or
+   * the line rejected, by the {@link LimitAction}, before it is parsed.
+   *
+   * @param maxStructuredDataElements the maximum number of elements, or 0 for no limit
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withMaxStructuredDataElements(int maxStructuredDataElements) {
+    this.maxStructuredDataElements = maxStructuredDataElements;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of params of each STRUCTURED-DATA element.  The params after the maximum are removed, or
+   * the line rejected, by the {@link LimitAction}, before it is parsed.
+   *
+   * @param maxStructuredDataParams the maximum number of params, or 0 for no limit
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withMaxStructuredDataParams(int maxStructuredDataParams) {
+    this.maxStructuredDataParams = maxStructuredDataParams;
+    return this;
+  }
+
+  /**
+   * Set the maximum length of the MSG, in characters of a {@code String} or octets of UTF-8 bytes.  Longer messages
+   * are truncated or rejected, by the {@link LimitAction}, before they are parsed.
+   *
+   * @param maxMessageLength the maximum length, or 0 for no limit
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withMaxMessageLength(int maxMessageLength) {
+    this.maxMessageLength = maxMessageLength;
+    return this;
+  }
+
+  /**
+   * Set the {@link LimitAction} for lines exceeding a limit.
+   *
+   * @param limitAction the {@link LimitAction}
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withLimitAction(LimitAction limitAction) {
+    this.limitAction = limitAction;
+    return this;
+  }
+
+  /**
+   * Set the {@link LimitMetrics} counting the lines exceeding a limit, and their senders.
+   *
+   * @param limitMetrics the {@link LimitMetrics}
+   * @return {@code SyslogParserBuilder}
+   */
+  public SyslogParserBuilder withLimitMetrics(LimitMetrics limitMetrics) {
+    this.limitMetrics = limitMetrics;
+    return this;
+  }
+
+  /**
+   * Returns the {@link LineLimiter} of the options, or null if there are no limits.
+   */
+  private LineLimiter buildLineLimiter() {
+    if (maxLineLength < 0 || maxStructuredDataElements < 0 || maxStructuredDataParams < 0 || maxMessageLength < 0) {
+      throw new IllegalArgumentException("limits must not be negative");
+    }
+    if (maxLineLength == 0 && maxStructuredDataElements == 0 && maxStructuredDataParams == 0
+        && maxMessageLength == 0) {
+      return null;
+    }
+    return new LineLimiter(maxLineLength, maxStructuredDataElements, maxStructuredDataParams, maxMessageLength,
+        limitAction, limitMetrics);
+  }
+
+  /**
+   * Returns the {@link MessageExtractor} of the options, or null if there is none.
+   */
+  private MessageExtractor buildMessageExtractor() {
+    MessageExtractor extractor = null;
+    if (messageFormatSelector != null) {
+      extractor = new MessageFieldExtractor(keyProvider, messageFormatSelector);
+    }
+    if (messagePatternSelector != null) {
+      extractor = andThen(extractor, new PatternExtractor(keyProvider, messagePatternSelector));
+    }
+    if (keywordMatcher != null) {
+      extractor = andThen(extractor, new KeywordExtractor(keyProvider, keywordMatcher));
+    }
+    return messageExtractor == null ? extractor : andThen(extractor, messageExtractor);
+  }
+
+  private static MessageExtractor andThen(MessageExtractor first, MessageExtractor after) {
+    return first == null ? after : first.andThen(after);
+  }
+
   /**
    * Builds a new {@link SyslogParser} instance using options if provided.
    *
    * @return {@link SyslogParser}
    * @throws IllegalStateException if deviations is unknown
+   * @throws IllegalArgumentException if executor is null, asyncBatchSize is less than 1 or a limit is negative
    */
   public SyslogParser build() {
-    return new Rfc5424SyslogParser(keyProvider, nilPolicy, structuredDataPolicy, deviations);
+    BatchingExecutor batchingExecutor = new BatchingExecutor(executor, asyncBatchSize);
+    MessageExtractor extractor = buildMessageExtractor();
+    LineLimiter lineLimiter = buildLineLimiter();
+    if (specification == SyslogSpecification.RFC_3164) {
+      return new Rfc3164SyslogParser(keyProvider, nilPolicy, deviations, batchingExecutor, mapFactory, reuseMaps,
+          extractor, lineLimiter);
+    } else if (specification == SyslogSpecification.DETECT) {
+      return new DetectingSyslogParser(keyProvider, nilPolicy, structuredDataPolicy, deviations, batchingExecutor,
+          mapFactory, reuseMaps, extractor, lineLimiter);
+    }
+    return new Rfc5424SyslogParser(keyProvider, nilPolicy, structuredDataPolicy, deviations, batchingExecutor,
+        mapFactory, reuseMaps, extractor, lineLimiter);
+  }
+
+  /**
+   * Builds a new {@link SenderAwareSyslogParser} using options if provided, remembering the parsing
+   * {@link SenderAwareSyslogParser.Strategy} of up to maxSenders senders.  The specification is not used.
+   *
+   * @param maxSenders the maximum number of senders remembered
+   * @return {@link SenderAwareSyslogParser}
+   * @throws IllegalArgumentException if maxSenders is less than 1, executor is null, asyncBatchSize is less
+   *     than 1 or a limit is negative
+   */
+  public SenderAwareSyslogParser buildSenderAware(int maxSenders) {
+    BatchingExecutor batchingExecutor = new BatchingExecutor(executor, asyncBatchSize);
+    MessageExtractor extractor = buildMessageExtractor();
+    LineLimiter lineLimiter = buildLineLimiter();
+    return new SenderAwareSyslogParser(
+        new Rfc5424SyslogParser(keyProvider, nilPolicy, structuredDataPolicy, deviations, batchingExecutor,
+            mapFactory, reuseMaps, extractor, null),
+        new Rfc5424SyslogParser(keyProvider, nilPolicy, structuredDataPolicy,
+            SenderAwareSyslogParser.withMissingHeaders(deviations), batchingExecutor, mapFactory, reuseMaps,
+            extractor, null),
+        new Rfc3164SyslogParser(keyProvider, nilPolicy, deviations, batchingExecutor, mapFactory, reuseMaps,
+            extractor, null),
+        maxSenders, lineLimiter);
   }
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+/**
+ * The Syslog specification a {@link SyslogParser} parses.
+ */
+public enum SyslogSpecification {
+  /**
+   * RFC 5424 Syslog @see <a href="https://tools.ietf.org/html/rfc5424">RFC 5424</a>.
+   */
+  RFC_5424,
+  /**
+   * RFC 3164 BSD Syslog @see <a href="https://tools.ietf.org/html/rfc3164">RFC 3164</a>.
+   */
+  RFC_3164,
+  /**
+   * Either, chosen for each line from the first characters after the PRI.  A VERSION digit is RFC 5424, and
+   * a month abbreviation is RFC 3164.
+   */
+  DETECT
+}
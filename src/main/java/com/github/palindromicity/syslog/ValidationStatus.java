@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+/**
+ * {@code ValidationStatus} is the result of {@link SyslogParser#validate(String)}: whether a line is valid, and if
+ * not, the part of the message that is not.
+ */
+public enum ValidationStatus {
+  /**
+   * The line is valid.
+   */
+  VALID,
+  /**
+   * The line is empty or only whitespace.
+   */
+  BLANK,
+  /**
+   * The PRI is invalid, or missing without {@link AllowableDeviations#PRIORITY}.
+   */
+  PRIORITY,
+  /**
+   * The VERSION is invalid, or missing without {@link AllowableDeviations#VERSION}.
+   */
+  VERSION,
+  /**
+   * The TIMESTAMP is invalid.
+   */
+  TIMESTAMP,
+  /**
+   * The HOSTNAME is invalid.
+   */
+  HOSTNAME,
+  /**
+   * The APP-NAME is invalid.
+   */
+  APP_NAME,
+  /**
+   * The PROCID is invalid.
+   */
+  PROC_ID,
+  /**
+   * The MSGID is invalid.
+   */
+  MSG_ID,
+  /**
+   * The STRUCTURED-DATA is invalid.
+   */
+  STRUCTURED_DATA,
+  /**
+   * The MSG is invalid.
+   */
+  MESSAGE,
+  /**
+   * The line exceeds a {@link SyslogLimit} of the parser, with {@link LimitAction#REJECT}.
+   */
+  LIMIT,
+  /**
+   * The line is invalid, in a part that is not known.
+   */
+  INVALID;
+
+  /**
+   * Returns true if this is {@link #VALID}.
+   *
+   * @return true if the line is valid
+   */
+  public boolean isValid() {
+    return this == VALID;
+  }
+}
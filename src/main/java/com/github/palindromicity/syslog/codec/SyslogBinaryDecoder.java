@@ -0,0 +1,241 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+import com.github.palindromicity.syslog.KeyProvider;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code SyslogBinaryDecoder} decodes the blocks written by {@link SyslogBinaryEncoder}.
+ * <p>
+ * {@link #readBlock(InputStream)} reads a whole block, then {@link #hasNext()} and {@link #next()} decode its
+ * messages in order.  Messages are decoded into {@code LinkedHashMap}s, or the maps from a provided factory, in the
+ * order their entries were encoded.  A {@code SyslogBinaryDecoder} is not thread safe.
+ * </p>
+ */
+public class SyslogBinaryDecoder {
+
+  private final String[] keys;
+  private final Supplier<Map<String, Object>> mapFactory;
+  private final List<String> dictionary = new ArrayList<>();
+  private byte[] buffer = new byte[4096];
+  private int length;
+  private int position;
+  private int remaining;
+
+  /**
+   * Create a new {@code SyslogBinaryDecoder}, decoding into {@code LinkedHashMap}s.
+   *
+   * @param keyProvider {@link KeyProvider} the messages were encoded with
+   */
+  public SyslogBinaryDecoder(KeyProvider keyProvider) {
+    this(keyProvider, LinkedHashMap::new);
+  }
+
+  /**
+   * Create a new {@code SyslogBinaryDecoder}.
+   *
+   * @param keyProvider {@link KeyProvider} the messages were encoded with
+   * @param mapFactory factory for the empty, modifiable {@code Map}s messages and structured data are decoded into
+   */
+  public SyslogBinaryDecoder(KeyProvider keyProvider, Supplier<Map<String, Object>> mapFactory) {
+    Validate.notNull(keyProvider, "keyProvider");
+    Validate.notNull(mapFactory, "mapFactory");
+    this.keys = SyslogBinaryEncoder.keys(keyProvider);
+    this.mapFactory = mapFactory;
+  }
+
+  /**
+   * Reads the next block, discarding any messages not yet decoded from the current block.
+   *
+   * @param in the {@code InputStream}
+   * @return false if the stream has no more blocks
+   * @throws IOException if the block cannot be read, or the stream ends within it
+   */
+  public boolean readBlock(InputStream in) throws IOException {
+    Validate.notNull(in, "in");
+    int first = in.read();
+    if (first < 0) {
+      remaining = 0;
+      return false;
+    }
+    int messages = readVarint(in, first);
+    int blockLength = readVarint(in, in.read());
+    if (messages < 1 || blockLength < messages) {
+      throw new StreamCorruptedException("invalid block header");
+    }
+    // the length comes from the stream, so grow towards it only as bytes actually arrive
+    int read = 0;
+    while (read < blockLength) {
+      if (read == buffer.length) {
+        buffer = Arrays.copyOf(buffer, (int) Math.min(blockLength, buffer.length * 2L));
+      }
+      int count = in.read(buffer, read, Math.min(blockLength, buffer.length) - read);
+      if (count < 0) {
+        throw new EOFException("block truncated");
+      }
+      read += count;
+    }
+    length = blockLength;
+    position = 0;
+    remaining = messages;
+    dictionary.clear();
+    return true;
+  }
+
+  /**
+   * Returns true if the current block has another message.
+   *
+   * @return true if there is another message
+   */
+  public boolean hasNext() {
+    return remaining > 0;
+  }
+
+  /**
+   * Decodes the next message of the current block.
+   *
+   * @return the message {@code Map}
+   * @throws IOException if the block is corrupt
+   * @throws NoSuchElementException if the block has no more messages
+   */
+  public Map<String, Object> next() throws IOException {
+    if (remaining == 0) {
+      throw new NoSuchElementException();
+    }
+    remaining--;
+    try {
+      Map<String, Object> message = readMap(true);
+      if (remaining == 0 && position != length) {
+        throw new StreamCorruptedException("block length does not match its messages");
+      }
+      return message;
+    } catch (IOException e) {
+      // the rest of a corrupt block cannot be trusted
+      remaining = 0;
+      throw e;
+    }
+  }
+
+  private Map<String, Object> readMap(boolean message) throws IOException {
+    int size = readVarint();
+    if (size < 0 || size > length - position) {
+      throw new StreamCorruptedException("invalid entry count " + size);
+    }
+    Map<String, Object> map = mapFactory.get();
+    for (int i = 0; i < size; i++) {
+      int keyNumber = readVarint();
+      String key;
+      if (keyNumber >= 0 && keyNumber < SyslogBinaryEncoder.KEY_NEW && message) {
+        key = keys[keyNumber];
+      } else if (keyNumber == SyslogBinaryEncoder.KEY_NEW) {
+        key = readString();
+        dictionary.add(key);
+      } else if (keyNumber > SyslogBinaryEncoder.KEY_NEW) {
+        key = lookup(keyNumber - SyslogBinaryEncoder.KEY_NEW - 1);
+      } else {
+        throw new StreamCorruptedException("invalid key " + keyNumber);
+      }
+      map.put(key, readValue());
+    }
+    return map;
+  }
+
+  private Object readValue() throws IOException {
+    int type = readVarint();
+    switch (type) {
+      case SyslogBinaryEncoder.TYPE_NULL:
+        return null;
+      case SyslogBinaryEncoder.TYPE_LITERAL:
+        return readString();
+      case SyslogBinaryEncoder.TYPE_NEW:
+        String value = readString();
+        dictionary.add(value);
+        return value;
+      case SyslogBinaryEncoder.TYPE_REF:
+        return lookup(readVarint());
+      case SyslogBinaryEncoder.TYPE_INT:
+        int number = readVarint();
+        return String.valueOf((number >>> 1) ^ -(number & 1));
+      case SyslogBinaryEncoder.TYPE_MAP:
+        return readMap(false);
+      default:
+        throw new StreamCorruptedException("invalid value type " + type);
+    }
+  }
+
+  private String lookup(int index) throws IOException {
+    if (index < 0 || index >= dictionary.size()) {
+      throw new StreamCorruptedException("invalid dictionary index " + index);
+    }
+    return dictionary.get(index);
+  }
+
+  private String readString() throws IOException {
+    int stringLength = readVarint();
+    if (stringLength < 0 || stringLength > length - position) {
+      throw new StreamCorruptedException("invalid string length " + stringLength);
+    }
+    String value = new String(buffer, position, stringLength, StandardCharsets.UTF_8);
+    position += stringLength;
+    return value;
+  }
+
+  private int readVarint() throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      if (position >= length) {
+        throw new StreamCorruptedException("message overruns its block");
+      }
+      byte octet = buffer[position++];
+      value |= (octet & 0x7F) << shift;
+      if (octet >= 0) {
+        return value;
+      }
+    }
+    throw new StreamCorruptedException("invalid varint");
+  }
+
+  private static int readVarint(InputStream in, int first) throws IOException {
+    int value = 0;
+    int next = first;
+    for (int shift = 0; shift < 35; shift += 7) {
+      if (next < 0) {
+        throw new EOFException("block header truncated");
+      }
+      value |= (next & 0x7F) << shift;
+      if ((next & 0x80) == 0) {
+        return value;
+      }
+      next = in.read();
+    }
+    throw new StreamCorruptedException("invalid varint");
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.palindromicity.syslog.KeyProvider;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code SyslogBinaryEncoder} encodes parsed messages into a block of the compact binary format read by
+ * {@link SyslogBinaryDecoder}.
+ * <p>
+ * A block is the number of messages and the length of the encoded messages, as varints, followed by the messages.
+ * Each message is its number of entries followed by each key and value.  The keys of the {@link KeyProvider}
+ * are written as a small number, numbers in canonical decimal form as varints, and other keys and short values,
+ * such as host and app names and SD-IDs, are written once per block and then referred to by their index in the
+ * block's dictionary.  The MSG is always written as its length and UTF-8 bytes.
+ * </p>
+ * <p>
+ * Any {@code Map} of {@code String} keys to {@code String}, {@code null} or nested {@code Map} values, which covers
+ * every {@link com.github.palindromicity.syslog.NilPolicy} and
+ * {@link com.github.palindromicity.syslog.StructuredDataPolicy}, decodes equal to the {@code Map} encoded.
+ * Other values are encoded as their {@code toString()}.  A {@code SyslogBinaryEncoder} is not thread safe.
+ * </p>
+ */
+public class SyslogBinaryEncoder {
+
+  /**
+   * The longest value added to the dictionary.
+   */
+  static final int MAX_DICTIONARY_LENGTH = 64;
+
+  static final int TYPE_NULL = 0;
+  static final int TYPE_LITERAL = 1;
+  static final int TYPE_NEW = 2;
+  static final int TYPE_REF = 3;
+  static final int TYPE_INT = 4;
+  static final int TYPE_MAP = 5;
+
+  /**
+   * The key number of a key written as a new dictionary entry, the numbers below are the {@link #keys(KeyProvider)}
+   * and those above are dictionary references.
+   */
+  static final int KEY_NEW = 11;
+
+  private final Map<String, Integer> keyNumbers = new HashMap<>();
+  private final String messageKey;
+  private final Map<String, Integer> dictionary = new HashMap<>();
+  private byte[] buffer = new byte[4096];
+  private int length;
+  private int count;
+
+  /**
+   * Create a new {@code SyslogBinaryEncoder}.
+   *
+   * @param keyProvider {@link KeyProvider} of the keys of the messages
+   */
+  public SyslogBinaryEncoder(KeyProvider keyProvider) {
+    Validate.notNull(keyProvider, "keyProvider");
+    String[] keys = keys(keyProvider);
+    for (int i = keys.length - 1; i >= 0; i--) {
+      keyNumbers.put(keys[i], i);
+    }
+    this.messageKey = keyProvider.getMessage();
+  }
+
+  /**
+   * Returns the keys written as a number, in number order.
+   */
+  static String[] keys(KeyProvider keyProvider) {
+    return new String[] {keyProvider.getMessage(), keyProvider.getHeaderPriority(),
+        keyProvider.getHeaderSeverity(), keyProvider.getHeaderFacility(), keyProvider.getHeaderVersion(),
+        keyProvider.getHeaderTimeStamp(), keyProvider.getHeaderHostName(), keyProvider.getHeaderAppName(),
+        keyProvider.getHeaderProcessId(), keyProvider.getHeaderMessageId(), keyProvider.getStructuredBase()};
+  }
+
+  /**
+   * Encodes a message into the current block.
+   *
+   * @param message the message {@code Map}
+   * @throws IllegalArgumentException if message is null
+   */
+  public void encode(Map<String, Object> message) {
+    Validate.notNull(message, "message");
+    writeMap(message, true);
+    count++;
+  }
+
+  /**
+   * Returns the number of messages in the current block.
+   *
+   * @return the number of messages
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the number of bytes of encoded messages in the current block.
+   *
+   * @return the number of bytes
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Writes the current block to the {@code OutputStream}, and starts a new block with an empty dictionary.
+   * Nothing is written if the block is empty.
+   *
+   * @param out the {@code OutputStream}
+   * @throws IOException if the block cannot be written
+   */
+  public void writeBlock(OutputStream out) throws IOException {
+    Validate.notNull(out, "out");
+    if (count == 0) {
+      return;
+    }
+    byte[] header = new byte[10];
+    int headerLength = putVarint(header, putVarint(header, 0, count), length);
+    out.write(header, 0, headerLength);
+    out.write(buffer, 0, length);
+    reset();
+  }
+
+  /**
+   * Discards the current block.
+   */
+  public void reset() {
+    length = 0;
+    count = 0;
+    dictionary.clear();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void writeMap(Map<String, Object> map, boolean message) {
+    writeVarint(map.size());
+    for (Map.Entry<String, Object> entry : map.entrySet()) {
+      Integer keyNumber = message ? keyNumbers.get(entry.getKey()) : null;
+      if (keyNumber != null) {
+        writeVarint(keyNumber);
+      } else {
+        Integer index = dictionary.get(entry.getKey());
+        if (index != null) {
+          writeVarint(KEY_NEW + 1 + index);
+        } else {
+          writeVarint(KEY_NEW);
+          writeString(entry.getKey());
+          dictionary.put(entry.getKey(), dictionary.size());
+        }
+      }
+      Object value = entry.getValue();
+      if (value == null) {
+        writeVarint(TYPE_NULL);
+      } else if (value instanceof Map) {
+        writeVarint(TYPE_MAP);
+        writeMap((Map<String, Object>) value, false);
+      } else if (message && messageKey.equals(entry.getKey())) {
+        writeVarint(TYPE_LITERAL);
+        writeString(value.toString());
+      } else {
+        writeValue(value.toString());
+      }
+    }
+  }
+
+  private void writeValue(String value) {
+    if (isCanonicalInt(value)) {
+      int number = Integer.parseInt(value);
+      writeVarint(TYPE_INT);
+      writeVarint((number << 1) ^ (number >> 31));
+      return;
+    }
+    if (value.length() > MAX_DICTIONARY_LENGTH) {
+      writeVarint(TYPE_LITERAL);
+      writeString(value);
+      return;
+    }
+    Integer index = dictionary.get(value);
+    if (index != null) {
+      writeVarint(TYPE_REF);
+      writeVarint(index);
+    } else {
+      writeVarint(TYPE_NEW);
+      writeString(value);
+      dictionary.put(value, dictionary.size());
+    }
+  }
+
+  /**
+   * Returns true if the value is an int written as {@code Integer.toString} would write it.
+   */
+  private static boolean isCanonicalInt(String value) {
+    final int valueLength = value.length();
+    final int start = valueLength > 1 && value.charAt(0) == '-' ? 1 : 0;
+    if (valueLength == 0 || valueLength - start > 10 || (value.charAt(start) == '0' && valueLength > 1)) {
+      return false;
+    }
+    long number = 0;
+    for (int i = start; i < valueLength; i++) {
+      char ch = value.charAt(i);
+      if (ch < '0' || ch > '9') {
+        return false;
+      }
+      number = number * 10 + (ch - '0');
+    }
+    return start == 0 ? number <= Integer.MAX_VALUE : number <= -(long) Integer.MIN_VALUE;
+  }
+
+  private void writeString(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarint(bytes.length);
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, length, bytes.length);
+    length += bytes.length;
+  }
+
+  private void writeVarint(int value) {
+    ensureCapacity(5);
+    length = putVarint(buffer, length, value);
+  }
+
+  private static int putVarint(byte[] bytes, int position, int value) {
+    while ((value & ~0x7F) != 0) {
+      bytes[position++] = (byte) (value & 0x7F | 0x80);
+      value >>>= 7;
+    }
+    bytes[position++] = (byte) value;
+    return position;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.codec;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.github.palindromicity.syslog.KeyProvider;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code SyslogBlockReader} reads the messages written by a {@link SyslogBlockWriter}, a block at a time.
+ * A {@code SyslogBlockReader} is not thread safe.
+ * <pre>
+ *   try (SyslogBlockReader reader = new SyslogBlockReader(in, keyProvider)) {
+ *     for (Map&lt;String, Object&gt; message = reader.read(); message != null; message = reader.read()) {
+ *       // do something with the message
+ *     }
+ *   }
+ * </pre>
+ */
+public class SyslogBlockReader implements Closeable {
+
+  private final InputStream in;
+  private final SyslogBinaryDecoder decoder;
+
+  /**
+   * Create a new {@code SyslogBlockReader}, reading messages into {@code LinkedHashMap}s.
+   *
+   * @param in the {@code InputStream}, closed on {@link #close()}
+   * @param keyProvider {@link KeyProvider} the messages were written with
+   * @throws IOException if the stream header cannot be read, or is not a supported version
+   */
+  public SyslogBlockReader(InputStream in, KeyProvider keyProvider) throws IOException {
+    this(in, new SyslogBinaryDecoder(keyProvider));
+  }
+
+  /**
+   * Create a new {@code SyslogBlockReader}.
+   *
+   * @param in the {@code InputStream}, closed on {@link #close()}
+   * @param keyProvider {@link KeyProvider} the messages were written with
+   * @param mapFactory factory for the empty, modifiable {@code Map}s messages are read into
+   * @throws IOException if the stream header cannot be read, or is not a supported version
+   */
+  public SyslogBlockReader(InputStream in, KeyProvider keyProvider, Supplier<Map<String, Object>> mapFactory)
+      throws IOException {
+    this(in, new SyslogBinaryDecoder(keyProvider, mapFactory));
+  }
+
+  private SyslogBlockReader(InputStream in, SyslogBinaryDecoder decoder) throws IOException {
+    Validate.notNull(in, "in");
+    this.in = in;
+    this.decoder = decoder;
+    for (byte expected : SyslogBlockWriter.MAGIC) {
+      int actual = in.read();
+      if (actual < 0) {
+        throw new EOFException("stream header truncated");
+      } else if (actual != expected) {
+        throw new StreamCorruptedException("not a syslog block stream");
+      }
+    }
+    int version = in.read();
+    if (version != SyslogBlockWriter.FORMAT_VERSION) {
+      throw new StreamCorruptedException("unsupported format version " + version);
+    }
+  }
+
+  /**
+   * Reads the next message.
+   *
+   * @return the message {@code Map}, or null at the end of the stream
+   * @throws IOException if the stream cannot be read or is corrupt
+   */
+  public Map<String, Object> read() throws IOException {
+    if (!decoder.hasNext() && !decoder.readBlock(in)) {
+      return null;
+    }
+    return decoder.next();
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
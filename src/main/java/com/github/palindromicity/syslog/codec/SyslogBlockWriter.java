@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.codec;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import com.github.palindromicity.syslog.KeyProvider;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code SyslogBlockWriter} writes parsed messages to a stream in the compact binary format of
+ * {@link SyslogBinaryEncoder}, for reading back with a {@link SyslogBlockReader}.
+ * <p>
+ * The stream starts with the {@link #MAGIC} bytes and the {@link #FORMAT_VERSION}, followed by blocks of up to the
+ * block size messages.  A block is written when it is full, on {@link #flush()} and on {@link #close()}.
+ * A {@code SyslogBlockWriter} is not thread safe.
+ * </p>
+ * <pre>
+ *   try (SyslogBlockWriter writer = new SyslogBlockWriter(out, keyProvider)) {
+ *     writer.write(parser.parseLine(line));
+ *   }
+ * </pre>
+ */
+public class SyslogBlockWriter implements Closeable, Flushable {
+
+  /**
+   * The bytes a stream starts with.
+   */
+  public static final byte[] MAGIC = {'S', 'Y', 'L', 'B'};
+
+  /**
+   * The version of the format written.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  /**
+   * The default maximum number of messages per block.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 256;
+
+  private final OutputStream out;
+  private final SyslogBinaryEncoder encoder;
+  private final int blockSize;
+
+  /**
+   * Create a new {@code SyslogBlockWriter} with the {@link #DEFAULT_BLOCK_SIZE}.
+   *
+   * @param out the {@code OutputStream}, closed on {@link #close()}
+   * @param keyProvider {@link KeyProvider} of the keys of the messages
+   * @throws IOException if the stream header cannot be written
+   */
+  public SyslogBlockWriter(OutputStream out, KeyProvider keyProvider) throws IOException {
+    this(out, keyProvider, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Create a new {@code SyslogBlockWriter}.
+   *
+   * @param out the {@code OutputStream}, closed on {@link #close()}
+   * @param keyProvider {@link KeyProvider} of the keys of the messages
+   * @param blockSize the maximum number of messages per block, larger blocks repeat fewer names
+   * @throws IOException if the stream header cannot be written
+   * @throws IllegalArgumentException if blockSize is less than 1
+   */
+  public SyslogBlockWriter(OutputStream out, KeyProvider keyProvider, int blockSize) throws IOException {
+    Validate.notNull(out, "out");
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("blockSize must be greater than 0");
+    }
+    this.out = out;
+    this.encoder = new SyslogBinaryEncoder(keyProvider);
+    this.blockSize = blockSize;
+    out.write(MAGIC);
+    out.write(FORMAT_VERSION);
+  }
+
+  /**
+   * Writes a message, writing the block if it is full.
+   *
+   * @param message the message {@code Map}
+   * @throws IOException if a block cannot be written
+   */
+  public void write(Map<String, Object> message) throws IOException {
+    encoder.encode(message);
+    if (encoder.getCount() >= blockSize) {
+      encoder.writeBlock(out);
+    }
+  }
+
+  /**
+   * Writes the current block, even if it is not full, and flushes the stream.
+   *
+   * @throws IOException if the block cannot be written
+   */
+  @Override
+  public void flush() throws IOException {
+    encoder.writeBlock(out);
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      encoder.writeBlock(out);
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code BatchingExecutor} runs small tasks on an {@code Executor}, many to an executor task.
+ * <p>
+ * Submitted tasks are queued, and at most {@code parallelism} executor tasks drain the queue, each running up
+ * to {@code batchSize} submitted tasks before handing its thread back.  When lightly loaded each submitted task
+ * is run on its own, as load rises more are run per executor task and the scheduling overhead is amortized.
+ * </p>
+ */
+public class BatchingExecutor {
+
+  /**
+   * The default maximum number of tasks run per executor task.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 64;
+
+  private final Executor executor;
+  private final int batchSize;
+  private final int parallelism;
+  private final Queue<Task<?>> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger active = new AtomicInteger();
+
+  /**
+   * Create a new {@code BatchingExecutor} using the common {@code ForkJoinPool} and {@link #DEFAULT_BATCH_SIZE}.
+   */
+  public BatchingExecutor() {
+    this(ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Create a new {@code BatchingExecutor} with a parallelism of the available processors.
+   *
+   * @param executor the {@code Executor}
+   * @param batchSize the maximum number of tasks run per executor task
+   */
+  public BatchingExecutor(Executor executor, int batchSize) {
+    this(executor, batchSize, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create a new {@code BatchingExecutor}.
+   *
+   * @param executor the {@code Executor}
+   * @param batchSize the maximum number of tasks run per executor task
+   * @param parallelism the maximum number of executor tasks running at once
+   * @throws IllegalArgumentException if executor is null, or batchSize or parallelism are less than 1
+   */
+  public BatchingExecutor(Executor executor, int batchSize, int parallelism) {
+    Validate.notNull(executor, "executor");
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be greater than 0");
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be greater than 0");
+    }
+    this.executor = executor;
+    this.batchSize = batchSize;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Returns the {@code Executor} tasks are run on.
+   *
+   * @return {@code Executor}
+   */
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Returns the maximum number of tasks run per executor task.
+   *
+   * @return the batch size
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Queues the {@code Supplier} to be run.
+   *
+   * @param supplier the {@code Supplier}
+   * @param <T> the result type
+   * @return a {@code CompletableFuture} completed with the result of the {@code Supplier}
+   */
+  public <T> CompletableFuture<T> submit(Supplier<T> supplier) {
+    Validate.notNull(supplier, "supplier");
+    Task<T> task = new Task<>(supplier);
+    pending.offer(task);
+    schedule();
+    return task.future;
+  }
+
+  private void schedule() {
+    for (;;) {
+      int current = active.get();
+      if (current >= parallelism || pending.isEmpty()) {
+        return;
+      }
+      if (active.compareAndSet(current, current + 1)) {
+        break;
+      }
+    }
+    try {
+      executor.execute(this::drain);
+    } catch (RejectedExecutionException e) {
+      active.decrementAndGet();
+      Task<?> task;
+      while ((task = pending.poll()) != null) {
+        task.future.completeExceptionally(e);
+      }
+    }
+  }
+
+  private void drain() {
+    try {
+      int count = 0;
+      Task<?> task;
+      while (count < batchSize && (task = pending.poll()) != null) {
+        task.run();
+        count++;
+      }
+    } finally {
+      active.decrementAndGet();
+      schedule();
+    }
+  }
+
+  private static class Task<T> {
+    private final Supplier<T> supplier;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    Task(Supplier<T> supplier) {
+      this.supplier = supplier;
+    }
+
+    void run() {
+      try {
+        future.complete(supplier.get());
+      } catch (Throwable throwable) {
+        future.completeExceptionally(throwable);
+      }
+    }
+  }
+}
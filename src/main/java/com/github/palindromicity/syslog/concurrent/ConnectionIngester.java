@@ -0,0 +1,230 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.concurrent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code ConnectionIngester} parses many concurrent Syslog connections, each on its own thread,
+ * into a single shared, bounded sink.
+ * <p>
+ * Each {@code InputStream} is read as UTF-8 lines and handed to
+ * {@link SyslogParser#parseLines(Reader, java.util.function.Consumer, BiConsumer)}, so a line that fails
+ * to parse is passed to the error consumer and the connection carries on.
+ * Parsed messages are {@code put} to the sink, a full sink blocks the connection's thread, and the
+ * backpressure reaches the sender through the transport.
+ * </p>
+ * <p>
+ * When no {@code ExecutorService} is provided, a virtual thread per task executor is used when running on
+ * Java 21 or later, otherwise a cached thread pool.
+ * </p>
+ */
+public class ConnectionIngester implements AutoCloseable {
+
+  /**
+   * The {@link SyslogParser} used for every connection.
+   */
+  private final SyslogParser parser;
+
+  /**
+   * The shared sink for parsed messages.
+   */
+  private final BlockingQueue<Map<String, Object>> sink;
+
+  /**
+   * The {@code BiConsumer} for lines that fail to parse.
+   */
+  private final BiConsumer<String, Throwable> errorConsumer;
+
+  /**
+   * The {@code ExecutorService} that runs a task per connection.
+   */
+  private final ExecutorService executorService;
+
+  /**
+   * True if the {@code ExecutorService} was created here, and should be shutdown on close.
+   */
+  private final boolean ownsExecutorService;
+
+  /**
+   * The number of connections being parsed.
+   */
+  private final AtomicInteger activeConnections = new AtomicInteger();
+
+  /**
+   * Create a new {@code ConnectionIngester} using the default {@code ExecutorService}.
+   *
+   * @param parser the {@link SyslogParser}
+   * @param sink the bounded sink for parsed messages
+   * @param errorConsumer the {@code BiConsumer} for syslog lines and their errors
+   */
+  public ConnectionIngester(SyslogParser parser, BlockingQueue<Map<String, Object>> sink,
+      BiConsumer<String, Throwable> errorConsumer) {
+    this(parser, sink, errorConsumer, defaultExecutorService(), true);
+  }
+
+  /**
+   * Create a new {@code ConnectionIngester}.
+   *
+   * @param parser the {@link SyslogParser}
+   * @param sink the bounded sink for parsed messages
+   * @param errorConsumer the {@code BiConsumer} for syslog lines and their errors
+   * @param executorService the {@code ExecutorService} used to run each connection.  It is not shutdown on close.
+   */
+  public ConnectionIngester(SyslogParser parser, BlockingQueue<Map<String, Object>> sink,
+      BiConsumer<String, Throwable> errorConsumer, ExecutorService executorService) {
+    this(parser, sink, errorConsumer, executorService, false);
+  }
+
+  private ConnectionIngester(SyslogParser parser, BlockingQueue<Map<String, Object>> sink,
+      BiConsumer<String, Throwable> errorConsumer, ExecutorService executorService, boolean ownsExecutorService) {
+    Validate.notNull(parser, "parser");
+    Validate.notNull(sink, "sink");
+    Validate.notNull(errorConsumer, "errorConsumer");
+    Validate.notNull(executorService, "executorService");
+    this.parser = parser;
+    this.sink = sink;
+    this.errorConsumer = errorConsumer;
+    this.executorService = executorService;
+    this.ownsExecutorService = ownsExecutorService;
+  }
+
+  /**
+   * Parses the connection on its own thread until the end of the stream.
+   * The {@code InputStream} is closed when parsing completes.
+   *
+   * @param inputStream the connection's {@code InputStream}
+   * @return a {@code Future} that completes when the connection has been fully parsed
+   * @throws IllegalArgumentException if inputStream is null
+   */
+  public Future<?> ingest(InputStream inputStream) {
+    Validate.notNull(inputStream, "inputStream");
+    activeConnections.incrementAndGet();
+    try {
+      return executorService.submit(() -> {
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+          parser.parseLines(reader, this::put, this::error);
+        } catch (IOException e) {
+          errorConsumer.accept(null, e);
+        } catch (UncheckedIOException e) {
+          errorConsumer.accept(null, e.getCause());
+        } catch (IngestInterruptedException e) {
+          // the thread was interrupted while waiting on the sink, stop reading this connection
+        } finally {
+          activeConnections.decrementAndGet();
+        }
+      });
+    } catch (RuntimeException e) {
+      activeConnections.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /**
+   * Parses each connection on its own thread.
+   *
+   * @param inputStreams the connections
+   * @return a {@code Future} per connection, in order
+   * @throws IllegalArgumentException if inputStreams is null
+   */
+  public List<Future<?>> ingestAll(Iterable<? extends InputStream> inputStreams) {
+    Validate.notNull(inputStreams, "inputStreams");
+    List<Future<?>> futures = new ArrayList<>();
+    for (InputStream inputStream : inputStreams) {
+      futures.add(ingest(inputStream));
+    }
+    return futures;
+  }
+
+  /**
+   * Returns the number of connections currently being parsed.
+   *
+   * @return the number of active connections
+   */
+  public int getActiveConnections() {
+    return activeConnections.get();
+  }
+
+  /**
+   * Shuts down the default {@code ExecutorService}, if one was created.
+   * Connections already being parsed are allowed to complete.
+   */
+  @Override
+  public void close() {
+    if (ownsExecutorService) {
+      executorService.shutdown();
+    }
+  }
+
+  private void put(Map<String, Object> map) {
+    try {
+      sink.put(map);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IngestInterruptedException();
+    }
+  }
+
+  private void error(String line, Throwable throwable) {
+    if (throwable instanceof IngestInterruptedException) {
+      throw (IngestInterruptedException) throwable;
+    }
+    errorConsumer.accept(line, throwable);
+  }
+
+  /**
+   * Creates a virtual thread per task {@code ExecutorService} if the runtime supports it, otherwise a
+   * cached thread pool.
+   *
+   * @return {@code ExecutorService}
+   */
+  static ExecutorService defaultExecutorService() {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  /**
+   * Thrown from the message consumer to unwind a connection when interrupted while waiting on the sink.
+   */
+  private static class IngestInterruptedException extends RuntimeException {
+    IngestInterruptedException() {
+      super(null, null, false, false);
+    }
+  }
+}
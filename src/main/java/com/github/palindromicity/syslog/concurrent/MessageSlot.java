@@ -0,0 +1,409 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.concurrent;
+
+import java.util.Arrays;
+
+import com.github.palindromicity.syslog.util.LineBreaks;
+
+/**
+ * A reusable slot of the {@link RingBufferPipeline}, and a flyweight view of the message parsed into it.
+ * <p>
+ * The slot holds the line and the offsets of each part of the message within it, no values are extracted
+ * until asked for.  Slots are reused, a {@code MessageSlot} is only valid for the duration of the
+ * handler call it is passed to.
+ * </p>
+ * <p>
+ * Nil ('-') header values and missing parts are both returned as null, {@link #isNil(int)} tells them apart.
+ * Values are returned without the carriage returns and line feeds the parser skips, as the map based parser
+ * returns them, while the offsets span the line as it is.
+ * </p>
+ */
+public final class MessageSlot {
+
+  /**
+   * Field index of the PRI value.
+   */
+  public static final int PRIORITY = 0;
+
+  /**
+   * Field index of the VERSION.
+   */
+  public static final int VERSION = 1;
+
+  /**
+   * Field index of the TIMESTAMP.
+   */
+  public static final int TIMESTAMP = 2;
+
+  /**
+   * Field index of the HOSTNAME.
+   */
+  public static final int HOSTNAME = 3;
+
+  /**
+   * Field index of the APP-NAME.
+   */
+  public static final int APPNAME = 4;
+
+  /**
+   * Field index of the PROCID.
+   */
+  public static final int PROCID = 5;
+
+  /**
+   * Field index of the MSGID.
+   */
+  public static final int MSGID = 6;
+
+  /**
+   * Field index of the MSG.
+   */
+  public static final int MESSAGE = 7;
+
+  private static final int FIELD_COUNT = 8;
+  private static final int ABSENT = -1;
+  private static final int NIL = -2;
+  private static final int INITIAL_SD_CAPACITY = 8;
+
+  /**
+   * The sequence this slot was last parsed for, written by the parsing thread and read by the publisher.
+   */
+  volatile long parsedSequence = -1;
+
+  private long sequence;
+  private String line;
+  private Throwable error;
+
+  /**
+   * Start and end offsets of each field, start is {@code ABSENT} or {@code NIL} if there is no value.
+   */
+  private final int[] fields = new int[FIELD_COUNT * 2];
+
+  private int elementCount;
+  private int[] elementIds = new int[INITIAL_SD_CAPACITY * 2];
+  private int[] elementFirstParam = new int[INITIAL_SD_CAPACITY];
+  private int paramCount;
+  private int[] params = new int[INITIAL_SD_CAPACITY * 4];
+
+  MessageSlot() {
+    Arrays.fill(fields, ABSENT);
+  }
+
+  void reset(long sequence, String line) {
+    this.sequence = sequence;
+    this.line = line;
+    this.error = null;
+    Arrays.fill(fields, ABSENT);
+    elementCount = 0;
+    paramCount = 0;
+  }
+
+  void setField(int field, int start, int end) {
+    fields[field * 2] = start;
+    fields[field * 2 + 1] = end;
+  }
+
+  void setNil(int field) {
+    fields[field * 2] = NIL;
+  }
+
+  void setError(Throwable error) {
+    this.error = error;
+  }
+
+  void startElement(int idStart, int idEnd) {
+    if (elementCount == elementFirstParam.length) {
+      elementIds = Arrays.copyOf(elementIds, elementIds.length * 2);
+      elementFirstParam = Arrays.copyOf(elementFirstParam, elementFirstParam.length * 2);
+    }
+    elementFirstParam[elementCount] = paramCount;
+    elementIds[elementCount * 2] = idStart;
+    elementIds[elementCount * 2 + 1] = idEnd;
+    elementCount++;
+  }
+
+  void addParam(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+    if (paramCount * 4 == params.length) {
+      params = Arrays.copyOf(params, params.length * 2);
+    }
+    int offset = paramCount * 4;
+    params[offset] = nameStart;
+    params[offset + 1] = nameEnd;
+    params[offset + 2] = valueStart;
+    params[offset + 3] = valueEnd;
+    paramCount++;
+  }
+
+  /**
+   * Returns the sequence of the message in this slot.
+   *
+   * @return the sequence
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Returns the line of Syslog.
+   *
+   * @return the line
+   */
+  public String getLine() {
+    return line;
+  }
+
+  /**
+   * Returns true if the line failed to parse.
+   *
+   * @return true on error
+   */
+  public boolean isError() {
+    return error != null;
+  }
+
+  /**
+   * Returns the error.
+   *
+   * @return the error, or null if the line parsed
+   */
+  public Throwable getError() {
+    return error;
+  }
+
+  /**
+   * Returns true if the field has a value.
+   *
+   * @param field the field index, for example {@link #HOSTNAME}
+   * @return true if present and not nil
+   */
+  public boolean hasValue(int field) {
+    return fields[field * 2] >= 0;
+  }
+
+  /**
+   * Returns true if the field was the nil value '-'.
+   *
+   * @param field the field index, for example {@link #HOSTNAME}
+   * @return true if nil
+   */
+  public boolean isNil(int field) {
+    return fields[field * 2] == NIL;
+  }
+
+  /**
+   * Returns the start offset of the field within the line.
+   *
+   * @param field the field index, for example {@link #HOSTNAME}
+   * @return the offset, or a negative number if the field has no value
+   */
+  public int getStart(int field) {
+    return fields[field * 2];
+  }
+
+  /**
+   * Returns the end offset, exclusive, of the field within the line.
+   *
+   * @param field the field index, for example {@link #HOSTNAME}
+   * @return the offset
+   */
+  public int getEnd(int field) {
+    return fields[field * 2 + 1];
+  }
+
+  /**
+   * Returns the value of the field.
+   *
+   * @param field the field index, for example {@link #HOSTNAME}
+   * @return the value, or null if missing or nil
+   */
+  public String get(int field) {
+    return hasValue(field) ? LineBreaks.remove(line, getStart(field), getEnd(field)) : null;
+  }
+
+  /**
+   * Returns the PRI value.
+   *
+   * @return the PRI, or -1 if missing
+   */
+  public int getPriority() {
+    return toInt(PRIORITY);
+  }
+
+  /**
+   * Returns the facility from the PRI value.
+   *
+   * @return the facility, or -1 if the PRI is missing
+   */
+  public int getFacility() {
+    int priority = getPriority();
+    return priority < 0 ? -1 : priority / 8;
+  }
+
+  /**
+   * Returns the severity from the PRI value.
+   *
+   * @return the severity, or -1 if the PRI is missing
+   */
+  public int getSeverity() {
+    int priority = getPriority();
+    return priority < 0 ? -1 : priority % 8;
+  }
+
+  /**
+   * Returns the VERSION.
+   *
+   * @return the VERSION, or -1 if missing
+   */
+  public int getVersion() {
+    return toInt(VERSION);
+  }
+
+  /**
+   * Returns the TIMESTAMP.
+   *
+   * @return the TIMESTAMP, or null if missing or nil
+   */
+  public String getTimestamp() {
+    return get(TIMESTAMP);
+  }
+
+  /**
+   * Returns the HOSTNAME.
+   *
+   * @return the HOSTNAME, or null if missing or nil
+   */
+  public String getHostName() {
+    return get(HOSTNAME);
+  }
+
+  /**
+   * Returns the APP-NAME.
+   *
+   * @return the APP-NAME, or null if missing or nil
+   */
+  public String getAppName() {
+    return get(APPNAME);
+  }
+
+  /**
+   * Returns the PROCID.
+   *
+   * @return the PROCID, or null if missing or nil
+   */
+  public String getProcId() {
+    return get(PROCID);
+  }
+
+  /**
+   * Returns the MSGID.
+   *
+   * @return the MSGID, or null if missing or nil
+   */
+  public String getMsgId() {
+    return get(MSGID);
+  }
+
+  /**
+   * Returns the MSG, trimmed.
+   *
+   * @return the MSG, or null if there is no MSG
+   */
+  public String getMessage() {
+    return get(MESSAGE);
+  }
+
+  /**
+   * Returns the number of STRUCTURED-DATA elements.
+   *
+   * @return the number of elements
+   */
+  public int getStructuredDataElementCount() {
+    return elementCount;
+  }
+
+  /**
+   * Returns the SD-ID of an element.
+   *
+   * @param element the element index
+   * @return the SD-ID
+   */
+  public String getStructuredDataId(int element) {
+    checkElement(element);
+    return LineBreaks.remove(line, elementIds[element * 2], elementIds[element * 2 + 1]);
+  }
+
+  /**
+   * Returns the number of SD-PARAMs of an element.
+   *
+   * @param element the element index
+   * @return the number of params
+   */
+  public int getStructuredDataParamCount(int element) {
+    checkElement(element);
+    int end = element + 1 < elementCount ? elementFirstParam[element + 1] : paramCount;
+    return end - elementFirstParam[element];
+  }
+
+  /**
+   * Returns the PARAM-NAME of an SD-PARAM.
+   *
+   * @param element the element index
+   * @param param the param index within the element
+   * @return the PARAM-NAME
+   */
+  public String getStructuredDataParamName(int element, int param) {
+    int offset = paramOffset(element, param);
+    return LineBreaks.remove(line, params[offset], params[offset + 1]);
+  }
+
+  /**
+   * Returns the PARAM-VALUE of an SD-PARAM, as it appears in the line.
+   *
+   * @param element the element index
+   * @param param the param index within the element
+   * @return the PARAM-VALUE
+   */
+  public String getStructuredDataParamValue(int element, int param) {
+    int offset = paramOffset(element, param);
+    return LineBreaks.remove(line, params[offset + 2], params[offset + 3]);
+  }
+
+  private int paramOffset(int element, int param) {
+    if (param < 0 || param >= getStructuredDataParamCount(element)) {
+      throw new IndexOutOfBoundsException("param " + param);
+    }
+    return (elementFirstParam[element] + param) * 4;
+  }
+
+  private void checkElement(int element) {
+    if (element < 0 || element >= elementCount) {
+      throw new IndexOutOfBoundsException("element " + element);
+    }
+  }
+
+  private int toInt(int field) {
+    if (!hasValue(field)) {
+      return -1;
+    }
+    int value = 0;
+    for (int index = getStart(field); index < getEnd(field); index++) {
+      value = value * 10 + (line.charAt(index) - '0');
+    }
+    return value;
+  }
+}
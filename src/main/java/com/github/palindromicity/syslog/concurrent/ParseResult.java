@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.concurrent;
+
+import java.util.Map;
+
+/**
+ * The result of parsing a single line of Syslog, either the parsed {@code Map} or the error.
+ */
+public final class ParseResult {
+
+  /**
+   * The line of Syslog.
+   */
+  private final String line;
+
+  /**
+   * The parsed {@code Map}, or null on error.
+   */
+  private final Map<String, Object> message;
+
+  /**
+   * The error, or null on success.
+   */
+  private final Throwable error;
+
+  private ParseResult(String line, Map<String, Object> message, Throwable error) {
+    this.line = line;
+    this.message = message;
+    this.error = error;
+  }
+
+  /**
+   * Create a successful {@code ParseResult}.
+   *
+   * @param line the line of Syslog
+   * @param message the parsed {@code Map}
+   * @return {@code ParseResult}
+   */
+  public static ParseResult success(String line, Map<String, Object> message) {
+    return new ParseResult(line, message, null);
+  }
+
+  /**
+   * Create a failed {@code ParseResult}.
+   *
+   * @param line the line of Syslog
+   * @param error the error
+   * @return {@code ParseResult}
+   */
+  public static ParseResult failure(String line, Throwable error) {
+    return new ParseResult(line, null, error);
+  }
+
+  /**
+   * Returns true if the line failed to parse.
+   *
+   * @return true on error
+   */
+  public boolean isError() {
+    return error != null;
+  }
+
+  /**
+   * Returns the line of Syslog.
+   *
+   * @return the line
+   */
+  public String getLine() {
+    return line;
+  }
+
+  /**
+   * Returns the parsed {@code Map}.
+   *
+   * @return the {@code Map}, or null if the line failed to parse
+   */
+  public Map<String, Object> getMessage() {
+    return message;
+  }
+
+  /**
+   * Returns the error.
+   *
+   * @return the error, or null if the line parsed
+   */
+  public Throwable getError() {
+    return error;
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.concurrent;
+
+import java.util.EnumSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.github.palindromicity.syslog.AllowableDeviations;
+import com.github.palindromicity.syslog.dsl.CompactCharStreams;
+import com.github.palindromicity.syslog.dsl.DefaultErrorListener;
+import com.github.palindromicity.syslog.dsl.generated.Rfc5424Lexer;
+import com.github.palindromicity.syslog.dsl.generated.Rfc5424Parser;
+import com.github.palindromicity.syslog.util.Validate;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+/**
+ * {@code RingBufferPipeline} parses lines through a preallocated ring of reusable {@link MessageSlot}s.
+ * <p>
+ * A single producer thread calls {@link #publish(String)}, which claims the next slot.  A number of parsing
+ * threads each parse every n'th slot into offsets within the line, reusing their own lexer and parser.  A single
+ * publisher thread hands the parsed slots to the handler strictly in sequence, after which the slot is reused.
+ * No {@code Map} is built, values are only extracted from the line if the handler asks for them.
+ * </p>
+ * <p>
+ * When the ring is full the producer waits for the handler to catch up.  Threads wait for each other by spinning,
+ * then yielding, then parking for short periods.
+ * </p>
+ */
+public class RingBufferPipeline implements AutoCloseable {
+
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 200;
+  private static final long PARK_NANOS = 50_000L;
+
+  private final MessageSlot[] slots;
+  private final int mask;
+  private final EnumSet<AllowableDeviations> deviations;
+  private final Consumer<MessageSlot> handler;
+  private final Thread[] parsers;
+  private final Thread publisher;
+
+  /**
+   * The sequence of the last slot published by the producer.
+   */
+  private final AtomicLong cursor = new AtomicLong(-1);
+
+  /**
+   * The sequence of the last slot handed to the handler.
+   */
+  private final AtomicLong handled = new AtomicLong(-1);
+
+  /**
+   * The sequence of the last slot published before the pipeline closed, once no more can be published.
+   */
+  private volatile long end = Long.MAX_VALUE;
+
+  private long nextSequence;
+  private volatile boolean started;
+  private volatile boolean closed;
+
+  /**
+   * True while the producer is publishing, so {@link #close()} waits for the line being published.
+   */
+  private volatile boolean publishing;
+
+  /**
+   * Create a new {@code RingBufferPipeline}.
+   *
+   * @param capacity the number of slots, a power of two
+   * @param parserThreads the number of parsing threads
+   * @param deviations {@link AllowableDeviations} used for handling abnormalities
+   * @param handler the handler for each parsed slot, called on the publisher thread
+   */
+  public RingBufferPipeline(int capacity, int parserThreads, EnumSet<AllowableDeviations> deviations,
+      Consumer<MessageSlot> handler) {
+    this(capacity, parserThreads, deviations, handler, Executors.defaultThreadFactory());
+  }
+
+  /**
+   * Create a new {@code RingBufferPipeline}.
+   *
+   * @param capacity the number of slots, a power of two
+   * @param parserThreads the number of parsing threads
+   * @param deviations {@link AllowableDeviations} used for handling abnormalities
+   * @param handler the handler for each parsed slot, called on the publisher thread
+   * @param threadFactory the {@code ThreadFactory} for the parsing and publisher threads
+   * @throws IllegalArgumentException if an argument is null, the capacity is not a power of two or
+   *     parserThreads is less than 1
+   */
+  public RingBufferPipeline(int capacity, int parserThreads, EnumSet<AllowableDeviations> deviations,
+      Consumer<MessageSlot> handler, ThreadFactory threadFactory) {
+    Validate.notNull(deviations, "deviations");
+    Validate.notNull(handler, "handler");
+    Validate.notNull(threadFactory, "threadFactory");
+    if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two");
+    }
+    if (parserThreads < 1) {
+      throw new IllegalArgumentException("parserThreads must be greater than 0");
+    }
+    this.slots = new MessageSlot[capacity];
+    for (int i = 0; i < capacity; i++) {
+      slots[i] = new MessageSlot();
+    }
+    this.mask = capacity - 1;
+    this.deviations = deviations;
+    this.handler = handler;
+    this.parsers = new Thread[parserThreads];
+    for (int i = 0; i < parserThreads; i++) {
+      final int first = i;
+      parsers[i] = threadFactory.newThread(() -> parse(first, parserThreads));
+    }
+    this.publisher = threadFactory.newThread(this::handle);
+  }
+
+  /**
+   * Starts the parsing and publisher threads.
+   *
+   * @return this {@code RingBufferPipeline}
+   */
+  public synchronized RingBufferPipeline start() {
+    if (!started) {
+      started = true;
+      for (Thread parser : parsers) {
+        parser.start();
+      }
+      publisher.start();
+    }
+    return this;
+  }
+
+  /**
+   * Publishes a line to the ring, waiting for a free slot if the ring is full.
+   * <p>
+   * Must only be called from a single producer thread.
+   * </p>
+   *
+   * @param line the line of Syslog
+   * @throws IllegalStateException if the pipeline is not started or is closed
+   */
+  public void publish(String line) {
+    Validate.notNull(line, "line");
+    // either close sees the publish in progress, or the publish sees the pipeline closed
+    publishing = true;
+    try {
+      if (!started || closed) {
+        throw new IllegalStateException("pipeline is not running");
+      }
+      final long sequence = nextSequence++;
+      final long wrapPoint = sequence - slots.length;
+      int tries = 0;
+      while (handled.get() < wrapPoint) {
+        tries = idle(tries);
+      }
+      slots[(int) sequence & mask].reset(sequence, line);
+      cursor.set(sequence);
+    } finally {
+      publishing = false;
+    }
+  }
+
+  /**
+   * Returns the sequence of the last slot passed to the handler.
+   *
+   * @return the sequence, or -1 if none
+   */
+  public long getHandledSequence() {
+    return handled.get();
+  }
+
+  /**
+   * Stops accepting lines, waits for the published lines to be handled, and stops the threads.  A line being
+   * published when the pipeline closes is handled.  If interrupted while waiting, the threads go on handling the
+   * published lines, and the interrupt status is set.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    int tries = 0;
+    while (publishing) {
+      tries = idle(tries);
+    }
+    end = cursor.get();
+    if (!started) {
+      return;
+    }
+    try {
+      for (Thread parser : parsers) {
+        parser.join();
+      }
+      publisher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void parse(int first, int stride) {
+    Rfc5424Lexer lexer = new Rfc5424Lexer(null);
+    lexer.removeErrorListeners();
+    lexer.addErrorListener(new DefaultErrorListener());
+    CommonTokenStream tokens = new CommonTokenStream(lexer);
+    Rfc5424Parser parser = new Rfc5424Parser(null);
+    parser.setBuildParseTree(false);
+    parser.removeErrorListeners();
+    parser.addErrorListener(new DefaultErrorListener());
+    SlotListener listener = new SlotListener(deviations);
+    parser.addParseListener(listener);
+
+    for (long sequence = first; ; sequence += stride) {
+      int tries = 0;
+      while (cursor.get() < sequence) {
+        if (sequence > end) {
+          return;
+        }
+        tries = idle(tries);
+      }
+      MessageSlot slot = slots[(int) sequence & mask];
+      try {
+        lexer.setInputStream(CompactCharStreams.fromString(slot.getLine()));
+        tokens.setTokenSource(lexer);
+        parser.setTokenStream(tokens);
+        listener.reset(slot);
+        parser.syslog_msg();
+        listener.complete();
+      } catch (Throwable throwable) {
+        slot.setError(throwable);
+      }
+      slot.parsedSequence = sequence;
+    }
+  }
+
+  private void handle() {
+    for (long sequence = 0; ; sequence++) {
+      MessageSlot slot = slots[(int) sequence & mask];
+      int tries = 0;
+      while (slot.parsedSequence != sequence) {
+        if (sequence > end) {
+          return;
+        }
+        tries = idle(tries);
+      }
+      try {
+        handler.accept(slot);
+      } catch (Throwable throwable) {
+        Thread current = Thread.currentThread();
+        current.getUncaughtExceptionHandler().uncaughtException(current, throwable);
+      }
+      handled.set(sequence);
+    }
+  }
+
+  private static int idle(int tries) {
+    if (tries < SPIN_TRIES) {
+      return tries + 1;
+    }
+    if (tries < YIELD_TRIES) {
+      Thread.yield();
+      return tries + 1;
+    }
+    LockSupport.parkNanos(PARK_NANOS);
+    return tries;
+  }
+}
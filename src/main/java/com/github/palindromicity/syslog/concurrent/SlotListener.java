@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.concurrent;
+
+import java.util.EnumSet;
+
+import com.github.palindromicity.syslog.AllowableDeviations;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.dsl.generated.Rfc5424BaseListener;
+import com.github.palindromicity.syslog.dsl.generated.Rfc5424Parser;
+import com.github.palindromicity.syslog.util.LineBreaks;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+
+/**
+ * Parse listener recording the offsets of each part of the message into a {@link MessageSlot}.
+ * <p>
+ * Only the start and stop tokens of each rule are used, so the parser does not need to build a parse tree.
+ * </p>
+ */
+class SlotListener extends Rfc5424BaseListener {
+
+  private final EnumSet<AllowableDeviations> deviations;
+  private MessageSlot slot;
+  private int nameStart;
+  private int nameEnd;
+  private int valueStart;
+  private int valueEnd;
+
+  SlotListener(EnumSet<AllowableDeviations> deviations) {
+    this.deviations = deviations;
+  }
+
+  void reset(MessageSlot slot) {
+    this.slot = slot;
+  }
+
+  /**
+   * Checks the slot against the {@link AllowableDeviations}.
+   *
+   * @throws ParseException if a required part is missing
+   */
+  void complete() {
+    if (!slot.hasValue(MessageSlot.PRIORITY) && !deviations.contains(AllowableDeviations.PRIORITY)) {
+      throw new ParseException("Priority missing with strict parsing");
+    } else if (!slot.hasValue(MessageSlot.VERSION) && !deviations.contains(AllowableDeviations.VERSION)) {
+      throw new ParseException("Version missing with strict parsing");
+    }
+  }
+
+  @Override
+  public void exitHeaderPriorityValue(Rfc5424Parser.HeaderPriorityValueContext ctx) {
+    setField(MessageSlot.PRIORITY, ctx);
+  }
+
+  @Override
+  public void exitHeaderVersion(Rfc5424Parser.HeaderVersionContext ctx) {
+    setField(MessageSlot.VERSION, ctx);
+  }
+
+  @Override
+  public void exitHeaderTimeStamp(Rfc5424Parser.HeaderTimeStampContext ctx) {
+    setField(MessageSlot.TIMESTAMP, ctx);
+  }
+
+  @Override
+  public void exitHeaderNilTimestamp(Rfc5424Parser.HeaderNilTimestampContext ctx) {
+    slot.setNil(MessageSlot.TIMESTAMP);
+  }
+
+  @Override
+  public void exitHeaderHostName(Rfc5424Parser.HeaderHostNameContext ctx) {
+    setField(MessageSlot.HOSTNAME, ctx);
+  }
+
+  @Override
+  public void exitHeaderNilHostName(Rfc5424Parser.HeaderNilHostNameContext ctx) {
+    slot.setNil(MessageSlot.HOSTNAME);
+  }
+
+  @Override
+  public void exitHeaderAppName(Rfc5424Parser.HeaderAppNameContext ctx) {
+    setField(MessageSlot.APPNAME, ctx);
+  }
+
+  @Override
+  public void exitHeaderNilAppName(Rfc5424Parser.HeaderNilAppNameContext ctx) {
+    slot.setNil(MessageSlot.APPNAME);
+  }
+
+  @Override
+  public void exitHeaderProcId(Rfc5424Parser.HeaderProcIdContext ctx) {
+    setField(MessageSlot.PROCID, ctx);
+  }
+
+  @Override
+  public void exitHeaderNilProcId(Rfc5424Parser.HeaderNilProcIdContext ctx) {
+    slot.setNil(MessageSlot.PROCID);
+  }
+
+  @Override
+  public void exitHeaderMsgId(Rfc5424Parser.HeaderMsgIdContext ctx) {
+    setField(MessageSlot.MSGID, ctx);
+  }
+
+  @Override
+  public void exitHeaderNilMsgId(Rfc5424Parser.HeaderNilMsgIdContext ctx) {
+    slot.setNil(MessageSlot.MSGID);
+  }
+
+  @Override
+  public void exitSd_id(Rfc5424Parser.Sd_idContext ctx) {
+    // enter events are not raised for labeled rules while parsing, so the element starts with its id
+    slot.startElement(start(ctx), end(ctx));
+  }
+
+  @Override
+  public void exitParamName(Rfc5424Parser.ParamNameContext ctx) {
+    nameStart = start(ctx);
+    nameEnd = end(ctx);
+  }
+
+  @Override
+  public void exitParamValue(Rfc5424Parser.ParamValueContext ctx) {
+    valueStart = start(ctx);
+    valueEnd = end(ctx);
+  }
+
+  @Override
+  public void exitSdParam(Rfc5424Parser.SdParamContext ctx) {
+    slot.addParam(nameStart, nameEnd, valueStart, valueEnd);
+  }
+
+  @Override
+  public void exitMsg_utf8(Rfc5424Parser.Msg_utf8Context ctx) {
+    int start = start(ctx);
+    int end = end(ctx);
+    String line = slot.getLine();
+    if (LineBreaks.isBlank(line, start, end)) {
+      return;
+    }
+    // trimmed, as the map based parser does, and the line breaks within are removed as the slot's values are read
+    while (start < end && line.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && line.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    slot.setField(MessageSlot.MESSAGE, start, end);
+  }
+
+  private void setField(int field, ParserRuleContext ctx) {
+    slot.setField(field, start(ctx), end(ctx));
+  }
+
+  private static int start(ParserRuleContext ctx) {
+    return Math.max(0, ctx.getStart().getStartIndex());
+  }
+
+  private static int end(ParserRuleContext ctx) {
+    Token stop = ctx.getStop();
+    if (stop == null || stop.getTokenIndex() < ctx.getStart().getTokenIndex()) {
+      // the rule matched nothing
+      return start(ctx);
+    }
+    return stop.getStopIndex() + 1;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.concurrent;
+
+/**
+ * Interfaces for demand driven, flow controlled publishing of items.
+ * <p>
+ * These have the same shape and contract as {@code java.util.concurrent.Flow}, which is not available
+ * in Java 8.  On Java 9 or later they are bridged to {@code Flow} by delegating each method.
+ * </p>
+ */
+public final class SyslogFlow {
+
+  private SyslogFlow() {
+  }
+
+  /**
+   * A producer of items received by {@link Subscriber}s.
+   *
+   * @param <T> the published item type
+   */
+  @FunctionalInterface
+  public interface Publisher<T> {
+
+    /**
+     * Adds the {@link Subscriber}.
+     *
+     * @param subscriber the {@link Subscriber}
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+  }
+
+  /**
+   * A receiver of items.  Items are not sent until requested through the {@link Subscription}.
+   *
+   * @param <T> the subscribed item type
+   */
+  public interface Subscriber<T> {
+
+    /**
+     * Called before any other method, with the {@link Subscription} used to request items.
+     *
+     * @param subscription the {@link Subscription}
+     */
+    void onSubscribe(Subscription subscription);
+
+    /**
+     * Called with the next item, never more often than requested.
+     *
+     * @param item the item
+     */
+    void onNext(T item);
+
+    /**
+     * Called once on an unrecoverable error.  No other methods are called afterwards.
+     *
+     * @param throwable the error
+     */
+    void onError(Throwable throwable);
+
+    /**
+     * Called once when no more items will be sent.
+     */
+    void onComplete();
+  }
+
+  /**
+   * The link between a {@link Publisher} and a {@link Subscriber}.
+   */
+  public interface Subscription {
+
+    /**
+     * Adds count items to the current unfulfilled demand.
+     *
+     * @param count the number of items, must be greater than zero
+     */
+    void request(long count);
+
+    /**
+     * Stops the {@link Subscriber} from receiving items, eventually.
+     */
+    void cancel();
+  }
+
+  /**
+   * A component that is both a {@link Subscriber} and a {@link Publisher}.
+   *
+   * @param <T> the subscribed item type
+   * @param <R> the published item type
+   */
+  public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@link SyslogFlow.Processor} that parses lines of Syslog into {@link ParseResult}s.
+ * <p>
+ * Lines are requested from upstream in batches, only while there is unfulfilled demand downstream, and are
+ * parsed as they are sent on.  A slow {@link SyslogFlow.Subscriber} therefore slows the upstream rather than
+ * causing parsed messages to be buffered or dropped.
+ * </p>
+ * <p>
+ * A line that fails to parse is sent as a failed {@link ParseResult}, only an upstream error terminates
+ * the subscriber with {@code onError}.  A single downstream {@link SyslogFlow.Subscriber} is supported.
+ * </p>
+ */
+public class SyslogParsingProcessor implements SyslogFlow.Processor<String, ParseResult> {
+
+  /**
+   * The default number of lines requested from upstream at a time.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 256;
+
+  private final SyslogParser parser;
+  private final int batchSize;
+  private final int lowWatermark;
+
+  /**
+   * Lines received from upstream that have not been parsed.
+   */
+  private final Queue<String> lines = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger buffered = new AtomicInteger();
+
+  /**
+   * Lines requested from upstream that have not been received.
+   */
+  private final AtomicLong outstanding = new AtomicLong();
+
+  /**
+   * Unfulfilled downstream demand.
+   */
+  private final AtomicLong requested = new AtomicLong();
+
+  /**
+   * Work in progress counter, serializes the drain loop.
+   */
+  private final AtomicInteger wip = new AtomicInteger();
+
+  private volatile SyslogFlow.Subscription upstream;
+  private volatile SyslogFlow.Subscriber<? super ParseResult> downstream;
+  private volatile boolean upstreamDone;
+  private volatile Throwable upstreamError;
+  private volatile boolean cancelled;
+  private boolean terminated;
+
+  /**
+   * Create a new {@code SyslogParsingProcessor} with the {@link #DEFAULT_BATCH_SIZE}.
+   *
+   * @param parser the {@link SyslogParser}
+   */
+  public SyslogParsingProcessor(SyslogParser parser) {
+    this(parser, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Create a new {@code SyslogParsingProcessor}.
+   *
+   * @param parser the {@link SyslogParser}
+   * @param batchSize the number of lines requested from upstream at a time
+   * @throws IllegalArgumentException if parser is null or batchSize is less than 1
+   */
+  public SyslogParsingProcessor(SyslogParser parser, int batchSize) {
+    Validate.notNull(parser, "parser");
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be greater than 0");
+    }
+    this.parser = parser;
+    this.batchSize = batchSize;
+    this.lowWatermark = batchSize / 2;
+  }
+
+  @Override
+  public void subscribe(SyslogFlow.Subscriber<? super ParseResult> subscriber) {
+    Validate.notNull(subscriber, "subscriber");
+    synchronized (this) {
+      if (downstream != null) {
+        subscriber.onSubscribe(new SyslogFlow.Subscription() {
+          @Override
+          public void request(long count) {
+          }
+
+          @Override
+          public void cancel() {
+          }
+        });
+        subscriber.onError(new IllegalStateException("SyslogParsingProcessor supports a single subscriber"));
+        return;
+      }
+      downstream = subscriber;
+    }
+    subscriber.onSubscribe(new SyslogFlow.Subscription() {
+      @Override
+      public void request(long count) {
+        if (count <= 0) {
+          upstreamError = new IllegalArgumentException("request must be greater than 0 but was " + count);
+          upstreamDone = true;
+          cancelUpstream();
+        } else {
+          addRequested(count);
+        }
+        drain();
+      }
+
+      @Override
+      public void cancel() {
+        cancelled = true;
+        cancelUpstream();
+        drain();
+      }
+    });
+    drain();
+  }
+
+  @Override
+  public void onSubscribe(SyslogFlow.Subscription subscription) {
+    Validate.notNull(subscription, "subscription");
+    synchronized (this) {
+      if (upstream != null) {
+        subscription.cancel();
+        return;
+      }
+      upstream = subscription;
+    }
+    drain();
+  }
+
+  @Override
+  public void onNext(String line) {
+    Validate.notNull(line, "line");
+    outstanding.decrementAndGet();
+    lines.offer(line);
+    buffered.incrementAndGet();
+    drain();
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    Validate.notNull(throwable, "throwable");
+    upstreamError = throwable;
+    upstreamDone = true;
+    drain();
+  }
+
+  @Override
+  public void onComplete() {
+    upstreamDone = true;
+    drain();
+  }
+
+  private void addRequested(long count) {
+    for (;;) {
+      long current = requested.get();
+      if (current == Long.MAX_VALUE) {
+        return;
+      }
+      long next = current + count;
+      if (next < 0) {
+        next = Long.MAX_VALUE;
+      }
+      if (requested.compareAndSet(current, next)) {
+        return;
+      }
+    }
+  }
+
+  private void cancelUpstream() {
+    SyslogFlow.Subscription subscription = upstream;
+    if (subscription != null) {
+      subscription.cancel();
+    }
+  }
+
+  private void drain() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    for (;;) {
+      SyslogFlow.Subscriber<? super ParseResult> subscriber = downstream;
+      if (subscriber != null && !terminated) {
+        if (cancelled) {
+          terminated = true;
+          lines.clear();
+        } else {
+          emit(subscriber);
+        }
+      }
+      missed = wip.addAndGet(-missed);
+      if (missed == 0) {
+        return;
+      }
+    }
+  }
+
+  private void emit(SyslogFlow.Subscriber<? super ParseResult> subscriber) {
+    long demand = requested.get();
+    long emitted = 0;
+    while (emitted != demand && !cancelled) {
+      String line = lines.poll();
+      if (line == null) {
+        break;
+      }
+      buffered.decrementAndGet();
+      subscriber.onNext(parse(line));
+      emitted++;
+    }
+    if (emitted != 0 && demand != Long.MAX_VALUE) {
+      demand = requested.addAndGet(-emitted);
+    }
+    if (cancelled) {
+      return;
+    }
+    if (upstreamDone && lines.isEmpty()) {
+      terminated = true;
+      Throwable error = upstreamError;
+      if (error != null) {
+        subscriber.onError(error);
+      } else {
+        subscriber.onComplete();
+      }
+      return;
+    }
+    SyslogFlow.Subscription subscription = upstream;
+    if (subscription != null && !upstreamDone && demand > 0) {
+      long inFlight = outstanding.get() + buffered.get();
+      if (inFlight <= lowWatermark) {
+        long batch = batchSize - inFlight;
+        outstanding.addAndGet(batch);
+        subscription.request(batch);
+      }
+    }
+  }
+
+  private ParseResult parse(String line) {
+    try {
+      return ParseResult.success(line, parser.parseLine(line));
+    } catch (Exception e) {
+      return ParseResult.failure(line, e);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.dsl;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+
+/**
+ * Base {@code CharStream} over characters held by a subclass without copying them.
+ * <p>
+ * One index is one code point, as with {@link org.antlr.v4.runtime.CharStreams}.  Subclasses only hold input
+ * without supplementary code points, so that a code point is always one {@code char}.
+ * </p>
+ */
+abstract class AbstractCompactCharStream implements CharStream {
+
+  private final int size;
+  private int position;
+
+  AbstractCompactCharStream(int size) {
+    this.size = size;
+  }
+
+  /**
+   * Returns the code point at an index.
+   *
+   * @param index the index, between 0 and size
+   * @return the code point
+   */
+  abstract int codePointAt(int index);
+
+  @Override
+  public void consume() {
+    if (position >= size) {
+      throw new IllegalStateException("cannot consume EOF");
+    }
+    position++;
+  }
+
+  @Override
+  public int LA(int offset) {
+    if (offset == 0) {
+      return 0;
+    }
+    int index = offset < 0 ? position + offset : position + offset - 1;
+    if (index < 0 || index >= size) {
+      return IntStream.EOF;
+    }
+    return codePointAt(index);
+  }
+
+  @Override
+  public int mark() {
+    return -1;
+  }
+
+  @Override
+  public void release(int marker) {
+  }
+
+  @Override
+  public int index() {
+    return position;
+  }
+
+  @Override
+  public void seek(int index) {
+    position = Math.max(0, Math.min(index, size));
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public String getSourceName() {
+    return IntStream.UNKNOWN_SOURCE_NAME;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.dsl;
+
+import java.nio.charset.StandardCharsets;
+
+import com.github.palindromicity.syslog.util.Validate;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+
+/**
+ * Creates compact {@code CharStream}s for the generated lexer.
+ * <p>
+ * {@code CharStreams.fromString} copies every line into an array with four bytes per character.  The streams
+ * created here read a {@code String} or UTF-8 bytes in place instead.  Input with supplementary code points,
+ * which can not be valid RFC 5424 anyway, falls back to {@code CharStreams} so that lexer indexes remain
+ * code point indexes.
+ * </p>
+ */
+public final class CompactCharStreams {
+
+  private CompactCharStreams() {
+  }
+
+  /**
+   * Creates a {@code CharStream} reading a {@code String}.
+   *
+   * @param string the {@code String}
+   * @return {@code CharStream}
+   * @throws IllegalArgumentException if string is null
+   */
+  public static CharStream fromString(String string) {
+    Validate.notNull(string, "string");
+    if (hasSurrogate(string)) {
+      return CharStreams.fromString(string);
+    }
+    return new StringCharStream(string);
+  }
+
+  /**
+   * Creates a {@code CharStream} reading a slice of UTF-8 bytes.  The bytes must not change while the
+   * stream is in use.
+   *
+   * @param bytes the bytes
+   * @param offset the offset of the slice
+   * @param length the length of the slice
+   * @return {@code CharStream}
+   * @throws IllegalArgumentException if bytes is null or the slice is out of bounds
+   */
+  public static CharStream fromUtf8(byte[] bytes, int offset, int length) {
+    Validate.notNull(bytes, "bytes");
+    if (offset < 0 || length < 0 || offset > bytes.length - length) {
+      throw new IllegalArgumentException("offset and length must be within bytes");
+    }
+    int asciiLength = 0;
+    while (asciiLength < length && bytes[offset + asciiLength] >= 0) {
+      asciiLength++;
+    }
+    String tail = new String(bytes, offset + asciiLength, length - asciiLength, StandardCharsets.UTF_8);
+    if (hasSurrogate(tail)) {
+      return CharStreams.fromString(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+    return new Utf8CharStream(bytes, offset, asciiLength, tail);
+  }
+
+  private static boolean hasSurrogate(String string) {
+    for (int i = 0; i < string.length(); i++) {
+      if (Character.isSurrogate(string.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
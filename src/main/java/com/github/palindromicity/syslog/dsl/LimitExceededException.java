@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.dsl;
+
+import com.github.palindromicity.syslog.SyslogLimit;
+
+/**
+ * {@link ParseException} for a line exceeding a {@link SyslogLimit} with
+ * {@link com.github.palindromicity.syslog.LimitAction#REJECT}.
+ */
+public class LimitExceededException extends ParseException {
+
+  private final SyslogLimit limit;
+
+  /**
+   * Create a new {@code LimitExceededException}.
+   *
+   * @param limit the {@link SyslogLimit} exceeded
+   * @param reason the reason
+   */
+  public LimitExceededException(SyslogLimit limit, String reason) {
+    super(reason);
+    this.limit = limit;
+  }
+
+  /**
+   * Returns the {@link SyslogLimit} exceeded.
+   *
+   * @return the {@link SyslogLimit}
+   */
+  public SyslogLimit getLimit() {
+    return limit;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.dsl;
+
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * {@code CharStream} reading a {@code String} in place.
+ */
+final class StringCharStream extends AbstractCompactCharStream {
+
+  private final String string;
+
+  StringCharStream(String string) {
+    super(string.length());
+    this.string = string;
+  }
+
+  @Override
+  int codePointAt(int index) {
+    return string.charAt(index);
+  }
+
+  @Override
+  public String getText(Interval interval) {
+    int start = Math.max(0, interval.a);
+    int stop = Math.min(size() - 1, interval.b);
+    return start > stop ? "" : string.substring(start, stop + 1);
+  }
+
+  @Override
+  public String toString() {
+    return string;
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.dsl;
+
+import java.util.EnumSet;
+
+import com.github.palindromicity.syslog.AllowableDeviations;
+import com.github.palindromicity.syslog.SyslogEventHandler;
+import com.github.palindromicity.syslog.dsl.generated.Rfc5424BaseListener;
+import com.github.palindromicity.syslog.dsl.generated.Rfc5424Listener;
+import com.github.palindromicity.syslog.dsl.generated.Rfc5424Parser;
+import com.github.palindromicity.syslog.util.LineBreaks;
+import com.github.palindromicity.syslog.util.Validate;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * Implementation of {@link Rfc5424Listener} that passes each part of the message to a {@link SyslogEventHandler}.
+ * <p>
+ * Values are taken from the input between the start and stop tokens of each rule, and structured data is
+ * reported as its rules exit, so the listener does not need a parse tree and may be used with
+ * {@code setBuildParseTree(false)}.  A listener may be used for one line after another.
+ * </p>
+ */
+public class Syslog5424EventListener extends Rfc5424BaseListener {
+
+  /**
+   * {@link SyslogEventHandler} receiving the events.
+   */
+  private final SyslogEventHandler handler;
+
+  /**
+   * {@link AllowableDeviations} for parsing and errors.
+   */
+  private final EnumSet<AllowableDeviations> deviations;
+
+  private boolean started;
+  private boolean sawPriority;
+  private boolean sawVersion;
+  private String paramName;
+  private String paramValue;
+
+  /**
+   * Create a new {@code Syslog5424EventListener}.
+   *
+   * @param handler {@link SyslogEventHandler} receiving the events.
+   * @param deviations {@link AllowableDeviations} used for handling abnormalities.
+   */
+  public Syslog5424EventListener(SyslogEventHandler handler, EnumSet<AllowableDeviations> deviations) {
+    Validate.notNull(handler, "handler");
+    this.handler = handler;
+    this.deviations = deviations == null ? EnumSet.of(AllowableDeviations.NONE) : deviations;
+  }
+
+  @Override
+  public void enterEveryRule(ParserRuleContext ctx) {
+    // enter events are not raised for labeled rules while parsing, so the start is taken from the first rule
+    if (!started) {
+      started = true;
+      sawPriority = false;
+      sawVersion = false;
+      handler.onStart();
+    }
+  }
+
+  @Override
+  public void exitSyslogMsg(Rfc5424Parser.SyslogMsgContext ctx) {
+    started = false;
+    if (!sawPriority && !deviations.contains(AllowableDeviations.PRIORITY)) {
+      throw new ParseException("Priority missing with strict parsing");
+    } else if (!sawVersion && !deviations.contains(AllowableDeviations.VERSION)) {
+      throw new ParseException("Version missing with strict parsing");
+    }
+    handler.onEnd();
+  }
+
+  @Override
+  public void exitHeaderPriorityValue(Rfc5424Parser.HeaderPriorityValueContext ctx) {
+    String priority = text(ctx);
+    try {
+      handler.onPriority(Integer.parseInt(priority));
+    } catch (NumberFormatException e) {
+      throw new ParseException("Invalid priority specified " + priority);
+    }
+    sawPriority = true;
+  }
+
+  @Override
+  public void exitHeaderVersion(Rfc5424Parser.HeaderVersionContext ctx) {
+    handler.onVersion(Integer.parseInt(text(ctx)));
+    sawVersion = true;
+  }
+
+  @Override
+  public void exitHeaderTimeStamp(Rfc5424Parser.HeaderTimeStampContext ctx) {
+    // full_date 'T' full_time
+    handler.onTimestamp(text(ctx));
+  }
+
+  @Override
+  public void exitHeaderNilTimestamp(Rfc5424Parser.HeaderNilTimestampContext ctx) {
+    handler.onTimestamp(null);
+  }
+
+  @Override
+  public void exitHeaderHostName(Rfc5424Parser.HeaderHostNameContext ctx) {
+    handler.onHostName(text(ctx));
+  }
+
+  @Override
+  public void exitHeaderNilHostName(Rfc5424Parser.HeaderNilHostNameContext ctx) {
+    handler.onHostName(null);
+  }
+
+  @Override
+  public void exitHeaderAppName(Rfc5424Parser.HeaderAppNameContext ctx) {
+    handler.onAppName(text(ctx));
+  }
+
+  @Override
+  public void exitHeaderNilAppName(Rfc5424Parser.HeaderNilAppNameContext ctx) {
+    handler.onAppName(null);
+  }
+
+  @Override
+  public void exitHeaderProcId(Rfc5424Parser.HeaderProcIdContext ctx) {
+    handler.onProcId(text(ctx));
+  }
+
+  @Override
+  public void exitHeaderNilProcId(Rfc5424Parser.HeaderNilProcIdContext ctx) {
+    handler.onProcId(null);
+  }
+
+  @Override
+  public void exitHeaderMsgId(Rfc5424Parser.HeaderMsgIdContext ctx) {
+    handler.onMsgId(text(ctx));
+  }
+
+  @Override
+  public void exitHeaderNilMsgId(Rfc5424Parser.HeaderNilMsgIdContext ctx) {
+    handler.onMsgId(null);
+  }
+
+  @Override
+  public void exitSd_id(Rfc5424Parser.Sd_idContext ctx) {
+    handler.onSdElementStart(text(ctx));
+  }
+
+  @Override
+  public void exitParamName(Rfc5424Parser.ParamNameContext ctx) {
+    paramName = text(ctx);
+  }
+
+  @Override
+  public void exitParamValue(Rfc5424Parser.ParamValueContext ctx) {
+    paramValue = text(ctx);
+  }
+
+  @Override
+  public void exitSdParam(Rfc5424Parser.SdParamContext ctx) {
+    handler.onSdParam(paramName, paramValue);
+  }
+
+  @Override
+  public void exitSdElement(Rfc5424Parser.SdElementContext ctx) {
+    handler.onSdElementEnd();
+  }
+
+  @Override
+  public void exitMsg_utf8(Rfc5424Parser.Msg_utf8Context ctx) {
+    final String msg = text(ctx);
+    if (!msg.isEmpty()) {
+      handler.onMessage(msg.trim());
+    }
+  }
+
+  /**
+   * Returns the input matched by a rule, without walking its children.
+   * Carriage returns and line feeds are skipped by the lexer, so they are removed as they are from the tokens.
+   *
+   * @param ctx the rule context
+   * @return the text, empty if the rule matched nothing
+   */
+  private static String text(ParserRuleContext ctx) {
+    Token start = ctx.getStart();
+    Token stop = ctx.getStop();
+    if (start == null || stop == null || stop.getTokenIndex() < start.getTokenIndex()) {
+      return "";
+    }
+    String text = start.getInputStream().getText(Interval.of(start.getStartIndex(), stop.getStopIndex()));
+    return LineBreaks.remove(text, 0, text.length());
+  }
+}
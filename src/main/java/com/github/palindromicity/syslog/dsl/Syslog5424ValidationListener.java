@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.dsl;
+
+import java.util.EnumSet;
+
+import com.github.palindromicity.syslog.AllowableDeviations;
+import com.github.palindromicity.syslog.ValidationStatus;
+import com.github.palindromicity.syslog.dsl.generated.Rfc5424BaseListener;
+import com.github.palindromicity.syslog.dsl.generated.Rfc5424Parser;
+
+/**
+ * Implementation of {@link com.github.palindromicity.syslog.dsl.generated.Rfc5424Listener} that only follows which
+ * part of the message is being parsed, to report which part is invalid.  No values are read from the input.
+ * A listener is used for a single line.
+ */
+public class Syslog5424ValidationListener extends Rfc5424BaseListener {
+
+  /**
+   * {@link AllowableDeviations} for a missing PRI or VERSION.
+   */
+  private final EnumSet<AllowableDeviations> deviations;
+
+  private ValidationStatus status = ValidationStatus.PRIORITY;
+  private boolean sawPriority;
+  private boolean sawVersion;
+  private boolean failed;
+
+  /**
+   * Create a new {@code Syslog5424ValidationListener}.
+   *
+   * @param deviations {@link AllowableDeviations} used for handling abnormalities.
+   */
+  public Syslog5424ValidationListener(EnumSet<AllowableDeviations> deviations) {
+    this.deviations = deviations == null ? EnumSet.of(AllowableDeviations.NONE) : deviations;
+  }
+
+  /**
+   * Called on the first syntax error, after which the status does not change.  Rules still exit as the error
+   * unwinds the parser, and must not be taken as parsed.
+   */
+  public void onSyntaxError() {
+    failed = true;
+  }
+
+  /**
+   * Returns {@link ValidationStatus#VALID} if the whole line has been parsed and is valid, otherwise the part being
+   * parsed, or missing.
+   *
+   * @return the {@link ValidationStatus}
+   */
+  public ValidationStatus getStatus() {
+    return status;
+  }
+
+  @Override
+  public void exitSyslogMsg(Rfc5424Parser.SyslogMsgContext ctx) {
+    if (failed) {
+      return;
+    } else if (!sawPriority && !deviations.contains(AllowableDeviations.PRIORITY)) {
+      status = ValidationStatus.PRIORITY;
+    } else if (!sawVersion && !deviations.contains(AllowableDeviations.VERSION)) {
+      status = ValidationStatus.VERSION;
+    } else {
+      status = ValidationStatus.VALID;
+    }
+  }
+
+  @Override
+  public void exitHeaderPriority(Rfc5424Parser.HeaderPriorityContext ctx) {
+    sawPriority = !failed;
+    reached(ValidationStatus.VERSION);
+  }
+
+  @Override
+  public void exitHeaderVersion(Rfc5424Parser.HeaderVersionContext ctx) {
+    sawVersion = !failed;
+    reached(ValidationStatus.TIMESTAMP);
+  }
+
+  @Override
+  public void exitHeaderTimeStamp(Rfc5424Parser.HeaderTimeStampContext ctx) {
+    reached(ValidationStatus.HOSTNAME);
+  }
+
+  @Override
+  public void exitHeaderNilTimestamp(Rfc5424Parser.HeaderNilTimestampContext ctx) {
+    reached(ValidationStatus.HOSTNAME);
+  }
+
+  @Override
+  public void exitHeaderHostName(Rfc5424Parser.HeaderHostNameContext ctx) {
+    reached(ValidationStatus.APP_NAME);
+  }
+
+  @Override
+  public void exitHeaderNilHostName(Rfc5424Parser.HeaderNilHostNameContext ctx) {
+    reached(ValidationStatus.APP_NAME);
+  }
+
+  @Override
+  public void exitHeaderAppName(Rfc5424Parser.HeaderAppNameContext ctx) {
+    reached(ValidationStatus.PROC_ID);
+  }
+
+  @Override
+  public void exitHeaderNilAppName(Rfc5424Parser.HeaderNilAppNameContext ctx) {
+    reached(ValidationStatus.PROC_ID);
+  }
+
+  @Override
+  public void exitHeaderProcId(Rfc5424Parser.HeaderProcIdContext ctx) {
+    reached(ValidationStatus.MSG_ID);
+  }
+
+  @Override
+  public void exitHeaderNilProcId(Rfc5424Parser.HeaderNilProcIdContext ctx) {
+    reached(ValidationStatus.MSG_ID);
+  }
+
+  @Override
+  public void exitHeaderMsgId(Rfc5424Parser.HeaderMsgIdContext ctx) {
+    reached(ValidationStatus.STRUCTURED_DATA);
+  }
+
+  @Override
+  public void exitHeaderNilMsgId(Rfc5424Parser.HeaderNilMsgIdContext ctx) {
+    reached(ValidationStatus.STRUCTURED_DATA);
+  }
+
+  @Override
+  public void exitStructured_data(Rfc5424Parser.Structured_dataContext ctx) {
+    reached(ValidationStatus.MESSAGE);
+  }
+
+  private void reached(ValidationStatus next) {
+    if (!failed) {
+      status = next;
+    }
+  }
+}
@@ -17,7 +17,8 @@ public enum SyslogFieldKeys {
   STRUCTURED_BASE("syslog.structuredData"),
   STRUCTURED_ELEMENT_ID_FMT("syslog.structuredData.%s"),
   STRUCTURED_ELEMENT_ID_PNAME_FMT("syslog.structuredData.%s.%s"),
-  STRUCTURED_ELEMENT_ID_PNAME_PATTERN("syslog.structuredData\\.(.*)\\.(.*)$");
+  STRUCTURED_ELEMENT_ID_PNAME_PATTERN("syslog.structuredData\\.(.*)\\.(.*)$"),
+  MESSAGE_FIELD_FMT("syslog.message.%s");
 
   private String field;
   SyslogFieldKeys(String field) {
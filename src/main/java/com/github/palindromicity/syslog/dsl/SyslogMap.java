@@ -0,0 +1,261 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.dsl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.github.palindromicity.syslog.KeyProvider;
+
+/**
+ * Immutable {@code Map} of parsed Syslog values.
+ * <p>
+ * The header values and MSG are held in an array indexed by field, with the keys shared between all maps built
+ * with the same {@link KeyProvider}.  Structured data keys are held in a small open addressed table sized for
+ * the number of keys parsed.  There is no entry object per value, and no table growth while parsing.
+ * </p>
+ * <p>
+ * The SD-ID and PARAM-NAME of each flattened structured data key are kept with it, so the structured data can be
+ * un-flattened with {@link #getStructuredData()} without splitting the keys.
+ * </p>
+ */
+public final class SyslogMap extends AbstractMap<String, Object> {
+
+  static final int PRIORITY = 0;
+  static final int SEVERITY = 1;
+  static final int FACILITY = 2;
+  static final int VERSION = 3;
+  static final int TIMESTAMP = 4;
+  static final int HOSTNAME = 5;
+  static final int APPNAME = 6;
+  static final int PROCID = 7;
+  static final int MSGID = 8;
+  static final int MESSAGE = 9;
+  static final int FIELD_COUNT = 10;
+
+  private final String[] fieldKeys;
+  private final Object[] fieldValues;
+  private final int present;
+  private final String[] tailKeys;
+  private final Object[] tailValues;
+  private final String[] tailIds;
+  private final String[] tailNames;
+
+  /**
+   * The used structured data slots, in the order their keys were first added.
+   */
+  private final int[] tailOrder;
+  private final int size;
+  private Set<Entry<String, Object>> entrySet;
+
+  /**
+   * Create a new {@code SyslogMap}.  The arrays are not copied.
+   *
+   * @param fieldKeys the keys of the fields, from {@link #fieldKeys(KeyProvider)}
+   * @param fieldValues the values of the fields
+   * @param present a bit per field, set if the field has an entry
+   * @param keys the structured data keys, the first count are used
+   * @param values the structured data values
+   * @param ids the SD-ID of each structured data key, or null if it is not a flattened SD-PARAM
+   * @param names the PARAM-NAME of each structured data key, or null if it is not a flattened SD-PARAM
+   * @param count the number of structured data keys
+   */
+  SyslogMap(String[] fieldKeys, Object[] fieldValues, int present, String[] keys, Object[] values, String[] ids,
+      String[] names, int count) {
+    this.fieldKeys = fieldKeys;
+    this.fieldValues = fieldValues;
+    this.present = present;
+    int capacity = 1;
+    while (capacity < count * 2) {
+      capacity <<= 1;
+    }
+    this.tailKeys = new String[count == 0 ? 0 : capacity];
+    this.tailValues = new Object[tailKeys.length];
+    this.tailIds = new String[tailKeys.length];
+    this.tailNames = new String[tailKeys.length];
+    this.tailOrder = new int[count];
+    int tailSize = 0;
+    for (int i = 0; i < count; i++) {
+      int slot = slot(keys[i]);
+      if (tailKeys[slot] == null) {
+        tailKeys[slot] = keys[i];
+        tailOrder[tailSize++] = slot;
+      }
+      tailValues[slot] = values[i];
+      tailIds[slot] = ids[i];
+      tailNames[slot] = names[i];
+    }
+    this.size = Integer.bitCount(present) + tailSize;
+  }
+
+  /**
+   * Returns the keys of the fields, in field order.
+   *
+   * @param keyProvider the {@link KeyProvider}
+   * @return the keys
+   */
+  static String[] fieldKeys(KeyProvider keyProvider) {
+    String[] keys = new String[FIELD_COUNT];
+    keys[PRIORITY] = keyProvider.getHeaderPriority();
+    keys[SEVERITY] = keyProvider.getHeaderSeverity();
+    keys[FACILITY] = keyProvider.getHeaderFacility();
+    keys[VERSION] = keyProvider.getHeaderVersion();
+    keys[TIMESTAMP] = keyProvider.getHeaderTimeStamp();
+    keys[HOSTNAME] = keyProvider.getHeaderHostName();
+    keys[APPNAME] = keyProvider.getHeaderAppName();
+    keys[PROCID] = keyProvider.getHeaderProcessId();
+    keys[MSGID] = keyProvider.getHeaderMessageId();
+    keys[MESSAGE] = keyProvider.getMessage();
+    return keys;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (!(key instanceof String)) {
+      return false;
+    }
+    return field((String) key) >= 0 || (tailKeys.length > 0 && tailKeys[slot((String) key)] != null);
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    int field = field((String) key);
+    if (field >= 0) {
+      return fieldValues[field];
+    }
+    return tailKeys.length == 0 ? null : tailValues[slot((String) key)];
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new AbstractSet<Entry<String, Object>>() {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+          return size;
+        }
+      };
+    }
+    return entrySet;
+  }
+
+  /**
+   * Returns the flattened structured data as a {@code Map} of SD-ID to a {@code Map} of PARAM-NAME to value,
+   * as {@link com.github.palindromicity.syslog.util.StructuredDataUtil#unFlattenStructuredData} does, using the
+   * SD-ID and PARAM-NAME recorded while parsing, in the order they were parsed.
+   *
+   * @return {@code Map}, empty if there is no flattened structured data
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, Object> getStructuredData() {
+    final Map<String, Object> structuredData = new LinkedHashMap<>();
+    for (int i = 0; i < size - Integer.bitCount(present); i++) {
+      int slot = tailOrder[i];
+      if (tailIds[slot] != null) {
+        Map<String, Object> params = (Map<String, Object>) structuredData.get(tailIds[slot]);
+        if (params == null) {
+          params = new LinkedHashMap<>();
+          structuredData.put(tailIds[slot], params);
+        }
+        params.put(tailNames[slot], tailValues[slot]);
+      }
+    }
+    return structuredData;
+  }
+
+  private int field(String key) {
+    for (int i = 0; i < FIELD_COUNT; i++) {
+      if ((present & (1 << i)) != 0 && key.equals(fieldKeys[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the slot holding the key, or the empty slot where it would be.
+   */
+  private int slot(String key) {
+    int mask = tailKeys.length - 1;
+    int hash = key.hashCode();
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    while (tailKeys[slot] != null && !tailKeys[slot].equals(key)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private class EntryIterator implements Iterator<Entry<String, Object>> {
+    private int field = -1;
+    private int tail = -1;
+
+    EntryIterator() {
+      advance();
+    }
+
+    private void advance() {
+      if (field < FIELD_COUNT) {
+        field++;
+        while (field < FIELD_COUNT && (present & (1 << field)) == 0) {
+          field++;
+        }
+        if (field < FIELD_COUNT) {
+          return;
+        }
+      }
+      tail++;
+      while (tail < tailKeys.length && tailKeys[tail] == null) {
+        tail++;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return field < FIELD_COUNT || tail < tailKeys.length;
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Entry<String, Object> entry = field < FIELD_COUNT
+          ? new SimpleImmutableEntry<>(fieldKeys[field], fieldValues[field])
+          : new SimpleImmutableEntry<>(tailKeys[tail], tailValues[tail]);
+      advance();
+      return entry;
+    }
+  }
+}
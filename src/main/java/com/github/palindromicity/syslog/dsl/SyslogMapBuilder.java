@@ -0,0 +1,277 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.dsl;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.palindromicity.syslog.KeyProvider;
+import com.github.palindromicity.syslog.NilPolicy;
+import com.github.palindromicity.syslog.StructuredDataPolicy;
+import com.github.palindromicity.syslog.SyslogEventHandler;
+import com.github.palindromicity.syslog.message.MessageExtractor;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@link SyslogEventHandler} that builds a {@link SyslogMap} of the parsed values, or puts them into a
+ * provided {@code Map}.  A {@code SyslogMapBuilder} builds a single message.
+ * <p>
+ * Nil ('-') values are handled according the {@link NilPolicy}, and keys are provided by the {@link KeyProvider}.
+ * </p>
+ */
+public class SyslogMapBuilder implements SyslogEventHandler {
+
+  private static final String DASH = "-";
+  private static final int INITIAL_SD_CAPACITY = 8;
+
+  /**
+   * {@link KeyProvider} that provides our key names.
+   */
+  private final KeyProvider keyProvider;
+
+  /**
+   * The keys of the {@link SyslogMap} fields.
+   */
+  private final String[] fieldKeys;
+
+  /**
+   * {@link NilPolicy} for parsing.
+   */
+  private NilPolicy nilPolicy = NilPolicy.OMIT;
+
+  /**
+   * {@link StructuredDataPolicy} for parsing.
+   */
+  private StructuredDataPolicy structuredDataPolicy = StructuredDataPolicy.FLATTEN;
+
+  private final Object[] fieldValues = new Object[SyslogMap.FIELD_COUNT];
+  private int present;
+  private String[] sdKeys;
+  private Object[] sdValues;
+  private String[] sdKeyIds;
+  private String[] sdKeyNames;
+  private int sdCount;
+  private Map<String, Object> sdMaps;
+  private Map<String, Object> msgMap;
+
+  /**
+   * The {@code Map} values are put into, or null to build a {@link SyslogMap}.
+   */
+  private final Map<String, Object> target;
+
+  /**
+   * The SD-ID of the structured data element being parsed.
+   */
+  private String sdId;
+
+  /**
+   * The params of the structured data element being parsed, for {@link StructuredDataPolicy#MAP_OF_MAPS}.
+   */
+  private Map<String, Object> sdParams;
+
+  /**
+   * The {@link MessageExtractor} of fields from the MSG, or null.
+   */
+  private final MessageExtractor messageExtractor;
+  private String appName;
+  private String msgId;
+
+  /**
+   * Create a new {@code SyslogMapBuilder} building a {@link SyslogMap}.
+   *
+   * @param keyProvider {@link KeyProvider} used for map insertion.
+   * @param nilPolicy {@link NilPolicy} used for handling nil values.
+   * @param structuredDataPolicy {@link StructuredDataPolicy} used for handling Structured Data output.
+   */
+  public SyslogMapBuilder(KeyProvider keyProvider, NilPolicy nilPolicy, StructuredDataPolicy structuredDataPolicy) {
+    this(keyProvider, nilPolicy, structuredDataPolicy, null);
+  }
+
+  /**
+   * Create a new {@code SyslogMapBuilder}.
+   *
+   * @param keyProvider {@link KeyProvider} used for map insertion.
+   * @param nilPolicy {@link NilPolicy} used for handling nil values.
+   * @param structuredDataPolicy {@link StructuredDataPolicy} used for handling Structured Data output.
+   * @param target the modifiable {@code Map} to put values into, or null to build a {@link SyslogMap}.
+   */
+  public SyslogMapBuilder(KeyProvider keyProvider, NilPolicy nilPolicy, StructuredDataPolicy structuredDataPolicy,
+      Map<String, Object> target) {
+    this(keyProvider, nilPolicy, structuredDataPolicy, target, null);
+  }
+
+  /**
+   * Create a new {@code SyslogMapBuilder}, adding the fields extracted from the MSG.
+   *
+   * @param keyProvider {@link KeyProvider} used for map insertion.
+   * @param nilPolicy {@link NilPolicy} used for handling nil values.
+   * @param structuredDataPolicy {@link StructuredDataPolicy} used for handling Structured Data output.
+   * @param target the modifiable {@code Map} to put values into, or null to build a {@link SyslogMap}.
+   * @param messageExtractor the {@link MessageExtractor} of fields from the MSG, or null.
+   */
+  public SyslogMapBuilder(KeyProvider keyProvider, NilPolicy nilPolicy, StructuredDataPolicy structuredDataPolicy,
+      Map<String, Object> target, MessageExtractor messageExtractor) {
+    Validate.notNull(keyProvider, "keyProvider");
+    this.keyProvider = keyProvider;
+    this.target = target;
+    this.messageExtractor = messageExtractor;
+    this.fieldKeys = SyslogMap.fieldKeys(keyProvider);
+    if (nilPolicy != null) {
+      this.nilPolicy = nilPolicy;
+    }
+    if (structuredDataPolicy != null) {
+      this.structuredDataPolicy = structuredDataPolicy;
+    }
+  }
+
+  /**
+   * Returns the {@code Map} of syslog values with the keys as provided by the {@link KeyProvider}.
+   * The map returned is unmodifiable, unless it is the provided {@code Map}.
+   *
+   * @return {@code Map}
+   */
+  public Map<String, Object> getMsgMap() {
+    if (msgMap == null) {
+      if (sdMaps != null) {
+        addSd(keyProvider.getStructuredBase(), sdMaps, null, null);
+      }
+      msgMap = target != null ? target : new SyslogMap(fieldKeys, fieldValues, present, sdKeys, sdValues,
+          sdKeyIds, sdKeyNames, sdCount);
+    }
+    return msgMap;
+  }
+
+  @Override
+  public void onPriority(int priority) {
+    put(SyslogMap.PRIORITY, String.valueOf(priority));
+    put(SyslogMap.SEVERITY, String.valueOf(priority % 8));
+    put(SyslogMap.FACILITY, String.valueOf(priority / 8));
+  }
+
+  @Override
+  public void onVersion(int version) {
+    put(SyslogMap.VERSION, String.valueOf(version));
+  }
+
+  @Override
+  public void onTimestamp(CharSequence timestamp) {
+    putNillable(SyslogMap.TIMESTAMP, timestamp);
+  }
+
+  @Override
+  public void onHostName(CharSequence hostName) {
+    putNillable(SyslogMap.HOSTNAME, hostName);
+  }
+
+  @Override
+  public void onAppName(CharSequence appName) {
+    this.appName = appName == null ? null : appName.toString();
+    putNillable(SyslogMap.APPNAME, this.appName);
+  }
+
+  @Override
+  public void onProcId(CharSequence procId) {
+    putNillable(SyslogMap.PROCID, procId);
+  }
+
+  @Override
+  public void onMsgId(CharSequence msgId) {
+    this.msgId = msgId == null ? null : msgId.toString();
+    putNillable(SyslogMap.MSGID, this.msgId);
+  }
+
+  @Override
+  public void onSdElementStart(CharSequence id) {
+    sdId = id.toString();
+    if (structuredDataPolicy == StructuredDataPolicy.MAP_OF_MAPS) {
+      sdParams = new LinkedHashMap<>();
+    }
+  }
+
+  @Override
+  public void onSdParam(CharSequence name, CharSequence value) {
+    if (structuredDataPolicy == StructuredDataPolicy.FLATTEN) {
+      String paramName = name.toString();
+      addSd(String.format(keyProvider.getStructuredElementIdParamNameFormat(), sdId, paramName), value.toString(),
+          sdId, paramName);
+    } else if (structuredDataPolicy == StructuredDataPolicy.MAP_OF_MAPS) {
+      sdParams.put(name.toString(), value.toString());
+    }
+  }
+
+  @Override
+  public void onSdElementEnd() {
+    if (structuredDataPolicy == StructuredDataPolicy.MAP_OF_MAPS) {
+      if (sdMaps == null) {
+        sdMaps = new LinkedHashMap<>();
+      }
+      sdMaps.put(sdId, sdParams);
+    }
+  }
+
+  @Override
+  public void onMessage(CharSequence message) {
+    final String value = message.toString();
+    put(SyslogMap.MESSAGE, value);
+    if (messageExtractor != null) {
+      messageExtractor.extract(appName, msgId, value, (key, field) -> addSd(key, field, null, null));
+    }
+  }
+
+  private void put(int field, Object value) {
+    if (target != null) {
+      target.put(fieldKeys[field], value);
+      return;
+    }
+    fieldValues[field] = value;
+    present |= 1 << field;
+  }
+
+  private void putNillable(int field, CharSequence value) {
+    if (value != null) {
+      put(field, value.toString());
+    } else if (nilPolicy == NilPolicy.DASH) {
+      put(field, DASH);
+    } else if (nilPolicy == NilPolicy.NULL) {
+      put(field, null);
+    }
+  }
+
+  private void addSd(String key, Object value, String id, String name) {
+    if (target != null) {
+      target.put(key, value);
+      return;
+    }
+    if (sdKeys == null) {
+      sdKeys = new String[INITIAL_SD_CAPACITY];
+      sdValues = new Object[INITIAL_SD_CAPACITY];
+      sdKeyIds = new String[INITIAL_SD_CAPACITY];
+      sdKeyNames = new String[INITIAL_SD_CAPACITY];
+    } else if (sdCount == sdKeys.length) {
+      sdKeys = Arrays.copyOf(sdKeys, sdCount * 2);
+      sdValues = Arrays.copyOf(sdValues, sdCount * 2);
+      sdKeyIds = Arrays.copyOf(sdKeyIds, sdCount * 2);
+      sdKeyNames = Arrays.copyOf(sdKeyNames, sdCount * 2);
+    }
+    sdKeys[sdCount] = key;
+    sdValues[sdCount] = value;
+    sdKeyIds[sdCount] = id;
+    sdKeyNames[sdCount] = name;
+    sdCount++;
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.dsl;
+
+import java.nio.charset.StandardCharsets;
+
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * {@code CharStream} over a slice of UTF-8 bytes.
+ * <p>
+ * The leading ASCII run, which covers the header of almost every message, is read from the bytes in place.
+ * Only the rest, from the first non ASCII byte, is decoded.
+ * </p>
+ */
+final class Utf8CharStream extends AbstractCompactCharStream {
+
+  private final byte[] bytes;
+  private final int offset;
+  private final int asciiLength;
+  private final String tail;
+
+  Utf8CharStream(byte[] bytes, int offset, int asciiLength, String tail) {
+    super(asciiLength + tail.length());
+    this.bytes = bytes;
+    this.offset = offset;
+    this.asciiLength = asciiLength;
+    this.tail = tail;
+  }
+
+  @Override
+  int codePointAt(int index) {
+    return index < asciiLength ? bytes[offset + index] : tail.charAt(index - asciiLength);
+  }
+
+  @Override
+  public String getText(Interval interval) {
+    int start = Math.max(0, interval.a);
+    int end = Math.min(size(), interval.b + 1);
+    if (start >= end) {
+      return "";
+    }
+    if (end <= asciiLength) {
+      return new String(bytes, offset + start, end - start, StandardCharsets.ISO_8859_1);
+    }
+    if (start >= asciiLength) {
+      return tail.substring(start - asciiLength, end - asciiLength);
+    }
+    return new String(bytes, offset + start, asciiLength - start, StandardCharsets.ISO_8859_1)
+        + tail.substring(0, end - asciiLength);
+  }
+
+  @Override
+  public String toString() {
+    return getText(Interval.of(0, size() - 1));
+  }
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import com.github.palindromicity.syslog.DefaultKeyProvider;
+import com.github.palindromicity.syslog.KeyProvider;
+import com.github.palindromicity.syslog.NilPolicy;
+import com.github.palindromicity.syslog.StructuredDataPolicy;
+import com.github.palindromicity.syslog.SyslogEventHandler;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.util.StructuredDataUtil;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@link SyslogEventHandler} that writes each parsed message as a JSON object, with no intermediate {@code Map}.
+ * <p>
+ * The object has the same keys and values as the {@code Map} returned by
+ * {@link com.github.palindromicity.syslog.SyslogParser#parseLine(String)} with the same {@link KeyProvider},
+ * {@link NilPolicy} and {@link StructuredDataPolicy}, so all values, including the PRI and VERSION, are strings.
+ * A repeated SD-ID or PARAM-NAME is written as a repeated name.
+ * </p>
+ * <p>
+ * Each message is written to a reused buffer, and copied to the {@code Appendable} or {@code ByteBuffer} set
+ * by {@code writeTo} once it has parsed, so nothing is written for a line that fails to parse.  With JSON Lines
+ * each object is followed by a new line.  A {@code SyslogJsonWriter} is not thread safe.
+ * </p>
+ * <pre>
+ *   SyslogJsonWriter writer = new SyslogJsonWriter();
+ *   parser.parseLine(line, writer.writeTo(out));
+ * </pre>
+ */
+public class SyslogJsonWriter implements SyslogEventHandler {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final NilPolicy nilPolicy;
+  private final StructuredDataPolicy structuredDataPolicy;
+  private final boolean jsonLines;
+
+  /**
+   * The quoted and escaped keys, each followed by ':'.
+   */
+  private final String priorityKey;
+  private final String severityKey;
+  private final String facilityKey;
+  private final String versionKey;
+  private final String timestampKey;
+  private final String hostNameKey;
+  private final String appNameKey;
+  private final String procIdKey;
+  private final String msgIdKey;
+  private final String messageKey;
+  private final String structuredBaseKey;
+
+  /**
+   * The escaped prefix, separator and suffix of the flattened structured data keys, or null to format each key.
+   */
+  private final String[] paramKeyParts;
+  private final String paramNameFormat;
+
+  private final StringBuilder buffer = new StringBuilder(512);
+  private final StringBuilder sdId = new StringBuilder();
+  private Appendable appendable;
+  private ByteBuffer byteBuffer;
+  private boolean firstMember;
+  private boolean firstParam;
+  private boolean inStructuredData;
+
+  /**
+   * Create a new {@code SyslogJsonWriter} with the {@link DefaultKeyProvider}, {@link NilPolicy#OMIT} and
+   * {@link StructuredDataPolicy#FLATTEN}, writing one object per message.
+   */
+  public SyslogJsonWriter() {
+    this(new DefaultKeyProvider(), NilPolicy.OMIT, StructuredDataPolicy.FLATTEN, false);
+  }
+
+  /**
+   * Create a new {@code SyslogJsonWriter}.
+   *
+   * @param keyProvider {@link KeyProvider} for the names
+   * @param nilPolicy {@link NilPolicy} for nil values, defaults to {@link NilPolicy#OMIT} if null
+   * @param structuredDataPolicy {@link StructuredDataPolicy} for structured data, defaults to
+   *     {@link StructuredDataPolicy#FLATTEN} if null
+   * @param jsonLines if true each object is followed by a new line
+   */
+  public SyslogJsonWriter(KeyProvider keyProvider, NilPolicy nilPolicy, StructuredDataPolicy structuredDataPolicy,
+      boolean jsonLines) {
+    Validate.notNull(keyProvider, "keyProvider");
+    this.nilPolicy = nilPolicy == null ? NilPolicy.OMIT : nilPolicy;
+    this.structuredDataPolicy = structuredDataPolicy == null ? StructuredDataPolicy.FLATTEN : structuredDataPolicy;
+    this.jsonLines = jsonLines;
+    this.priorityKey = key(keyProvider.getHeaderPriority());
+    this.severityKey = key(keyProvider.getHeaderSeverity());
+    this.facilityKey = key(keyProvider.getHeaderFacility());
+    this.versionKey = key(keyProvider.getHeaderVersion());
+    this.timestampKey = key(keyProvider.getHeaderTimeStamp());
+    this.hostNameKey = key(keyProvider.getHeaderHostName());
+    this.appNameKey = key(keyProvider.getHeaderAppName());
+    this.procIdKey = key(keyProvider.getHeaderProcessId());
+    this.msgIdKey = key(keyProvider.getHeaderMessageId());
+    this.messageKey = key(keyProvider.getMessage());
+    this.structuredBaseKey = key(keyProvider.getStructuredBase());
+    this.paramNameFormat = keyProvider.getStructuredElementIdParamNameFormat();
+    String[] parts = StructuredDataUtil.splitParamNameFormat(paramNameFormat);
+    if (parts != null) {
+      for (int i = 0; i < parts.length; i++) {
+        parts[i] = escape(parts[i], new StringBuilder()).toString();
+      }
+    }
+    this.paramKeyParts = parts;
+  }
+
+  /**
+   * Sets the {@code Appendable} each message is appended to.
+   *
+   * @param out the {@code Appendable}
+   * @return this {@code SyslogJsonWriter}
+   */
+  public SyslogJsonWriter writeTo(Appendable out) {
+    Validate.notNull(out, "out");
+    this.appendable = out;
+    this.byteBuffer = null;
+    return this;
+  }
+
+  /**
+   * Sets the {@code ByteBuffer} each message is written to, as UTF-8.  If a message does not fit in the
+   * remaining space a {@code BufferOverflowException} is thrown and the buffer position is left unchanged.
+   *
+   * @param out the {@code ByteBuffer}
+   * @return this {@code SyslogJsonWriter}
+   */
+  public SyslogJsonWriter writeTo(ByteBuffer out) {
+    Validate.notNull(out, "out");
+    this.byteBuffer = out;
+    this.appendable = null;
+    return this;
+  }
+
+  @Override
+  public void onStart() {
+    buffer.setLength(0);
+    buffer.append('{');
+    firstMember = true;
+    inStructuredData = false;
+  }
+
+  @Override
+  public void onPriority(int priority) {
+    member(priorityKey).append('"').append(priority).append('"');
+    member(severityKey).append('"').append(priority % 8).append('"');
+    member(facilityKey).append('"').append(priority / 8).append('"');
+  }
+
+  @Override
+  public void onVersion(int version) {
+    member(versionKey).append('"').append(version).append('"');
+  }
+
+  @Override
+  public void onTimestamp(CharSequence timestamp) {
+    nillable(timestampKey, timestamp);
+  }
+
+  @Override
+  public void onHostName(CharSequence hostName) {
+    nillable(hostNameKey, hostName);
+  }
+
+  @Override
+  public void onAppName(CharSequence appName) {
+    nillable(appNameKey, appName);
+  }
+
+  @Override
+  public void onProcId(CharSequence procId) {
+    nillable(procIdKey, procId);
+  }
+
+  @Override
+  public void onMsgId(CharSequence msgId) {
+    nillable(msgIdKey, msgId);
+  }
+
+  @Override
+  public void onSdElementStart(CharSequence id) {
+    sdId.setLength(0);
+    sdId.append(id);
+    if (structuredDataPolicy == StructuredDataPolicy.MAP_OF_MAPS) {
+      if (inStructuredData) {
+        buffer.append(',');
+      } else {
+        member(structuredBaseKey).append('{');
+        inStructuredData = true;
+      }
+      string(sdId).append(":{");
+      firstParam = true;
+    }
+  }
+
+  @Override
+  public void onSdParam(CharSequence name, CharSequence value) {
+    if (structuredDataPolicy == StructuredDataPolicy.FLATTEN) {
+      if (firstMember) {
+        firstMember = false;
+      } else {
+        buffer.append(',');
+      }
+      if (paramKeyParts != null) {
+        buffer.append('"').append(paramKeyParts[0]);
+        escape(sdId, buffer).append(paramKeyParts[1]);
+        escape(name, buffer).append(paramKeyParts[2]).append("\":");
+      } else {
+        string(String.format(paramNameFormat, sdId, name)).append(':');
+      }
+    } else if (structuredDataPolicy == StructuredDataPolicy.MAP_OF_MAPS) {
+      if (!firstParam) {
+        buffer.append(',');
+      }
+      firstParam = false;
+      string(name).append(':');
+    }
+    string(value);
+  }
+
+  @Override
+  public void onSdElementEnd() {
+    if (structuredDataPolicy == StructuredDataPolicy.MAP_OF_MAPS) {
+      buffer.append('}');
+    }
+  }
+
+  @Override
+  public void onMessage(CharSequence message) {
+    endStructuredData();
+    string(member(messageKey), message);
+  }
+
+  @Override
+  public void onEnd() {
+    endStructuredData();
+    buffer.append('}');
+    if (jsonLines) {
+      buffer.append('\n');
+    }
+    flush();
+  }
+
+  @Override
+  public void onError(ParseException exception) {
+    buffer.setLength(0);
+    throw exception;
+  }
+
+  private void endStructuredData() {
+    if (inStructuredData) {
+      buffer.append('}');
+      inStructuredData = false;
+    }
+  }
+
+  private void nillable(String key, CharSequence value) {
+    if (value != null) {
+      string(member(key), value);
+    } else if (nilPolicy == NilPolicy.DASH) {
+      member(key).append("\"-\"");
+    } else if (nilPolicy == NilPolicy.NULL) {
+      member(key).append("null");
+    }
+  }
+
+  private StringBuilder member(String key) {
+    if (firstMember) {
+      firstMember = false;
+    } else {
+      buffer.append(',');
+    }
+    return buffer.append(key);
+  }
+
+  private StringBuilder string(CharSequence value) {
+    return string(buffer, value);
+  }
+
+  private static StringBuilder string(StringBuilder builder, CharSequence value) {
+    builder.append('"');
+    return escape(value, builder).append('"');
+  }
+
+  private void flush() {
+    if (appendable != null) {
+      try {
+        appendable.append(buffer);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    } else if (byteBuffer != null) {
+      encode(buffer, byteBuffer);
+    } else {
+      throw new IllegalStateException("writeTo has not been called");
+    }
+  }
+
+  private static String key(String name) {
+    return string(new StringBuilder(), name).append(':').toString();
+  }
+
+  /**
+   * Appends the value escaped for a JSON string.
+   */
+  static StringBuilder escape(CharSequence value, StringBuilder builder) {
+    int start = 0;
+    final int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char ch = value.charAt(i);
+      if (ch >= ' ' && ch != '"' && ch != '\\') {
+        continue;
+      }
+      builder.append(value, start, i);
+      start = i + 1;
+      switch (ch) {
+        case '"':
+          builder.append("\\\"");
+          break;
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        case '\b':
+          builder.append("\\b");
+          break;
+        case '\f':
+          builder.append("\\f");
+          break;
+        default:
+          builder.append("\\u00").append(HEX[ch >> 4]).append(HEX[ch & 0xF]);
+      }
+    }
+    return builder.append(value, start, length);
+  }
+
+  /**
+   * Encodes the chars as UTF-8, leaving the position unchanged if they do not fit.
+   */
+  private static void encode(CharSequence chars, ByteBuffer out) {
+    final int position = out.position();
+    try {
+      final int length = chars.length();
+      for (int i = 0; i < length; i++) {
+        char ch = chars.charAt(i);
+        if (ch < 0x80) {
+          out.put((byte) ch);
+        } else if (ch < 0x800) {
+          out.put((byte) (0xC0 | ch >> 6));
+          out.put((byte) (0x80 | ch & 0x3F));
+        } else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(ch, chars.charAt(++i));
+          out.put((byte) (0xF0 | codePoint >> 18));
+          out.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+          out.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+          out.put((byte) (0x80 | codePoint & 0x3F));
+        } else if (Character.isSurrogate(ch)) {
+          out.put((byte) '?');
+        } else {
+          out.put((byte) (0xE0 | ch >> 12));
+          out.put((byte) (0x80 | ch >> 6 & 0x3F));
+          out.put((byte) (0x80 | ch & 0x3F));
+        }
+      }
+    } catch (BufferOverflowException e) {
+      out.position(position);
+      throw e;
+    }
+  }
+}
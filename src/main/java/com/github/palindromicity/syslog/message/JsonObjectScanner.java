@@ -0,0 +1,311 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.message;
+
+import java.util.List;
+
+/**
+ * Scans a JSON object into its fields.  The keys of nested objects are joined with '.', arrays are kept as their
+ * JSON text, strings are unescaped, {@code null} is null and numbers and booleans are kept as their text.
+ * <p>
+ * The whole text, after any leading whitespace, must be a single valid object, or no fields are added.
+ * </p>
+ */
+final class JsonObjectScanner {
+
+  private static final int MAX_DEPTH = 32;
+
+  private final CharSequence text;
+  private final int end;
+  private final List<String> fields;
+  private final StringBuilder buffer = new StringBuilder();
+  private int position;
+
+  private JsonObjectScanner(CharSequence text, int start, List<String> fields) {
+    this.text = text;
+    this.end = text.length();
+    this.fields = fields;
+    this.position = start;
+  }
+
+  /**
+   * Scans the object of the text from start, adding each key and value to fields.
+   *
+   * @param text the text
+   * @param start the position to start from
+   * @param fields the list the keys and values are added to, alternately
+   * @return true if the text is an object
+   */
+  static boolean scan(CharSequence text, int start, List<String> fields) {
+    final int size = fields.size();
+    JsonObjectScanner scanner = new JsonObjectScanner(text, start, fields);
+    scanner.skipWhitespace();
+    if (scanner.peek() == '{' && scanner.object("", 0)) {
+      scanner.skipWhitespace();
+      if (scanner.position == scanner.end) {
+        return true;
+      }
+    }
+    fields.subList(size, fields.size()).clear();
+    return false;
+  }
+
+  /**
+   * Returns the position of the first character that is not whitespace from start.
+   *
+   * @param text the text
+   * @param start the position to start from
+   * @return the position, or the length of the text
+   */
+  static int skipWhitespace(CharSequence text, int start) {
+    int position = start;
+    while (position < text.length() && isWhitespace(text.charAt(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  /**
+   * Reads the object at the position, adding its fields under the prefix, or only checking it if prefix is null.
+   */
+  private boolean object(String prefix, int depth) {
+    if (depth == MAX_DEPTH) {
+      return false;
+    }
+    position++;
+    skipWhitespace();
+    if (peek() == '}') {
+      position++;
+      return true;
+    }
+    while (true) {
+      skipWhitespace();
+      if (peek() != '"') {
+        return false;
+      }
+      String name = string();
+      if (name == null) {
+        return false;
+      }
+      skipWhitespace();
+      if (peek() != ':') {
+        return false;
+      }
+      position++;
+      skipWhitespace();
+      String key = prefix == null ? null : prefix.isEmpty() ? name : prefix + '.' + name;
+      if (!value(key, depth)) {
+        return false;
+      }
+      skipWhitespace();
+      int ch = peek();
+      position++;
+      if (ch == '}') {
+        return true;
+      } else if (ch != ',') {
+        return false;
+      }
+    }
+  }
+
+  private boolean array(int depth) {
+    if (depth == MAX_DEPTH) {
+      return false;
+    }
+    position++;
+    skipWhitespace();
+    if (peek() == ']') {
+      position++;
+      return true;
+    }
+    while (true) {
+      skipWhitespace();
+      if (!value(null, depth)) {
+        return false;
+      }
+      skipWhitespace();
+      int ch = peek();
+      position++;
+      if (ch == ']') {
+        return true;
+      } else if (ch != ',') {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Reads the value at the position, adding it as key, or only checking it if key is null.
+   */
+  private boolean value(String key, int depth) {
+    final int start = position;
+    final int ch = peek();
+    if (ch == '{') {
+      return object(key, depth + 1);
+    } else if (ch == '"') {
+      String value = string();
+      if (value == null) {
+        return false;
+      }
+      add(key, value);
+      return true;
+    } else if (ch == '[') {
+      if (!array(depth + 1)) {
+        return false;
+      }
+    } else if (literal("null")) {
+      add(key, null);
+      return true;
+    } else if (!literal("true") && !literal("false") && !number()) {
+      return false;
+    }
+    add(key, text.subSequence(start, position).toString());
+    return true;
+  }
+
+  private void add(String key, String value) {
+    if (key != null) {
+      fields.add(key);
+      fields.add(value);
+    }
+  }
+
+  /**
+   * Reads the string at the position, returning null if it is invalid.
+   */
+  private String string() {
+    buffer.setLength(0);
+    position++;
+    while (position < end) {
+      char ch = text.charAt(position++);
+      if (ch == '"') {
+        return buffer.toString();
+      } else if (ch < ' ') {
+        return null;
+      } else if (ch != '\\') {
+        buffer.append(ch);
+      } else if (!escape()) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private boolean escape() {
+    if (position == end) {
+      return false;
+    }
+    char ch = text.charAt(position++);
+    switch (ch) {
+      case '"':
+      case '\\':
+      case '/':
+        buffer.append(ch);
+        return true;
+      case 'b':
+        buffer.append('\b');
+        return true;
+      case 'f':
+        buffer.append('\f');
+        return true;
+      case 'n':
+        buffer.append('\n');
+        return true;
+      case 'r':
+        buffer.append('\r');
+        return true;
+      case 't':
+        buffer.append('\t');
+        return true;
+      case 'u':
+        if (end - position < 4) {
+          return false;
+        }
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+          int digit = Character.digit(text.charAt(position++), 16);
+          if (digit < 0) {
+            return false;
+          }
+          code = code << 4 | digit;
+        }
+        buffer.append((char) code);
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private boolean literal(String word) {
+    final int length = word.length();
+    if (end - position < length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (text.charAt(position + i) != word.charAt(i)) {
+        return false;
+      }
+    }
+    position += length;
+    return true;
+  }
+
+  private boolean number() {
+    final int start = position;
+    if (peek() == '-') {
+      position++;
+    }
+    if (!digits()) {
+      position = start;
+      return false;
+    }
+    if (peek() == '.') {
+      position++;
+      if (!digits()) {
+        return false;
+      }
+    }
+    if (peek() == 'e' || peek() == 'E') {
+      position++;
+      if (peek() == '+' || peek() == '-') {
+        position++;
+      }
+      return digits();
+    }
+    return true;
+  }
+
+  private boolean digits() {
+    final int start = position;
+    while (peek() >= '0' && peek() <= '9') {
+      position++;
+    }
+    return position > start;
+  }
+
+  private int peek() {
+    return position < end ? text.charAt(position) : -1;
+  }
+
+  private void skipWhitespace() {
+    position = skipWhitespace(text, position);
+  }
+
+  private static boolean isWhitespace(char ch) {
+    return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r';
+  }
+}
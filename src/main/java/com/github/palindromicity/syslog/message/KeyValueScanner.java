@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.message;
+
+import java.util.List;
+
+/**
+ * Scans {@code key=value} pairs separated by whitespace or commas.  A value is either the characters up to the
+ * next separator, or a quoted string with backslash escapes.  Words that are not pairs are skipped.
+ */
+final class KeyValueScanner {
+
+  private KeyValueScanner() {
+  }
+
+  /**
+   * Scans the pairs of the text from start, adding each key and value to fields.
+   *
+   * @param text the text
+   * @param start the position to start from
+   * @param fields the list the keys and values are added to, alternately
+   * @return true if any pairs were found
+   */
+  static boolean scan(CharSequence text, int start, List<String> fields) {
+    final int size = fields.size();
+    final int end = text.length();
+    final StringBuilder buffer = new StringBuilder();
+    int position = start;
+    while (position < end) {
+      while (position < end && isSeparator(text.charAt(position))) {
+        position++;
+      }
+      final int keyStart = position;
+      while (position < end && !isSeparator(text.charAt(position)) && text.charAt(position) != '='
+          && text.charAt(position) != '"') {
+        position++;
+      }
+      if (position < end && position > keyStart && text.charAt(position) == '=') {
+        String key = text.subSequence(keyStart, position).toString();
+        position++;
+        if (position < end && text.charAt(position) == '"') {
+          buffer.setLength(0);
+          position = quoted(text, position, buffer);
+          fields.add(key);
+          fields.add(buffer.toString());
+        } else {
+          final int valueStart = position;
+          while (position < end && !isSeparator(text.charAt(position))) {
+            position++;
+          }
+          fields.add(key);
+          fields.add(text.subSequence(valueStart, position).toString());
+        }
+      } else {
+        // not a pair, skip the rest of the word, including any quoted string
+        while (position < end && !isSeparator(text.charAt(position))) {
+          position = text.charAt(position) == '"' ? quoted(text, position, null) : position + 1;
+        }
+      }
+    }
+    return fields.size() > size;
+  }
+
+  /**
+   * Reads the quoted string at position into the buffer, if not null, and returns the position after it.
+   * An unterminated string runs to the end of the text.
+   */
+  private static int quoted(CharSequence text, int position, StringBuilder buffer) {
+    final int end = text.length();
+    position++;
+    while (position < end) {
+      char ch = text.charAt(position++);
+      if (ch == '"') {
+        break;
+      }
+      if (ch == '\\' && position < end) {
+        ch = text.charAt(position++);
+      }
+      if (buffer != null) {
+        buffer.append(ch);
+      }
+    }
+    return position;
+  }
+
+  private static boolean isSeparator(char ch) {
+    return ch <= ' ' || ch == ',';
+  }
+}
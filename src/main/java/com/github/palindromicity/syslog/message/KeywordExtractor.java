@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.message;
+
+import java.util.function.BiConsumer;
+
+import com.github.palindromicity.syslog.KeyProvider;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@link MessageExtractor} that adds the ids of the keywords of a {@link KeywordMatcher} found in the MSG, as a
+ * comma separated {@code String} in the order they were found, keyed by the field name in the
+ * {@link KeyProvider#getMessageFieldFormat()}.  Nothing is added if no keyword is found.
+ * <p>
+ * To act on each keyword as it is found instead, use {@link KeywordMatcher#match(CharSequence,
+ * java.util.function.IntConsumer)} from a {@link MessageExtractor} of your own.
+ * </p>
+ */
+public class KeywordExtractor implements MessageExtractor {
+
+  /**
+   * The default name of the field of keyword ids.
+   */
+  public static final String DEFAULT_FIELD_NAME = "keywords";
+
+  private final KeywordMatcher matcher;
+  private final String key;
+
+  /**
+   * Create a new {@code KeywordExtractor} adding the {@link #DEFAULT_FIELD_NAME} field.
+   *
+   * @param keyProvider the {@link KeyProvider}
+   * @param matcher the {@link KeywordMatcher}
+   * @throws IllegalArgumentException if an argument is null, or the message field format has no {@code %s}
+   */
+  public KeywordExtractor(KeyProvider keyProvider, KeywordMatcher matcher) {
+    this(keyProvider, matcher, DEFAULT_FIELD_NAME);
+  }
+
+  /**
+   * Create a new {@code KeywordExtractor}.
+   *
+   * @param keyProvider the {@link KeyProvider}
+   * @param matcher the {@link KeywordMatcher}
+   * @param fieldName the name of the field of keyword ids
+   * @throws IllegalArgumentException if an argument is null or blank, or the message field format has no
+   *     {@code %s}
+   */
+  public KeywordExtractor(KeyProvider keyProvider, KeywordMatcher matcher, String fieldName) {
+    Validate.notNull(keyProvider, "keyProvider");
+    Validate.notNull(matcher, "matcher");
+    Validate.notBlank(fieldName, "fieldName");
+    final String[] keyParts = MessageFieldExtractor.splitFieldFormat(keyProvider);
+    this.matcher = matcher;
+    this.key = keyParts[0] + fieldName + keyParts[1];
+  }
+
+  @Override
+  public void extract(String appName, String msgId, String message, BiConsumer<String, Object> fields) {
+    if (message == null) {
+      return;
+    }
+    final StringBuilder ids = new StringBuilder();
+    matcher.match(message, (id) -> {
+      if (ids.length() > 0) {
+        ids.append(',');
+      }
+      ids.append(id);
+    });
+    if (ids.length() > 0) {
+      fields.accept(key, ids.toString());
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.message;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code KeywordMatcher} finds which of a set of literal keywords occur in a text, in a single pass over the text
+ * however many keywords there are, using an Aho-Corasick automaton built once from the keywords.
+ * <p>
+ * The id of a keyword is its index in the list it was compiled from.  Matching is case sensitive.  A
+ * {@code KeywordMatcher} is immutable and thread safe.
+ * </p>
+ * <pre>
+ *   KeywordMatcher matcher = KeywordMatcher.compile(Arrays.asList("denied", "segfault", "out of memory"));
+ *   matcher.match(message, (id) -&gt; alert(matcher.getKeyword(id)));
+ * </pre>
+ */
+public final class KeywordMatcher {
+
+  private static final int ROOT_TABLE_SIZE = 256;
+  private static final int[] NO_OUTPUTS = new int[0];
+
+  private final String[] keywords;
+
+  /**
+   * The transitions of the root state for characters below {@link #ROOT_TABLE_SIZE}, -1 if there is none.
+   */
+  private final int[] rootTable = new int[ROOT_TABLE_SIZE];
+
+  /**
+   * The sorted characters of each state's transitions, and the state each leads to.
+   */
+  private final char[][] labels;
+  private final int[][] targets;
+
+  /**
+   * The state of the longest proper suffix of each state's text that is also a state.
+   */
+  private final int[] failures;
+
+  /**
+   * The ids of the keywords ending at each state, and the next state on the failure chain with any, or 0.
+   */
+  private final int[][] outputs;
+  private final int[] outputLinks;
+
+  private KeywordMatcher(String[] keywords, List<TreeMap<Character, Integer>> transitions,
+      List<List<Integer>> stateOutputs) {
+    this.keywords = keywords;
+    final int stateCount = transitions.size();
+    this.labels = new char[stateCount][];
+    this.targets = new int[stateCount][];
+    this.outputs = new int[stateCount][];
+    for (int state = 0; state < stateCount; state++) {
+      TreeMap<Character, Integer> stateTransitions = transitions.get(state);
+      labels[state] = new char[stateTransitions.size()];
+      targets[state] = new int[stateTransitions.size()];
+      int index = 0;
+      for (Map.Entry<Character, Integer> transition : stateTransitions.entrySet()) {
+        labels[state][index] = transition.getKey();
+        targets[state][index++] = transition.getValue();
+      }
+      List<Integer> ids = stateOutputs.get(state);
+      outputs[state] = ids == null ? NO_OUTPUTS : ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+    Arrays.fill(rootTable, -1);
+    for (int i = 0; i < labels[0].length && labels[0][i] < ROOT_TABLE_SIZE; i++) {
+      rootTable[labels[0][i]] = targets[0][i];
+    }
+
+    // breadth first, so each state's failure is known before its children's
+    this.failures = new int[stateCount];
+    this.outputLinks = new int[stateCount];
+    final Queue<Integer> queue = new ArrayDeque<>();
+    for (int child : targets[0]) {
+      queue.add(child);
+    }
+    while (!queue.isEmpty()) {
+      final int state = queue.remove();
+      for (int i = 0; i < labels[state].length; i++) {
+        final int child = targets[state][i];
+        int failure = failures[state];
+        int next = transition(failure, labels[state][i]);
+        while (next < 0 && failure != 0) {
+          failure = failures[failure];
+          next = transition(failure, labels[state][i]);
+        }
+        failures[child] = next < 0 ? 0 : next;
+        outputLinks[child] = outputs[failures[child]].length > 0 ? failures[child] : outputLinks[failures[child]];
+        queue.add(child);
+      }
+    }
+  }
+
+  /**
+   * Compiles a {@code KeywordMatcher}.
+   *
+   * @param keywords the keywords, each id is its index
+   * @return the {@code KeywordMatcher}
+   * @throws IllegalArgumentException if keywords is null or any keyword is null or empty
+   */
+  public static KeywordMatcher compile(List<String> keywords) {
+    Validate.notNull(keywords, "keywords");
+    final List<TreeMap<Character, Integer>> transitions = new ArrayList<>();
+    final Map<Integer, List<Integer>> outputIds = new HashMap<>();
+    transitions.add(new TreeMap<>());
+    for (int id = 0; id < keywords.size(); id++) {
+      final String keyword = keywords.get(id);
+      if (keyword == null || keyword.isEmpty()) {
+        throw new IllegalArgumentException("keyword " + id + " cannot be empty");
+      }
+      int state = 0;
+      for (int i = 0; i < keyword.length(); i++) {
+        Integer next = transitions.get(state).get(keyword.charAt(i));
+        if (next == null) {
+          next = transitions.size();
+          transitions.get(state).put(keyword.charAt(i), next);
+          transitions.add(new TreeMap<>());
+        }
+        state = next;
+      }
+      outputIds.computeIfAbsent(state, (ignored) -> new ArrayList<>()).add(id);
+    }
+    final List<List<Integer>> stateOutputs = new ArrayList<>(transitions.size());
+    for (int state = 0; state < transitions.size(); state++) {
+      stateOutputs.add(outputIds.get(state));
+    }
+    return new KeywordMatcher(keywords.toArray(new String[0]), transitions, stateOutputs);
+  }
+
+  /**
+   * Returns the number of keywords.
+   *
+   * @return the number of keywords
+   */
+  public int size() {
+    return keywords.length;
+  }
+
+  /**
+   * Returns the keyword with an id.
+   *
+   * @param id the id
+   * @return the keyword
+   * @throws IndexOutOfBoundsException if there is no keyword with the id
+   */
+  public String getKeyword(int id) {
+    return keywords[id];
+  }
+
+  /**
+   * Passes the id of each keyword occurring in the text to ids, once, in the order of the end of its first
+   * occurrence.
+   *
+   * @param text the text
+   * @param ids receives the id of each keyword found
+   * @return the number of keywords found
+   */
+  public int match(CharSequence text, IntConsumer ids) {
+    BitSet found = null;
+    int count = 0;
+    int state = 0;
+    for (int position = 0; position < text.length(); position++) {
+      final char ch = text.charAt(position);
+      int next = transition(state, ch);
+      while (next < 0 && state != 0) {
+        state = failures[state];
+        next = transition(state, ch);
+      }
+      state = next < 0 ? 0 : next;
+      for (int output = outputs[state].length > 0 ? state : outputLinks[state]; output != 0;
+          output = outputLinks[output]) {
+        for (int id : outputs[output]) {
+          if (found == null) {
+            found = new BitSet(keywords.length);
+          }
+          if (!found.get(id)) {
+            found.set(id);
+            count++;
+            ids.accept(id);
+          }
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the ids of the keywords occurring in the text, in the order of the end of their first occurrence.
+   *
+   * @param text the text
+   * @return the ids, empty if none are found
+   */
+  public int[] match(CharSequence text) {
+    final IntStream.Builder ids = IntStream.builder();
+    match(text, ids::add);
+    return ids.build().toArray();
+  }
+
+  private int transition(int state, char ch) {
+    if (state == 0 && ch < ROOT_TABLE_SIZE) {
+      return rootTable[ch];
+    }
+    final int index = Arrays.binarySearch(labels[state], ch);
+    return index < 0 ? -1 : targets[state][index];
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.message;
+
+import java.util.function.BiConsumer;
+
+/**
+ * {@code MessageExtractor} extracts fields from the MSG of a parsed message, which are added to the
+ * message's {@code Map}.
+ * <p>
+ * Implementations must be thread safe, a single {@code MessageExtractor} is used for all the messages of a parser.
+ * </p>
+ */
+@FunctionalInterface
+public interface MessageExtractor {
+
+  /**
+   * Extract fields from a MSG.
+   *
+   * @param appName the APP-NAME of the message, or null if it is nil
+   * @param msgId the MSGID of the message, or null if it is nil
+   * @param message the MSG
+   * @param fields receives the key and value of each field extracted
+   */
+  void extract(String appName, String msgId, String message, BiConsumer<String, Object> fields);
+
+  /**
+   * Returns a {@code MessageExtractor} running this and then another {@code MessageExtractor}.
+   *
+   * @param after the {@code MessageExtractor} to run after this one
+   * @return the composed {@code MessageExtractor}
+   */
+  default MessageExtractor andThen(MessageExtractor after) {
+    return (appName, msgId, message, fields) -> {
+      extract(appName, msgId, message, fields);
+      after.extract(appName, msgId, message, fields);
+    };
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+import com.github.palindromicity.syslog.KeyProvider;
+import com.github.palindromicity.syslog.MessageFormat;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@link MessageExtractor} that extracts {@code key=value} pairs or the fields of a JSON object from the MSG,
+ * keyed by the {@link KeyProvider#getMessageFieldFormat()}.
+ * <p>
+ * The {@link MessageFormat} of each APP-NAME and MSGID is chosen by a selector, which is called once and the result
+ * remembered, for up to {@link #MAX_SELECTIONS} APP-NAME and MSGID pairs.  Values are {@code String}s, or null for
+ * a JSON {@code null}.
+ * </p>
+ */
+public class MessageFieldExtractor implements MessageExtractor {
+
+  /**
+   * The maximum number of APP-NAME and MSGID pairs whose {@link MessageFormat} is remembered.
+   */
+  public static final int MAX_SELECTIONS = 1024;
+
+  private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+  private final String keyPrefix;
+  private final String keySuffix;
+  private final BiFunction<String, String, MessageFormat> selector;
+  private final Map<String, MessageFormat> selections = new ConcurrentHashMap<>();
+
+  /**
+   * Create a new {@code MessageFieldExtractor} extracting the same {@link MessageFormat} from every MSG.
+   *
+   * @param keyProvider the {@link KeyProvider}
+   * @param format the {@link MessageFormat}
+   * @throws IllegalArgumentException if an argument is null, or the message field format has no {@code %s}
+   */
+  public MessageFieldExtractor(KeyProvider keyProvider, MessageFormat format) {
+    this(keyProvider, constant(format));
+  }
+
+  /**
+   * Create a new {@code MessageFieldExtractor} choosing the {@link MessageFormat} by APP-NAME and MSGID.
+   *
+   * @param keyProvider the {@link KeyProvider}
+   * @param selector returns the {@link MessageFormat} for an APP-NAME and MSGID, each null if nil
+   * @throws IllegalArgumentException if an argument is null, or the message field format has no {@code %s}
+   */
+  public MessageFieldExtractor(KeyProvider keyProvider, BiFunction<String, String, MessageFormat> selector) {
+    Validate.notNull(keyProvider, "keyProvider");
+    Validate.notNull(selector, "selector");
+    final String[] keyParts = splitFieldFormat(keyProvider);
+    this.keyPrefix = keyParts[0];
+    this.keySuffix = keyParts[1];
+    this.selector = selector;
+  }
+
+  /**
+   * Returns the text before and after the {@code %s} of the {@link KeyProvider#getMessageFieldFormat()}.
+   *
+   * @param keyProvider the {@link KeyProvider}
+   * @return the prefix and suffix of the field keys
+   * @throws IllegalArgumentException if the message field format is blank or has no {@code %s}
+   */
+  static String[] splitFieldFormat(KeyProvider keyProvider) {
+    final String format = keyProvider.getMessageFieldFormat();
+    Validate.notBlank(format, "messageFieldFormat");
+    final int index = format.indexOf("%s");
+    if (index < 0) {
+      throw new IllegalArgumentException("messageFieldFormat has no %s");
+    }
+    return new String[] {format.substring(0, index).replace("%%", "%"), format.substring(index + 2).replace("%%", "%")};
+  }
+
+  private static BiFunction<String, String, MessageFormat> constant(MessageFormat format) {
+    Validate.notNull(format, "format");
+    return (appName, msgId) -> format;
+  }
+
+  /**
+   * Returns the {@link MessageFormat} for an APP-NAME and MSGID.
+   *
+   * @param appName the APP-NAME, or null if nil
+   * @param msgId the MSGID, or null if nil
+   * @return the {@link MessageFormat}
+   */
+  public MessageFormat getFormat(String appName, String msgId) {
+    // APP-NAME and MSGID cannot contain spaces, and nil is '-' in the line
+    final String selection = (appName == null ? "-" : appName) + ' ' + (msgId == null ? "-" : msgId);
+    MessageFormat format = selections.get(selection);
+    if (format == null) {
+      format = selector.apply(appName, msgId);
+      if (format == null) {
+        format = MessageFormat.NONE;
+      }
+      if (selections.size() < MAX_SELECTIONS) {
+        selections.put(selection, format);
+      }
+    }
+    return format;
+  }
+
+  @Override
+  public void extract(String appName, String msgId, String message, BiConsumer<String, Object> fields) {
+    final MessageFormat format = getFormat(appName, msgId);
+    if (format == MessageFormat.NONE || message == null) {
+      return;
+    }
+    int start = message.length() > 0 && message.charAt(0) == BYTE_ORDER_MARK ? 1 : 0;
+    final List<String> scanned = new ArrayList<>();
+    if (format == MessageFormat.JSON) {
+      JsonObjectScanner.scan(message, start, scanned);
+    } else if (format == MessageFormat.KEY_VALUE) {
+      KeyValueScanner.scan(message, start, scanned);
+    } else {
+      start = JsonObjectScanner.skipWhitespace(message, start);
+      if (start == message.length() || message.charAt(start) != '{' || !JsonObjectScanner.scan(message, start,
+          scanned)) {
+        KeyValueScanner.scan(message, start, scanned);
+      }
+    }
+    for (int i = 0; i < scanned.size(); i += 2) {
+      fields.accept(keyPrefix + scanned.get(i) + keySuffix, scanned.get(i + 1));
+    }
+  }
+}
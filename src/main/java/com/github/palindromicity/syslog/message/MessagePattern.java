@@ -0,0 +1,409 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code MessagePattern} is a compiled Grok-like pattern of literal text and named fields, matched from the start of
+ * a MSG.
+ * <p>
+ * A field is written {@code %{TYPE}} or {@code %{TYPE:name}}, and only named fields are extracted.  A run of spaces
+ * in the pattern matches one or more spaces or tabs, anything else must match exactly.  The types are:
+ * </p>
+ * <ul>
+ *   <li>{@code WORD} letters, digits and underscores</li>
+ *   <li>{@code NOTSPACE} anything but spaces or tabs</li>
+ *   <li>{@code INT} an optionally signed integer</li>
+ *   <li>{@code NUMBER} an optionally signed decimal number</li>
+ *   <li>{@code IPV4}, {@code IPV6} and {@code IP} either address</li>
+ *   <li>{@code QUOTEDSTRING} a double or single quoted string with backslash escapes, extracted without its
+ *   quotes</li>
+ *   <li>{@code DATA} as little as possible, and {@code GREEDYDATA} as much as possible, of anything</li>
+ * </ul>
+ * <p>
+ * Each field type other than {@code DATA} and {@code GREEDYDATA} takes the longest run it can and never gives any
+ * back, so a pattern without those is matched in a single pass over the MSG.  A pattern with them backtracks,
+ * but each element is tried at most once at each position of the MSG, so a MSG of length n that does not match
+ * costs at most O(elements &middot; n&sup2;).  A {@code MessagePattern} is immutable and thread safe.
+ * </p>
+ * <pre>
+ *   MessagePattern pattern = MessagePattern.compile("%{IP:client} %{WORD:method} %{INT:status} %{GREEDYDATA}");
+ * </pre>
+ */
+public final class MessagePattern {
+
+  private static final int LITERAL = 0;
+  private static final int SPACE = 1;
+  private static final int WORD = 2;
+  private static final int NOTSPACE = 3;
+  private static final int INT = 4;
+  private static final int NUMBER = 5;
+  private static final int IPV4 = 6;
+  private static final int IPV6 = 7;
+  private static final int IP = 8;
+  private static final int QUOTEDSTRING = 9;
+  private static final int DATA = 10;
+  private static final int GREEDYDATA = 11;
+  private static final String[] TYPE_NAMES = {null, null, "WORD", "NOTSPACE", "INT", "NUMBER", "IPV4", "IPV6",
+      "IP", "QUOTEDSTRING", "DATA", "GREEDYDATA"};
+
+  private final String pattern;
+  private final int[] types;
+  private final String[] literals;
+  private final String[] names;
+  private final boolean backtracks;
+
+  private MessagePattern(String pattern, int[] types, String[] literals, String[] names) {
+    this.pattern = pattern;
+    this.types = types;
+    this.literals = literals;
+    this.names = names;
+    this.backtracks = Arrays.stream(types).anyMatch((type) -> type == DATA || type == GREEDYDATA);
+  }
+
+  /**
+   * Compiles a pattern.
+   *
+   * @param pattern the pattern
+   * @return the {@code MessagePattern}
+   * @throws IllegalArgumentException if the pattern is blank, or has an unknown type or unclosed field
+   */
+  public static MessagePattern compile(String pattern) {
+    Validate.notBlank(pattern, "pattern");
+    final List<Integer> types = new ArrayList<>();
+    final List<String> literals = new ArrayList<>();
+    final List<String> names = new ArrayList<>();
+    final StringBuilder literal = new StringBuilder();
+    int position = 0;
+    while (position < pattern.length()) {
+      final char ch = pattern.charAt(position);
+      if (ch != ' ' && !pattern.startsWith("%{", position)) {
+        literal.append(ch);
+        position++;
+        continue;
+      }
+      if (literal.length() > 0) {
+        types.add(LITERAL);
+        literals.add(literal.toString());
+        names.add(null);
+        literal.setLength(0);
+      }
+      if (ch == ' ') {
+        while (position < pattern.length() && pattern.charAt(position) == ' ') {
+          position++;
+        }
+        types.add(SPACE);
+        literals.add(null);
+        names.add(null);
+        continue;
+      }
+      final int close = pattern.indexOf('}', position);
+      if (close < 0) {
+        throw new IllegalArgumentException("unclosed field at " + position + " of " + pattern);
+      }
+      final String field = pattern.substring(position + 2, close);
+      final int colon = field.indexOf(':');
+      final String typeName = colon < 0 ? field : field.substring(0, colon);
+      final int type = type(typeName);
+      if (type < 0) {
+        throw new IllegalArgumentException("unknown type " + typeName + " in " + pattern);
+      }
+      types.add(type);
+      literals.add(null);
+      names.add(colon < 0 || colon == field.length() - 1 ? null : field.substring(colon + 1));
+      position = close + 1;
+    }
+    if (literal.length() > 0) {
+      types.add(LITERAL);
+      literals.add(literal.toString());
+      names.add(null);
+    }
+    return new MessagePattern(pattern, types.stream().mapToInt(Integer::intValue).toArray(),
+        literals.toArray(new String[0]), names.toArray(new String[0]));
+  }
+
+  private static int type(String typeName) {
+    for (int type = WORD; type < TYPE_NAMES.length; type++) {
+      if (TYPE_NAMES[type].equals(typeName)) {
+        return type;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Matches the pattern from the start of the text, passing the name and value of each named field to fields
+   * if it matches.
+   *
+   * @param text the text
+   * @param fields receives the name and value of each named field
+   * @return true if the pattern matched
+   */
+  public boolean match(CharSequence text, BiConsumer<String, String> fields) {
+    final int[] bounds = new int[types.length * 2];
+    // remembers the (element, position) pairs that failed, so backtracking never retries them
+    final BitSet failed = backtracks ? new BitSet() : null;
+    if (!match(text, 0, 0, bounds, failed)) {
+      return false;
+    }
+    for (int element = 0; element < types.length; element++) {
+      if (names[element] != null) {
+        int start = bounds[element * 2];
+        int end = bounds[element * 2 + 1];
+        if (types[element] == QUOTEDSTRING) {
+          start++;
+          end--;
+        }
+        fields.accept(names[element], text.subSequence(start, end).toString());
+      }
+    }
+    return true;
+  }
+
+  private boolean match(CharSequence text, int element, int position, int[] bounds, BitSet failed) {
+    if (element == types.length) {
+      return true;
+    }
+    final int key = element * (text.length() + 1) + position;
+    if (failed != null && failed.get(key)) {
+      return false;
+    }
+    if (matchElement(text, element, position, bounds, failed)) {
+      return true;
+    }
+    if (failed != null) {
+      failed.set(key);
+    }
+    return false;
+  }
+
+  private boolean matchElement(CharSequence text, int element, int position, int[] bounds, BitSet failed) {
+    bounds[element * 2] = position;
+    final int type = types[element];
+    if (type == DATA) {
+      for (int end = position; end <= text.length(); end++) {
+        if (matchRest(text, element, end, bounds, failed)) {
+          return true;
+        }
+      }
+      return false;
+    } else if (type == GREEDYDATA) {
+      for (int end = text.length(); end >= position; end--) {
+        if (matchRest(text, element, end, bounds, failed)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    final int end = scan(text, element, position);
+    return end >= 0 && matchRest(text, element, end, bounds, failed);
+  }
+
+  private boolean matchRest(CharSequence text, int element, int end, int[] bounds, BitSet failed) {
+    bounds[element * 2 + 1] = end;
+    return match(text, element + 1, end, bounds, failed);
+  }
+
+  /**
+   * Returns the end of the longest run of the element's type at the position, or -1 if there is none.
+   */
+  private int scan(CharSequence text, int element, int position) {
+    final int length = text.length();
+    int end = position;
+    switch (types[element]) {
+      case LITERAL:
+        final String literal = literals[element];
+        if (length - position < literal.length()) {
+          return -1;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+          if (text.charAt(position + i) != literal.charAt(i)) {
+            return -1;
+          }
+        }
+        return position + literal.length();
+      case SPACE:
+        while (end < length && isSpace(text.charAt(end))) {
+          end++;
+        }
+        break;
+      case WORD:
+        while (end < length && isWordChar(text.charAt(end))) {
+          end++;
+        }
+        break;
+      case NOTSPACE:
+        while (end < length && !isSpace(text.charAt(end))) {
+          end++;
+        }
+        break;
+      case INT:
+        return integer(text, position);
+      case NUMBER:
+        end = integer(text, position);
+        if (end >= 0 && end + 1 < length && text.charAt(end) == '.' && isDigit(text.charAt(end + 1))) {
+          end = digits(text, end + 1);
+        }
+        return end;
+      case IPV4:
+        return ipv4(text, position);
+      case IPV6:
+        return ipv6(text, position);
+      case IP:
+        end = ipv6(text, position);
+        return end >= 0 ? end : ipv4(text, position);
+      case QUOTEDSTRING:
+        return quoted(text, position);
+      default:
+        throw new IllegalStateException("unknown type " + types[element]);
+    }
+    return end > position ? end : -1;
+  }
+
+  private static int integer(CharSequence text, int position) {
+    final int start = position < text.length() && (text.charAt(position) == '-' || text.charAt(position) == '+')
+        ? position + 1 : position;
+    final int end = digits(text, start);
+    return end > start ? end : -1;
+  }
+
+  private static int digits(CharSequence text, int position) {
+    while (position < text.length() && isDigit(text.charAt(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  private static int ipv4(CharSequence text, int position) {
+    for (int octet = 0; octet < 4; octet++) {
+      if (octet > 0) {
+        if (position == text.length() || text.charAt(position) != '.') {
+          return -1;
+        }
+        position++;
+      }
+      final int start = position;
+      int value = 0;
+      while (position < text.length() && position - start < 3 && isDigit(text.charAt(position))) {
+        value = value * 10 + text.charAt(position++) - '0';
+      }
+      if (position == start || value > 255) {
+        return -1;
+      }
+    }
+    return position;
+  }
+
+  /**
+   * Returns the end of the IPv6 address at the position: hexadecimal groups of at most four digits separated by
+   * colons, with at most one "::", optionally ending in an IPv4 address.
+   */
+  private static int ipv6(CharSequence text, int position) {
+    final int length = text.length();
+    int end = position;
+    int matched = position;
+    int groups = 0;
+    boolean compressed = false;
+    if (isCompression(text, end)) {
+      compressed = true;
+      end += 2;
+      matched = end;
+    }
+    while (true) {
+      final int ipv4End = ipv4(text, end);
+      if (ipv4End >= 0 && (groups == 6 || (compressed && groups < 6))) {
+        return ipv4End;
+      }
+      int hexEnd = end;
+      while (hexEnd < length && hexEnd - end < 4 && isHex(text.charAt(hexEnd))) {
+        hexEnd++;
+      }
+      if (hexEnd == end) {
+        break;
+      }
+      groups++;
+      end = hexEnd;
+      matched = end;
+      if (groups == 8) {
+        break;
+      }
+      if (isCompression(text, end)) {
+        if (compressed) {
+          break;
+        }
+        compressed = true;
+        end += 2;
+        matched = end;
+      } else if (end < length && text.charAt(end) == ':') {
+        end++;
+      } else {
+        break;
+      }
+    }
+    return (groups == 8 && !compressed) || (compressed && groups < 8) ? matched : -1;
+  }
+
+  private static boolean isCompression(CharSequence text, int position) {
+    return position + 1 < text.length() && text.charAt(position) == ':' && text.charAt(position + 1) == ':';
+  }
+
+  private static int quoted(CharSequence text, int position) {
+    final int length = text.length();
+    if (position == length || (text.charAt(position) != '"' && text.charAt(position) != '\'')) {
+      return -1;
+    }
+    final char quote = text.charAt(position);
+    int end = position + 1;
+    while (end < length) {
+      final char ch = text.charAt(end++);
+      if (ch == quote) {
+        return end;
+      } else if (ch == '\\') {
+        end++;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isSpace(char ch) {
+    return ch == ' ' || ch == '\t';
+  }
+
+  private static boolean isDigit(char ch) {
+    return ch >= '0' && ch <= '9';
+  }
+
+  private static boolean isHex(char ch) {
+    return isDigit(ch) || (ch >= 'a' && ch <= 'f') || (ch >= 'A' && ch <= 'F');
+  }
+
+  private static boolean isWordChar(char ch) {
+    return isDigit(ch) || (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || ch == '_';
+  }
+
+  @Override
+  public String toString() {
+    return pattern;
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.message;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.github.palindromicity.syslog.KeyProvider;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@link MessageExtractor} that extracts the named fields of a {@link MessagePattern} from the MSG, keyed by the
+ * {@link KeyProvider#getMessageFieldFormat()}.
+ * <p>
+ * The {@link MessagePattern} of each APP-NAME is chosen by a selector, which is called once and the result
+ * remembered, for up to {@link MessageFieldExtractor#MAX_SELECTIONS} APP-NAMEs.  Nothing is extracted if the
+ * selector returns null, or the MSG does not match.
+ * </p>
+ * <pre>
+ *   MessagePattern access = MessagePattern.compile("%{IP:client} %{WORD:method} %{NOTSPACE:path} %{INT:status}");
+ *   PatternExtractor extractor = new PatternExtractor(keyProvider, (appName) -&gt; "nginx".equals(appName)
+ *       ? access : null);
+ * </pre>
+ */
+public class PatternExtractor implements MessageExtractor {
+
+  private final String keyPrefix;
+  private final String keySuffix;
+  private final Function<String, MessagePattern> selector;
+  private final Map<String, Optional<MessagePattern>> selections = new ConcurrentHashMap<>();
+
+  /**
+   * Create a new {@code PatternExtractor}.
+   *
+   * @param keyProvider the {@link KeyProvider}
+   * @param selector returns the {@link MessagePattern} for an APP-NAME, null if nil, or null for none
+   * @throws IllegalArgumentException if an argument is null, or the message field format has no {@code %s}
+   */
+  public PatternExtractor(KeyProvider keyProvider, Function<String, MessagePattern> selector) {
+    Validate.notNull(keyProvider, "keyProvider");
+    Validate.notNull(selector, "selector");
+    final String[] keyParts = MessageFieldExtractor.splitFieldFormat(keyProvider);
+    this.keyPrefix = keyParts[0];
+    this.keySuffix = keyParts[1];
+    this.selector = selector;
+  }
+
+  /**
+   * Returns the {@link MessagePattern} for an APP-NAME.
+   *
+   * @param appName the APP-NAME, or null if nil
+   * @return the {@link MessagePattern}, or null if there is none
+   */
+  public MessagePattern getPattern(String appName) {
+    // APP-NAME cannot contain spaces, and nil is '-' in the line
+    final String selection = appName == null ? "-" : appName;
+    Optional<MessagePattern> pattern = selections.get(selection);
+    if (pattern == null) {
+      pattern = Optional.ofNullable(selector.apply(appName));
+      if (selections.size() < MessageFieldExtractor.MAX_SELECTIONS) {
+        selections.put(selection, pattern);
+      }
+    }
+    return pattern.orElse(null);
+  }
+
+  @Override
+  public void extract(String appName, String msgId, String message, BiConsumer<String, Object> fields) {
+    final MessagePattern pattern = getPattern(appName);
+    if (pattern != null && message != null) {
+      pattern.match(message, (name, value) -> fields.accept(keyPrefix + name + keySuffix, value));
+    }
+  }
+}
@@ -0,0 +1,750 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import com.github.palindromicity.syslog.Framing;
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.util.ByteScanner;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code CompressedSyslogParser} parses gzip compressed Syslog, such as daily archives, decompressing and parsing
+ * in parallel.
+ * <p>
+ * An {@code InputStream} is decompressed on the calling thread into pooled buffers, each cut at the end of its
+ * last whole message, and the buffers are framed and parsed on the {@code Executor}, up to the parallelism at once.
+ * A {@code Path} to a file of more than one gzip member, as written by concatenating gzip files or by tools that
+ * compress in blocks, also has its members decompressed in parallel, each on the {@code Executor}, when the messages
+ * are delimited by line feeds.  Each member is decompressed and parsed a buffer at a time, and only a few buffers of
+ * the members after the one being delivered are parsed ahead, so memory is bounded whatever the size of the members.
+ * A message split across members is joined back together.
+ * </p>
+ * <p>
+ * Messages are passed to the {@code Consumer} in order, on the calling thread.  A message that fails to parse, or
+ * that the {@code Consumer} fails on, is passed to the error consumer with the exception, with a null message if it
+ * was the consumer that failed or the framing that is invalid.  Only the JDK's {@code java.util.zip} is used.
+ * </p>
+ */
+public class CompressedSyslogParser {
+
+  /**
+   * The default size of the buffers decompressed into.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+  private static final int READ_SIZE = 64 * 1024;
+  private static final int GZIP_HEADER_LENGTH = 10;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  private final SyslogParser parser;
+  private final Framing framing;
+  private final Executor executor;
+  private final int parallelism;
+  private final int bufferSize;
+
+  /**
+   * Create a new {@code CompressedSyslogParser}, parsing on the common {@code ForkJoinPool} with a parallelism of
+   * the number of processors.
+   *
+   * @param parser the {@link SyslogParser}
+   * @param framing the {@link Framing} of the messages
+   */
+  public CompressedSyslogParser(SyslogParser parser, Framing framing) {
+    this(parser, framing, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors(),
+        DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a new {@code CompressedSyslogParser}.
+   *
+   * @param parser the {@link SyslogParser}
+   * @param framing the {@link Framing} of the messages
+   * @param executor the {@code Executor} decompressing members and parsing buffers
+   * @param parallelism the maximum number of buffers or members in progress at once
+   * @param bufferSize the size of the buffers decompressed into
+   * @throws IllegalArgumentException if parser, framing or executor are null, framing is {@link Framing#NONE}, or
+   *     parallelism or bufferSize are less than 1
+   */
+  public CompressedSyslogParser(SyslogParser parser, Framing framing, Executor executor, int parallelism,
+      int bufferSize) {
+    Validate.notNull(parser, "parser");
+    Validate.notNull(framing, "framing");
+    Validate.notNull(executor, "executor");
+    if (framing == Framing.NONE) {
+      throw new IllegalArgumentException("framing must delimit the messages");
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be greater than 0");
+    }
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("bufferSize must be greater than 0");
+    }
+    this.parser = parser;
+    this.framing = framing;
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * Parses a gzip compressed file.
+   *
+   * @param path the file
+   * @param consumer the {@code Consumer} of parsed messages
+   * @param errorConsumer the {@code BiConsumer} for messages and their errors
+   * @return the number of messages passed to the consumer
+   * @throws IOException if the file cannot be read or is not valid gzip
+   * @throws IllegalArgumentException if path, consumer or errorConsumer are null
+   */
+  public long parseCompressed(Path path, Consumer<Map<String, Object>> consumer,
+      BiConsumer<String, Throwable> errorConsumer) throws IOException {
+    Validate.notNull(path, "path");
+    Validate.notNull(consumer, "consumer");
+    Validate.notNull(errorConsumer, "errorConsumer");
+    if (framing == Framing.NON_TRANSPARENT) {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        final Candidates candidates = new Candidates(channel);
+        if (candidates.next() == 0 && candidates.next() > 0) {
+          return parseMembers(channel, new Delivery(consumer, errorConsumer));
+        }
+      }
+    }
+    try (InputStream in = Files.newInputStream(path)) {
+      return parseCompressed(in, consumer, errorConsumer);
+    }
+  }
+
+  /**
+   * Parses a gzip compressed stream, of one or more members.  The stream is not closed.
+   *
+   * @param in the {@code InputStream}
+   * @param consumer the {@code Consumer} of parsed messages
+   * @param errorConsumer the {@code BiConsumer} for messages and their errors
+   * @return the number of messages passed to the consumer
+   * @throws IOException if the stream cannot be read or is not valid gzip
+   * @throws IllegalArgumentException if in, consumer or errorConsumer are null
+   */
+  public long parseCompressed(InputStream in, Consumer<Map<String, Object>> consumer,
+      BiConsumer<String, Throwable> errorConsumer) throws IOException {
+    Validate.notNull(in, "in");
+    Validate.notNull(consumer, "consumer");
+    Validate.notNull(errorConsumer, "errorConsumer");
+    final Delivery delivery = new Delivery(consumer, errorConsumer);
+    final Deque<CompletableFuture<Parsed>> window = new ArrayDeque<>();
+    final Deque<byte[]> pool = new ArrayDeque<>();
+    // the gzip stream is not closed, as that would close the caller's stream
+    final GZIPInputStream gzip = new GZIPInputStream(in, READ_SIZE);
+    byte[] buffer = new byte[bufferSize];
+    int filled = 0;
+    long offset = 0;
+    int read;
+    while ((read = gzip.read(buffer, filled, buffer.length - filled)) >= 0) {
+      filled += read;
+      if (filled < buffer.length) {
+        continue;
+      }
+      int cut = lastFrameEnd(buffer, filled);
+      if (cut == 0) {
+        if (buffer.length < 2 * SyslogFrameDecoder.DEFAULT_MAX_FRAME_LENGTH) {
+          // a message longer than the buffer
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          continue;
+        }
+        cut = filled;
+      }
+      byte[] next = take(pool, window, delivery);
+      if (next.length < filled - cut + bufferSize / 2) {
+        next = new byte[filled - cut + bufferSize];
+      }
+      System.arraycopy(buffer, cut, next, 0, filled - cut);
+      window.addLast(parseAsync(buffer, offset, cut, false));
+      offset += cut;
+      buffer = next;
+      filled -= cut;
+    }
+    window.addLast(parseAsync(buffer, offset, filled, true));
+    while (!window.isEmpty()) {
+      deliver(window.removeFirst(), pool, delivery);
+    }
+    return delivery.messages;
+  }
+
+  /**
+   * Returns a buffer from the pool, delivering the oldest buffer parsed if all are in use.
+   */
+  private byte[] take(Deque<byte[]> pool, Deque<CompletableFuture<Parsed>> window, Delivery delivery) {
+    if (pool.isEmpty() && window.size() >= parallelism) {
+      deliver(window.removeFirst(), pool, delivery);
+    }
+    return pool.isEmpty() ? new byte[bufferSize] : pool.removeFirst();
+  }
+
+  private void deliver(CompletableFuture<Parsed> future, Deque<byte[]> pool, Delivery delivery) {
+    final Parsed parsed = join(future);
+    delivery.deliver(parsed.results);
+    if (parsed.buffer.length == bufferSize) {
+      pool.addLast(parsed.buffer);
+    }
+  }
+
+  private CompletableFuture<Parsed> parseAsync(byte[] buffer, long offset, int length, boolean last) {
+    return CompletableFuture.supplyAsync(() -> {
+      final Parsed parsed = new Parsed(buffer);
+      final SyslogFrameDecoder decoder = new SyslogFrameDecoder(framing);
+      decoder.startAt(offset);
+      decoder.decode(buffer, 0, length, parsed);
+      // a buffer cut in corrupt octet counting ends the range skipped
+      if (last || framing == Framing.OCTET_COUNTING) {
+        decoder.finish(parsed);
+      }
+      return parsed;
+    }, executor);
+  }
+
+  /**
+   * Returns the end of the last whole frame in the buffer, 0 if there is none, or the length if the framing is
+   * invalid and is left for the decoder to report.
+   */
+  private int lastFrameEnd(byte[] buffer, int length) {
+    if (framing == Framing.NON_TRANSPARENT) {
+      for (int i = length - 1; i >= 0; i--) {
+        if (buffer[i] == '\n') {
+          return i + 1;
+        }
+      }
+      return 0;
+    }
+    int end = 0;
+    int position = 0;
+    while (position < length) {
+      if (buffer[position] == '\n' || buffer[position] == '\r') {
+        position++;
+        continue;
+      }
+      long count = 0;
+      int digits = position;
+      while (digits < length && buffer[digits] >= '0' && buffer[digits] <= '9' && count <= Integer.MAX_VALUE) {
+        count = count * 10 + buffer[digits++] - '0';
+      }
+      if (digits == length) {
+        return end;
+      } else if (digits == position || buffer[digits] != ' ' || count > Integer.MAX_VALUE) {
+        return length;
+      }
+      if (digits + 1 + count > length) {
+        return end;
+      }
+      position = digits + 1 + (int) count;
+      end = position;
+    }
+    return end;
+  }
+
+  private static boolean isHeader(byte[] bytes, int offset) {
+    final int xfl = bytes[offset + 8];
+    return (bytes[offset + 1] & 0xFF) == 0x8b && bytes[offset + 2] == 8 && (bytes[offset + 3] & 0xE0) == 0
+        && (xfl == 0 || xfl == 2 || xfl == 4);
+  }
+
+  /**
+   * Decompresses the members a buffer at a time on the {@code Executor}, delivering them in order.  The member being
+   * delivered always goes on, while those after it stop once the buffers parsed ahead reach twice the parallelism.
+   */
+  private long parseMembers(FileChannel channel, Delivery delivery) throws IOException {
+    final Candidates candidates = new Candidates(channel);
+    final Deque<Member> window = new ArrayDeque<>();
+    final int maxAhead = 2 * parallelism;
+    long expected = 0;
+    byte[] tail = new byte[0];
+    long next = candidates.next();
+    try {
+      while (true) {
+        while (window.size() < parallelism && next >= 0) {
+          window.addLast(new Member(channel, next));
+          next = candidates.next();
+        }
+        if (window.isEmpty()) {
+          break;
+        }
+        final Member member = window.peekFirst();
+        if (member.start != expected) {
+          // a header seen in the compressed data of another member
+          window.removeFirst().discard();
+          continue;
+        }
+        schedule(window, maxAhead);
+        member.collect(true);
+        if (member.error != null) {
+          throw member.error;
+        }
+        if (member.head != null && !member.joined) {
+          member.joined = true;
+          if (member.tail == null && member.finished) {
+            // the member has no line feed, and all of it continues the line
+            tail = concat(tail, member.head);
+          } else {
+            final Parsed joined = new Parsed(null);
+            final byte[] line = concat(tail, member.head);
+            new SyslogFrameDecoder(Framing.NON_TRANSPARENT).decode(line, 0, line.length, joined);
+            delivery.deliver(joined.results);
+          }
+        }
+        while (!member.parsed.isEmpty()) {
+          delivery.deliver(member.parsed.removeFirst().results);
+        }
+        if (member.finished) {
+          window.removeFirst();
+          expected = member.end;
+          if (member.tail != null) {
+            tail = member.tail;
+          }
+          while (!window.isEmpty() && window.peekFirst().start < expected) {
+            window.removeFirst().discard();
+          }
+          candidates.skipTo(expected);
+          next = next >= 0 && next < expected ? candidates.next() : next;
+        }
+      }
+    } finally {
+      for (Member member : window) {
+        member.discard();
+      }
+    }
+    final Parsed last = new Parsed(null);
+    SyslogFrameDecoder decoder = new SyslogFrameDecoder(Framing.NON_TRANSPARENT);
+    decoder.decode(tail, 0, tail.length, last);
+    decoder.finish(last);
+    delivery.deliver(last.results);
+    return delivery.messages;
+  }
+
+  /**
+   * Collects the buffers parsed, and starts parsing the next buffer of each member that may go on.
+   */
+  private void schedule(Deque<Member> window, int maxAhead) {
+    int ahead = 0;
+    for (Member member : window) {
+      member.collect(false);
+      ahead += member == window.peekFirst() ? 0 : member.parsed.size();
+    }
+    for (Member member : window) {
+      if (member.step == null && !member.finished && (member == window.peekFirst() || ahead < maxAhead)) {
+        member.step = CompletableFuture.supplyAsync(member::inflate, executor);
+        ahead += member == window.peekFirst() ? 0 : 1;
+      }
+    }
+  }
+
+  private static void readHeader(MemberInput input) throws IOException {
+    final byte[] header = new byte[GZIP_HEADER_LENGTH];
+    for (int i = 0; i < header.length; i++) {
+      header[i] = (byte) input.read();
+    }
+    if (!isHeader(header, 0)) {
+      throw new ZipException("not a gzip member");
+    }
+    final int flags = header[3];
+    if ((flags & FEXTRA) != 0) {
+      input.skip(input.read() | input.read() << 8);
+    }
+    if ((flags & FNAME) != 0) {
+      while (input.read() != 0) {
+        // skip the file name
+      }
+    }
+    if ((flags & FCOMMENT) != 0) {
+      while (input.read() != 0) {
+        // skip the comment
+      }
+    }
+    if ((flags & FHCRC) != 0) {
+      input.skip(2);
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length)
+      throws IOException {
+    buffer.limit(buffer.position() + length);
+    long readPosition = position;
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, readPosition);
+      if (read < 0) {
+        throw new EOFException("unexpected end of gzip file");
+      }
+      readPosition += read;
+    }
+  }
+
+  private static int littleEndianInt(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16
+        | (bytes[offset + 3] & 0xFF) << 24;
+  }
+
+  private static byte[] concat(byte[] first, byte[] second) {
+    final byte[] both = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, both, first.length, second.length);
+    return both;
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Finds the offsets of gzip member headers in the file, in order, reading only as far as the next one.  Compressed
+   * data may look like a header, so the offsets are only candidates, the members are found by following each from
+   * the end of the last.
+   */
+  private static final class Candidates {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+    private long bufferStart;
+    private int bufferLength;
+    private long position;
+
+    Candidates(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    /**
+     * Returns the offset of the next candidate, or -1 if there are no more.
+     */
+    long next() throws IOException {
+      final long size = channel.size();
+      while (position + GZIP_HEADER_LENGTH <= size) {
+        if (position < bufferStart || position + GZIP_HEADER_LENGTH > bufferStart + bufferLength) {
+          buffer.clear();
+          bufferStart = position;
+          readFully(channel, buffer, position, (int) Math.min(buffer.capacity(), size - position));
+          bufferLength = buffer.position();
+        }
+        final byte[] bytes = buffer.array();
+        final int limit = bufferLength - GZIP_HEADER_LENGTH + 1;
+        int index = ByteScanner.indexOf(bytes, (int) (position - bufferStart), limit, (byte) 0x1f);
+        while (index >= 0 && !isHeader(bytes, index)) {
+          index = ByteScanner.indexOf(bytes, index + 1, limit, (byte) 0x1f);
+        }
+        if (index >= 0) {
+          position = bufferStart + index + 1;
+          return bufferStart + index;
+        }
+        position = bufferStart + limit;
+      }
+      return -1;
+    }
+
+    /**
+     * Skips the candidates before the offset.
+     */
+    void skipTo(long offset) {
+      position = Math.max(position, offset);
+    }
+  }
+
+  /**
+   * Positional reads of a member from the file, shared safely between threads.
+   */
+  private static final class MemberInput {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+    private long position;
+
+    MemberInput(FileChannel channel, long position) {
+      this.channel = channel;
+      this.position = position;
+      buffer.flip();
+    }
+
+    int read() throws IOException {
+      if (!buffer.hasRemaining()) {
+        fill();
+      }
+      return buffer.get() & 0xFF;
+    }
+
+    void skip(int count) throws IOException {
+      for (int i = 0; i < count; i++) {
+        read();
+      }
+    }
+
+    void fill(Inflater inflater) throws IOException {
+      if (!buffer.hasRemaining()) {
+        fill();
+      }
+      inflater.setInput(buffer.array(), buffer.position(), buffer.remaining());
+      buffer.position(buffer.limit());
+    }
+
+    /**
+     * Returns the offset in the file after the bytes read.
+     */
+    long end() {
+      return position;
+    }
+
+    private void fill() throws IOException {
+      buffer.clear();
+      final int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("unexpected end of gzip member");
+      }
+      position += read;
+      buffer.flip();
+    }
+  }
+
+  /**
+   * The parsed messages and failures of a buffer or member, in order.
+   */
+  private final class Parsed implements SyslogFrameDecoder.FrameHandler {
+
+    private final byte[] buffer;
+    private final List<Object> results = new ArrayList<>();
+
+    Parsed(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void onFrame(byte[] bytes, int offset, int length) {
+      try {
+        results.add(parser.parseLine(bytes, offset, length));
+      } catch (Throwable throwable) {
+        results.add(new Failure(new String(bytes, offset, length, StandardCharsets.UTF_8), throwable));
+      }
+    }
+
+    @Override
+    public void onError(ParseException exception) {
+      results.add(new Failure(null, exception));
+    }
+  }
+
+  private static final class Failure {
+
+    private final String line;
+    private final Throwable throwable;
+
+    Failure(String line, Throwable throwable) {
+      this.line = line;
+      this.throwable = throwable;
+    }
+  }
+
+  /**
+   * A gzip member, inflated and parsed a buffer at a time on the {@code Executor}.  Its line split at its start is
+   * kept as its head, through the first line feed, and the line split at its end as its tail.
+   */
+  private final class Member {
+
+    private final FileChannel channel;
+    private final long start;
+    private final SyslogFrameDecoder decoder = new SyslogFrameDecoder(Framing.NON_TRANSPARENT);
+    private final ByteArrayOutputStream headBytes = new ByteArrayOutputStream();
+    private final CRC32 crc = new CRC32();
+    private Inflater inflater;
+    private MemberInput input;
+    private byte[] out;
+    private long total;
+
+    /**
+     * The buffers parsed and not yet delivered, and the buffer being parsed, used on the calling thread only.
+     */
+    private final Deque<Parsed> parsed = new ArrayDeque<>();
+    private CompletableFuture<Parsed> step;
+    private boolean joined;
+
+    private boolean finished;
+    private long end;
+    private byte[] head;
+    private byte[] tail;
+    private IOException error;
+
+    Member(FileChannel channel, long start) {
+      this.channel = channel;
+      this.start = start;
+    }
+
+    /**
+     * Inflates and parses the next buffer of the member, or up to its first line feed.
+     */
+    Parsed inflate() {
+      final Parsed buffer = new Parsed(null);
+      try {
+        if (inflater == null) {
+          input = new MemberInput(channel, start);
+          readHeader(input);
+          inflater = new Inflater(true);
+          out = new byte[bufferSize];
+        }
+        long inflatedTotal = 0;
+        while (!inflater.finished() && (inflatedTotal < bufferSize || head == null)) {
+          if (inflater.needsInput()) {
+            input.fill(inflater);
+          } else if (inflater.needsDictionary()) {
+            throw new ZipException("invalid gzip member at " + start);
+          }
+          final int inflated = inflater.inflate(out);
+          crc.update(out, 0, inflated);
+          total += inflated;
+          inflatedTotal += inflated;
+          int from = 0;
+          if (head == null) {
+            while (from < inflated && out[from] != '\n') {
+              from++;
+            }
+            headBytes.write(out, 0, from < inflated ? from + 1 : from);
+            if (from < inflated) {
+              head = headBytes.toByteArray();
+              from++;
+            }
+          }
+          if (from < inflated) {
+            decoder.decode(out, from, inflated - from, buffer);
+          }
+        }
+        if (inflater.finished()) {
+          final ByteBuffer trailer = ByteBuffer.allocate(8);
+          final long deflateEnd = input.end() - inflater.getRemaining();
+          readFully(channel, trailer, deflateEnd, 8);
+          if (littleEndianInt(trailer.array(), 0) != (int) crc.getValue()
+              || littleEndianInt(trailer.array(), 4) != (int) total) {
+            throw new ZipException("corrupt gzip member at " + start);
+          }
+          end = deflateEnd + 8;
+          tail = head == null ? null : decoder.takePending();
+          head = head == null ? headBytes.toByteArray() : head;
+          finish();
+        }
+      } catch (IOException e) {
+        error = e;
+        finish();
+      } catch (DataFormatException e) {
+        error = new ZipException("invalid gzip member at " + start + ": " + e.getMessage());
+        finish();
+      }
+      return buffer;
+    }
+
+    private void finish() {
+      finished = true;
+      if (inflater != null) {
+        inflater.end();
+      }
+    }
+
+    /**
+     * Adds the buffer parsed, if there is one, waiting for it if asked to.
+     */
+    void collect(boolean wait) {
+      if (step != null && (wait || step.isDone())) {
+        parsed.addLast(join(step));
+        step = null;
+      }
+    }
+
+    /**
+     * Waits for the buffer being parsed, and releases the member.
+     */
+    void discard() {
+      if (step != null) {
+        try {
+          step.join();
+        } catch (CompletionException e) {
+          // the member is not used
+        }
+        step = null;
+      }
+      if (!finished) {
+        finish();
+      }
+    }
+  }
+
+  /**
+   * Passes the results to the consumers, on the calling thread.
+   */
+  private static final class Delivery {
+
+    private final Consumer<Map<String, Object>> consumer;
+    private final BiConsumer<String, Throwable> errorConsumer;
+    private long messages;
+
+    Delivery(Consumer<Map<String, Object>> consumer, BiConsumer<String, Throwable> errorConsumer) {
+      this.consumer = consumer;
+      this.errorConsumer = errorConsumer;
+    }
+
+    @SuppressWarnings("unchecked")
+    void deliver(List<Object> results) {
+      for (Object result : results) {
+        if (result instanceof Failure) {
+          errorConsumer.accept(((Failure) result).line, ((Failure) result).throwable);
+          continue;
+        }
+        try {
+          consumer.accept((Map<String, Object>) result);
+          messages++;
+        } catch (Throwable throwable) {
+          errorConsumer.accept(null, throwable);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.stream;
+
+import com.github.palindromicity.syslog.dsl.ParseException;
+
+/**
+ * {@link ParseException} for a range of a stream skipped by a {@link SyslogFrameDecoder} because its framing is
+ * invalid.  Each range skipped is reported once.
+ */
+public class FramingException extends ParseException {
+
+  private final long offset;
+  private final long length;
+
+  /**
+   * Create a new {@code FramingException}.
+   *
+   * @param reason the reason
+   * @param offset the offset in the stream of the first byte skipped
+   * @param length the number of bytes skipped
+   */
+  public FramingException(String reason, long offset, long length) {
+    super(reason + ", skipped " + length + " bytes at " + offset);
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * Returns the offset in the stream of the first byte skipped.
+   *
+   * @return the offset
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * Returns the number of bytes skipped.
+   *
+   * @return the number of bytes
+   */
+  public long getLength() {
+    return length;
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.stream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import com.github.palindromicity.syslog.Framing;
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code IncrementalSyslogParser} parses a stream of bytes pushed in chunks of any size, such as the reads of a
+ * non-blocking channel, passing each message to a {@code Consumer} as soon as it is framed and parsed.
+ * <p>
+ * Messages are framed by a {@link SyslogFrameDecoder}, and parsed in place with
+ * {@link SyslogParser#parseLine(byte[], int, int)}, so only a message split across chunks is copied.  A message that
+ * fails to parse, or that the {@code Consumer} fails on, is passed to the error consumer with the exception, and
+ * parsing carries on.  Framing errors are passed with a null message.
+ * </p>
+ * <pre>
+ *   IncrementalSyslogParser incremental = new IncrementalSyslogParser(parser, Framing.OCTET_COUNTING,
+ *       consumer, errorConsumer);
+ *   while (channel.read(buffer) &gt;= 0) {
+ *     buffer.flip();
+ *     incremental.feed(buffer);
+ *     buffer.clear();
+ *   }
+ *   incremental.finish();
+ * </pre>
+ * <p>
+ * An {@code IncrementalSyslogParser} is not thread safe, each connection should have its own.
+ * </p>
+ */
+public class IncrementalSyslogParser {
+
+  private final SyslogParser parser;
+  private final SyslogFrameDecoder decoder;
+  private final Consumer<Map<String, Object>> messageConsumer;
+  private final BiConsumer<String, Throwable> errorConsumer;
+  private final SyslogFrameDecoder.FrameHandler frameHandler = new SyslogFrameDecoder.FrameHandler() {
+    @Override
+    public void onFrame(byte[] bytes, int offset, int length) {
+      parseFrame(bytes, offset, length);
+    }
+
+    @Override
+    public void onError(ParseException exception) {
+      errorConsumer.accept(null, exception);
+    }
+  };
+
+  /**
+   * Create a new {@code IncrementalSyslogParser} with the {@link SyslogFrameDecoder#DEFAULT_MAX_FRAME_LENGTH}.
+   *
+   * @param parser the {@link SyslogParser}
+   * @param framing the {@link Framing} of the stream
+   * @param messageConsumer the {@code Consumer} of parsed messages
+   * @param errorConsumer the {@code BiConsumer} for messages and their errors
+   */
+  public IncrementalSyslogParser(SyslogParser parser, Framing framing, Consumer<Map<String, Object>> messageConsumer,
+      BiConsumer<String, Throwable> errorConsumer) {
+    this(parser, new SyslogFrameDecoder(framing), messageConsumer, errorConsumer);
+  }
+
+  /**
+   * Create a new {@code IncrementalSyslogParser}.
+   *
+   * @param parser the {@link SyslogParser}
+   * @param decoder the {@link SyslogFrameDecoder} of the stream
+   * @param messageConsumer the {@code Consumer} of parsed messages
+   * @param errorConsumer the {@code BiConsumer} for messages and their errors
+   */
+  public IncrementalSyslogParser(SyslogParser parser, SyslogFrameDecoder decoder,
+      Consumer<Map<String, Object>> messageConsumer, BiConsumer<String, Throwable> errorConsumer) {
+    Validate.notNull(parser, "parser");
+    Validate.notNull(decoder, "decoder");
+    Validate.notNull(messageConsumer, "messageConsumer");
+    Validate.notNull(errorConsumer, "errorConsumer");
+    this.parser = parser;
+    this.decoder = decoder;
+    this.messageConsumer = messageConsumer;
+    this.errorConsumer = errorConsumer;
+  }
+
+  /**
+   * Parses the messages completed by the remaining bytes of the buffer, keeping any partial message for the next
+   * call.  The buffer's position is moved to its limit.
+   *
+   * @param buffer the {@code ByteBuffer}
+   * @return the number of messages framed
+   * @throws IllegalArgumentException if buffer is null
+   */
+  public int feed(ByteBuffer buffer) {
+    return decoder.decode(buffer, frameHandler);
+  }
+
+  /**
+   * Parses the messages completed by a slice of bytes, keeping any partial message for the next call.
+   *
+   * @param bytes the bytes
+   * @param offset the offset of the slice
+   * @param length the length of the slice
+   * @return the number of messages framed
+   * @throws IllegalArgumentException if bytes is null
+   */
+  public int feed(byte[] bytes, int offset, int length) {
+    return decoder.decode(bytes, offset, length, frameHandler);
+  }
+
+  /**
+   * Ends the stream, parsing a final message without a trailing line feed.
+   *
+   * @return the number of messages framed
+   */
+  public int finish() {
+    return decoder.finish(frameHandler);
+  }
+
+  /**
+   * Returns the number of bytes of the stream up to the end of the last message framed.
+   *
+   * @return the number of bytes
+   */
+  public long getPosition() {
+    return decoder.getFramePosition();
+  }
+
+  private void parseFrame(byte[] bytes, int offset, int length) {
+    try {
+      messageConsumer.accept(parser.parseLine(bytes, offset, length));
+    } catch (Throwable throwable) {
+      errorConsumer.accept(new String(bytes, offset, length, StandardCharsets.UTF_8), throwable);
+    }
+  }
+}
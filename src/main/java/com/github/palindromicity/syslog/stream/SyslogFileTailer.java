@@ -0,0 +1,321 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.stream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import com.github.palindromicity.syslog.Framing;
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code SyslogFileTailer} follows a growing Syslog file, parsing the messages appended to it each time it is
+ * polled, and recording in a checkpoint file the offset after the last message delivered, so a restarted tailer
+ * carries on from that message.
+ * <p>
+ * New data is read from a {@code FileChannel} in large batches and framed by an {@link IncrementalSyslogParser}.
+ * When the file is rotated by renaming it and creating a new file, the renamed file is read until a poll finds
+ * nothing more written to it, as its writer goes on writing to it until it reopens its log, and then the new file is
+ * followed from its start.  When the file is truncated it is followed from its start.  Files are told
+ * apart by their file key, so renames are only detected on file systems that have one; truncation is always
+ * detected.  If the file was rotated while no tailer was running, the renamed file is looked for in the same
+ * directory and read from the checkpoint first.
+ * </p>
+ * <p>
+ * The checkpoint is written after each poll that moved the position, to a temporary file that is forced to the
+ * device and then moved over the checkpoint.  Messages are delivered at least once: those delivered after the last
+ * checkpoint are delivered again after a crash.  A {@code SyslogFileTailer} is not thread safe.
+ * </p>
+ */
+public class SyslogFileTailer implements Closeable {
+
+  /**
+   * The default size of each read.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private final SyslogParser parser;
+  private final Framing framing;
+  private final Path path;
+  private final Path checkpoint;
+  private final Consumer<Map<String, Object>> consumer;
+  private final BiConsumer<String, Throwable> errorConsumer;
+  private final ByteBuffer buffer;
+
+  private FileChannel channel;
+  private String fileKey;
+  private long start;
+  private IncrementalSyslogParser incremental;
+  private int delivered;
+  private String checkpointKey;
+  private long checkpointOffset = -1;
+
+  /**
+   * True while reading the rest of a renamed file.
+   */
+  private boolean draining;
+
+  /**
+   * Create a new {@code SyslogFileTailer} with the {@link #DEFAULT_BUFFER_SIZE}.
+   *
+   * @param parser the {@link SyslogParser}
+   * @param framing the {@link Framing} of the file
+   * @param path the file to follow
+   * @param checkpoint the checkpoint file
+   * @param consumer the {@code Consumer} of parsed messages
+   * @param errorConsumer the {@code BiConsumer} for messages and their errors
+   */
+  public SyslogFileTailer(SyslogParser parser, Framing framing, Path path, Path checkpoint,
+      Consumer<Map<String, Object>> consumer, BiConsumer<String, Throwable> errorConsumer) {
+    this(parser, framing, path, checkpoint, consumer, errorConsumer, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a new {@code SyslogFileTailer}.  Nothing is read until it is polled.
+   *
+   * @param parser the {@link SyslogParser}
+   * @param framing the {@link Framing} of the file
+   * @param path the file to follow
+   * @param checkpoint the checkpoint file
+   * @param consumer the {@code Consumer} of parsed messages
+   * @param errorConsumer the {@code BiConsumer} for messages and their errors
+   * @param bufferSize the size of each read
+   * @throws IllegalArgumentException if any argument is null, or bufferSize is less than 1
+   */
+  public SyslogFileTailer(SyslogParser parser, Framing framing, Path path, Path checkpoint,
+      Consumer<Map<String, Object>> consumer, BiConsumer<String, Throwable> errorConsumer, int bufferSize) {
+    Validate.notNull(parser, "parser");
+    Validate.notNull(framing, "framing");
+    Validate.notNull(path, "path");
+    Validate.notNull(checkpoint, "checkpoint");
+    Validate.notNull(consumer, "consumer");
+    Validate.notNull(errorConsumer, "errorConsumer");
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("bufferSize must be greater than 0");
+    }
+    this.parser = parser;
+    this.framing = framing;
+    this.path = path;
+    this.checkpoint = checkpoint;
+    this.consumer = consumer;
+    this.errorConsumer = errorConsumer;
+    this.buffer = ByteBuffer.allocate(bufferSize);
+  }
+
+  /**
+   * Parses the messages appended to the file since the last poll, following any rotation, and writes the
+   * checkpoint.
+   *
+   * @return the number of messages delivered
+   * @throws IOException if the file or checkpoint cannot be read or written
+   */
+  public int poll() throws IOException {
+    delivered = 0;
+    if (channel == null && !resume()) {
+      return delivered;
+    }
+    final long read = readAvailable();
+    final BasicFileAttributes attributes = readAttributes(path);
+    if (attributes == null) {
+      // renamed, and the new file is not created yet
+      writeCheckpoint();
+      return delivered;
+    }
+    final String key = keyOf(attributes);
+    if (fileKey != null && !fileKey.equals(key)) {
+      if (!draining || read > 0) {
+        // rotated: the renamed file is followed until a poll finds it idle
+        draining = true;
+        writeCheckpoint();
+        return delivered;
+      }
+      incremental.finish();
+      channel.close();
+      open(0);
+      readAvailable();
+    } else if (channel.size() < channel.position()) {
+      open(0);
+      readAvailable();
+    }
+    writeCheckpoint();
+    return delivered;
+  }
+
+  /**
+   * Returns the offset in the file after the last message delivered.
+   *
+   * @return the offset
+   */
+  public long getPosition() {
+    return incremental == null ? Math.max(checkpointOffset, 0) : start + incremental.getPosition();
+  }
+
+  /**
+   * Writes the checkpoint and closes the file.
+   *
+   * @throws IOException if the checkpoint cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      try {
+        writeCheckpoint();
+      } finally {
+        channel.close();
+        channel = null;
+      }
+    }
+  }
+
+  /**
+   * Opens the file at the checkpoint, reading any file rotated since from the checkpoint first.  Returns false if
+   * the file does not exist.
+   */
+  private boolean resume() throws IOException {
+    long offset = 0;
+    String key = null;
+    if (Files.exists(checkpoint)) {
+      final String text = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim();
+      final int space = text.indexOf(' ');
+      offset = Long.parseLong(space < 0 ? text : text.substring(0, space));
+      key = space < 0 ? null : text.substring(space + 1);
+    }
+    final BasicFileAttributes attributes = readAttributes(path);
+    if (attributes == null) {
+      return false;
+    }
+    if (key != null && !key.equals(keyOf(attributes))) {
+      final Path rotated = findByKey(key);
+      if (rotated != null) {
+        try (FileChannel rotatedChannel = FileChannel.open(rotated, StandardOpenOption.READ)) {
+          channel = rotatedChannel;
+          fileKey = key;
+          start = offset;
+          rotatedChannel.position(offset);
+          incremental = newIncremental();
+          readAvailable();
+          incremental.finish();
+        }
+      }
+      offset = 0;
+    }
+    open(offset);
+    return true;
+  }
+
+  private void open(long offset) throws IOException {
+    if (channel != null && channel.isOpen()) {
+      channel.close();
+    }
+    channel = FileChannel.open(path, StandardOpenOption.READ);
+    draining = false;
+    final BasicFileAttributes attributes = readAttributes(path);
+    fileKey = attributes == null ? null : keyOf(attributes);
+    start = offset > channel.size() ? 0 : offset;
+    channel.position(start);
+    incremental = newIncremental();
+  }
+
+  private IncrementalSyslogParser newIncremental() {
+    return new IncrementalSyslogParser(parser, framing, (map) -> {
+      consumer.accept(map);
+      delivered++;
+    }, errorConsumer);
+  }
+
+  /**
+   * Reads the file to its end, and returns the number of bytes read.
+   */
+  private long readAvailable() throws IOException {
+    long read = 0;
+    while (true) {
+      buffer.clear();
+      final int count = channel.read(buffer);
+      if (count <= 0) {
+        return read;
+      }
+      read += count;
+      buffer.flip();
+      incremental.feed(buffer);
+    }
+  }
+
+  private void writeCheckpoint() throws IOException {
+    final long offset = getPosition();
+    if (offset == checkpointOffset && Objects.equals(fileKey, checkpointKey)) {
+      return;
+    }
+    final String text = fileKey == null ? Long.toString(offset) : offset + " " + fileKey;
+    final Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+    try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      out.write(ByteBuffer.wrap((text + "\n").getBytes(StandardCharsets.UTF_8)));
+      out.force(true);
+    }
+    try {
+      Files.move(temporary, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING);
+    }
+    checkpointOffset = offset;
+    checkpointKey = fileKey;
+  }
+
+  /**
+   * Returns the file in the same directory as the followed file with the key, or null.
+   */
+  private Path findByKey(String key) throws IOException {
+    final Path directory = path.toAbsolutePath().getParent();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        final BasicFileAttributes attributes = readAttributes(file);
+        if (attributes != null && attributes.isRegularFile() && key.equals(keyOf(attributes))) {
+          return file;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static BasicFileAttributes readAttributes(Path file) throws IOException {
+    try {
+      return Files.readAttributes(file, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  private static String keyOf(BasicFileAttributes attributes) {
+    return attributes.fileKey() == null ? null : attributes.fileKey().toString();
+  }
+}
@@ -0,0 +1,646 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.stream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.github.palindromicity.syslog.Framing;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.util.ByteScanner;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@code SyslogFrameDecoder} splits a stream of bytes, fed in chunks of any size, into the messages of its
+ * {@link Framing}.
+ * <p>
+ * Each byte is scanned once.  Frames within a chunk are passed to the {@link FrameHandler} in place, and only a frame
+ * split across chunks is copied, once, into the decoder's buffer.  With {@link Framing#NONE} each chunk is a whole
+ * message, as a datagram is.  {@link Framing#NON_TRANSPARENT} frames end at a line feed, with any carriage return
+ * before it removed, and empty frames are skipped.  Line feeds and carriage returns between
+ * {@link Framing#OCTET_COUNTING} frames are skipped.
+ * </p>
+ * <p>
+ * A line longer than the maximum is reported to {@link FrameHandler#onError(ParseException)} and skipped.  An
+ * octet count that is not a number, is over the maximum, or is not followed by a {@code '<'}, is taken as corruption
+ * of the stream: the bytes are skipped up to the next {@code "LEN SP <PRI>VERSION SP"}, where framing resumes, and
+ * the range skipped is reported once, as a {@link FramingException}, after the frame found is passed on, so a handler
+ * throwing on the error does not lose that frame.  As the skipped bytes may end in digits, the
+ * frame found is only passed on once the byte after it, which must start a count, be a line feed or carriage return,
+ * or be the end of the stream, confirms its count, trying the longest count first.  A
+ * {@code SyslogFrameDecoder} is not thread safe.
+ * </p>
+ */
+public class SyslogFrameDecoder {
+
+  /**
+   * The default maximum length of a frame.
+   */
+  public static final int DEFAULT_MAX_FRAME_LENGTH = 1024 * 1024;
+
+  private static final int SYNCHRONIZED = -1;
+  private static final int SEARCHING = 0;
+  private static final int CANDIDATE_COUNT = 1;
+  private static final int CANDIDATE_SPACE = 2;
+  private static final int CANDIDATE_PRIORITY = 3;
+  private static final int CANDIDATE_VERSION = 4;
+  private static final int TENTATIVE = 5;
+
+  /**
+   * Receives the frames of a {@link SyslogFrameDecoder}.
+   */
+  public interface FrameHandler {
+
+    /**
+     * Called with each frame.  The bytes are only guaranteed valid for the duration of the call.
+     *
+     * @param bytes the bytes holding the frame
+     * @param offset the offset of the frame
+     * @param length the length of the frame
+     */
+    void onFrame(byte[] bytes, int offset, int length);
+
+    /**
+     * Called when the framing is invalid.  The default implementation throws the exception.
+     *
+     * @param exception the {@link ParseException}
+     */
+    default void onError(ParseException exception) {
+      throw exception;
+    }
+  }
+
+  private final Framing framing;
+  private final int maxFrameLength;
+
+  /**
+   * The part of a frame split across chunks.
+   */
+  private byte[] pending = new byte[256];
+  private int pendingLength;
+
+  /**
+   * The copy of a chunk without an accessible array.
+   */
+  private byte[] chunk = new byte[0];
+
+  /**
+   * The length of the current octet counted frame, or -1 while reading its count.
+   */
+  private int frameLength = -1;
+  private long count;
+  private int countDigits;
+
+  /**
+   * True while skipping the rest of a frame over the maximum length.
+   */
+  private boolean skipping;
+
+  /**
+   * The offset in the stream of the current octet count.
+   */
+  private long countPosition;
+
+  /**
+   * The state of the search for the next frame after corruption, or {@link #SYNCHRONIZED}.
+   */
+  private int resync = SYNCHRONIZED;
+  private String resyncReason;
+  private long resyncPosition;
+  private long candidatePosition;
+  private final byte[] candidateCount = new byte[10];
+  private int candidateDigits;
+  private final byte[] candidateHeader = new byte[9];
+  private int candidateHeaderLength;
+  private int candidateVersionStart;
+
+  /**
+   * The length of the candidate frame, its count, header and body, and the byte after it, read while
+   * {@link #TENTATIVE}.
+   */
+  private int tentativeLength;
+
+  /**
+   * Bytes read ahead of a frame found, to decode again before the rest of the chunk.
+   */
+  private byte[] replay;
+  private long replayPosition;
+  private int resumeIndex;
+
+  private long position;
+  private long framePosition;
+
+  /**
+   * Create a new {@code SyslogFrameDecoder} with the {@link #DEFAULT_MAX_FRAME_LENGTH}.
+   *
+   * @param framing the {@link Framing}
+   */
+  public SyslogFrameDecoder(Framing framing) {
+    this(framing, DEFAULT_MAX_FRAME_LENGTH);
+  }
+
+  /**
+   * Create a new {@code SyslogFrameDecoder}.
+   *
+   * @param framing the {@link Framing}
+   * @param maxFrameLength the maximum length of a frame
+   * @throws IllegalArgumentException if framing is null or maxFrameLength is less than 1
+   */
+  public SyslogFrameDecoder(Framing framing, int maxFrameLength) {
+    Validate.notNull(framing, "framing");
+    if (maxFrameLength < 1) {
+      throw new IllegalArgumentException("maxFrameLength must be greater than 0");
+    }
+    this.framing = framing;
+    this.maxFrameLength = maxFrameLength;
+  }
+
+  /**
+   * Decodes the remaining bytes of the buffer, passing each frame completed to the handler.  The buffer's position
+   * is moved to its limit.
+   *
+   * @param buffer the {@code ByteBuffer}
+   * @param handler the {@link FrameHandler}
+   * @return the number of frames passed to the handler
+   * @throws IllegalArgumentException if buffer or handler are null
+   */
+  public int decode(ByteBuffer buffer, FrameHandler handler) {
+    Validate.notNull(buffer, "buffer");
+    Validate.notNull(handler, "handler");
+    final int length = buffer.remaining();
+    if (buffer.hasArray()) {
+      final int start = buffer.arrayOffset() + buffer.position();
+      buffer.position(buffer.limit());
+      return decode(buffer.array(), start, length, handler);
+    }
+    if (chunk.length < length) {
+      chunk = new byte[Math.max(length, chunk.length * 2)];
+    }
+    buffer.get(chunk, 0, length);
+    return decode(chunk, 0, length, handler);
+  }
+
+  /**
+   * Decodes a slice of bytes, passing each frame completed to the handler.
+   *
+   * @param bytes the bytes
+   * @param offset the offset of the slice
+   * @param length the length of the slice
+   * @param handler the {@link FrameHandler}
+   * @return the number of frames passed to the handler
+   * @throws IllegalArgumentException if bytes or handler are null
+   */
+  public int decode(byte[] bytes, int offset, int length, FrameHandler handler) {
+    Validate.notNull(bytes, "bytes");
+    Validate.notNull(handler, "handler");
+    final long start = position;
+    position += length;
+    switch (framing) {
+      case OCTET_COUNTING:
+        return decodeOctetCounted(bytes, offset, offset + length, start - offset, handler);
+      case NON_TRANSPARENT:
+        return decodeNonTransparent(bytes, offset, offset + length, start - offset, handler);
+      default:
+        framePosition = position;
+        return emit(bytes, offset, length, handler);
+    }
+  }
+
+  /**
+   * Ends the stream, passing an unterminated {@link Framing#NON_TRANSPARENT} frame to the handler.  A partial
+   * {@link Framing#OCTET_COUNTING} frame is reported as an error.  The decoder is then reset.
+   *
+   * @param handler the {@link FrameHandler}
+   * @return the number of frames passed to the handler
+   * @throws IllegalArgumentException if handler is null
+   */
+  public int finish(FrameHandler handler) {
+    Validate.notNull(handler, "handler");
+    int frames = 0;
+    try {
+      if (framing == Framing.NON_TRANSPARENT && !skipping && pendingLength > 0) {
+        framePosition = position;
+        frames = emitLine(pending, 0, pendingLength, handler);
+      } else if (framing == Framing.OCTET_COUNTING) {
+        frames = finishOctetCounted(handler);
+      }
+    } finally {
+      reset();
+    }
+    return frames;
+  }
+
+  /**
+   * Discards any partial frame, and starts decoding at the next byte as the start of a frame.
+   */
+  public void reset() {
+    pendingLength = 0;
+    frameLength = -1;
+    count = 0;
+    countDigits = 0;
+    skipping = false;
+    resync = SYNCHRONIZED;
+    replay = null;
+  }
+
+  /**
+   * Returns a copy of the partial frame, and resets the decoder.
+   *
+   * @return the bytes of the partial frame, empty if there is none or it is being skipped
+   */
+  byte[] takePending() {
+    final byte[] partial = Arrays.copyOf(pending, skipping ? 0 : pendingLength);
+    reset();
+    return partial;
+  }
+
+  /**
+   * Sets the offset in the stream of the next byte decoded, for a decoder starting within a stream.
+   */
+  void startAt(long offset) {
+    position = offset;
+    framePosition = offset;
+  }
+
+  /**
+   * Returns the number of bytes decoded.
+   *
+   * @return the number of bytes
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * Returns the number of bytes decoded up to the end of the last frame completed, including its delimiter.
+   * Decoding from this position again starts at the next frame.
+   *
+   * @return the number of bytes
+   */
+  public long getFramePosition() {
+    return framePosition;
+  }
+
+  private int decodeNonTransparent(byte[] bytes, int start, int end, long base, FrameHandler handler) {
+    int frames = 0;
+    int index = start;
+    while (index < end) {
+      final int lineFeed = ByteScanner.indexOf(bytes, index, end, (byte) '\n');
+      if (lineFeed < 0) {
+        append(bytes, index, end - index, handler);
+        break;
+      }
+      framePosition = base + lineFeed + 1;
+      if (skipping) {
+        skipping = false;
+      } else if (pendingLength > 0) {
+        final boolean appended = append(bytes, index, lineFeed - index, handler);
+        final int length = pendingLength;
+        // a frame that became too long ends here too
+        pendingLength = 0;
+        skipping = false;
+        if (appended) {
+          frames += emitLine(pending, 0, length, handler);
+        }
+      } else if (lineFeed - index > maxFrameLength) {
+        handler.onError(new ParseException("frame longer than " + maxFrameLength));
+      } else {
+        frames += emitLine(bytes, index, lineFeed - index, handler);
+      }
+      index = lineFeed + 1;
+    }
+    return frames;
+  }
+
+  private int decodeOctetCounted(byte[] bytes, int start, int end, long base, FrameHandler handler) {
+    // bytes left to replay by a handler that threw come first
+    int frames = replayPending(handler);
+    frames += scan(bytes, start, end, base, handler);
+    while (replay != null) {
+      final int rest = resumeIndex;
+      frames += replayPending(handler);
+      frames += scan(bytes, rest, end, base, handler);
+    }
+    return frames;
+  }
+
+  private int finishOctetCounted(FrameHandler handler) {
+    int frames = replayPending(handler);
+    while (resync == TENTATIVE) {
+      frames += settle(true, handler);
+      frames += replayPending(handler);
+    }
+    if (resync != SYNCHRONIZED) {
+      // the rest of the stream is skipped
+      final FramingException exception = new FramingException(resyncReason, resyncPosition,
+          position - resyncPosition);
+      reset();
+      handler.onError(exception);
+    } else if (frameLength >= 0 || countDigits > 0) {
+      handler.onError(new ParseException("stream ends within an octet counted frame"));
+    }
+    return frames;
+  }
+
+  /**
+   * Decodes the replay, and any replay it leaves, which is followed by the rest of the bytes it was read from.
+   */
+  private int replayPending(FrameHandler handler) {
+    int frames = 0;
+    while (replay != null) {
+      final byte[] source = replay;
+      final long base = replayPosition;
+      replay = null;
+      frames += scan(source, 0, source.length, base, handler);
+      if (replay != null && resumeIndex < source.length) {
+        final byte[] joined = Arrays.copyOf(replay, replay.length + source.length - resumeIndex);
+        System.arraycopy(source, resumeIndex, joined, replay.length, source.length - resumeIndex);
+        replay = joined;
+      }
+    }
+    return frames;
+  }
+
+  /**
+   * Decodes the bytes, stopping early, at {@link #resumeIndex}, if a frame found leaves bytes to replay.
+   */
+  private int scan(byte[] bytes, int start, int end, long base, FrameHandler handler) {
+    int frames = 0;
+    int index = start;
+    while (index < end) {
+      if (resync == TENTATIVE) {
+        final int available = Math.min(end - index, tentativeLength - pendingLength);
+        System.arraycopy(bytes, index, pending, pendingLength, available);
+        pendingLength += available;
+        index += available;
+        if (pendingLength == tentativeLength) {
+          frames += settle(false, handler);
+          if (replay != null) {
+            resumeIndex = index;
+            return frames;
+          }
+        }
+        continue;
+      }
+      if (resync != SYNCHRONIZED) {
+        index = resynchronize(bytes, index, end, base, handler);
+        continue;
+      }
+      if (frameLength < 0) {
+        final byte octet = bytes[index];
+        if (octet >= '0' && octet <= '9' && (countDigits > 0 || octet != '0')) {
+          if (countDigits == 0) {
+            countPosition = base + index;
+          }
+          count = count * 10 + (octet - '0');
+          countDigits++;
+          if (count > maxFrameLength) {
+            corrupt("octet count larger than " + maxFrameLength);
+            continue;
+          }
+        } else if (octet == ' ' && countDigits > 0) {
+          frameLength = (int) count;
+          count = 0;
+          countDigits = 0;
+        } else if ((octet == '\n' || octet == '\r') && countDigits == 0) {
+          framePosition = base + index + 1;
+        } else {
+          if (countDigits == 0) {
+            countPosition = base + index;
+          }
+          // the byte is searched again, as it may start the next frame
+          corrupt("invalid octet count");
+          continue;
+        }
+        index++;
+        continue;
+      }
+      if (pendingLength == 0 && bytes[index] != '<') {
+        corrupt("octet counted frame does not start with '<'");
+        continue;
+      }
+      final int needed = frameLength - pendingLength;
+      final int available = Math.min(end - index, needed);
+      if (pendingLength == 0 && available == needed) {
+        // the whole frame is in this chunk, and is passed in place
+        frameLength = -1;
+        index += needed;
+        framePosition = base + index;
+        frames += emit(bytes, index - needed, needed, handler);
+        continue;
+      }
+      append(bytes, index, available, handler);
+      index += available;
+      if (available == needed) {
+        final int length = pendingLength;
+        pendingLength = 0;
+        frameLength = -1;
+        framePosition = base + index;
+        frames += emit(pending, 0, length, handler);
+      }
+    }
+    return frames;
+  }
+
+  /**
+   * Starts the search for the next frame, skipping from the current octet count.
+   */
+  private void corrupt(String reason) {
+    resync = SEARCHING;
+    resyncReason = reason;
+    resyncPosition = countPosition;
+    frameLength = -1;
+    count = 0;
+    countDigits = 0;
+    pendingLength = 0;
+  }
+
+  /**
+   * Searches for the next {@code "LEN SP <PRI>VERSION SP"}, which may be split across chunks, and returns the index
+   * after it, or the end.  Once found, the candidate frame is read ahead, in {@link #TENTATIVE}.
+   */
+  private int resynchronize(byte[] bytes, int start, int end, long base, FrameHandler handler) {
+    int index = start;
+    while (index < end) {
+      if (resync == SEARCHING) {
+        // most bytes cannot start a count
+        while (index < end && (bytes[index] < '1' || bytes[index] > '9')) {
+          index++;
+        }
+        if (index == end) {
+          break;
+        }
+      }
+      final byte octet = bytes[index];
+      final boolean digit = octet >= '0' && octet <= '9';
+      if (resync == CANDIDATE_COUNT && digit) {
+        if (candidateDigits == candidateCount.length) {
+          // only the last digits can be a count
+          System.arraycopy(candidateCount, 1, candidateCount, 0, candidateDigits - 1);
+          candidateDigits--;
+          candidatePosition++;
+        }
+        candidateCount[candidateDigits++] = octet;
+      } else if (resync == CANDIDATE_COUNT && octet == ' ') {
+        resync = CANDIDATE_SPACE;
+      } else if (resync == CANDIDATE_SPACE && octet == '<') {
+        candidateHeader[0] = octet;
+        candidateHeaderLength = 1;
+        resync = CANDIDATE_PRIORITY;
+      } else if (resync == CANDIDATE_PRIORITY && digit && candidateHeaderLength < 4) {
+        candidateHeader[candidateHeaderLength++] = octet;
+      } else if (resync == CANDIDATE_PRIORITY && octet == '>' && candidateHeaderLength > 1) {
+        candidateHeader[candidateHeaderLength++] = octet;
+        candidateVersionStart = candidateHeaderLength;
+        resync = CANDIDATE_VERSION;
+      } else if (resync == CANDIDATE_VERSION && digit && candidateHeaderLength - candidateVersionStart < 3
+          && (candidateHeaderLength > candidateVersionStart || octet != '0')) {
+        candidateHeader[candidateHeaderLength++] = octet;
+      } else if (resync == CANDIDATE_VERSION && octet == ' ' && candidateHeaderLength > candidateVersionStart
+          && longestCount(candidateHeaderLength + 1) > 0) {
+        candidateHeader[candidateHeaderLength++] = octet;
+        readAhead();
+        return index + 1;
+      } else if (octet >= '1' && octet <= '9') {
+        // the byte starts a new candidate
+        resync = CANDIDATE_COUNT;
+        candidatePosition = base + index;
+        candidateCount[0] = octet;
+        candidateDigits = 1;
+      } else {
+        resync = SEARCHING;
+      }
+      index++;
+    }
+    return index;
+  }
+
+  /**
+   * Returns the count of the last digits of the candidate, or -1 if it cannot count a frame with the header.
+   */
+  private long suffixCount(int digits, int headerLength) {
+    if (candidateCount[candidateDigits - digits] == '0') {
+      return -1;
+    }
+    long value = 0;
+    for (int i = candidateDigits - digits; i < candidateDigits; i++) {
+      value = value * 10 + (candidateCount[i] - '0');
+    }
+    return value >= headerLength && value <= maxFrameLength ? value : -1;
+  }
+
+  /**
+   * Returns the longest count of the last digits of the candidate, or -1 if none can count a frame with the header.
+   */
+  private long longestCount(int headerLength) {
+    long longest = -1;
+    for (int digits = candidateDigits; digits > 0 && longest < 0; digits--) {
+      longest = suffixCount(digits, headerLength);
+    }
+    return longest;
+  }
+
+  /**
+   * Starts reading the candidate frame, of its longest count, and the byte after it, into the pending buffer.
+   */
+  private void readAhead() {
+    tentativeLength = candidateDigits + 1 + (int) longestCount(candidateHeaderLength) + 1;
+    if (tentativeLength > pending.length) {
+      pending = Arrays.copyOf(pending, Math.max(tentativeLength, pending.length * 2));
+    }
+    System.arraycopy(candidateCount, 0, pending, 0, candidateDigits);
+    pending[candidateDigits] = ' ';
+    System.arraycopy(candidateHeader, 0, pending, candidateDigits + 1, candidateHeaderLength);
+    pendingLength = candidateDigits + 1 + candidateHeaderLength;
+    resync = TENTATIVE;
+  }
+
+  /**
+   * Passes on the candidate frame of the longest count confirmed by the byte after it, or goes on searching after
+   * its count if none is, and leaves the bytes read ahead to replay.
+   */
+  private int settle(boolean atEnd, FrameHandler handler) {
+    final int bodyStart = candidateDigits + 1;
+    for (int digits = candidateDigits; digits > 0; digits--) {
+      final long value = suffixCount(digits, candidateHeaderLength);
+      final int next = bodyStart + (int) value;
+      if (value < 0 || next > pendingLength) {
+        continue;
+      }
+      if (next == pendingLength ? atEnd : isFrameStart(pending[next])) {
+        final long frameStart = candidatePosition + candidateDigits - digits;
+        resync = SYNCHRONIZED;
+        framePosition = candidatePosition + next;
+        replayFrom(next);
+        // the recovered frame is emitted first, so a handler throwing on the error does not lose it
+        final int emitted = emit(pending, bodyStart, (int) value, handler);
+        handler.onError(new FramingException(resyncReason, resyncPosition, frameStart - resyncPosition));
+        return emitted;
+      }
+    }
+    resync = SEARCHING;
+    replayFrom(candidateDigits);
+    return 0;
+  }
+
+  private static boolean isFrameStart(byte octet) {
+    return octet >= '1' && octet <= '9' || octet == '\n' || octet == '\r';
+  }
+
+  /**
+   * Leaves the pending bytes from the index to replay, and empties the pending buffer, whose bytes stay readable.
+   */
+  private void replayFrom(int index) {
+    replay = index < pendingLength ? Arrays.copyOfRange(pending, index, pendingLength) : null;
+    replayPosition = candidatePosition + index;
+    pendingLength = 0;
+  }
+
+  /**
+   * Appends to the pending frame, and returns false if the frame is too long and is being skipped.
+   */
+  private boolean append(byte[] bytes, int offset, int length, FrameHandler handler) {
+    if (skipping) {
+      return false;
+    }
+    if (pendingLength + length > maxFrameLength) {
+      skipping = true;
+      pendingLength = 0;
+      handler.onError(new ParseException("frame longer than " + maxFrameLength));
+      return false;
+    }
+    if (pendingLength + length > pending.length) {
+      pending = Arrays.copyOf(pending, Math.max(pendingLength + length, pending.length * 2));
+    }
+    System.arraycopy(bytes, offset, pending, pendingLength, length);
+    pendingLength += length;
+    return true;
+  }
+
+  private static int emitLine(byte[] bytes, int offset, int length, FrameHandler handler) {
+    final int lineLength = length > 0 && bytes[offset + length - 1] == '\r' ? length - 1 : length;
+    return emit(bytes, offset, lineLength, handler);
+  }
+
+  private static int emit(byte[] bytes, int offset, int length, FrameHandler handler) {
+    if (length == 0) {
+      return 0;
+    }
+    handler.onFrame(bytes, offset, length);
+    return 1;
+  }
+}
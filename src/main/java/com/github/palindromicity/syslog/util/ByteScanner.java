@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@code ByteScanner} finds the ASCII delimiters of syslog lines in UTF-8 bytes eight bytes at a time.
+ * <p>
+ * Each {@code long} read is tested for a delimiter with SWAR (SIMD within a register) arithmetic, without a branch
+ * per byte, and the position of the first match in it is its number of trailing zeros.  No byte of a multi-byte UTF-8
+ * character is ASCII, so a delimiter found is never within a character.  Ranges shorter than a {@code long} are
+ * scanned a byte at a time.
+ * </p>
+ */
+public final class ByteScanner {
+
+  private static final int WORD = 8;
+  private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+  private static final long ONES = 0x0101010101010101L;
+
+  private static final long SPACES = broadcast((byte) ' ');
+  private static final long OPEN_BRACKETS = broadcast((byte) '[');
+  private static final long CLOSE_BRACKETS = broadcast((byte) ']');
+  private static final long QUOTES = broadcast((byte) '"');
+  private static final long BACKSLASHES = broadcast((byte) '\\');
+  private static final long EQUALS = broadcast((byte) '=');
+
+  private ByteScanner() {
+  }
+
+  /**
+   * Returns the index of the first byte of the value in the range.
+   *
+   * @param bytes the bytes
+   * @param from the index to start at
+   * @param to the index to end before
+   * @param value the value
+   * @return the index, or -1 if the range does not hold the value
+   * @throws IllegalArgumentException if bytes is null
+   */
+  public static int indexOf(byte[] bytes, int from, int to, byte value) {
+    Validate.notNull(bytes, "bytes");
+    int index = from;
+    if (to - index >= WORD) {
+      final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+      final long pattern = broadcast(value);
+      for (; index <= to - WORD; index += WORD) {
+        final long found = matches(buffer.getLong(index), pattern);
+        if (found != 0) {
+          return index + firstMatch(found);
+        }
+      }
+    }
+    for (; index < to; index++) {
+      if (bytes[index] == value) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of the first byte of either value in the range.
+   *
+   * @param bytes the bytes
+   * @param from the index to start at
+   * @param to the index to end before
+   * @param first the first value
+   * @param second the second value
+   * @return the index, or -1 if the range holds neither value
+   * @throws IllegalArgumentException if bytes is null
+   */
+  public static int indexOfAny(byte[] bytes, int from, int to, byte first, byte second) {
+    Validate.notNull(bytes, "bytes");
+    int index = from;
+    if (to - index >= WORD) {
+      final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+      final long firstPattern = broadcast(first);
+      final long secondPattern = broadcast(second);
+      for (; index <= to - WORD; index += WORD) {
+        final long word = buffer.getLong(index);
+        final long found = matches(word, firstPattern) | matches(word, secondPattern);
+        if (found != 0) {
+          return index + firstMatch(found);
+        }
+      }
+    }
+    for (; index < to; index++) {
+      if (bytes[index] == first || bytes[index] == second) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the STRUCTURED-DATA and header delimiters, {@code SP}, {@code '['}, {@code ']'}, {@code '"'},
+   * {@code '\\'} and {@code '='}, in the range in bulk.  Scanning stops once the positions are full, and is continued
+   * from after the last position found.
+   *
+   * @param bytes the bytes
+   * @param from the index to start at
+   * @param to the index to end before
+   * @param positions the array the indexes of the delimiters are stored in, in order
+   * @return the number of positions stored
+   * @throws IllegalArgumentException if bytes or positions are null
+   */
+  public static int delimiters(byte[] bytes, int from, int to, int[] positions) {
+    Validate.notNull(bytes, "bytes");
+    Validate.notNull(positions, "positions");
+    int count = 0;
+    int index = from;
+    if (to - index >= WORD) {
+      final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+      for (; index <= to - WORD && count < positions.length; index += WORD) {
+        final long word = buffer.getLong(index);
+        long found = matches(word, SPACES) | matches(word, OPEN_BRACKETS) | matches(word, CLOSE_BRACKETS)
+            | matches(word, QUOTES) | matches(word, BACKSLASHES) | matches(word, EQUALS);
+        while (found != 0 && count < positions.length) {
+          positions[count++] = index + firstMatch(found);
+          // clear the lowest match
+          found &= found - 1;
+        }
+      }
+    }
+    for (; index < to && count < positions.length; index++) {
+      if (isDelimiter(bytes[index])) {
+        positions[count++] = index;
+      }
+    }
+    return count;
+  }
+
+  private static boolean isDelimiter(byte value) {
+    return value == ' ' || value == '[' || value == ']' || value == '"' || value == '\\' || value == '=';
+  }
+
+  private static long broadcast(byte value) {
+    return (value & 0xFFL) * ONES;
+  }
+
+  /**
+   * Returns the word with the high bit set in exactly the bytes equal to the pattern's, and no other bits.  Adding
+   * the low seven bits of each byte to 0x7F carries into its high bit unless they are all zero, and never into the
+   * next byte.
+   */
+  private static long matches(long word, long pattern) {
+    final long bits = word ^ pattern;
+    return ~(((bits & LOW_BITS) + LOW_BITS) | bits | LOW_BITS);
+  }
+
+  /**
+   * Returns the offset of the first byte matched, of a little-endian word.
+   */
+  private static int firstMatch(long found) {
+    return Long.numberOfTrailingZeros(found) >>> 3;
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.util;
+
+/**
+ * {@code LineBreaks} removes the carriage returns and line feeds the RFC 5424 lexer skips from the text of a rule,
+ * so values taken from the input by offset match the tokens they were parsed from.
+ */
+public final class LineBreaks {
+
+  private LineBreaks() {
+  }
+
+  /**
+   * Returns the text between the offsets, without carriage returns or line feeds.
+   *
+   * @param text the text
+   * @param start the start offset
+   * @param end the end offset, exclusive
+   * @return the text between the offsets, the substring itself if it has no line breaks
+   */
+  public static String remove(String text, int start, int end) {
+    int index = start;
+    while (index < end && !isLineBreak(text.charAt(index))) {
+      index++;
+    }
+    if (index == end) {
+      return text.substring(start, end);
+    }
+    final StringBuilder builder = new StringBuilder(end - start);
+    builder.append(text, start, index);
+    for (; index < end; index++) {
+      final char ch = text.charAt(index);
+      if (!isLineBreak(ch)) {
+        builder.append(ch);
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Returns true if the text between the offsets is only carriage returns and line feeds, or empty.
+   *
+   * @param text the text
+   * @param start the start offset
+   * @param end the end offset, exclusive
+   * @return true if nothing remains once the line breaks are removed
+   */
+  public static boolean isBlank(String text, int start, int end) {
+    for (int index = start; index < end; index++) {
+      if (!isLineBreak(text.charAt(index))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isLineBreak(char ch) {
+    return ch == '\n' || ch == '\r';
+  }
+}
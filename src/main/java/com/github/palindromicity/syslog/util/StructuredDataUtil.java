@@ -1,43 +1,95 @@
 package com.github.palindromicity.syslog.util;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
 
 import com.github.palindromicity.syslog.KeyProvider;
+import com.github.palindromicity.syslog.dsl.SyslogMap;
 
 /**
  * This utility class takes a 'flattened' syslog map and un-flattens it.
+ * <p>
+ * Maps parsed by this library are un-flattened from the SD-ID and PARAM-NAME recorded with each key while parsing.
+ * Other maps are split on the prefix and separator of
+ * {@link KeyProvider#getStructuredElementIdParamNameFormat()}, at the last separator as the
+ * {@link KeyProvider#getStructuredElementIdParamNamePattern()} does, in a single pass over the keys.
+ * </p>
  */
 public class StructuredDataUtil {
 
-  @SuppressWarnings("unchecked")
+  private static final String PLACEHOLDER = "%s";
+
   public static Map<String, Object> unFlattenStructuredData(Map<String, Object> flattenedMap,
       KeyProvider keyProvider) {
     Validate.notNull(keyProvider, "keyProvider");
     Validate.notNull(flattenedMap, "flattenedMap");
-    boolean hasStructuredData = false;
-    final Map<String, Object> returnMap = new HashMap<>();
-    for (String key : flattenedMap.keySet()) {
-      if (key.startsWith(keyProvider.getStructuredBase())) {
-        hasStructuredData = true;
-        break;
-      }
+    if (flattenedMap instanceof SyslogMap) {
+      return ((SyslogMap) flattenedMap).getStructuredData();
     }
 
-    if (!hasStructuredData) {
-      return returnMap;
+    final String[] parts = splitParamNameFormat(keyProvider.getStructuredElementIdParamNameFormat());
+    if (parts == null) {
+      return unFlattenWithPattern(flattenedMap, keyProvider);
     }
+    final String prefix = parts[0];
+    final String separator = parts[1];
+    final String suffix = parts[2];
+    final int minLength = prefix.length() + separator.length() + suffix.length();
+
+    final Map<String, Object> returnMap = new LinkedHashMap<>();
+    flattenedMap.forEach((key, value) -> {
+      if (key.length() < minLength || !key.startsWith(prefix) || !key.endsWith(suffix)) {
+        return;
+      }
+      int end = key.length() - suffix.length();
+      int split = key.lastIndexOf(separator, end - separator.length());
+      if (split < prefix.length()) {
+        return;
+      }
+      put(returnMap, key.substring(prefix.length(), split), key.substring(split + separator.length(), end), value);
+    });
+    return returnMap;
+  }
+
+  /**
+   * Splits a {@link KeyProvider#getStructuredElementIdParamNameFormat()} of the form
+   * {@code prefix%sseparator%ssuffix} into its parts, so keys can be built and split without formatting or regex.
+   *
+   * @param format the format
+   * @return the prefix, separator and suffix, or null if the format is not of that form or the separator is empty
+   */
+  public static String[] splitParamNameFormat(String format) {
+    Validate.notNull(format, "format");
+    final int idIndex = format.indexOf('%');
+    final int nameIndex = idIndex < 0 ? -1 : format.indexOf('%', idIndex + PLACEHOLDER.length());
+    final String separator = nameIndex < 0 ? "" : format.substring(idIndex + PLACEHOLDER.length(), nameIndex);
+    if (separator.isEmpty() || !format.startsWith(PLACEHOLDER, idIndex) || !format.startsWith(PLACEHOLDER, nameIndex)
+        || format.indexOf('%', nameIndex + 1) >= 0) {
+      return null;
+    }
+    return new String[] {format.substring(0, idIndex), separator, format.substring(nameIndex + PLACEHOLDER.length())};
+  }
+
+  private static Map<String, Object> unFlattenWithPattern(Map<String, Object> flattenedMap,
+      KeyProvider keyProvider) {
+    final Map<String, Object> returnMap = new LinkedHashMap<>();
     flattenedMap.forEach((key, value) -> {
       Matcher matcher = keyProvider.getStructuredElementIdParamNamePattern().matcher(key);
       if (matcher.matches()) {
-        String id = matcher.group(1);
-        String name = matcher.group(2);
-        returnMap.putIfAbsent(id, new HashMap<>());
-        Map<String, Object> idMap = (Map<String, Object>) returnMap.get(id);
-        idMap.put(name, value);
+        put(returnMap, matcher.group(1), matcher.group(2), value);
       }
     });
     return returnMap;
   }
+
+  @SuppressWarnings("unchecked")
+  private static void put(Map<String, Object> returnMap, String id, String name, Object value) {
+    Map<String, Object> idMap = (Map<String, Object>) returnMap.get(id);
+    if (idMap == null) {
+      idMap = new LinkedHashMap<>();
+      returnMap.put(id, idMap);
+    }
+    idMap.put(name, value);
+  }
 }
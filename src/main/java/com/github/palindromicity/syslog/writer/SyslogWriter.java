@@ -0,0 +1,400 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.github.palindromicity.syslog.DefaultKeyProvider;
+import com.github.palindromicity.syslog.Framing;
+import com.github.palindromicity.syslog.KeyProvider;
+import com.github.palindromicity.syslog.SyslogEventHandler;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.util.StructuredDataUtil;
+import com.github.palindromicity.syslog.util.Validate;
+
+/**
+ * {@link SyslogEventHandler} that writes each message back out as an RFC 5424 line, encoded as UTF-8.
+ * <p>
+ * Passed to {@link com.github.palindromicity.syslog.SyslogParser#parseLine(String, SyslogEventHandler)} it
+ * reproduces the line from the parse events, and {@link #write(Map)} writes a {@code Map} in the
+ * {@link KeyProvider} layout, with either {@link com.github.palindromicity.syslog.StructuredDataPolicy}.
+ * Missing, null and empty header values are written as nil ('-').
+ * </p>
+ * <p>
+ * PARAM-VALUEs are taken to be escaped as they appear in a line, which is how the parser returns them, so parsed
+ * values are written unchanged.  Any '"' or ']' not already escaped, and a trailing '\', is escaped with a '\'.
+ * </p>
+ * <p>
+ * Each message is encoded into a reused buffer, and copied to the {@code OutputStream} or {@code ByteBuffer}
+ * set by {@code writeTo} once it is complete, preceded or followed by its {@link Framing}.  A
+ * {@code SyslogWriter} is not thread safe.
+ * </p>
+ * <pre>
+ *   SyslogWriter writer = new SyslogWriter(keyProvider, Framing.OCTET_COUNTING);
+ *   writer.writeTo(out).write(map);
+ * </pre>
+ */
+public class SyslogWriter implements SyslogEventHandler {
+
+  private static final byte SP = ' ';
+  private static final byte NIL = '-';
+
+  private final KeyProvider keyProvider;
+  private final Framing framing;
+
+  private byte[] buffer = new byte[512];
+  private int length;
+  private boolean wroteStructuredData;
+  private final byte[] octetCount = new byte[10];
+  private OutputStream outputStream;
+  private ByteBuffer byteBuffer;
+
+  /**
+   * Create a new {@code SyslogWriter} with the {@link DefaultKeyProvider}, writing each message with no framing.
+   */
+  public SyslogWriter() {
+    this(new DefaultKeyProvider(), Framing.NONE);
+  }
+
+  /**
+   * Create a new {@code SyslogWriter}.
+   *
+   * @param keyProvider {@link KeyProvider} for the names read by {@link #write(Map)}
+   * @param framing {@link Framing} of each message, defaults to {@link Framing#NONE} if null
+   */
+  public SyslogWriter(KeyProvider keyProvider, Framing framing) {
+    Validate.notNull(keyProvider, "keyProvider");
+    this.keyProvider = keyProvider;
+    this.framing = framing == null ? Framing.NONE : framing;
+  }
+
+  /**
+   * Sets the {@code OutputStream} each message is written to.  It is not flushed.
+   *
+   * @param out the {@code OutputStream}
+   * @return this {@code SyslogWriter}
+   */
+  public SyslogWriter writeTo(OutputStream out) {
+    Validate.notNull(out, "out");
+    this.outputStream = out;
+    this.byteBuffer = null;
+    return this;
+  }
+
+  /**
+   * Sets the {@code ByteBuffer} each message is written to.  If a message does not fit in the remaining space a
+   * {@code BufferOverflowException} is thrown and the buffer position is left unchanged.
+   *
+   * @param out the {@code ByteBuffer}
+   * @return this {@code SyslogWriter}
+   */
+  public SyslogWriter writeTo(ByteBuffer out) {
+    Validate.notNull(out, "out");
+    this.byteBuffer = out;
+    this.outputStream = null;
+    return this;
+  }
+
+  /**
+   * Writes a {@code Map} in the {@link KeyProvider} layout, such as one returned by
+   * {@link com.github.palindromicity.syslog.SyslogParser#parseLine(String)}.
+   * <p>
+   * The PRI is taken from the facility and severity if it is missing.  Structured data is taken from the
+   * {@link KeyProvider#getStructuredBase()} {@code Map} if there is one, otherwise it is un-flattened as
+   * {@link StructuredDataUtil#unFlattenStructuredData} does.  Elements and params are written in the order of
+   * their maps.
+   * </p>
+   *
+   * @param map the {@code Map}
+   * @throws IllegalArgumentException if map is null, or a PRI, facility, severity or VERSION is not a number
+   */
+  @SuppressWarnings("unchecked")
+  public void write(Map<String, Object> map) {
+    Validate.notNull(map, "map");
+    onStart();
+    Object priority = map.get(keyProvider.getHeaderPriority());
+    if (priority != null) {
+      onPriority(number(priority, "priority"));
+    } else {
+      Object facility = map.get(keyProvider.getHeaderFacility());
+      Object severity = map.get(keyProvider.getHeaderSeverity());
+      if (facility != null && severity != null) {
+        onPriority(number(facility, "facility") * 8 + number(severity, "severity"));
+      }
+    }
+    Object version = map.get(keyProvider.getHeaderVersion());
+    if (version != null) {
+      onVersion(number(version, "version"));
+    }
+    onTimestamp(header(map.get(keyProvider.getHeaderTimeStamp())));
+    onHostName(header(map.get(keyProvider.getHeaderHostName())));
+    onAppName(header(map.get(keyProvider.getHeaderAppName())));
+    onProcId(header(map.get(keyProvider.getHeaderProcessId())));
+    onMsgId(header(map.get(keyProvider.getHeaderMessageId())));
+
+    Object structuredData = map.get(keyProvider.getStructuredBase());
+    if (!(structuredData instanceof Map)) {
+      structuredData = StructuredDataUtil.unFlattenStructuredData(map, keyProvider);
+    }
+    for (Map.Entry<String, Object> element : ((Map<String, Object>) structuredData).entrySet()) {
+      onSdElementStart(element.getKey());
+      if (element.getValue() instanceof Map) {
+        for (Map.Entry<String, Object> param : ((Map<String, Object>) element.getValue()).entrySet()) {
+          onSdParam(param.getKey(), param.getValue() == null ? "" : param.getValue().toString());
+        }
+      }
+      onSdElementEnd();
+    }
+
+    Object message = map.get(keyProvider.getMessage());
+    if (message != null) {
+      onMessage(message.toString());
+    }
+    onEnd();
+  }
+
+  @Override
+  public void onStart() {
+    length = 0;
+    wroteStructuredData = false;
+  }
+
+  @Override
+  public void onPriority(int priority) {
+    append((byte) '<');
+    appendInt(priority);
+    append((byte) '>');
+  }
+
+  @Override
+  public void onVersion(int version) {
+    appendInt(version);
+  }
+
+  @Override
+  public void onTimestamp(CharSequence timestamp) {
+    header(timestamp);
+  }
+
+  @Override
+  public void onHostName(CharSequence hostName) {
+    header(hostName);
+  }
+
+  @Override
+  public void onAppName(CharSequence appName) {
+    header(appName);
+  }
+
+  @Override
+  public void onProcId(CharSequence procId) {
+    header(procId);
+  }
+
+  @Override
+  public void onMsgId(CharSequence msgId) {
+    header(msgId);
+  }
+
+  @Override
+  public void onSdElementStart(CharSequence id) {
+    if (!wroteStructuredData) {
+      append(SP);
+      wroteStructuredData = true;
+    }
+    append((byte) '[');
+    appendUtf8(id, 0, id.length());
+  }
+
+  @Override
+  public void onSdParam(CharSequence name, CharSequence value) {
+    append(SP);
+    appendUtf8(name, 0, name.length());
+    append((byte) '=');
+    append((byte) '"');
+    final int valueLength = value.length();
+    int start = 0;
+    for (int i = 0; i < valueLength; i++) {
+      char ch = value.charAt(i);
+      if (ch == '\\' && i + 1 < valueLength) {
+        // an escape, or a backslash taken literally, either way it is kept
+        i++;
+      } else if (ch == '\\' || ch == '"' || ch == ']') {
+        appendUtf8(value, start, i);
+        append((byte) '\\');
+        start = i;
+      }
+    }
+    appendUtf8(value, start, valueLength);
+    append((byte) '"');
+  }
+
+  @Override
+  public void onSdElementEnd() {
+    append((byte) ']');
+  }
+
+  @Override
+  public void onMessage(CharSequence message) {
+    nilStructuredData();
+    append(SP);
+    appendUtf8(message, 0, message.length());
+  }
+
+  @Override
+  public void onEnd() {
+    nilStructuredData();
+    if (framing == Framing.NON_TRANSPARENT) {
+      append((byte) '\n');
+    }
+    flush();
+  }
+
+  @Override
+  public void onError(ParseException exception) {
+    length = 0;
+    throw exception;
+  }
+
+  private void nilStructuredData() {
+    if (!wroteStructuredData) {
+      append(SP);
+      append(NIL);
+      wroteStructuredData = true;
+    }
+  }
+
+  private void header(CharSequence value) {
+    append(SP);
+    if (value == null || value.length() == 0) {
+      append(NIL);
+    } else {
+      appendUtf8(value, 0, value.length());
+    }
+  }
+
+  private static CharSequence header(Object value) {
+    return value == null ? null : value.toString();
+  }
+
+  private static int number(Object value, String name) {
+    if (value instanceof Number) {
+      return ((Number) value).intValue();
+    }
+    try {
+      return Integer.parseInt(value.toString());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(String.format("%s is not a number: %s", name, value));
+    }
+  }
+
+  private void flush() {
+    int countLength = 0;
+    if (framing == Framing.OCTET_COUNTING) {
+      for (int count = length; count > 0 || countLength == 0; count /= 10) {
+        octetCount[octetCount.length - ++countLength] = (byte) ('0' + count % 10);
+      }
+    }
+    if (outputStream != null) {
+      try {
+        if (countLength > 0) {
+          outputStream.write(octetCount, octetCount.length - countLength, countLength);
+          outputStream.write(SP);
+        }
+        outputStream.write(buffer, 0, length);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    } else if (byteBuffer != null) {
+      if (byteBuffer.remaining() < length + (countLength > 0 ? countLength + 1 : 0)) {
+        throw new BufferOverflowException();
+      }
+      if (countLength > 0) {
+        byteBuffer.put(octetCount, octetCount.length - countLength, countLength).put(SP);
+      }
+      byteBuffer.put(buffer, 0, length);
+    } else {
+      throw new IllegalStateException("writeTo has not been called");
+    }
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+    }
+  }
+
+  private void append(byte value) {
+    ensureCapacity(1);
+    buffer[length++] = value;
+  }
+
+  private void appendInt(int value) {
+    if (value < 0) {
+      append((byte) '-');
+      value = -value;
+    }
+    int digits = 1;
+    for (int rest = value / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    ensureCapacity(digits);
+    for (int i = length + digits - 1; i >= length; i--) {
+      buffer[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    length += digits;
+  }
+
+  /**
+   * Appends the chars from start to end encoded as UTF-8, with an unpaired surrogate written as '?'.
+   */
+  private void appendUtf8(CharSequence chars, int start, int end) {
+    // each char is at most three bytes, a surrogate pair four bytes for two chars
+    ensureCapacity((end - start) * 3);
+    final byte[] bytes = buffer;
+    int position = length;
+    for (int i = start; i < end; i++) {
+      char ch = chars.charAt(i);
+      if (ch < 0x80) {
+        bytes[position++] = (byte) ch;
+      } else if (ch < 0x800) {
+        bytes[position++] = (byte) (0xC0 | ch >> 6);
+        bytes[position++] = (byte) (0x80 | ch & 0x3F);
+      } else if (Character.isHighSurrogate(ch) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(ch, chars.charAt(++i));
+        bytes[position++] = (byte) (0xF0 | codePoint >> 18);
+        bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+        bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+        bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+      } else if (Character.isSurrogate(ch)) {
+        bytes[position++] = '?';
+      } else {
+        bytes[position++] = (byte) (0xE0 | ch >> 12);
+        bytes[position++] = (byte) (0x80 | ch >> 6 & 0x3F);
+        bytes[position++] = (byte) (0x80 | ch & 0x3F);
+      }
+    }
+    length = position;
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.github.palindromicity.syslog.dsl.LimitExceededException;
+import com.github.palindromicity.syslog.dsl.SyslogFieldKeys;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LineLimiterTest {
+
+  private static final String HEADER = "<14>1 2014-06-20T09:14:07+00:00 host app - - ";
+  private static final String SD = "[a x=\"1\" y=\"2\\\"\\]\" z=\"3\"][b x=\"1\"][c x=\"1\"]";
+
+  @Test
+  public void testTruncate() {
+    LimitMetrics metrics = new LimitMetrics();
+    SyslogParser parser = new SyslogParserBuilder().withMaxStructuredDataElements(2)
+        .withMaxStructuredDataParams(2).withMaxMessageLength(5).withLimitMetrics(metrics).build();
+    Map<String, Object> map = parser.parseLine(HEADER + SD + " hello world");
+    Assert.assertEquals("hello", map.get(SyslogFieldKeys.MESSAGE.getField()));
+    Assert.assertEquals("1", map.get("syslog.structuredData.a.x"));
+    Assert.assertEquals("2\\\"\\]", map.get("syslog.structuredData.a.y"));
+    Assert.assertFalse(map.containsKey("syslog.structuredData.a.z"));
+    Assert.assertEquals("1", map.get("syslog.structuredData.b.x"));
+    Assert.assertFalse(map.containsKey("syslog.structuredData.c.x"));
+
+    byte[] bytes = (HEADER + SD + " héllo world").getBytes(StandardCharsets.UTF_8);
+    map = parser.parseLine(bytes, 0, bytes.length);
+    Assert.assertEquals("héll", map.get(SyslogFieldKeys.MESSAGE.getField()));
+    Assert.assertFalse(map.containsKey("syslog.structuredData.c.x"));
+
+    Assert.assertEquals(2, metrics.getCount(SyslogLimit.STRUCTURED_DATA_ELEMENTS));
+    Assert.assertEquals(2, metrics.getCount(SyslogLimit.STRUCTURED_DATA_PARAMS));
+    Assert.assertEquals(2, metrics.getCount(SyslogLimit.MESSAGE_LENGTH));
+    Assert.assertEquals(0, metrics.getCount(SyslogLimit.LINE_LENGTH));
+    Assert.assertEquals(Long.valueOf(6), metrics.getSenderCounts().get("host"));
+
+    // lines within the limits are unchanged
+    Assert.assertEquals("hi", parser.parseLine(HEADER + "- hi").get(SyslogFieldKeys.MESSAGE.getField()));
+  }
+
+  @Test
+  public void testLineLength() {
+    SyslogParser parser = new SyslogParserBuilder().withSpecification(SyslogSpecification.DETECT)
+        .withMaxLineLength(HEADER.length() + 4).build();
+    Assert.assertEquals("ab", parser.parseLine(HEADER + "- ab").get(SyslogFieldKeys.MESSAGE.getField()));
+    Assert.assertEquals("ab", parser.parseLine(HEADER + "- abcdef").get(SyslogFieldKeys.MESSAGE.getField()));
+    // a surrogate pair is not split
+    Assert.assertEquals("a", parser.parseLine(HEADER + "- a\uD83D\uDE00") // emoji
+        .get(SyslogFieldKeys.MESSAGE.getField()));
+    byte[] bytes = (HEADER + "- aé").getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals("a", parser.parseLine(bytes, 0, bytes.length).get(SyslogFieldKeys.MESSAGE.getField()));
+
+    // RFC 3164 lines only have their length limited
+    parser = new SyslogParserBuilder().withSpecification(SyslogSpecification.DETECT).withMaxLineLength(39)
+        .withMaxMessageLength(1).build();
+    Map<String, Object> map = parser.parseLine("<34>Oct 11 22:14:15 mymachine su: 'su root' failed");
+    Assert.assertEquals("mymachine", map.get(SyslogFieldKeys.HEADER_HOSTNAME.getField()));
+    Assert.assertEquals("'su r", map.get(SyslogFieldKeys.MESSAGE.getField()));
+  }
+
+  @Test
+  public void testLineLengthWithinStructuredData() {
+    LimitMetrics metrics = new LimitMetrics();
+    final String line = HEADER + "[b x=\"1\"]" + SD + " hello";
+    // cut within the second SD-ELEMENT, so only the first is kept, without the MSG
+    SyslogParser parser = new SyslogParserBuilder().withMaxLineLength(HEADER.length() + 20)
+        .withLimitMetrics(metrics).build();
+    Map<String, Object> map = parser.parseLine(line);
+    Assert.assertEquals("1", map.get("syslog.structuredData.b.x"));
+    Assert.assertFalse(map.containsKey("syslog.structuredData.a.x"));
+    Assert.assertNull(map.get(SyslogFieldKeys.MESSAGE.getField()));
+    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals("1", parser.parseLine(bytes, 0, bytes.length).get("syslog.structuredData.b.x"));
+
+    // cut within the first SD-ELEMENT or the header, which cannot be truncated
+    for (int length : new int[] {HEADER.length() + 5, HEADER.length() - 10}) {
+      parser = new SyslogParserBuilder().withMaxLineLength(length).withLimitMetrics(metrics).build();
+      try {
+        parser.parseLine(line);
+        Assert.fail();
+      } catch (LimitExceededException e) {
+        Assert.assertEquals(SyslogLimit.LINE_LENGTH, e.getLimit());
+      }
+      Assert.assertEquals(ValidationStatus.LIMIT, parser.validate(line));
+    }
+    Assert.assertEquals(6, metrics.getCount(SyslogLimit.LINE_LENGTH));
+  }
+
+  @Test
+  public void testReject() {
+    LimitMetrics metrics = new LimitMetrics();
+    SyslogParser parser = new SyslogParserBuilder().withMaxStructuredDataParams(2)
+        .withLimitAction(LimitAction.REJECT).withLimitMetrics(metrics).build();
+    try {
+      parser.parseLine(HEADER + SD + " hello");
+      Assert.fail();
+    } catch (LimitExceededException e) {
+      Assert.assertEquals(SyslogLimit.STRUCTURED_DATA_PARAMS, e.getLimit());
+    }
+    Assert.assertEquals(ValidationStatus.LIMIT, parser.validate(HEADER + SD + " hello"));
+    Assert.assertEquals(ValidationStatus.VALID, parser.validate(HEADER + "[a x=\"1\"] hello"));
+    Assert.assertEquals(2, metrics.getCount(SyslogLimit.STRUCTURED_DATA_PARAMS));
+    Assert.assertEquals(Long.valueOf(2), metrics.getSenderCounts().get("host"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeLimit() {
+    new SyslogParserBuilder().withMaxLineLength(-1).build();
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.dsl.SyslogFieldKeys;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class Rfc3164SyslogParserTest {
+
+  @Test
+  public void testParseLine() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().withSpecification(SyslogSpecification.RFC_3164).build();
+    Map<String, Object> map = parser.parseLine("<34>Oct 11 22:14:15 mymachine su: 'su root' failed");
+    Assert.assertEquals("34", map.get(SyslogFieldKeys.HEADER_PRI.getField()));
+    Assert.assertEquals("2", map.get(SyslogFieldKeys.HEADER_PRI_SEVERITY.getField()));
+    Assert.assertEquals("4", map.get(SyslogFieldKeys.HEADER_PRI_FACILITY.getField()));
+    Assert.assertEquals("Oct 11 22:14:15", map.get(SyslogFieldKeys.HEADER_TIMESTAMP.getField()));
+    Assert.assertEquals("mymachine", map.get(SyslogFieldKeys.HEADER_HOSTNAME.getField()));
+    Assert.assertEquals("su", map.get(SyslogFieldKeys.HEADER_APPNAME.getField()));
+    Assert.assertEquals("'su root' failed", map.get(SyslogFieldKeys.MESSAGE.getField()));
+    Assert.assertEquals(7, map.size());
+
+    map = parser.parseLine("<13>Feb  5 17:32:18 10.0.0.99 sshd[4321]: Accepted publickey");
+    Assert.assertEquals("Feb  5 17:32:18", map.get(SyslogFieldKeys.HEADER_TIMESTAMP.getField()));
+    Assert.assertEquals("sshd", map.get(SyslogFieldKeys.HEADER_APPNAME.getField()));
+    Assert.assertEquals("4321", map.get(SyslogFieldKeys.HEADER_PROCID.getField()));
+    Assert.assertEquals("Accepted publickey", map.get(SyslogFieldKeys.MESSAGE.getField()));
+  }
+
+  @Test
+  public void testParseLineWithoutTag() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().withSpecification(SyslogSpecification.RFC_3164)
+        .withNilPolicy(NilPolicy.DASH).build();
+    Map<String, Object> map = parser.parseLine("<165>Aug 24 05:34:00 host Use the BFG!");
+    Assert.assertEquals("-", map.get(SyslogFieldKeys.HEADER_APPNAME.getField()));
+    Assert.assertEquals("-", map.get(SyslogFieldKeys.HEADER_PROCID.getField()));
+    Assert.assertEquals("Use the BFG!", map.get(SyslogFieldKeys.MESSAGE.getField()));
+    Assert.assertFalse(map.containsKey(SyslogFieldKeys.HEADER_VERSION.getField()));
+    Assert.assertFalse(map.containsKey(SyslogFieldKeys.HEADER_MSGID.getField()));
+  }
+
+  @Test
+  public void testPriorityDeviation() throws Exception {
+    String line = "Oct 11 22:14:15 mymachine su: failed";
+    try {
+      new SyslogParserBuilder().withSpecification(SyslogSpecification.RFC_3164).build().parseLine(line);
+      Assert.fail();
+    } catch (ParseException e) {
+      // expected with strict parsing
+    }
+    Map<String, Object> map = new SyslogParserBuilder().withSpecification(SyslogSpecification.RFC_3164)
+        .withDeviations(EnumSet.of(AllowableDeviations.PRIORITY)).build().parseLine(line);
+    Assert.assertEquals("mymachine", map.get(SyslogFieldKeys.HEADER_HOSTNAME.getField()));
+    Assert.assertFalse(map.containsKey(SyslogFieldKeys.HEADER_PRI.getField()));
+  }
+
+  @Test
+  public void testInvalidLines() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().withSpecification(SyslogSpecification.RFC_3164).build();
+    for (String line : new String[] {"<192>Oct 11 22:14:15 host message", "<34>Oct 11 22:14 host message",
+        "<34>Foo 11 22:14:15 host message", "<34>Oct 11 22:14:15 ", "<34x>Oct 11 22:14:15 host message",
+        "<14>1 2014-06-20T09:14:07+00:00 loggregator - - - - message"}) {
+      try {
+        parser.parseLine(line);
+        Assert.fail(line);
+      } catch (ParseException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testDetect() throws Exception {
+    SyslogParser detecting = new SyslogParserBuilder().withSpecification(SyslogSpecification.DETECT).build();
+    SyslogParser rfc5424 = new SyslogParserBuilder().build();
+    SyslogParser rfc3164 = new SyslogParserBuilder().withSpecification(SyslogSpecification.RFC_3164).build();
+    List<Map<String, Object>> maps;
+    try (Reader reader = new BufferedReader(new FileReader(new File("src/test/resources/log_mix_3164.txt")))) {
+      maps = detecting.parseLines(reader);
+    }
+    Assert.assertEquals(4, maps.size());
+    Assert.assertEquals(rfc3164.parseLine("<34>Oct 11 22:14:15 mymachine su: 'su root' failed for lonvick on "
+        + "/dev/pts/8"), maps.get(0));
+    Assert.assertEquals("1011", maps.get(1).get("syslog.structuredData.exampleSDID@32473.eventID"));
+    Assert.assertEquals("sshd", maps.get(2).get(SyslogFieldKeys.HEADER_APPNAME.getField()));
+
+    String line = "<14>1 2014-06-20T09:14:07+00:00 loggregator - - - - message";
+    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(rfc5424.parseLine(line), detecting.parseLine(bytes, 0, bytes.length));
+    line = "<13>Feb  5 17:32:18 10.0.0.99 sshd[4321]: Accepted";
+    bytes = line.getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(rfc3164.parseLine(line), detecting.parseLine(bytes, 0, bytes.length));
+  }
+
+  @Test
+  public void testIsRfc3164() throws Exception {
+    Assert.assertTrue(DetectingSyslogParser.isRfc3164("<34>Oct 11 22:14:15 host su: x"));
+    Assert.assertTrue(DetectingSyslogParser.isRfc3164("Oct 11 22:14:15 host su: x"));
+    Assert.assertFalse(DetectingSyslogParser.isRfc3164("<34>1 - - - - - -"));
+    Assert.assertFalse(DetectingSyslogParser.isRfc3164("1 - - - - - -"));
+    Assert.assertFalse(DetectingSyslogParser.isRfc3164("<34"));
+    byte[] bytes = "xx<34>Oct 11 22:14:15 host".getBytes(StandardCharsets.US_ASCII);
+    Assert.assertTrue(DetectingSyslogParser.isRfc3164(bytes, 2, bytes.length - 2));
+    Assert.assertFalse(DetectingSyslogParser.isRfc3164(bytes, 0, bytes.length));
+  }
+}
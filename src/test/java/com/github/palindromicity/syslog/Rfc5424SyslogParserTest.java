@@ -16,12 +16,31 @@
 
 package com.github.palindromicity.syslog;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import com.github.palindromicity.syslog.dsl.ParseException;
 import com.github.palindromicity.syslog.dsl.SyslogFieldKeys;
@@ -443,4 +462,306 @@ public class Rfc5424SyslogParserTest extends AbstractRfc5425SyslogParserTest {
       }
     }
   }
+
+  @Test
+  public void testParseLineAsync() throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      SyslogParser parser = new SyslogParserBuilder().withExecutor(executorService).withAsyncBatchSize(4).build();
+      List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        futures.add(parser.parseLineAsync(SYSLOG_LINE_ALL));
+      }
+      for (CompletableFuture<Map<String, Object>> future : futures) {
+        Assert.assertEquals(expectedMessage, future.get().get(SyslogFieldKeys.MESSAGE.getField()));
+      }
+      try {
+        parser.parseLineAsync("10 Oct 13 14:14:43 localhost some body of the message").get();
+        Assert.fail();
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof ParseException);
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  @Test
+  public void testParseLinesAsync() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().withAsyncBatchSize(2).build();
+    try (Reader reader = new BufferedReader(new FileReader(new File("src/test/resources/log_mix.txt")))) {
+      List<Map<String, Object>> mapList = parser.parseLinesAsync(reader).get();
+      Assert.assertEquals(handleFile("src/test/resources/log_mix.txt", parser), mapList);
+    }
+  }
+
+  @Test
+  public void testParseLineBytes() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().build();
+    for (String fileName : new String[] {"src/test/resources/log_all.txt", "src/test/resources/log_utf8_umlauts.txt",
+        "src/test/resources/log_with_bom.txt"}) {
+      byte[] bytes = Files.readAllBytes(Paths.get(fileName));
+      byte[] padded = new byte[bytes.length + 8];
+      System.arraycopy(bytes, 0, padded, 4, bytes.length);
+      Assert.assertEquals(parser.parseLine(new String(bytes, StandardCharsets.UTF_8)),
+          parser.parseLine(padded, 4, bytes.length));
+    }
+  }
+
+  @Test
+  public void testParseLineEvents() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().build();
+    List<String> events = new ArrayList<>();
+    parser.parseLine(SYSLOG_LINE_ALL, new RecordingHandler(events));
+    Assert.assertEquals(Arrays.asList("start", "priority 14", "version 1", "timestamp 2014-06-20T09:14:07+00:00",
+        "hostName loggregator", "appName d0602076-b14a-4c55-852a-981e7afeed38", "procId DEA", "msgId MSG-01",
+        "sd exampleSDID@32473", "param iut=3", "param eventSource=Application", "param eventID=1011", "sdEnd",
+        "sd exampleSDID@32480", "param iut=4", "param eventSource=Other Application", "param eventID=2022", "sdEnd",
+        "message Removing instance", "end"), events);
+
+    events.clear();
+    parser.parseLine("<14>1 - host - - - -", new RecordingHandler(events));
+    Assert.assertEquals(Arrays.asList("start", "priority 14", "version 1", "timestamp null", "hostName host",
+        "appName null", "procId null", "msgId null", "end"), events);
+  }
+
+  @Test
+  public void testParseLineEventsError() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().build();
+    List<String> events = new ArrayList<>();
+    parser.parseLine("<14> 2014-06-20T09:14:07+00:00 loggregator app - - - message", new RecordingHandler(events));
+    Assert.assertEquals("error Version missing with strict parsing", events.get(events.size() - 1));
+    Assert.assertFalse(events.contains("end"));
+    try {
+      parser.parseLine("BOOM!", new SyslogEventHandler() { });
+      Assert.fail();
+    } catch (ParseException e) {
+      // expected, the default handler throws
+    }
+  }
+
+  @Test
+  public void testDefaultParseLineEvents() throws Exception {
+    for (StructuredDataPolicy policy : StructuredDataPolicy.values()) {
+      // an ordered map, so the flattened params replay in line order
+      SyslogParser parser = new SyslogParserBuilder().withNilPolicy(NilPolicy.DASH)
+          .withStructuredDataPolicy(policy).withMapFactory(LinkedHashMap::new).build();
+      SyslogParser mapOnly = mapOnly(parser);
+      for (String line : Arrays.asList(SYSLOG_LINE_ALL, "<14>1 - host - - - -", "BOOM!")) {
+        List<String> expected = new ArrayList<>();
+        parser.parseLine(line, new RecordingHandler(expected));
+        List<String> events = new ArrayList<>();
+        mapOnly.parseLine(line, new RecordingHandler(events));
+        Assert.assertEquals(expected, events);
+      }
+    }
+  }
+
+  /**
+   * Returns a parser with only the {@code Map} methods of the parser, and the defaults for the rest.
+   */
+  private static SyslogParser mapOnly(SyslogParser parser) {
+    return new SyslogParser() {
+      @Override
+      public Map<String, Object> parseLine(String line) {
+        return parser.parseLine(line);
+      }
+
+      @Override
+      public void parseLine(String line, Consumer<Map<String, Object>> consumer) {
+        parser.parseLine(line, consumer);
+      }
+
+      @Override
+      public List<Map<String, Object>> parseLines(Reader reader) {
+        return parser.parseLines(reader);
+      }
+
+      @Override
+      public void parseLines(Reader reader, Consumer<Map<String, Object>> consumer) {
+        parser.parseLines(reader, consumer);
+      }
+
+      @Override
+      public void parseLines(Reader reader, Consumer<Map<String, Object>> messageConsumer,
+          BiConsumer<String, Throwable> errorConsumer) {
+        parser.parseLines(reader, messageConsumer, errorConsumer);
+      }
+    };
+  }
+
+  @Test
+  public void testWithMapFactory() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().withMapFactory(LinkedHashMap::new).build();
+    Map<String, Object> map = parser.parseLine(SYSLOG_LINE_ALL);
+    Assert.assertTrue(map instanceof LinkedHashMap);
+    Assert.assertEquals(SyslogFieldKeys.HEADER_PRI.getField(), map.keySet().iterator().next());
+    Assert.assertEquals(new SyslogParserBuilder().build().parseLine(SYSLOG_LINE_ALL), map);
+  }
+
+  @Test
+  public void testWithMapReuse() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().withMapReuse(true).build();
+    List<Map<String, Object>> expected = handleFile("src/test/resources/log_mix.txt", new SyslogParserBuilder()
+        .build());
+    List<Map<String, Object>> copies = new ArrayList<>();
+    Set<Map<String, Object>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    try (Reader reader = new BufferedReader(new FileReader(new File("src/test/resources/log_mix.txt")))) {
+      parser.parseLines(reader, (map) -> {
+        seen.add(map);
+        copies.add(new HashMap<>(map));
+      });
+    }
+    Assert.assertEquals(expected, copies);
+    Assert.assertEquals(1, seen.size());
+
+    seen.clear();
+    parser.parseLine(SYSLOG_LINE_ALL, seen::add);
+    parser.parseLine(SYSLOG_LINE_ALL, seen::add);
+    Assert.assertEquals(1, seen.size());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testUnFlattenStructuredDataWithDots() throws Exception {
+    String line = "<14>1 2014-06-20T09:14:07+00:00 loggregator DEA - -"
+        + " [origin.example.com ip=\"10.0.0.1\" sw.version=\"1.2\"][exampleSDID@32473 iut=\"3\"] message";
+    Map<String, Object> map = new SyslogParserBuilder().build().parseLine(line);
+    Map<String, Object> structured = StructuredDataUtil.unFlattenStructuredData(map, new DefaultKeyProvider());
+    Assert.assertEquals(2, structured.size());
+    Map<String, Object> origin = (Map<String, Object>) structured.get("origin.example.com");
+    Assert.assertEquals("10.0.0.1", origin.get("ip"));
+    Assert.assertEquals("1.2", origin.get("sw.version"));
+    Assert.assertEquals("3", ((Map<String, Object>) structured.get("exampleSDID@32473")).get("iut"));
+
+    // without the recorded SD-ID and PARAM-NAME, keys are split on the last separator
+    map = new SyslogParserBuilder().withMapFactory(HashMap::new).build().parseLine(line);
+    structured = StructuredDataUtil.unFlattenStructuredData(map, new DefaultKeyProvider());
+    Assert.assertEquals("10.0.0.1", ((Map<String, Object>) structured.get("origin.example.com")).get("ip"));
+    Assert.assertEquals("1.2", ((Map<String, Object>) structured.get("origin.example.com.sw")).get("version"));
+    Assert.assertEquals("3", ((Map<String, Object>) structured.get("exampleSDID@32473")).get("iut"));
+  }
+
+  @Test
+  public void testValidateAgreesWithParse() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().build();
+    for (File file : new File("src/test/resources").listFiles((dir, name) -> name.startsWith("log"))) {
+      for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+        if (line.trim().isEmpty()) {
+          Assert.assertEquals(ValidationStatus.BLANK, parser.validate(line));
+          continue;
+        }
+        boolean parsed;
+        try {
+          parser.parseLine(line);
+          parsed = true;
+        } catch (ParseException e) {
+          parsed = false;
+        }
+        Assert.assertEquals(line, parsed, parser.validate(line).isValid());
+        byte[] bytes = ("x" + line).getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(line, parser.validate(line), parser.validate(bytes, 1, bytes.length - 1));
+      }
+    }
+  }
+
+  @Test
+  public void testValidateStatus() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().build();
+    Assert.assertEquals(ValidationStatus.VALID, parser.validate(SYSLOG_LINE_ALL));
+    Assert.assertEquals(ValidationStatus.BLANK, parser.validate(" "));
+    Assert.assertEquals(ValidationStatus.PRIORITY, parser.validate("<x>1 - host app - - - message"));
+    Assert.assertEquals(ValidationStatus.PRIORITY, parser.validate("1 - host app - - - message"));
+    Assert.assertEquals(ValidationStatus.VERSION, parser.validate("<14> - host app - - - message"));
+    Assert.assertEquals(ValidationStatus.TIMESTAMP, parser.validate("<14>1 2014-06-20 host app - - - message"));
+    Assert.assertEquals(ValidationStatus.APP_NAME, parser.validate("<14>1 - host"));
+    Assert.assertEquals(ValidationStatus.STRUCTURED_DATA, parser.validate("<14>1 - host app - - [id a=1] message"));
+    Assert.assertEquals(ValidationStatus.MESSAGE,
+        parser.validate("<14>1 - host app - - - message \u4e16")); // not Latin-1
+    Assert.assertEquals(ValidationStatus.VALID, new SyslogParserBuilder()
+        .withDeviations(EnumSet.of(AllowableDeviations.PRIORITY, AllowableDeviations.VERSION)).build()
+        .validate("2014-06-20T09:14:07+00:00 host app - - - message"));
+    Assert.assertEquals(ValidationStatus.INVALID, new SyslogParserBuilder()
+        .withSpecification(SyslogSpecification.RFC_3164).build().validate("<34>Oct 11 22:14 host message"));
+    Assert.assertEquals(ValidationStatus.TIMESTAMP, new SyslogParserBuilder()
+        .withSpecification(SyslogSpecification.DETECT).build().validate("<14>1 2014 host app - - - message"));
+  }
+
+  private static class RecordingHandler implements SyslogEventHandler {
+    private final List<String> events;
+
+    RecordingHandler(List<String> events) {
+      this.events = events;
+    }
+
+    @Override
+    public void onStart() {
+      events.add("start");
+    }
+
+    @Override
+    public void onPriority(int priority) {
+      events.add("priority " + priority);
+    }
+
+    @Override
+    public void onVersion(int version) {
+      events.add("version " + version);
+    }
+
+    @Override
+    public void onTimestamp(CharSequence timestamp) {
+      events.add("timestamp " + timestamp);
+    }
+
+    @Override
+    public void onHostName(CharSequence hostName) {
+      events.add("hostName " + hostName);
+    }
+
+    @Override
+    public void onAppName(CharSequence appName) {
+      events.add("appName " + appName);
+    }
+
+    @Override
+    public void onProcId(CharSequence procId) {
+      events.add("procId " + procId);
+    }
+
+    @Override
+    public void onMsgId(CharSequence msgId) {
+      events.add("msgId " + msgId);
+    }
+
+    @Override
+    public void onSdElementStart(CharSequence id) {
+      events.add("sd " + id);
+    }
+
+    @Override
+    public void onSdParam(CharSequence name, CharSequence value) {
+      events.add("param " + name + "=" + value);
+    }
+
+    @Override
+    public void onSdElementEnd() {
+      events.add("sdEnd");
+    }
+
+    @Override
+    public void onMessage(CharSequence message) {
+      events.add("message " + message);
+    }
+
+    @Override
+    public void onEnd() {
+      events.add("end");
+    }
+
+    @Override
+    public void onError(ParseException exception) {
+      events.add("error " + exception.getMessage());
+    }
+  }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog;
+
+import java.util.Map;
+
+import com.github.palindromicity.syslog.dsl.LimitExceededException;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.dsl.SyslogFieldKeys;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SenderAwareSyslogParserTest {
+
+  private static final String RFC_5424 = "<14>1 2014-06-20T09:14:07+00:00 host app - - - hello";
+  private static final String NO_VERSION = "<14> 2014-06-20T09:14:07+00:00 host app - - - hello";
+  private static final String RFC_3164 = "<34>Oct 11 22:14:15 mymachine su: 'su root' failed";
+
+  @Test
+  public void testRemembersStrategy() {
+    SenderAwareSyslogParser parser = new SyslogParserBuilder().buildSenderAware(10);
+    Assert.assertEquals("hello", parser.parseLine("a", RFC_5424).get(SyslogFieldKeys.MESSAGE.getField()));
+    Assert.assertEquals(SenderAwareSyslogParser.Strategy.RFC_5424, parser.getStrategy("a"));
+    Assert.assertEquals(0, parser.getSenderCount());
+
+    Assert.assertEquals("hello", parser.parseLine("b", NO_VERSION).get(SyslogFieldKeys.MESSAGE.getField()));
+    Assert.assertEquals(SenderAwareSyslogParser.Strategy.RFC_5424_DEVIATIONS, parser.getStrategy("b"));
+
+    Map<String, Object> map = parser.parseLine("c", RFC_3164);
+    Assert.assertEquals("mymachine", map.get(SyslogFieldKeys.HEADER_HOSTNAME.getField()));
+    Assert.assertEquals(SenderAwareSyslogParser.Strategy.RFC_3164, parser.getStrategy("c"));
+    Assert.assertEquals(2, parser.getSenderCount());
+
+    // a sender that changes back to strict RFC 5424 is forgotten
+    parser.parseLine("c", RFC_5424);
+    Assert.assertEquals(SenderAwareSyslogParser.Strategy.RFC_5424, parser.getStrategy("c"));
+    Assert.assertEquals(1, parser.getSenderCount());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEvicted() {
+    SenderAwareSyslogParser parser = new SyslogParserBuilder().buildSenderAware(2);
+    parser.parseLine("a", RFC_3164);
+    parser.parseLine("b", RFC_3164);
+    parser.parseLine("a", RFC_3164);
+    parser.parseLine("c", NO_VERSION);
+    Assert.assertEquals(2, parser.getSenderCount());
+    Assert.assertEquals(SenderAwareSyslogParser.Strategy.RFC_3164, parser.getStrategy("a"));
+    Assert.assertEquals(SenderAwareSyslogParser.Strategy.RFC_5424, parser.getStrategy("b"));
+    Assert.assertEquals(SenderAwareSyslogParser.Strategy.RFC_5424_DEVIATIONS, parser.getStrategy("c"));
+  }
+
+  @Test
+  public void testConcurrentSenders() throws Exception {
+    SenderAwareSyslogParser parser = new SyslogParserBuilder().buildSenderAware(32);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final int offset = t;
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 200; i++) {
+          // a few busy senders are seen throughout, among many seen once
+          parser.parseLine("busy" + (i % 4), RFC_3164);
+          parser.parseLine("once" + offset + "-" + i, RFC_3164);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertTrue(parser.getSenderCount() <= 32);
+    Assert.assertEquals(SenderAwareSyslogParser.Strategy.RFC_3164, parser.getStrategy("busy0"));
+    Assert.assertEquals(SenderAwareSyslogParser.Strategy.RFC_5424, parser.getStrategy("once0-0"));
+  }
+
+  @Test
+  public void testUnknownSender() {
+    SenderAwareSyslogParser parser = new SyslogParserBuilder().buildSenderAware(2);
+    Assert.assertEquals("mymachine",
+        parser.parseLine(null, RFC_3164).get(SyslogFieldKeys.HEADER_HOSTNAME.getField()));
+    Assert.assertEquals(0, parser.getSenderCount());
+  }
+
+  @Test
+  public void testLimitsAppliedOnce() {
+    LimitMetrics metrics = new LimitMetrics();
+    SenderAwareSyslogParser parser = new SyslogParserBuilder().withMaxMessageLength(2)
+        .withLimitAction(LimitAction.REJECT).withLimitMetrics(metrics).buildSenderAware(2);
+    try {
+      parser.parseLine("a", RFC_5424);
+      Assert.fail();
+    } catch (LimitExceededException e) {
+      Assert.assertEquals(SyslogLimit.MESSAGE_LENGTH, e.getLimit());
+    }
+    Assert.assertEquals(SenderAwareSyslogParser.Strategy.RFC_5424, parser.getStrategy("a"));
+
+    parser = new SyslogParserBuilder().withMaxMessageLength(2).withLimitMetrics(metrics).buildSenderAware(2);
+    Assert.assertEquals("he", parser.parseLine("b", NO_VERSION).get(SyslogFieldKeys.MESSAGE.getField()));
+    Assert.assertEquals(2, metrics.getCount(SyslogLimit.MESSAGE_LENGTH));
+    Assert.assertEquals(Long.valueOf(2), metrics.getSenderCounts().get("host"));
+  }
+
+  @Test(expected = ParseException.class)
+  public void testNoStrategyParses() {
+    new SyslogParserBuilder().buildSenderAware(2).parseLine("a", "not syslog");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMaxSenders() {
+    new SyslogParserBuilder().buildSenderAware(0);
+  }
+}
@@ -35,4 +35,12 @@ public class SyslogParserBuilderTest {
     SyslogParser parser = new SyslogParserBuilder().build();
     assertTrue(parser.getClass() == Rfc5424SyslogParser.class);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testWithSyslogSpecification() {
+    assertTrue(new SyslogParserBuilder().withSpecification(SyslogSpecification.RFC_3164).build().getClass()
+        == Rfc3164SyslogParser.class);
+    assertTrue(new SyslogParserBuilder().withSpecification(SyslogSpecification.DETECT).build().getClass()
+        == DetectingSyslogParser.class);
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Reader;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.palindromicity.syslog.DefaultKeyProvider;
+import com.github.palindromicity.syslog.NilPolicy;
+import com.github.palindromicity.syslog.StructuredDataPolicy;
+import com.github.palindromicity.syslog.SyslogParserBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SyslogBlockCodecTest {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    for (StructuredDataPolicy structuredDataPolicy : StructuredDataPolicy.values()) {
+      for (NilPolicy nilPolicy : NilPolicy.values()) {
+        List<Map<String, Object>> messages = parse("src/test/resources/log_mix.txt", nilPolicy,
+            structuredDataPolicy);
+        messages.addAll(parse("src/test/resources/log_nils.txt", nilPolicy, structuredDataPolicy));
+        Assert.assertEquals(messages, readAll(write(messages, 3)));
+      }
+    }
+  }
+
+  @Test
+  public void testValues() throws Exception {
+    Map<String, Object> nested = new HashMap<>();
+    nested.put("a", "-2147483648");
+    nested.put("b", "007");
+    Map<String, Object> message = new HashMap<>();
+    message.put("syslog.header.pri", "0");
+    message.put("syslog.header.version", "-0");
+    message.put("syslog.header.hostName", "-");
+    message.put("syslog.header.appName", null);
+    message.put("syslog.message", "");
+    message.put("custom", nested);
+    message.put("number", 42);
+    List<Map<String, Object>> messages = new ArrayList<>();
+    messages.add(message);
+    messages.add(message);
+    List<Map<String, Object>> read = readAll(write(messages, 10));
+    message.put("number", "42");
+    Assert.assertEquals(messages, read);
+  }
+
+  @Test
+  public void testSmallerThanJavaSerialization() throws Exception {
+    List<Map<String, Object>> messages = new ArrayList<>();
+    for (Map<String, Object> message : parse("src/test/resources/log_mix.txt", NilPolicy.OMIT,
+        StructuredDataPolicy.FLATTEN)) {
+      messages.add(new HashMap<>(message));
+    }
+    ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+      out.writeObject(messages);
+    }
+    Assert.assertTrue(write(messages, 256).length * 2 < serialized.size());
+  }
+
+  @Test
+  public void testCorruptStreams() throws Exception {
+    List<Map<String, Object>> messages = parse("src/test/resources/log_mix.txt", NilPolicy.OMIT,
+        StructuredDataPolicy.FLATTEN);
+    byte[] bytes = write(messages, 256);
+    try {
+      readAll(new byte[] {'S', 'Y', 'L', 'B', 2});
+      Assert.fail();
+    } catch (StreamCorruptedException e) {
+      // expected, unsupported version
+    }
+    byte[] truncated = new byte[bytes.length - 1];
+    System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+    try {
+      readAll(truncated);
+      Assert.fail();
+    } catch (IOException e) {
+      // expected
+    }
+    for (int i = 5; i < bytes.length; i += 7) {
+      byte[] corrupt = bytes.clone();
+      corrupt[i] = (byte) 0xFF;
+      try {
+        readAll(corrupt);
+      } catch (IOException e) {
+        // expected, anything but an IOException is a failure
+      }
+    }
+  }
+
+  @Test
+  public void testHugeBlockLength() throws Exception {
+    // one message in a block claiming nearly 2GB, followed by only a few bytes
+    byte[] header = new byte[] {1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 1, 2, 3};
+    SyslogBinaryDecoder decoder = new SyslogBinaryDecoder(new DefaultKeyProvider());
+    try {
+      decoder.readBlock(new ByteArrayInputStream(header));
+      Assert.fail();
+    } catch (EOFException e) {
+      // expected, without allocating the claimed length
+    }
+  }
+
+  private static List<Map<String, Object>> parse(String fileName, NilPolicy nilPolicy,
+      StructuredDataPolicy structuredDataPolicy) throws IOException {
+    try (Reader reader = new FileReader(new File(fileName))) {
+      return new ArrayList<>(new SyslogParserBuilder().withNilPolicy(nilPolicy)
+          .withStructuredDataPolicy(structuredDataPolicy).build().parseLines(reader));
+    }
+  }
+
+  private static byte[] write(List<Map<String, Object>> messages, int blockSize) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (SyslogBlockWriter writer = new SyslogBlockWriter(out, new DefaultKeyProvider(), blockSize)) {
+      for (Map<String, Object> message : messages) {
+        writer.write(message);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static List<Map<String, Object>> readAll(byte[] bytes) throws IOException {
+    List<Map<String, Object>> messages = new ArrayList<>();
+    try (SyslogBlockReader reader = new SyslogBlockReader(new ByteArrayInputStream(bytes),
+        new DefaultKeyProvider())) {
+      for (Map<String, Object> message = reader.read(); message != null; message = reader.read()) {
+        messages.add(message);
+      }
+    }
+    return messages;
+  }
+}
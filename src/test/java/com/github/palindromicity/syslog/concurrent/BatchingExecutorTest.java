@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchingExecutorTest {
+
+  @Test
+  public void testTasksAreBatched() throws Exception {
+    final List<Runnable> queued = new ArrayList<>();
+    final Executor executor = queued::add;
+    BatchingExecutor batchingExecutor = new BatchingExecutor(executor, 10, 1);
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      final int value = i;
+      futures.add(batchingExecutor.submit(() -> value));
+    }
+    // a single drain is scheduled for all of the submissions
+    Assert.assertEquals(1, queued.size());
+    int ran = 0;
+    while (ran < queued.size()) {
+      queued.get(ran++).run();
+    }
+    Assert.assertEquals(3, queued.size());
+    for (int i = 0; i < 25; i++) {
+      Assert.assertEquals(Integer.valueOf(i), futures.get(i).get());
+    }
+  }
+
+  @Test
+  public void testFailuresCompleteExceptionally() throws Exception {
+    BatchingExecutor batchingExecutor = new BatchingExecutor(Runnable::run, 10, 1);
+    CompletableFuture<Object> future = batchingExecutor.submit(() -> {
+      throw new IllegalStateException("failed");
+    });
+    try {
+      future.get();
+      Assert.fail();
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void testRejected() throws Exception {
+    BatchingExecutor batchingExecutor = new BatchingExecutor((runnable) -> {
+      throw new RejectedExecutionException();
+    }, 10, 1);
+    Assert.assertTrue(batchingExecutor.submit(() -> 1).isCompletedExceptionally());
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.concurrent;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.SyslogParserBuilder;
+import com.github.palindromicity.syslog.dsl.SyslogFieldKeys;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConnectionIngesterTest {
+
+  @Test
+  public void testIngestManyConnections() throws Exception {
+    final byte[] all = Files.readAllBytes(Paths.get("src/test/resources/log_mix.txt"));
+    final SyslogParser parser = new SyslogParserBuilder().build();
+    final BlockingQueue<Map<String, Object>> sink = new ArrayBlockingQueue<>(1000);
+    final AtomicInteger errorCount = new AtomicInteger();
+    final List<InputStream> connections = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      connections.add(new ByteArrayInputStream(all));
+    }
+    try (ConnectionIngester ingester = new ConnectionIngester(parser, sink,
+        (line, throwable) -> errorCount.incrementAndGet())) {
+      for (Future<?> future : ingester.ingestAll(connections)) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+      Assert.assertEquals(0, ingester.getActiveConnections());
+    }
+    Assert.assertEquals(150, sink.size());
+    Assert.assertEquals(0, errorCount.get());
+  }
+
+  @Test
+  public void testIngestErrorsGoToErrorConsumer() throws Exception {
+    final byte[] all = Files.readAllBytes(Paths.get("src/test/resources/log_all_with_errors.txt"));
+    final SyslogParser parser = new SyslogParserBuilder().build();
+    final BlockingQueue<Map<String, Object>> sink = new ArrayBlockingQueue<>(10);
+    final AtomicInteger errorCount = new AtomicInteger();
+    try (ConnectionIngester ingester = new ConnectionIngester(parser, sink,
+        (line, throwable) -> errorCount.incrementAndGet())) {
+      ingester.ingest(new ByteArrayInputStream(all)).get(10, TimeUnit.SECONDS);
+    }
+    Assert.assertEquals(1, sink.size());
+    Assert.assertEquals(3, errorCount.get());
+  }
+
+  @Test
+  public void testFullSinkBlocksConnection() throws Exception {
+    final String line = "<14>1 2014-06-20T09:14:07+00:00 loggregator app DEA MSG-01 - Removing instance\n";
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 5; i++) {
+      builder.append(line);
+    }
+    final SyslogParser parser = new SyslogParserBuilder().build();
+    final BlockingQueue<Map<String, Object>> sink = new ArrayBlockingQueue<>(2);
+    try (ConnectionIngester ingester = new ConnectionIngester(parser, sink, (errorLine, throwable) -> Assert.fail())) {
+      Future<?> future = ingester.ingest(new ByteArrayInputStream(builder.toString()
+          .getBytes(StandardCharsets.UTF_8)));
+      int taken = 0;
+      while (taken < 5) {
+        Map<String, Object> map = sink.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(map);
+        Assert.assertEquals("Removing instance", map.get(SyslogFieldKeys.MESSAGE.getField()));
+        Assert.assertTrue(sink.size() <= 2);
+        taken++;
+      }
+      future.get(10, TimeUnit.SECONDS);
+    }
+  }
+}
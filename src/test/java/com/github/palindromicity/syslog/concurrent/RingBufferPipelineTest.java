@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.concurrent;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.palindromicity.syslog.AllowableDeviations;
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.SyslogParserBuilder;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import com.github.palindromicity.syslog.dsl.SyslogFieldKeys;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RingBufferPipelineTest {
+
+  @Test
+  public void testSlotsMatchParsedMapsInOrder() throws Exception {
+    final List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      lines.addAll(Files.readAllLines(Paths.get("src/test/resources/log_mix.txt")));
+    }
+    final SyslogParser parser = new SyslogParserBuilder().build();
+    final List<String> failures = new ArrayList<>();
+    final long[] expected = {0};
+    try (RingBufferPipeline pipeline = new RingBufferPipeline(16, 3, EnumSet.of(AllowableDeviations.NONE),
+        (slot) -> {
+          if (slot.getSequence() != expected[0]++) {
+            failures.add("out of order " + slot.getSequence());
+          }
+          Map<String, Object> map = parser.parseLine(slot.getLine());
+          check(failures, map, SyslogFieldKeys.HEADER_PRI, String.valueOf(slot.getPriority()));
+          check(failures, map, SyslogFieldKeys.HEADER_PRI_FACILITY, String.valueOf(slot.getFacility()));
+          check(failures, map, SyslogFieldKeys.HEADER_VERSION, String.valueOf(slot.getVersion()));
+          check(failures, map, SyslogFieldKeys.HEADER_TIMESTAMP, slot.getTimestamp());
+          check(failures, map, SyslogFieldKeys.HEADER_HOSTNAME, slot.getHostName());
+          check(failures, map, SyslogFieldKeys.HEADER_APPNAME, slot.getAppName());
+          check(failures, map, SyslogFieldKeys.HEADER_PROCID, slot.getProcId());
+          check(failures, map, SyslogFieldKeys.HEADER_MSGID, slot.getMsgId());
+          check(failures, map, SyslogFieldKeys.MESSAGE, slot.getMessage());
+          for (int element = 0; element < slot.getStructuredDataElementCount(); element++) {
+            for (int param = 0; param < slot.getStructuredDataParamCount(element); param++) {
+              String key = "syslog.structuredData." + slot.getStructuredDataId(element) + "."
+                  + slot.getStructuredDataParamName(element, param);
+              if (!slot.getStructuredDataParamValue(element, param).equals(map.get(key))) {
+                failures.add(key);
+              }
+            }
+          }
+        }).start()) {
+      for (String line : lines) {
+        pipeline.publish(line);
+      }
+    }
+    Assert.assertEquals(300, expected[0]);
+    Assert.assertEquals(new ArrayList<String>(), failures);
+  }
+
+  @Test
+  public void testErrorsAreReportedOnTheSlot() throws Exception {
+    final List<String> lines = Files.readAllLines(Paths.get("src/test/resources/log_all_with_errors.txt"));
+    final List<Throwable> errors = new ArrayList<>();
+    final List<String> hosts = new ArrayList<>();
+    try (RingBufferPipeline pipeline = new RingBufferPipeline(2, 2, EnumSet.of(AllowableDeviations.NONE),
+        (slot) -> {
+          if (slot.isError()) {
+            errors.add(slot.getError());
+          } else {
+            hosts.add(slot.getHostName());
+          }
+        }).start()) {
+      for (String line : lines) {
+        pipeline.publish(line);
+      }
+    }
+    Assert.assertEquals(3, errors.size());
+    for (Throwable error : errors) {
+      Assert.assertTrue(error instanceof ParseException);
+    }
+    Assert.assertEquals(1, hosts.size());
+    Assert.assertEquals("loggregator", hosts.get(0));
+  }
+
+  @Test
+  public void testEmbeddedLineBreaks() throws Exception {
+    final String line = "<14>1 - host app - - [id@1 a=\"x\r\ny\"] first\r\nsecond\r\n";
+    final Map<String, Object> expected = new SyslogParserBuilder().build().parseLine(line);
+    final List<String> values = new ArrayList<>();
+    try (RingBufferPipeline pipeline = new RingBufferPipeline(4, 1, EnumSet.of(AllowableDeviations.NONE),
+        (slot) -> {
+          values.add(slot.getMessage());
+          values.add(slot.getStructuredDataParamValue(0, 0));
+        }).start()) {
+      pipeline.publish(line);
+    }
+    Assert.assertEquals("firstsecond", values.get(0));
+    Assert.assertEquals(expected.get(SyslogFieldKeys.MESSAGE.getField()), values.get(0));
+    Assert.assertEquals(expected.get("syslog.structuredData.id@1.a"), values.get(1));
+  }
+
+  @Test
+  public void testNilValues() throws Exception {
+    final List<MessageSlot> seen = new ArrayList<>();
+    final boolean[] nil = new boolean[2];
+    try (RingBufferPipeline pipeline = new RingBufferPipeline(4, 1, EnumSet.of(AllowableDeviations.NONE),
+        (slot) -> {
+          nil[0] = slot.isNil(MessageSlot.PROCID);
+          nil[1] = slot.hasValue(MessageSlot.MESSAGE);
+          seen.add(slot);
+        }).start()) {
+      pipeline.publish("<14>1 2014-06-20T09:14:07+00:00 loggregator app - - -");
+    }
+    Assert.assertEquals(1, seen.size());
+    Assert.assertTrue(nil[0]);
+    Assert.assertFalse(nil[1]);
+  }
+
+  @Test
+  public void testCloseWhilePublishing() throws Exception {
+    for (int run = 0; run < 20; run++) {
+      final AtomicLong handled = new AtomicLong();
+      final AtomicLong published = new AtomicLong();
+      final RingBufferPipeline pipeline = new RingBufferPipeline(8, 2, EnumSet.of(AllowableDeviations.NONE),
+          (slot) -> handled.incrementAndGet()).start();
+      Thread producer = new Thread(() -> {
+        try {
+          while (true) {
+            pipeline.publish("<14>1 - host app - - - hello");
+            published.incrementAndGet();
+          }
+        } catch (IllegalStateException e) {
+          // closed
+        }
+      });
+      producer.start();
+      Thread.sleep(2);
+      // every line published, even while closing, is handled
+      pipeline.close();
+      producer.join();
+      Assert.assertEquals(published.get(), handled.get());
+    }
+  }
+
+  private static void check(List<String> failures, Map<String, Object> map, SyslogFieldKeys key, String value) {
+    Object expected = map.get(key.getField());
+    if (expected == null ? value != null : !expected.equals(value)) {
+      failures.add(key.getField() + " expected " + expected + " was " + value);
+    }
+  }
+}
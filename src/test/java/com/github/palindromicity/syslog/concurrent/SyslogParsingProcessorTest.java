@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.concurrent;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.github.palindromicity.syslog.SyslogParserBuilder;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SyslogParsingProcessorTest {
+
+  @Test
+  public void testDemandIsHonored() throws Exception {
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      lines.addAll(Files.readAllLines(Paths.get("src/test/resources/log_mix.txt")));
+    }
+    IterablePublisher publisher = new IterablePublisher(lines);
+    SyslogParsingProcessor processor = new SyslogParsingProcessor(new SyslogParserBuilder().build(), 8);
+    publisher.subscribe(processor);
+    CollectingSubscriber subscriber = new CollectingSubscriber();
+    processor.subscribe(subscriber);
+
+    Assert.assertEquals(0, subscriber.results.size());
+    subscriber.subscription.request(5);
+    Assert.assertEquals(5, subscriber.results.size());
+    Assert.assertTrue(publisher.requested <= 8);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    Assert.assertEquals(60, subscriber.results.size());
+    Assert.assertTrue(subscriber.completed);
+    for (ParseResult result : subscriber.results) {
+      Assert.assertFalse(result.isError());
+      Assert.assertNotNull(result.getMessage());
+    }
+  }
+
+  @Test
+  public void testParseFailuresAreItems() throws Exception {
+    List<String> lines = Files.readAllLines(Paths.get("src/test/resources/log_all_with_errors.txt"));
+    IterablePublisher publisher = new IterablePublisher(lines);
+    SyslogParsingProcessor processor = new SyslogParsingProcessor(new SyslogParserBuilder().build());
+    publisher.subscribe(processor);
+    CollectingSubscriber subscriber = new CollectingSubscriber();
+    processor.subscribe(subscriber);
+    subscriber.subscription.request(100);
+
+    Assert.assertTrue(subscriber.completed);
+    Assert.assertNull(subscriber.error);
+    int errors = 0;
+    for (ParseResult result : subscriber.results) {
+      if (result.isError()) {
+        errors++;
+        Assert.assertTrue(result.getError() instanceof ParseException);
+        Assert.assertNotNull(result.getLine());
+      }
+    }
+    Assert.assertEquals(4, subscriber.results.size());
+    Assert.assertEquals(3, errors);
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    List<String> lines = Files.readAllLines(Paths.get("src/test/resources/log_mix.txt"));
+    IterablePublisher publisher = new IterablePublisher(lines);
+    SyslogParsingProcessor processor = new SyslogParsingProcessor(new SyslogParserBuilder().build(), 1);
+    publisher.subscribe(processor);
+    CollectingSubscriber subscriber = new CollectingSubscriber();
+    processor.subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(10);
+    Assert.assertEquals(1, subscriber.results.size());
+    Assert.assertTrue(publisher.cancelled);
+    Assert.assertFalse(subscriber.completed);
+  }
+
+  private static class IterablePublisher implements SyslogFlow.Publisher<String> {
+    private final Iterator<String> iterator;
+    private long requested;
+    private boolean cancelled;
+
+    IterablePublisher(Iterable<String> iterable) {
+      this.iterator = iterable.iterator();
+    }
+
+    @Override
+    public void subscribe(SyslogFlow.Subscriber<? super String> subscriber) {
+      subscriber.onSubscribe(new SyslogFlow.Subscription() {
+        @Override
+        public void request(long count) {
+          requested += count;
+          for (long i = 0; i < count && !cancelled; i++) {
+            if (!iterator.hasNext()) {
+              subscriber.onComplete();
+              return;
+            }
+            subscriber.onNext(iterator.next());
+          }
+          if (!iterator.hasNext() && !cancelled) {
+            subscriber.onComplete();
+          }
+        }
+
+        @Override
+        public void cancel() {
+          cancelled = true;
+        }
+      });
+    }
+  }
+
+  private static class CollectingSubscriber implements SyslogFlow.Subscriber<ParseResult> {
+    private final List<ParseResult> results = new ArrayList<>();
+    private SyslogFlow.Subscription subscription;
+    private boolean completed;
+    private Throwable error;
+
+    @Override
+    public void onSubscribe(SyslogFlow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(ParseResult item) {
+      results.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.dsl;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactCharStreamsTest {
+
+  @Test
+  public void testMatchesCharStreams() throws Exception {
+    for (String fileName : new String[] {"src/test/resources/log_all.txt", "src/test/resources/log_utf8_umlauts.txt",
+        "src/test/resources/log_with_bom.txt"}) {
+      byte[] bytes = Files.readAllBytes(Paths.get(fileName));
+      String string = new String(bytes, StandardCharsets.UTF_8);
+      assertSame(CharStreams.fromString(string), CompactCharStreams.fromString(string));
+      byte[] padded = new byte[bytes.length + 4];
+      System.arraycopy(bytes, 0, padded, 2, bytes.length);
+      assertSame(CharStreams.fromString(string), CompactCharStreams.fromUtf8(padded, 2, bytes.length));
+    }
+  }
+
+  @Test
+  public void testSupplementaryFallsBack() throws Exception {
+    String string = "<14>1 - - - - - - 😀";
+    assertSame(CharStreams.fromString(string), CompactCharStreams.fromString(string));
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    assertSame(CharStreams.fromString(string), CompactCharStreams.fromUtf8(bytes, 0, bytes.length));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSliceOutOfBounds() throws Exception {
+    CompactCharStreams.fromUtf8(new byte[4], 2, 3);
+  }
+
+  private static void assertSame(CharStream expected, CharStream actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    Assert.assertEquals(expected.getText(Interval.of(0, expected.size() - 1)),
+        actual.getText(Interval.of(0, actual.size() - 1)));
+    Assert.assertEquals(expected.getText(Interval.of(3, expected.size() - 3)),
+        actual.getText(Interval.of(3, actual.size() - 3)));
+    for (int i = 0; i <= expected.size(); i++) {
+      Assert.assertEquals(expected.LA(1), actual.LA(1));
+      Assert.assertEquals(expected.LA(-1), actual.LA(-1));
+      Assert.assertEquals(expected.index(), actual.index());
+      if (expected.LA(1) != IntStream.EOF) {
+        expected.consume();
+        actual.consume();
+      }
+    }
+    expected.seek(1);
+    actual.seek(1);
+    Assert.assertEquals(expected.LA(2), actual.LA(2));
+  }
+}
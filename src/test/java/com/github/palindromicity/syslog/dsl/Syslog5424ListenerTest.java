@@ -307,6 +307,16 @@ public class Syslog5424ListenerTest {
 
   }
 
+  @Test
+  public void testWithoutParseTree() throws Exception {
+    for (StructuredDataPolicy policy : StructuredDataPolicy.values()) {
+      for (String fileName : new String[] {"src/test/resources/log_all.txt", "src/test/resources/log_nils.txt"}) {
+        Assert.assertEquals(handleFile(fileName, NilPolicy.DASH, policy, EnumSet.of(AllowableDeviations.NONE)),
+            handleFile(fileName, NilPolicy.DASH, policy, EnumSet.of(AllowableDeviations.NONE), false));
+      }
+    }
+  }
+
   private static Map<String, Object> handleFile(String fileName) throws Exception {
     return handleFile(fileName, NilPolicy.OMIT);
   }
@@ -322,11 +332,18 @@ public class Syslog5424ListenerTest {
 
   private static Map<String, Object> handleFile(String fileName, NilPolicy nilPolicy,
       StructuredDataPolicy structuredDataPolicy, EnumSet<AllowableDeviations> deviations) throws Exception {
+    return handleFile(fileName, nilPolicy, structuredDataPolicy, deviations, true);
+  }
+
+  private static Map<String, Object> handleFile(String fileName, NilPolicy nilPolicy,
+      StructuredDataPolicy structuredDataPolicy, EnumSet<AllowableDeviations> deviations, boolean buildParseTree)
+      throws Exception {
     Rfc5424Lexer lexer = new Rfc5424Lexer(CharStreams.fromFileName(fileName));
     CommonTokenStream tokens = new CommonTokenStream(lexer);
     Rfc5424Parser parser = new Rfc5424Parser(new CommonTokenStream(lexer));
     Syslog5424Listener listener = new Syslog5424Listener(new DefaultKeyProvider(), nilPolicy, structuredDataPolicy,
         deviations);
+    parser.setBuildParseTree(buildParseTree);
     parser.addParseListener(listener);
     parser.syslog_msg();
     return listener.getMsgMap();
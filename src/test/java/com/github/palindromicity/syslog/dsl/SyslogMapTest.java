@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.dsl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.palindromicity.syslog.DefaultKeyProvider;
+import com.github.palindromicity.syslog.NilPolicy;
+import com.github.palindromicity.syslog.StructuredDataPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SyslogMapTest {
+
+  @Test
+  public void testBehavesAsHashMap() throws Exception {
+    SyslogMapBuilder builder = new SyslogMapBuilder(new DefaultKeyProvider(), NilPolicy.NULL,
+        StructuredDataPolicy.FLATTEN);
+    builder.onPriority(14);
+    builder.onHostName("host");
+    builder.onAppName(null);
+    for (int i = 0; i < 20; i++) {
+      builder.onSdElementStart("id" + (i % 3));
+      builder.onSdParam("name" + i, "value" + i);
+      builder.onSdParam("name" + i, "last" + i);
+      builder.onSdElementEnd();
+    }
+    Map<String, Object> map = builder.getMsgMap();
+
+    Map<String, Object> expected = new HashMap<>();
+    expected.put(SyslogFieldKeys.HEADER_PRI.getField(), "14");
+    expected.put(SyslogFieldKeys.HEADER_PRI_SEVERITY.getField(), "6");
+    expected.put(SyslogFieldKeys.HEADER_PRI_FACILITY.getField(), "1");
+    expected.put(SyslogFieldKeys.HEADER_HOSTNAME.getField(), "host");
+    expected.put(SyslogFieldKeys.HEADER_APPNAME.getField(), null);
+    for (int i = 0; i < 20; i++) {
+      expected.put("syslog.structuredData.id" + (i % 3) + ".name" + i, "last" + i);
+    }
+    Assert.assertEquals(expected, map);
+    Assert.assertEquals(expected.hashCode(), map.hashCode());
+    Assert.assertEquals(25, map.size());
+    Assert.assertTrue(map.containsKey(SyslogFieldKeys.HEADER_APPNAME.getField()));
+    Assert.assertFalse(map.containsKey(SyslogFieldKeys.HEADER_PROCID.getField()));
+    Assert.assertFalse(map.containsKey("syslog.structuredData.id0.name1"));
+    Assert.assertNull(map.get(42));
+  }
+
+  @Test
+  public void testEmptyStructuredData() throws Exception {
+    SyslogMapBuilder builder = new SyslogMapBuilder(new DefaultKeyProvider(), null, null);
+    builder.onMessage("message");
+    Map<String, Object> map = builder.getMsgMap();
+    Assert.assertEquals(1, map.size());
+    Assert.assertEquals("message", map.get(SyslogFieldKeys.MESSAGE.getField()));
+    Assert.assertNull(map.get("syslog.structuredData.id.name"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutable() throws Exception {
+    SyslogMapBuilder builder = new SyslogMapBuilder(new DefaultKeyProvider(), null, null);
+    builder.onMessage("message");
+    builder.getMsgMap().keySet().clear();
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.json;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.github.palindromicity.syslog.DefaultKeyProvider;
+import com.github.palindromicity.syslog.NilPolicy;
+import com.github.palindromicity.syslog.StructuredDataPolicy;
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.SyslogParserBuilder;
+import com.github.palindromicity.syslog.dsl.ParseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SyslogJsonWriterTest {
+
+  private static final String SYSLOG_LINE = "<14>1 2014-06-20T09:14:07+00:00 loggregator DEA - -"
+      + " [exampleSDID@32473 iut=\"3\" eventSource=\"Other \\\"so called\\\" App\"][id2 a=\"b\"] Removing \"instance\"";
+
+  private static final String HEADER = "{\"syslog.header.pri\":\"14\",\"syslog.header.severity\":\"6\","
+      + "\"syslog.header.facility\":\"1\",\"syslog.header.version\":\"1\","
+      + "\"syslog.header.timestamp\":\"2014-06-20T09:14:07+00:00\",\"syslog.header.hostName\":\"loggregator\","
+      + "\"syslog.header.appName\":\"DEA\"";
+
+  private final SyslogParser parser = new SyslogParserBuilder().build();
+
+  @Test
+  public void testFlatten() throws Exception {
+    StringBuilder out = new StringBuilder();
+    parser.parseLine(SYSLOG_LINE, new SyslogJsonWriter().writeTo(out));
+    Assert.assertEquals(HEADER + ",\"syslog.structuredData.exampleSDID@32473.iut\":\"3\","
+        + "\"syslog.structuredData.exampleSDID@32473.eventSource\":\"Other \\\\\\\"so called\\\\\\\" App\","
+        + "\"syslog.structuredData.id2.a\":\"b\",\"syslog.message\":\"Removing \\\"instance\\\"\"}", out.toString());
+  }
+
+  @Test
+  public void testMapOfMapsAndNil() throws Exception {
+    StringBuilder out = new StringBuilder();
+    SyslogJsonWriter writer = new SyslogJsonWriter(new DefaultKeyProvider(), NilPolicy.NULL,
+        StructuredDataPolicy.MAP_OF_MAPS, true).writeTo(out);
+    parser.parseLine(SYSLOG_LINE, writer);
+    parser.parseLine("<14>1 - - - - - -", writer);
+    Assert.assertEquals(HEADER + ",\"syslog.header.procId\":null,\"syslog.header.msgId\":null,"
+        + "\"syslog.structuredData\":{\"exampleSDID@32473\":{\"iut\":\"3\","
+        + "\"eventSource\":\"Other \\\\\\\"so called\\\\\\\" App\"},\"id2\":{\"a\":\"b\"}},"
+        + "\"syslog.message\":\"Removing \\\"instance\\\"\"}\n"
+        + "{\"syslog.header.pri\":\"14\",\"syslog.header.severity\":\"6\",\"syslog.header.facility\":\"1\","
+        + "\"syslog.header.version\":\"1\",\"syslog.header.timestamp\":null,\"syslog.header.hostName\":null,"
+        + "\"syslog.header.appName\":null,\"syslog.header.procId\":null,\"syslog.header.msgId\":null}\n",
+        out.toString());
+  }
+
+  @Test
+  public void testByteBuffer() throws Exception {
+    ByteBuffer out = ByteBuffer.allocate(256);
+    SyslogJsonWriter writer = new SyslogJsonWriter().writeTo(out);
+    parser.parseLine("<14>1 - host - - - - café", writer);
+    String expected = "{\"syslog.header.pri\":\"14\",\"syslog.header.severity\":\"6\","
+        + "\"syslog.header.facility\":\"1\",\"syslog.header.version\":\"1\",\"syslog.header.hostName\":\"host\","
+        + "\"syslog.message\":\"café\"}";
+    Assert.assertEquals(expected, new String(out.array(), 0, out.position(), StandardCharsets.UTF_8));
+
+    ByteBuffer small = ByteBuffer.allocate(16);
+    try {
+      parser.parseLine(SYSLOG_LINE, writer.writeTo(small));
+      Assert.fail();
+    } catch (BufferOverflowException e) {
+      Assert.assertEquals(0, small.position());
+    }
+  }
+
+  @Test
+  public void testNothingWrittenOnError() throws Exception {
+    StringBuilder out = new StringBuilder();
+    try {
+      parser.parseLine("<14> 2014-06-20T09:14:07+00:00 host app - - - message", new SyslogJsonWriter().writeTo(out));
+      Assert.fail();
+    } catch (ParseException e) {
+      Assert.assertEquals(0, out.length());
+    }
+  }
+
+  @Test
+  public void testEscape() throws Exception {
+    Assert.assertEquals("a\\\"b\\\\c\\n\\u0001\\u001fé",
+        SyslogJsonWriter.escape("a\"b\\c\n\u0001\u001fé", new StringBuilder()).toString());
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.github.palindromicity.syslog.SyslogParserBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeywordMatcherTest {
+
+  @Test
+  public void testMatch() {
+    KeywordMatcher matcher = KeywordMatcher.compile(Arrays.asList("he", "she", "his", "hers", "é", "she"));
+    Assert.assertEquals(6, matcher.size());
+    Assert.assertEquals("hers", matcher.getKeyword(3));
+    Assert.assertArrayEquals(new int[] {1, 5, 0, 3}, matcher.match("ushers, she said"));
+    Assert.assertArrayEquals(new int[] {2, 4}, matcher.match("this café"));
+    Assert.assertArrayEquals(new int[0], matcher.match("nothing to see"));
+    Assert.assertArrayEquals(new int[0], matcher.match(""));
+
+    List<Integer> ids = new ArrayList<>();
+    Assert.assertEquals(3, matcher.match("his hers", ids::add));
+    Assert.assertEquals(Arrays.asList(2, 0, 3), ids);
+  }
+
+  @Test
+  public void testMatchesContains() {
+    Random random = new Random(42);
+    List<String> keywords = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      keywords.add(randomText(random, 1 + random.nextInt(5)));
+    }
+    KeywordMatcher matcher = KeywordMatcher.compile(keywords);
+    for (int i = 0; i < 200; i++) {
+      String text = randomText(random, random.nextInt(80));
+      int[] found = matcher.match(text);
+      Arrays.sort(found);
+      int[] expected = new int[keywords.size()];
+      int count = 0;
+      for (int id = 0; id < keywords.size(); id++) {
+        if (text.contains(keywords.get(id))) {
+          expected[count++] = id;
+        }
+      }
+      Assert.assertArrayEquals(text, Arrays.copyOf(expected, count), found);
+    }
+  }
+
+  private static String randomText(Random random, int length) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      builder.append("abcd ĀĂ".charAt(random.nextInt(7)));
+    }
+    return builder.toString();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyKeyword() {
+    KeywordMatcher.compile(Arrays.asList("a", ""));
+  }
+
+  @Test
+  public void testParserBuilder() {
+    KeywordMatcher matcher = KeywordMatcher.compile(Arrays.asList("denied", "root", "segfault"));
+    Map<String, Object> map = new SyslogParserBuilder().withKeywords(matcher).build()
+        .parseLine("<14>1 - host su - - - permission denied for root");
+    Assert.assertEquals("0,1", map.get("syslog.message.keywords"));
+    map = new SyslogParserBuilder().withKeywords(matcher).build().parseLine("<14>1 - host su - - - ok");
+    Assert.assertFalse(map.containsKey("syslog.message.keywords"));
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.message;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.palindromicity.syslog.DefaultKeyProvider;
+import com.github.palindromicity.syslog.MessageFormat;
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.SyslogParserBuilder;
+import com.github.palindromicity.syslog.SyslogSpecification;
+import com.github.palindromicity.syslog.dsl.SyslogFieldKeys;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MessageFieldExtractorTest {
+
+  private static Map<String, Object> extract(MessageFormat format, String message) {
+    Map<String, Object> fields = new LinkedHashMap<>();
+    new MessageFieldExtractor(new DefaultKeyProvider(), format).extract("app", null, message, fields::put);
+    return fields;
+  }
+
+  @Test
+  public void testKeyValue() {
+    Map<String, Object> fields = extract(MessageFormat.KEY_VALUE,
+        "user=alice action=\"log in\", src=10.0.0.1 note=\"say \\\"hi\\\"\" stray words=");
+    Assert.assertEquals(5, fields.size());
+    Assert.assertEquals("alice", fields.get("syslog.message.user"));
+    Assert.assertEquals("log in", fields.get("syslog.message.action"));
+    Assert.assertEquals("10.0.0.1", fields.get("syslog.message.src"));
+    Assert.assertEquals("say \"hi\"", fields.get("syslog.message.note"));
+    Assert.assertEquals("", fields.get("syslog.message.words"));
+    Assert.assertTrue(extract(MessageFormat.KEY_VALUE, "no pairs \"a=b\" here").isEmpty());
+  }
+
+  @Test
+  public void testJson() {
+    Map<String, Object> fields = extract(MessageFormat.JSON,
+        "\uFEFF {\"user\":\"al\\u0069ce\",\"n\":-1.5e3,\"ok\":true,\"none\":null," // byte order mark
+            + "\"req\":{\"path\":\"/a\\/b\",\"ids\":[1, {\"x\":2}]},\"empty\":{}}");
+    Assert.assertEquals(6, fields.size());
+    Assert.assertEquals("alice", fields.get("syslog.message.user"));
+    Assert.assertEquals("-1.5e3", fields.get("syslog.message.n"));
+    Assert.assertEquals("true", fields.get("syslog.message.ok"));
+    Assert.assertTrue(fields.containsKey("syslog.message.none"));
+    Assert.assertNull(fields.get("syslog.message.none"));
+    Assert.assertEquals("/a/b", fields.get("syslog.message.req.path"));
+    Assert.assertEquals("[1, {\"x\":2}]", fields.get("syslog.message.req.ids"));
+
+    Assert.assertTrue(extract(MessageFormat.JSON, "{\"a\":1} trailing").isEmpty());
+    Assert.assertTrue(extract(MessageFormat.JSON, "{\"a\":1,}").isEmpty());
+    Assert.assertTrue(extract(MessageFormat.JSON, "{\"a\":01x}").isEmpty());
+    Assert.assertTrue(extract(MessageFormat.JSON, "a=1").isEmpty());
+  }
+
+  @Test
+  public void testDetect() {
+    Assert.assertEquals("1", extract(MessageFormat.DETECT, " {\"a\":1}").get("syslog.message.a"));
+    Assert.assertEquals("1", extract(MessageFormat.DETECT, "a=1").get("syslog.message.a"));
+    Assert.assertEquals("1", extract(MessageFormat.DETECT, "{broken a=1").get("syslog.message.a"));
+    Assert.assertTrue(extract(MessageFormat.NONE, "a=1").isEmpty());
+  }
+
+  @Test
+  public void testSelectionRemembered() {
+    AtomicInteger calls = new AtomicInteger();
+    MessageFieldExtractor extractor = new MessageFieldExtractor(new DefaultKeyProvider(), (appName, msgId) -> {
+      calls.incrementAndGet();
+      return "api".equals(appName) ? MessageFormat.JSON : null;
+    });
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(MessageFormat.JSON, extractor.getFormat("api", "req"));
+      Assert.assertEquals(MessageFormat.NONE, extractor.getFormat(null, null));
+    }
+    Assert.assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testParserBuilder() {
+    final String line = "<14>1 2014-06-20T09:14:07+00:00 host api - REQ - {\"status\":200,\"path\":\"/\"}";
+    SyslogParser parser = new SyslogParserBuilder()
+        .withMessageFormat((appName, msgId) -> "REQ".equals(msgId) ? MessageFormat.JSON : MessageFormat.NONE)
+        .withMessageExtractor((appName, msgId, message, fields) -> fields.accept("length", message.length()))
+        .build();
+    Map<String, Object> map = parser.parseLine(line);
+    Assert.assertEquals("{\"status\":200,\"path\":\"/\"}", map.get(SyslogFieldKeys.MESSAGE.getField()));
+    Assert.assertEquals("200", map.get("syslog.message.status"));
+    Assert.assertEquals("/", map.get("syslog.message.path"));
+    Assert.assertEquals(25, map.get("length"));
+    Assert.assertEquals(new HashMap<>(map), new SyslogParserBuilder().withMessageFormat(MessageFormat.JSON)
+        .withMessageExtractor((appName, msgId, message, fields) -> fields.accept("length", message.length()))
+        .withMapFactory(HashMap::new).build().parseLine(line));
+    Assert.assertNull(parser.parseLine(line.replace("REQ", "-")).get("syslog.message.status"));
+
+    map = new SyslogParserBuilder().withSpecification(SyslogSpecification.RFC_3164)
+        .withMessageFormat(MessageFormat.KEY_VALUE).build()
+        .parseLine("<34>Oct 11 22:14:15 mymachine su: user=root tty=/dev/pts/8");
+    Assert.assertEquals("root", map.get("syslog.message.user"));
+    Assert.assertEquals("/dev/pts/8", map.get("syslog.message.tty"));
+  }
+}
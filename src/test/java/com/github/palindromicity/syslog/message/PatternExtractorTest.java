@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.message;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.palindromicity.syslog.DefaultKeyProvider;
+import com.github.palindromicity.syslog.MessageFormat;
+import com.github.palindromicity.syslog.SyslogParserBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PatternExtractorTest {
+
+  private static Map<String, String> match(String pattern, String text) {
+    Map<String, String> fields = new LinkedHashMap<>();
+    return MessagePattern.compile(pattern).match(text, fields::put) ? fields : null;
+  }
+
+  @Test
+  public void testTypes() {
+    Map<String, String> fields = match("%{IP:client} - %{WORD:method}  %{NOTSPACE:path} %{INT:status} "
+        + "%{NUMBER:time}s %{QUOTEDSTRING:agent} %{IPV6:v6}", "10.1.2.3 - GET \t/a?b=1 -404 1.25s "
+        + "\"curl \\\"7\\\"\" fe80::1:2");
+    Assert.assertNotNull(fields);
+    Assert.assertEquals("10.1.2.3", fields.get("client"));
+    Assert.assertEquals("GET", fields.get("method"));
+    Assert.assertEquals("/a?b=1", fields.get("path"));
+    Assert.assertEquals("-404", fields.get("status"));
+    Assert.assertEquals("1.25", fields.get("time"));
+    Assert.assertEquals("curl \\\"7\\\"", fields.get("agent"));
+    Assert.assertEquals("fe80::1:2", fields.get("v6"));
+
+    Assert.assertEquals("2001:db8:0:0:0:0:0:1", match("%{IP:ip}", "2001:db8:0:0:0:0:0:1").get("ip"));
+    Assert.assertEquals("::ffff:10.0.0.1", match("%{IP:ip}", "::ffff:10.0.0.1").get("ip"));
+    Assert.assertNull(match("%{IP:ip}!", "256.1.1.1!"));
+    Assert.assertNull(match("%{IPV6:ip}", "cafe"));
+    Assert.assertNull(match("%{INT:n}", "x1"));
+  }
+
+  @Test
+  public void testData() {
+    Map<String, String> fields = match("user %{DATA:user} from %{IP:ip}%{GREEDYDATA:rest}",
+        "user bob smith from 10.0.0.1 port 22 from 10.0.0.2");
+    Assert.assertEquals("bob smith", fields.get("user"));
+    Assert.assertEquals("10.0.0.1", fields.get("ip"));
+    Assert.assertEquals(" port 22 from 10.0.0.2", fields.get("rest"));
+
+    fields = match("%{GREEDYDATA:head} from %{IP:ip}", "a from b from 10.0.0.2");
+    Assert.assertEquals("a from b", fields.get("head"));
+
+    // only named fields are extracted, and trailing text is allowed
+    fields = match("%{WORD} %{WORD:second}", "one two three");
+    Assert.assertEquals(1, fields.size());
+    Assert.assertEquals("two", fields.get("second"));
+  }
+
+  @Test(timeout = 5000)
+  public void testDataBacktrackingIsBounded() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      text.append("x ");
+    }
+    // without remembering failed positions this takes far longer than the timeout
+    Assert.assertNull(match("%{DATA:a} %{DATA:b} %{DATA:c} %{DATA:d} end", text.toString()));
+    Assert.assertNull(match("%{GREEDYDATA:a} %{GREEDYDATA:b} %{DATA:c} end", text.toString()));
+    text.append("end");
+    Map<String, String> fields = match("%{DATA:a} %{DATA:b} %{DATA:c} %{DATA:d} end", text.toString());
+    Assert.assertEquals("x", fields.get("a"));
+    Assert.assertEquals("x", fields.get("c"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownType() {
+    MessagePattern.compile("%{HOSTNAME:host}");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnclosedField() {
+    MessagePattern.compile("%{INT:n");
+  }
+
+  @Test
+  public void testSelectionPerAppName() {
+    AtomicInteger calls = new AtomicInteger();
+    MessagePattern pattern = MessagePattern.compile("%{WORD:action} by %{WORD:user}");
+    PatternExtractor extractor = new PatternExtractor(new DefaultKeyProvider(), (appName) -> {
+      calls.incrementAndGet();
+      return "sshd".equals(appName) ? pattern : null;
+    });
+    Map<String, Object> fields = new LinkedHashMap<>();
+    for (int i = 0; i < 3; i++) {
+      extractor.extract("sshd", null, "login by root", fields::put);
+      extractor.extract("cron", null, "login by root", fields::put);
+    }
+    Assert.assertEquals(2, calls.get());
+    Assert.assertEquals(2, fields.size());
+    Assert.assertEquals("login", fields.get("syslog.message.action"));
+    Assert.assertEquals("root", fields.get("syslog.message.user"));
+  }
+
+  @Test
+  public void testParserBuilder() {
+    MessagePattern pattern = MessagePattern.compile("%{WORD:action} by %{WORD:user}");
+    Map<String, Object> map = new SyslogParserBuilder()
+        .withMessageFormat(MessageFormat.KEY_VALUE)
+        .withMessagePattern((appName) -> pattern)
+        .build().parseLine("<14>1 - host sshd - - - login by root id=7");
+    Assert.assertEquals("login", map.get("syslog.message.action"));
+    Assert.assertEquals("root", map.get("syslog.message.user"));
+    Assert.assertEquals("7", map.get("syslog.message.id"));
+  }
+}
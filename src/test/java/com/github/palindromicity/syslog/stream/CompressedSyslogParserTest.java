@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.stream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import com.github.palindromicity.syslog.DefaultKeyProvider;
+import com.github.palindromicity.syslog.Framing;
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.SyslogParserBuilder;
+import com.github.palindromicity.syslog.writer.SyslogWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompressedSyslogParserTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final SyslogParser parser = new SyslogParserBuilder().build();
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @After
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  private static String lines(int count) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      builder.append("<14>1 2014-06-20T09:14:07+00:00 host app ").append(i)
+          .append(" - [id n=\"").append(i).append("\"] message ").append(i).append('\n');
+    }
+    return builder.toString();
+  }
+
+  @Test
+  public void testStream() throws Exception {
+    final String text = lines(1000);
+    final List<Map<String, Object>> expected = parser.parseLines(new StringReader(text));
+    CompressedSyslogParser compressed = new CompressedSyslogParser(parser, Framing.NON_TRANSPARENT, executor, 3,
+        1000);
+    List<Map<String, Object>> maps = new ArrayList<>();
+    Assert.assertEquals(1000, compressed.parseCompressed(new ByteArrayInputStream(gzip(text)), maps::add,
+        (line, throwable) -> Assert.fail(line)));
+    Assert.assertEquals(expected, maps);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SyslogWriter writer = new SyslogWriter(new DefaultKeyProvider(), Framing.OCTET_COUNTING).writeTo(out);
+    expected.forEach(writer::write);
+    compressed = new CompressedSyslogParser(parser, Framing.OCTET_COUNTING, executor, 3, 1000);
+    maps.clear();
+    compressed.parseCompressed(new ByteArrayInputStream(gzip(out.toByteArray(), 0, out.size())), maps::add,
+        (line, throwable) -> Assert.fail(line));
+    Assert.assertEquals(expected, maps);
+  }
+
+  @Test
+  public void testMembers() throws Exception {
+    ByteArrayOutputStream text = new ByteArrayOutputStream();
+    text.write(lines(500).getBytes(StandardCharsets.UTF_8));
+    text.write("<14>1 - host app - - - a gzip header ".getBytes(StandardCharsets.UTF_8));
+    text.write(new byte[] {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff});
+    text.write(" in the text\n".getBytes(StandardCharsets.UTF_8));
+    text.write((lines(500) + "<14>1 - host app - - - no line feed").getBytes(StandardCharsets.UTF_8));
+    final byte[] bytes = text.toByteArray();
+    final List<Map<String, Object>> expected = new ArrayList<>();
+    int lineStart = 0;
+    for (int i = 0; i <= bytes.length; i++) {
+      if (i == bytes.length || bytes[i] == '\n') {
+        if (i - lineStart != 59) {
+          expected.add(parser.parseLine(bytes, lineStart, i - lineStart));
+        }
+        lineStart = i + 1;
+      }
+    }
+    // members split mid line, stored without compression so the text's header is seen in the file
+    Path path = folder.newFile("archive.gz").toPath();
+    try (OutputStream out = Files.newOutputStream(path)) {
+      for (int start = 0; start < bytes.length; start += 3001) {
+        out.write(gzip(bytes, start, Math.min(3001, bytes.length - start)));
+      }
+    }
+    CompressedSyslogParser compressed = new CompressedSyslogParser(parser, Framing.NON_TRANSPARENT, executor, 3,
+        1000);
+    List<Map<String, Object>> maps = new ArrayList<>();
+    List<String> errors = new ArrayList<>();
+    Assert.assertEquals(expected.size(), compressed.parseCompressed(path, maps::add,
+        (line, throwable) -> errors.add(line)));
+    Assert.assertEquals(expected, maps);
+    // the line holding the header is not valid UTF-8
+    Assert.assertEquals(1, errors.size());
+    Assert.assertTrue(errors.get(0).startsWith("<14>1 - host app - - - a gzip header"));
+  }
+
+  @Test
+  public void testLargeMembers() throws Exception {
+    final String text = lines(4000);
+    final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    Path path = folder.newFile("large.gz").toPath();
+    try (OutputStream out = Files.newOutputStream(path)) {
+      for (int start = 0; start < bytes.length; start += bytes.length / 4) {
+        out.write(gzip(bytes, start, Math.min(bytes.length / 4, bytes.length - start)));
+      }
+    }
+    // the lines parsed ahead of those delivered are bounded by the buffers, not the size of the members
+    final AtomicInteger parsed = new AtomicInteger();
+    final AtomicInteger mostAhead = new AtomicInteger();
+    SyslogParser counting = (SyslogParser) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {SyslogParser.class}, (proxy, method, args) -> {
+          parsed.incrementAndGet();
+          return method.invoke(parser, args);
+        });
+    CompressedSyslogParser compressed = new CompressedSyslogParser(counting, Framing.NON_TRANSPARENT, executor, 3,
+        1000);
+    final List<Map<String, Object>> maps = new ArrayList<>();
+    Assert.assertEquals(4000, compressed.parseCompressed(path, (map) -> {
+      maps.add(map);
+      mostAhead.accumulateAndGet(parsed.get() - maps.size(), Math::max);
+    }, (line, throwable) -> Assert.fail(line)));
+    Assert.assertEquals(parser.parseLines(new StringReader(text)), maps);
+    Assert.assertTrue(String.valueOf(mostAhead.get()), mostAhead.get() < 200);
+  }
+
+  @Test(expected = IOException.class)
+  public void testCorrupt() throws Exception {
+    byte[] bytes = gzip(lines(100));
+    bytes[bytes.length - 5]++;
+    Path path = folder.newFile("corrupt.gz").toPath();
+    Files.write(path, bytes);
+    new CompressedSyslogParser(parser, Framing.NON_TRANSPARENT).parseCompressed(path, (map) -> { },
+        (line, throwable) -> { });
+  }
+
+  private static byte[] gzip(String text) throws IOException {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    return gzip(bytes, 0, bytes.length);
+  }
+
+  private static byte[] gzip(byte[] bytes, int offset, int length) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+      {
+        def.setLevel(Deflater.NO_COMPRESSION);
+      }
+    }) {
+      gzip.write(bytes, offset, length);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.github.palindromicity.syslog.DefaultKeyProvider;
+import com.github.palindromicity.syslog.Framing;
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.SyslogParserBuilder;
+import com.github.palindromicity.syslog.writer.SyslogWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IncrementalSyslogParserTest {
+
+  private final SyslogParser parser = new SyslogParserBuilder().build();
+
+  @Test
+  public void testChunks() throws Exception {
+    final String text = new String(Files.readAllBytes(Paths.get("src/test/resources/log_mix.txt")),
+        StandardCharsets.UTF_8);
+    final List<Map<String, Object>> expected = parser.parseLines(new StringReader(text));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SyslogWriter writer = new SyslogWriter(new DefaultKeyProvider(), Framing.OCTET_COUNTING).writeTo(out);
+    expected.forEach(writer::write);
+    final byte[] octetCounted = out.toByteArray();
+    final byte[] nonTransparent = text.replace("\n", "\r\n").getBytes(StandardCharsets.UTF_8);
+
+    for (int chunkSize = 1; chunkSize <= 64; chunkSize++) {
+      Assert.assertEquals(expected, feed(Framing.OCTET_COUNTING, octetCounted, chunkSize, false));
+      Assert.assertEquals(expected, feed(Framing.NON_TRANSPARENT, nonTransparent, chunkSize, chunkSize % 2 == 0));
+    }
+  }
+
+  private List<Map<String, Object>> feed(Framing framing, byte[] bytes, int chunkSize, boolean direct) {
+    final List<Map<String, Object>> maps = new ArrayList<>();
+    IncrementalSyslogParser incremental = new IncrementalSyslogParser(parser, framing, maps::add,
+        (line, throwable) -> Assert.fail(String.valueOf(throwable)));
+    for (int start = 0; start < bytes.length; start += chunkSize) {
+      final int length = Math.min(chunkSize, bytes.length - start);
+      ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length + 2);
+      if (!direct) {
+        // a slice not starting at the array's start
+        buffer.put((byte) 'x').position(1);
+        buffer = buffer.slice();
+      }
+      buffer.put(bytes, start, length).flip();
+      incremental.feed(buffer);
+      Assert.assertFalse(buffer.hasRemaining());
+    }
+    incremental.finish();
+    Assert.assertEquals(bytes.length, incremental.getPosition());
+    return maps;
+  }
+
+  @Test
+  public void testPosition() {
+    final List<Map<String, Object>> maps = new ArrayList<>();
+    IncrementalSyslogParser incremental = new IncrementalSyslogParser(parser, Framing.NON_TRANSPARENT, maps::add,
+        (line, throwable) -> Assert.fail());
+    byte[] bytes = "<14>1 - host - - - - one\n<14>1 - host - - - - tw".getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(1, incremental.feed(bytes, 0, bytes.length));
+    Assert.assertEquals(25, incremental.getPosition());
+    bytes = "o\n\n".getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(1, incremental.feed(bytes, 0, bytes.length));
+    Assert.assertEquals(51, incremental.getPosition());
+    Assert.assertEquals("two", maps.get(1).get("syslog.message"));
+  }
+
+  @Test
+  public void testErrors() {
+    final List<Map<String, Object>> maps = new ArrayList<>();
+    final List<String> errors = new ArrayList<>();
+    SyslogFrameDecoder decoder = new SyslogFrameDecoder(Framing.NON_TRANSPARENT, 30);
+    IncrementalSyslogParser incremental = new IncrementalSyslogParser(parser, decoder, maps::add,
+        (line, throwable) -> errors.add(line));
+    byte[] bytes = ("<14>1 - host - - - - far too long a message\nnot syslog\n<14>1 - host - - - - ok")
+        .getBytes(StandardCharsets.UTF_8);
+    for (int start = 0; start < bytes.length; start += 7) {
+      incremental.feed(bytes, start, Math.min(7, bytes.length - start));
+    }
+    Assert.assertEquals(1, incremental.finish());
+    Assert.assertEquals(1, maps.size());
+    Assert.assertEquals(2, errors.size());
+    Assert.assertNull(errors.get(0));
+    Assert.assertEquals("not syslog", errors.get(1));
+
+    // no frame follows the invalid octet count, the rest of the stream is skipped
+    errors.clear();
+    incremental = new IncrementalSyslogParser(parser, Framing.OCTET_COUNTING, maps::add,
+        (line, throwable) -> errors.add(line));
+    bytes = "24 <14>1 - host - - - - onex4 <14>1 - host - - - - two".getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(1, incremental.feed(bytes, 0, bytes.length));
+    Assert.assertEquals(0, incremental.finish());
+    Assert.assertEquals(1, errors.size());
+  }
+
+  @Test
+  public void testResynchronize() {
+    final String one = frame("one");
+    final String two = frame("two");
+    final String three = frame("three");
+    final String stream = one + "junk" + two + "30 xyz" + three + "2000000 " + frame("four");
+    final byte[] bytes = stream.getBytes(StandardCharsets.UTF_8);
+    for (int chunkSize = 1; chunkSize <= 40; chunkSize++) {
+      final List<Map<String, Object>> maps = new ArrayList<>();
+      final List<Throwable> errors = new ArrayList<>();
+      IncrementalSyslogParser incremental = new IncrementalSyslogParser(parser, Framing.OCTET_COUNTING, maps::add,
+          (line, throwable) -> errors.add(throwable));
+      for (int start = 0; start < bytes.length; start += chunkSize) {
+        incremental.feed(bytes, start, Math.min(chunkSize, bytes.length - start));
+      }
+      incremental.finish();
+      Assert.assertEquals(4, maps.size());
+      Assert.assertEquals("four", maps.get(3).get("syslog.message"));
+      Assert.assertEquals(3, errors.size());
+      assertSkipped(errors.get(0), one.length(), 4);
+      assertSkipped(errors.get(1), stream.indexOf(three) - 6, 6);
+      assertSkipped(errors.get(2), stream.indexOf("2000000"), 8);
+    }
+  }
+
+  @Test
+  public void testResynchronizeAfterDigits() {
+    // the skipped bytes end in a digit, which is not part of the next count
+    final StringBuilder builder = new StringBuilder("junk msg1");
+    for (int i = 0; i < 20; i++) {
+      builder.append(frame("message " + i));
+    }
+    final byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+    for (int chunkSize = 1; chunkSize <= 40; chunkSize++) {
+      final List<Map<String, Object>> maps = new ArrayList<>();
+      final List<Throwable> errors = new ArrayList<>();
+      IncrementalSyslogParser incremental = new IncrementalSyslogParser(parser, Framing.OCTET_COUNTING, maps::add,
+          (line, throwable) -> errors.add(throwable));
+      for (int start = 0; start < bytes.length; start += chunkSize) {
+        incremental.feed(bytes, start, Math.min(chunkSize, bytes.length - start));
+      }
+      incremental.finish();
+      Assert.assertEquals(20, maps.size());
+      for (int i = 0; i < 20; i++) {
+        Assert.assertEquals("message " + i, maps.get(i).get("syslog.message"));
+      }
+      Assert.assertEquals(1, errors.size());
+      assertSkipped(errors.get(0), 0, 9);
+    }
+  }
+
+  @Test
+  public void testResynchronizeWithThrowingHandler() {
+    // the default handler throws on the skipped range, after the frame found has been passed on
+    final byte[] bytes = ("junk" + frame("one") + frame("two")).getBytes(StandardCharsets.UTF_8);
+    final List<String> frames = new ArrayList<>();
+    SyslogFrameDecoder decoder = new SyslogFrameDecoder(Framing.OCTET_COUNTING);
+    try {
+      decoder.decode(bytes, 0, bytes.length, (frameBytes, offset, length) ->
+          frames.add(new String(frameBytes, offset, length, StandardCharsets.UTF_8)));
+      Assert.fail();
+    } catch (FramingException e) {
+      assertSkipped(e, 0, 4);
+    }
+    Assert.assertEquals(Collections.singletonList("<14>1 - host - - - - one"), frames);
+  }
+
+  private static String frame(String message) {
+    final String line = "<14>1 - host - - - - " + message;
+    return line.length() + " " + line;
+  }
+
+  private static void assertSkipped(Throwable throwable, long offset, long length) {
+    Assert.assertTrue(throwable instanceof FramingException);
+    Assert.assertEquals(offset, ((FramingException) throwable).getOffset());
+    Assert.assertEquals(length, ((FramingException) throwable).getLength());
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.stream;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.github.palindromicity.syslog.Framing;
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.SyslogParserBuilder;
+import com.github.palindromicity.syslog.dsl.SyslogFieldKeys;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SyslogFileTailerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final SyslogParser parser = new SyslogParserBuilder().build();
+  private final List<String> messages = new ArrayList<>();
+  private Path log;
+  private Path checkpoint;
+
+  @Before
+  public void setUp() throws IOException {
+    log = folder.getRoot().toPath().resolve("syslog.log");
+    checkpoint = folder.getRoot().toPath().resolve("syslog.checkpoint");
+  }
+
+  private SyslogFileTailer newTailer() {
+    return new SyslogFileTailer(parser, Framing.NON_TRANSPARENT, log, checkpoint, this::add,
+        (line, throwable) -> Assert.fail(line), 16);
+  }
+
+  private void add(Map<String, Object> map) {
+    messages.add((String) map.get(SyslogFieldKeys.MESSAGE.getField()));
+  }
+
+  private void append(Path file, String text) throws IOException {
+    Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  private static String line(String message) {
+    return "<14>1 - host app - - - " + message + "\n";
+  }
+
+  @Test
+  public void testFollow() throws Exception {
+    try (SyslogFileTailer tailer = newTailer()) {
+      Assert.assertEquals(0, tailer.poll());
+      append(log, line("one") + line("two") + "<14>1 - host app - - - thr");
+      Assert.assertEquals(2, tailer.poll());
+      Assert.assertEquals(2 * line("one").length(), tailer.getPosition());
+      append(log, "ee\n");
+      Assert.assertEquals(1, tailer.poll());
+
+      // rotation by rename, with more written to the renamed file before and after the rename is seen
+      final Path renamed = log.resolveSibling("syslog.log.1");
+      append(log, line("four"));
+      Files.move(log, renamed);
+      append(log, line("six"));
+      Assert.assertEquals(1, tailer.poll());
+      append(renamed, line("five"));
+      Assert.assertEquals(1, tailer.poll());
+      Assert.assertEquals(1, tailer.poll());
+      Assert.assertEquals(line("six").length(), tailer.getPosition());
+
+      // truncation
+      try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+        channel.truncate(0);
+      }
+      append(log, line("ok"));
+      Assert.assertEquals(1, tailer.poll());
+    }
+    Assert.assertEquals(Arrays.asList("one", "two", "three", "four", "five", "six", "ok"), messages);
+  }
+
+  @Test
+  public void testResume() throws Exception {
+    append(log, line("one") + "<14>1 - host app - - - tw");
+    try (SyslogFileTailer tailer = newTailer()) {
+      Assert.assertEquals(1, tailer.poll());
+    }
+    append(log, "o\n");
+    try (SyslogFileTailer tailer = newTailer()) {
+      Assert.assertEquals(1, tailer.poll());
+    }
+
+    // rotated while no tailer was running
+    append(log, line("three"));
+    Files.move(log, log.resolveSibling("syslog.log.1"));
+    append(log, line("four"));
+    try (SyslogFileTailer tailer = newTailer()) {
+      Assert.assertEquals(2, tailer.poll());
+      Assert.assertEquals(0, tailer.poll());
+    }
+    Assert.assertEquals(Arrays.asList("one", "two", "three", "four"), messages);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ByteScannerTest {
+
+  private static final String DELIMITERS = " []\"\\=";
+
+  @Test
+  public void testIndexOf() {
+    final Random random = new Random(5424);
+    for (int run = 0; run < 1000; run++) {
+      final byte[] bytes = randomBytes(random);
+      final int from = random.nextInt(bytes.length + 1);
+      final int to = from + random.nextInt(bytes.length - from + 1);
+      final byte value = (byte) DELIMITERS.charAt(random.nextInt(DELIMITERS.length()));
+      Assert.assertEquals(naiveIndexOf(bytes, from, to, value, value),
+          ByteScanner.indexOf(bytes, from, to, value));
+      Assert.assertEquals(naiveIndexOf(bytes, from, to, (byte) '"', (byte) '\\'),
+          ByteScanner.indexOfAny(bytes, from, to, (byte) '"', (byte) '\\'));
+    }
+    final byte[] bytes = "<14>1 - hé - - - [id a=\"ÿ\"]".getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(11, ByteScanner.indexOf(bytes, 10, bytes.length, (byte) ' '));
+    Assert.assertEquals(9, ByteScanner.indexOf(bytes, 0, bytes.length, (byte) 0xC3));
+    Assert.assertEquals(-1, ByteScanner.indexOf(bytes, 4, bytes.length, (byte) '>'));
+    Assert.assertEquals(-1, ByteScanner.indexOf(bytes, 3, 3, (byte) '>'));
+  }
+
+  @Test
+  public void testDelimiters() {
+    final Random random = new Random(3164);
+    for (int run = 0; run < 1000; run++) {
+      final byte[] bytes = randomBytes(random);
+      final int[] positions = new int[1 + random.nextInt(8)];
+      int from = 0;
+      int count = positions.length;
+      while (count == positions.length) {
+        count = ByteScanner.delimiters(bytes, from, bytes.length, positions);
+        for (int i = 0; i < count; i++) {
+          final int expected = naiveIndexOf(bytes, from, bytes.length, (byte) 0, (byte) 0);
+          Assert.assertEquals(expected, positions[i]);
+          from = expected + 1;
+        }
+      }
+      Assert.assertEquals(-1, naiveIndexOf(bytes, from, bytes.length, (byte) 0, (byte) 0));
+    }
+  }
+
+  /**
+   * Returns random bytes, mostly letters, with delimiters, bytes with the high bit set, and the bytes next to the
+   * delimiters.
+   */
+  private static byte[] randomBytes(Random random) {
+    final byte[] bytes = new byte[random.nextInt(80)];
+    for (int i = 0; i < bytes.length; i++) {
+      final int kind = random.nextInt(8);
+      if (kind == 0) {
+        bytes[i] = (byte) DELIMITERS.charAt(random.nextInt(DELIMITERS.length()));
+      } else if (kind == 1) {
+        bytes[i] = (byte) (DELIMITERS.charAt(random.nextInt(DELIMITERS.length())) + random.nextInt(3) - 1);
+      } else if (kind == 2) {
+        bytes[i] = (byte) (0x80 | random.nextInt(0x80));
+      } else {
+        bytes[i] = (byte) ('a' + random.nextInt(26));
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns the index of either value, or of any delimiter if both are 0.
+   */
+  private static int naiveIndexOf(byte[] bytes, int from, int to, byte first, byte second) {
+    for (int i = from; i < to; i++) {
+      final boolean any = first == 0 && second == 0 && DELIMITERS.indexOf(bytes[i]) >= 0;
+      if (any || (first != 0 && (bytes[i] == first || bytes[i] == second))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
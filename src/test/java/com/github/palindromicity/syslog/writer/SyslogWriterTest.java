@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 simple-syslog-5424 authors
+ * All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.palindromicity.syslog.writer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.palindromicity.syslog.DefaultKeyProvider;
+import com.github.palindromicity.syslog.Framing;
+import com.github.palindromicity.syslog.NilPolicy;
+import com.github.palindromicity.syslog.StructuredDataPolicy;
+import com.github.palindromicity.syslog.SyslogParser;
+import com.github.palindromicity.syslog.SyslogParserBuilder;
+import com.github.palindromicity.syslog.dsl.SyslogFieldKeys;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SyslogWriterTest {
+
+  private static final String SYSLOG_LINE = "<14>1 2014-06-20T09:14:07+00:00 loggregator DEA - MSG-01"
+      + " [exampleSDID@32473 iut=\"3\" eventSource=\"Other \\\"so called\\\" [App\\]\"][id2 a=\"b\\\\\"] Removing é";
+
+  @Test
+  public void testRoundTripEvents() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().build();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SyslogWriter writer = new SyslogWriter().writeTo(out);
+    for (String line : Files.readAllLines(Paths.get("src/test/resources/log_mix.txt"), StandardCharsets.UTF_8)) {
+      out.reset();
+      parser.parseLine(line, writer);
+      Assert.assertEquals(line, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+    out.reset();
+    parser.parseLine(SYSLOG_LINE, writer);
+    Assert.assertEquals(SYSLOG_LINE, new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testRoundTripMaps() throws Exception {
+    for (StructuredDataPolicy policy : StructuredDataPolicy.values()) {
+      for (NilPolicy nilPolicy : NilPolicy.values()) {
+        SyslogParser parser = new SyslogParserBuilder().withStructuredDataPolicy(policy).withNilPolicy(nilPolicy)
+            .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SyslogWriter().writeTo(out).write(parser.parseLine(SYSLOG_LINE));
+        Assert.assertEquals(SYSLOG_LINE, new String(out.toByteArray(), StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  @Test
+  public void testWriteEnrichedMap() throws Exception {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put(SyslogFieldKeys.HEADER_PRI_FACILITY.getField(), "4");
+    map.put(SyslogFieldKeys.HEADER_PRI_SEVERITY.getField(), 2);
+    map.put(SyslogFieldKeys.HEADER_VERSION.getField(), "1");
+    map.put(SyslogFieldKeys.HEADER_HOSTNAME.getField(), "host");
+    map.put(SyslogFieldKeys.HEADER_APPNAME.getField(), "");
+    map.put("syslog.structuredData.origin.ip", "10.0.0.1");
+    map.put("syslog.structuredData.meta@1.note", "say \"hi\" [ok] \\");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new SyslogWriter().writeTo(out).write(map);
+    String line = new String(out.toByteArray(), StandardCharsets.UTF_8);
+    Assert.assertEquals("<34>1 - host - - - [origin ip=\"10.0.0.1\"][meta@1 note=\"say \\\"hi\\\" [ok\\] \\\\\"]",
+        line);
+    Assert.assertEquals("say \\\"hi\\\" [ok\\] \\\\",
+        new SyslogParserBuilder().build().parseLine(line).get("syslog.structuredData.meta@1.note"));
+  }
+
+  @Test
+  public void testFraming() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().build();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SyslogWriter writer = new SyslogWriter(new DefaultKeyProvider(), Framing.OCTET_COUNTING).writeTo(out);
+    parser.parseLine("<14>1 - host - - - - hello", writer);
+    parser.parseLine("<14>1 - host - - - - é", writer);
+    Assert.assertEquals("26 <14>1 - host - - - - hello23 <14>1 - host - - - - é",
+        new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+    out.reset();
+    writer = new SyslogWriter(new DefaultKeyProvider(), Framing.NON_TRANSPARENT).writeTo(out);
+    parser.parseLine("<14>1 - host - - - -", writer);
+    Assert.assertEquals("<14>1 - host - - - -\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testByteBuffer() throws Exception {
+    SyslogParser parser = new SyslogParserBuilder().build();
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    SyslogWriter writer = new SyslogWriter().writeTo(buffer);
+    parser.parseLine("<14>1 - host - - - - hello", writer);
+    Assert.assertEquals("<14>1 - host - - - - hello",
+        new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+
+    ByteBuffer small = ByteBuffer.allocate(16);
+    try {
+      parser.parseLine(SYSLOG_LINE, writer.writeTo(small));
+      Assert.fail();
+    } catch (BufferOverflowException e) {
+      Assert.assertEquals(0, small.position());
+    }
+  }
+}